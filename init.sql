@@ -16,6 +16,17 @@ CREATE TABLE IF NOT EXISTS `user`
 ) ENGINE = InnoDB
   DEFAULT CHARSET = utf8mb4;
 
+/*
+    ngram 全文索引会丢弃包含停用词的词元（比如包含 a 的 "ja" 和 "va"），导致 "java" 和 "api" 之类的关键词搜不到，
+    所以在创建 bookmark 表的全文索引之前关闭停用词（ngram_token_size 需要在启动 MySQL 时设置为 2）。
+
+    已有的数据库需要在关闭停用词之后重建全文索引：
+    SET SESSION innodb_ft_enable_stopword = OFF;
+    ALTER TABLE `bookmark` DROP INDEX `ft_idx_bookmark_title_desc`;
+    ALTER TABLE `bookmark` ADD FULLTEXT KEY `ft_idx_bookmark_title_desc` (`title`, `desc`) WITH PARSER ngram;
+ */
+SET SESSION innodb_ft_enable_stopword = OFF;
+
 CREATE TABLE IF NOT EXISTS `bookmark`
 (
     `id`            bigint unsigned NOT NULL,
@@ -28,7 +39,17 @@ CREATE TABLE IF NOT EXISTS `bookmark`
     `is_public`     boolean      DEFAULT true,
     `is_deleted`    boolean      DEFAULT false,
     PRIMARY KEY (`id`),
-    UNIQUE KEY `unique_idx_user_id_url` (`user_id`, `url`)
+    UNIQUE KEY `unique_idx_user_id_url` (`user_id`, `url`),
+    /*
+        按 url 分页（`url > 上一页最后的 url`）的时候，
+        从索引中上一页结束的位置开始扫描，深分页和第一页的代价相同
+     */
+    KEY `idx_bookmark_url` (`url`),
+    /*
+        使用 ngram 解析器支持中文和日文，搜索书签时用
+        match(title, `desc`) against ('"关键词"' in boolean mode) 代替 like '%关键词%'，避免全表扫描
+     */
+    FULLTEXT KEY `ft_idx_bookmark_title_desc` (`title`, `desc`) WITH PARSER ngram
 ) ENGINE = InnoDB
   DEFAULT CHARSET = utf8mb4;
 
@@ -97,8 +118,9 @@ CREATE TABLE IF NOT EXISTS `system_menu`
 
 CREATE TABLE IF NOT EXISTS `bookmark_view`
 (
-    `bookmark_id` bigint  not null,
-    `views`       int(11) not null,
+    `bookmark_id`     bigint  not null,
+    `views`           int(11) not null,
+    `unique_visitors` int(11) not null default 0,
     PRIMARY KEY (`bookmark_id`),
     /*
         当 SQL 为：
@@ -128,6 +150,28 @@ CREATE TABLE IF NOT EXISTS `tag`
 ) ENGINE = InnoDB
   DEFAULT CHARSET = utf8mb4;
 
+CREATE TABLE IF NOT EXISTS `search_outbox`
+(
+    `id`            bigint unsigned NOT NULL AUTO_INCREMENT,
+    /*
+     Elasticsearch index (web, tag or user) and ID of the document that has changed.
+     The relay reads the current data of the document from database, so the changes
+     of the same document are applied to Elasticsearch only once.
+     */
+    `index_name`    varchar(10)     NOT NULL,
+    `doc_id`        varchar(600)    NOT NULL,
+    `creation_time` datetime DEFAULT CURRENT_TIMESTAMP,
+    /*
+     Time when the change was sent to Elasticsearch. The change is deleted after Elasticsearch acknowledges
+     the write, or sent again if it's not acknowledged in time, e.g. the node crashed before sending it.
+     Existing databases need to add it:
+     ALTER TABLE `search_outbox` ADD COLUMN `relay_time` datetime DEFAULT NULL;
+     */
+    `relay_time`    datetime DEFAULT NULL,
+    PRIMARY KEY (`id`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4;
+
 CREATE TABLE IF NOT EXISTS `id_generator`
 (
     `biz_tag`     varchar(256) NOT NULL,
@@ -51,4 +51,26 @@ public class AsyncConfig implements AsyncConfigurer {
         return executor;
     }
 
+    /**
+     * Executor that handles the responses of Elasticsearch searches,
+     * so the I/O threads of the Elasticsearch client are not blocked by the database queries
+     * when converting the hits
+     *
+     * @return executor
+     */
+    @Bean("searchTaskExecutor")
+    public Executor searchTaskExecutor() {
+        int processors = Runtime.getRuntime().availableProcessors();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(processors);
+        executor.setMaxPoolSize(processors * 2);
+        executor.setKeepAliveSeconds(asyncConfigProperties.getAliveSeconds());
+        executor.setQueueCapacity(asyncConfigProperties.getQueueCapacity());
+        // Abort, so the search fails immediately instead of waiting for the deadline
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setThreadNamePrefix("search-");
+        executor.initialize();
+        return executor;
+    }
 }
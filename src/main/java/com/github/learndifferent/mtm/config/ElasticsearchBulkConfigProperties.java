@@ -0,0 +1,133 @@
+package com.github.learndifferent.mtm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration Properties of the bulk indexer that sends all document writes to Elasticsearch
+ *
+ * @author zhou
+ * @date 2023/10/21
+ */
+@Configuration
+@ConfigurationProperties(prefix = "custom-elasticsearch-bulk")
+public class ElasticsearchBulkConfigProperties {
+
+    /**
+     * A bulk request is sent when it has this number of actions
+     */
+    private int bulkActions = 500;
+
+    /**
+     * A bulk request is sent when it has this size of data
+     */
+    private long bulkSizeKb = 5120L;
+
+    /**
+     * A bulk request is sent after this interval even if it's not full
+     */
+    private long flushIntervalMillis = 1000L;
+
+    /**
+     * Number of bulk requests that can be in flight at the same time
+     */
+    private int concurrentRequests = 1;
+
+    /**
+     * Max number of documents waiting to be added to the bulk request.
+     * The documents will be rejected if the buffer is full.
+     */
+    private int queueCapacity = 10_000;
+
+    /**
+     * Initial delay of retrying the documents that are rejected by Elasticsearch, which grows exponentially
+     */
+    private long retryInitialDelayMillis = 100L;
+
+    /**
+     * Max number of retries for the documents that are rejected by Elasticsearch
+     */
+    private int maxRetries = 3;
+
+    /**
+     * Number of rows read from database and sent in one bulk request when rebuilding an index
+     */
+    private int reindexBatchSize = 1000;
+
+    /**
+     * Number of bulk requests that can be in flight at the same time when rebuilding an index
+     */
+    private int reindexConcurrentRequests = 2;
+
+    public int getBulkActions() {
+        return bulkActions;
+    }
+
+    public void setBulkActions(int bulkActions) {
+        this.bulkActions = bulkActions;
+    }
+
+    public long getBulkSizeKb() {
+        return bulkSizeKb;
+    }
+
+    public void setBulkSizeKb(long bulkSizeKb) {
+        this.bulkSizeKb = bulkSizeKb;
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public void setFlushIntervalMillis(long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public int getConcurrentRequests() {
+        return concurrentRequests;
+    }
+
+    public void setConcurrentRequests(int concurrentRequests) {
+        this.concurrentRequests = concurrentRequests;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public long getRetryInitialDelayMillis() {
+        return retryInitialDelayMillis;
+    }
+
+    public void setRetryInitialDelayMillis(long retryInitialDelayMillis) {
+        this.retryInitialDelayMillis = retryInitialDelayMillis;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public int getReindexBatchSize() {
+        return reindexBatchSize;
+    }
+
+    public void setReindexBatchSize(int reindexBatchSize) {
+        this.reindexBatchSize = reindexBatchSize;
+    }
+
+    public int getReindexConcurrentRequests() {
+        return reindexConcurrentRequests;
+    }
+
+    public void setReindexConcurrentRequests(int reindexConcurrentRequests) {
+        this.reindexConcurrentRequests = reindexConcurrentRequests;
+    }
+}
@@ -17,6 +17,16 @@ public class ElasticsearchConfigProperties {
     private Integer port;
     private String schemeName;
 
+    /**
+     * Timeout of the search in Elasticsearch, after which Elasticsearch returns the hits it has found
+     */
+    private long searchTimeoutMillis = 300L;
+
+    /**
+     * Deadline of the search request, after which the request fails and the search is cancelled
+     */
+    private long searchDeadlineMillis = 500L;
+
     public String getHost() {
         return host;
     }
@@ -40,4 +50,20 @@ public class ElasticsearchConfigProperties {
     public void setSchemeName(String schemeName) {
         this.schemeName = schemeName;
     }
+
+    public long getSearchTimeoutMillis() {
+        return searchTimeoutMillis;
+    }
+
+    public void setSearchTimeoutMillis(long searchTimeoutMillis) {
+        this.searchTimeoutMillis = searchTimeoutMillis;
+    }
+
+    public long getSearchDeadlineMillis() {
+        return searchDeadlineMillis;
+    }
+
+    public void setSearchDeadlineMillis(long searchDeadlineMillis) {
+        this.searchDeadlineMillis = searchDeadlineMillis;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package com.github.learndifferent.mtm.config;
+
+import com.github.learndifferent.mtm.constant.consist.IdGeneratorConstant;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * ID Generator Configuration Properties
+ *
+ * @author zhou
+ * @date 2023/9/3
+ */
+@Configuration
+@ConfigurationProperties(prefix = "custom-id-generator")
+public class IdGeneratorConfigProperties {
+
+    /**
+     * Min step of a segment, which is also the initial step of a business tag
+     */
+    private int minStep = IdGeneratorConstant.STEP;
+
+    /**
+     * Max step of a segment
+     */
+    private int maxStep = IdGeneratorConstant.MAX_STEP;
+
+    /**
+     * Expected minutes for a business tag to run out of a segment.
+     * <p>
+     * If a segment runs out faster than this, the step will be doubled.
+     * If it takes more than twice this time, the step will be halved.
+     * </p>
+     */
+    private long segmentDurationMinutes = IdGeneratorConstant.SEGMENT_DURATION_MINUTES;
+
+    /**
+     * Lease time of the snowflake worker ID, which is renewed 3 times in each lease time
+     */
+    private long workerIdLeaseSeconds = IdGeneratorConstant.WORKER_ID_LEASE_SECONDS;
+
+    /**
+     * Safety margin of the lease. If the lease hasn't been renewed for the lease time minus this margin,
+     * no more IDs are generated with the worker ID, since the lease may have expired in the store
+     * and the worker ID may have been leased by another node.
+     */
+    private long workerIdLeaseMarginSeconds = IdGeneratorConstant.WORKER_ID_LEASE_MARGIN_SECONDS;
+
+    public int getMinStep() {
+        return minStep;
+    }
+
+    public void setMinStep(int minStep) {
+        this.minStep = minStep;
+    }
+
+    public int getMaxStep() {
+        return maxStep;
+    }
+
+    public void setMaxStep(int maxStep) {
+        this.maxStep = maxStep;
+    }
+
+    public long getSegmentDurationMinutes() {
+        return segmentDurationMinutes;
+    }
+
+    public void setSegmentDurationMinutes(long segmentDurationMinutes) {
+        this.segmentDurationMinutes = segmentDurationMinutes;
+    }
+
+    public long getWorkerIdLeaseSeconds() {
+        return workerIdLeaseSeconds;
+    }
+
+    public void setWorkerIdLeaseSeconds(long workerIdLeaseSeconds) {
+        this.workerIdLeaseSeconds = workerIdLeaseSeconds;
+    }
+
+    public long getWorkerIdLeaseMarginSeconds() {
+        return workerIdLeaseMarginSeconds;
+    }
+
+    public void setWorkerIdLeaseMarginSeconds(long workerIdLeaseMarginSeconds) {
+        this.workerIdLeaseMarginSeconds = workerIdLeaseMarginSeconds;
+    }
+}
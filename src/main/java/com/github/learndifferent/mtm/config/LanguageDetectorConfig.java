@@ -5,9 +5,14 @@ import com.github.pemistahl.lingua.api.LanguageDetector;
 import com.github.pemistahl.lingua.api.LanguageDetectorBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
 /**
  * Language Detector Configuration
+ * <p>
+ * The detector is created when it's used for the first time, so the nodes that never search
+ * don't spend startup time and heap on the language models.
+ * </p>
  *
  * @author zhou
  * @date 2022/3/13
@@ -16,6 +21,7 @@ import org.springframework.context.annotation.Configuration;
 public class LanguageDetectorConfig {
 
     @Bean
+    @Lazy
     public LanguageDetector languageDetector() {
         return LanguageDetectorBuilder
                 .fromLanguages(Language.JAPANESE, Language.CHINESE)
@@ -0,0 +1,96 @@
+package com.github.learndifferent.mtm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Search Result Cache Configuration Properties
+ *
+ * @author zhou
+ * @date 2023/11/4
+ */
+@Configuration
+@ConfigurationProperties(prefix = "custom-search-cache")
+public class SearchCacheConfigProperties {
+
+    /**
+     * True if the search results are cached
+     */
+    private boolean enabled = true;
+
+    /**
+     * Max number of search results cached in memory. The least recently used ones are evicted first.
+     */
+    private int localMaxEntries = 10000;
+
+    /**
+     * True if the search results are also cached in Redis, which is shared by all nodes
+     */
+    private boolean redisEnabled = false;
+
+    /**
+     * Time to live of the search results in Redis.
+     * The results are invalidated by the generation of the index, so this only removes the unused ones.
+     */
+    private long redisTtlSeconds = 600L;
+
+    /**
+     * Interval of reading the generations of the indices from Redis,
+     * which is how long a node may serve the results that another node has invalidated
+     */
+    private long generationRefreshMillis = 1000L;
+
+    /**
+     * Delay of invalidating the results again after the documents are written to Elasticsearch,
+     * which should be longer than the refresh interval of the index, so the new documents are searchable
+     */
+    private long refreshDelayMillis = 1500L;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getLocalMaxEntries() {
+        return localMaxEntries;
+    }
+
+    public void setLocalMaxEntries(int localMaxEntries) {
+        this.localMaxEntries = localMaxEntries;
+    }
+
+    public boolean isRedisEnabled() {
+        return redisEnabled;
+    }
+
+    public void setRedisEnabled(boolean redisEnabled) {
+        this.redisEnabled = redisEnabled;
+    }
+
+    public long getRedisTtlSeconds() {
+        return redisTtlSeconds;
+    }
+
+    public void setRedisTtlSeconds(long redisTtlSeconds) {
+        this.redisTtlSeconds = redisTtlSeconds;
+    }
+
+    public long getGenerationRefreshMillis() {
+        return generationRefreshMillis;
+    }
+
+    public void setGenerationRefreshMillis(long generationRefreshMillis) {
+        this.generationRefreshMillis = generationRefreshMillis;
+    }
+
+    public long getRefreshDelayMillis() {
+        return refreshDelayMillis;
+    }
+
+    public void setRefreshDelayMillis(long refreshDelayMillis) {
+        this.refreshDelayMillis = refreshDelayMillis;
+    }
+}
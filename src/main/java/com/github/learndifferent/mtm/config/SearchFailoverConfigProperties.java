@@ -0,0 +1,123 @@
+package com.github.learndifferent.mtm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration Properties of failing over the searches from Elasticsearch to MySQL
+ *
+ * @author zhou
+ * @date 2023/12/2
+ */
+@Configuration
+@ConfigurationProperties(prefix = "custom-search-failover")
+public class SearchFailoverConfigProperties {
+
+    /**
+     * True if the searches in Elasticsearch fall back to MySQL when Elasticsearch is slow or unavailable
+     */
+    private boolean enabled = true;
+
+    /**
+     * The searches in Elasticsearch are shed to MySQL when the 99th percentile of their latencies
+     * is over this budget
+     */
+    private long latencyBudgetMillis = 250L;
+
+    /**
+     * Max time to wait for Elasticsearch before falling back to MySQL, which should be shorter than
+     * {@link ElasticsearchConfigProperties#getSearchDeadlineMillis()} to leave time for searching in MySQL
+     */
+    private long deadlineMillis = 350L;
+
+    /**
+     * Number of the latest searches that the percentiles and the failure rate are calculated from
+     */
+    private int windowSize = 100;
+
+    /**
+     * Min number of searches in the window before the percentiles and the failure rate are checked
+     */
+    private int minSamples = 20;
+
+    /**
+     * The searches in Elasticsearch are shed to MySQL when the failure rate reaches this
+     */
+    private double failureRateThreshold = 0.5D;
+
+    /**
+     * How long all searches are shed to MySQL before Elasticsearch is probed again
+     */
+    private long openMillis = 10000L;
+
+    /**
+     * Number of steps to probe Elasticsearch back in. The share of the searches sent to Elasticsearch
+     * starts from 1 / probe-steps and increases by that after each successful probe,
+     * until all searches are sent to Elasticsearch.
+     */
+    private int probeSteps = 10;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getLatencyBudgetMillis() {
+        return latencyBudgetMillis;
+    }
+
+    public void setLatencyBudgetMillis(long latencyBudgetMillis) {
+        this.latencyBudgetMillis = latencyBudgetMillis;
+    }
+
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    public void setDeadlineMillis(long deadlineMillis) {
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    public void setMinSamples(int minSamples) {
+        this.minSamples = minSamples;
+    }
+
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(double failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public long getOpenMillis() {
+        return openMillis;
+    }
+
+    public void setOpenMillis(long openMillis) {
+        this.openMillis = openMillis;
+    }
+
+    public int getProbeSteps() {
+        return probeSteps;
+    }
+
+    public void setProbeSteps(int probeSteps) {
+        this.probeSteps = probeSteps;
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.learndifferent.mtm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Search Outbox Configuration Properties
+ *
+ * @author zhou
+ * @date 2023/10/29
+ */
+@Configuration
+@ConfigurationProperties(prefix = "custom-search-outbox")
+public class SearchOutboxConfigProperties {
+
+    /**
+     * Interval of relaying the changes in the outbox to Elasticsearch
+     */
+    private long relayIntervalMillis = 1000L;
+
+    /**
+     * Number of changes read from the outbox in one batch.
+     * The changes of the same document in a batch are applied only once.
+     */
+    private int batchSize = 500;
+
+    /**
+     * Max number of batches relayed in one run, so one run doesn't hold the lock for too long
+     */
+    private int maxBatchesPerRelay = 20;
+
+    /**
+     * The changes that Elasticsearch has not acknowledged in this number of seconds since they were sent
+     * are sent again, e.g. the node crashed before the bulk request was sent
+     */
+    private long ackTimeoutSeconds = 300L;
+
+    public long getRelayIntervalMillis() {
+        return relayIntervalMillis;
+    }
+
+    public void setRelayIntervalMillis(long relayIntervalMillis) {
+        this.relayIntervalMillis = relayIntervalMillis;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getMaxBatchesPerRelay() {
+        return maxBatchesPerRelay;
+    }
+
+    public void setMaxBatchesPerRelay(int maxBatchesPerRelay) {
+        this.maxBatchesPerRelay = maxBatchesPerRelay;
+    }
+
+    public long getAckTimeoutSeconds() {
+        return ackTimeoutSeconds;
+    }
+
+    public void setAckTimeoutSeconds(long ackTimeoutSeconds) {
+        this.ackTimeoutSeconds = ackTimeoutSeconds;
+    }
+}
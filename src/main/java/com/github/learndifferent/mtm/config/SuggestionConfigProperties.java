@@ -0,0 +1,80 @@
+package com.github.learndifferent.mtm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Autocomplete Suggestion Configuration Properties
+ *
+ * @author zhou
+ * @date 2023/11/5
+ */
+@Configuration
+@ConfigurationProperties(prefix = "custom-suggestion")
+public class SuggestionConfigProperties {
+
+    /**
+     * Max number of suggestions of a prefix
+     */
+    private int maxSuggestions = 10;
+
+    /**
+     * Interval of reading the changes of tags and users
+     */
+    private long pollIntervalMillis = 1000L;
+
+    /**
+     * Number of rows read from database in one batch when loading all tags and users
+     */
+    private int loadBatchSize = 1000;
+
+    /**
+     * Interval of loading all tags and users again, in case some changes are lost
+     */
+    private long reloadIntervalMinutes = 360L;
+
+    /**
+     * Max number of changes kept in Redis. The nodes that fall behind load all tags and users again.
+     */
+    private long maxChanges = 10000L;
+
+    public int getMaxSuggestions() {
+        return maxSuggestions;
+    }
+
+    public void setMaxSuggestions(int maxSuggestions) {
+        this.maxSuggestions = maxSuggestions;
+    }
+
+    public long getPollIntervalMillis() {
+        return pollIntervalMillis;
+    }
+
+    public void setPollIntervalMillis(long pollIntervalMillis) {
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    public int getLoadBatchSize() {
+        return loadBatchSize;
+    }
+
+    public void setLoadBatchSize(int loadBatchSize) {
+        this.loadBatchSize = loadBatchSize;
+    }
+
+    public long getReloadIntervalMinutes() {
+        return reloadIntervalMinutes;
+    }
+
+    public void setReloadIntervalMinutes(long reloadIntervalMinutes) {
+        this.reloadIntervalMinutes = reloadIntervalMinutes;
+    }
+
+    public long getMaxChanges() {
+        return maxChanges;
+    }
+
+    public void setMaxChanges(long maxChanges) {
+        this.maxChanges = maxChanges;
+    }
+}
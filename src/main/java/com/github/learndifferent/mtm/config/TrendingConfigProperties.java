@@ -0,0 +1,160 @@
+package com.github.learndifferent.mtm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Trending Searches Configuration Properties
+ *
+ * @author zhou
+ * @date 2023/11/11
+ */
+@Configuration
+@ConfigurationProperties(prefix = "custom-trending")
+public class TrendingConfigProperties {
+
+    /**
+     * Interval of flushing the trending keywords counted in memory to Redis
+     */
+    private long flushIntervalMillis = 5000L;
+
+    /**
+     * Max number of distinct keywords counted in memory in each interval.
+     * The keywords that occur more than 1 / capacity of all occurrences are always counted.
+     */
+    private int sketchCapacity = 1000;
+
+    /**
+     * Number of keywords that occur most in each interval that are flushed to Redis
+     */
+    private int flushSize = 100;
+
+    /**
+     * Max number of keywords whose tokens are cached in memory
+     */
+    private int analysisCacheSize = 10000;
+
+    /**
+     * Max number of keywords whose languages detected by the language models are cached in memory
+     */
+    private int languageCacheSize = 10000;
+
+    /**
+     * Length of each time bucket of the trending keywords
+     */
+    private int bucketMinutes = 10;
+
+    /**
+     * Number of the latest buckets that the trending keywords are merged from.
+     * The older buckets expire.
+     */
+    private int bucketCount = 12;
+
+    /**
+     * The scores of a bucket are halved for every half-life since the end of the bucket when they are merged
+     */
+    private int halfLifeMinutes = 30;
+
+    /**
+     * Max number of keywords in each bucket. The keywords with the lowest scores are trimmed.
+     */
+    private int bucketMaxSize = 1000;
+
+    /**
+     * Interval of merging the buckets into the top trending keywords, which are served from memory
+     */
+    private long topRefreshMillis = 5000L;
+
+    /**
+     * Number of the top trending keywords
+     */
+    private int topSize = 20;
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public void setFlushIntervalMillis(long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public int getSketchCapacity() {
+        return sketchCapacity;
+    }
+
+    public void setSketchCapacity(int sketchCapacity) {
+        this.sketchCapacity = sketchCapacity;
+    }
+
+    public int getFlushSize() {
+        return flushSize;
+    }
+
+    public void setFlushSize(int flushSize) {
+        this.flushSize = flushSize;
+    }
+
+    public int getAnalysisCacheSize() {
+        return analysisCacheSize;
+    }
+
+    public void setAnalysisCacheSize(int analysisCacheSize) {
+        this.analysisCacheSize = analysisCacheSize;
+    }
+
+    public int getLanguageCacheSize() {
+        return languageCacheSize;
+    }
+
+    public void setLanguageCacheSize(int languageCacheSize) {
+        this.languageCacheSize = languageCacheSize;
+    }
+
+    public int getBucketMinutes() {
+        return bucketMinutes;
+    }
+
+    public void setBucketMinutes(int bucketMinutes) {
+        this.bucketMinutes = bucketMinutes;
+    }
+
+    public int getBucketCount() {
+        return bucketCount;
+    }
+
+    public void setBucketCount(int bucketCount) {
+        this.bucketCount = bucketCount;
+    }
+
+    public int getHalfLifeMinutes() {
+        return halfLifeMinutes;
+    }
+
+    public void setHalfLifeMinutes(int halfLifeMinutes) {
+        this.halfLifeMinutes = halfLifeMinutes;
+    }
+
+    public int getBucketMaxSize() {
+        return bucketMaxSize;
+    }
+
+    public void setBucketMaxSize(int bucketMaxSize) {
+        this.bucketMaxSize = bucketMaxSize;
+    }
+
+    public long getTopRefreshMillis() {
+        return topRefreshMillis;
+    }
+
+    public void setTopRefreshMillis(long topRefreshMillis) {
+        this.topRefreshMillis = topRefreshMillis;
+    }
+
+    public int getTopSize() {
+        return topSize;
+    }
+
+    public void setTopSize(int topSize) {
+        this.topSize = topSize;
+    }
+}
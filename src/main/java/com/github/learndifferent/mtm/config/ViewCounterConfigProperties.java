@@ -0,0 +1,112 @@
+package com.github.learndifferent.mtm.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * View Counter Configuration Properties
+ *
+ * @author zhou
+ * @date 2023/9/24
+ */
+@Configuration
+@ConfigurationProperties(prefix = "custom-view-counter")
+public class ViewCounterConfigProperties {
+
+    /**
+     * Interval of flushing the views aggregated in memory to Redis
+     */
+    private long flushIntervalMillis = 1000L;
+
+    /**
+     * The views counter of a bookmark will be removed from memory
+     * if the bookmark has no views in these consecutive flushes
+     */
+    private int idleFlushesBeforeEviction = 60;
+
+    /**
+     * Number of Redis hashes that store the views.
+     * <p>
+     * Changing this will make the views in the other hashes invisible,
+     * so it should not be changed once the views are stored.
+     * </p>
+     */
+    private int hashShards = 64;
+
+    /**
+     * Interval of syncing the views that have changed since the last sync to the database
+     */
+    private long deltaSyncIntervalMillis = 30_000L;
+
+    /**
+     * Number of rows in one upsert statement when saving views to the database
+     */
+    private int syncChunkSize = 500;
+
+    /**
+     * Number of partitions of the batch job that saves all views to the database,
+     * and each partition runs in its own thread
+     */
+    private int batchPartitions = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * True if counting the unique visitors (user ID, or IP for Guest) of bookmarks with HyperLogLog
+     */
+    private boolean uniqueVisitorsEnabled = false;
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public void setFlushIntervalMillis(long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public int getIdleFlushesBeforeEviction() {
+        return idleFlushesBeforeEviction;
+    }
+
+    public void setIdleFlushesBeforeEviction(int idleFlushesBeforeEviction) {
+        this.idleFlushesBeforeEviction = idleFlushesBeforeEviction;
+    }
+
+    public int getHashShards() {
+        return hashShards;
+    }
+
+    public void setHashShards(int hashShards) {
+        this.hashShards = hashShards;
+    }
+
+    public long getDeltaSyncIntervalMillis() {
+        return deltaSyncIntervalMillis;
+    }
+
+    public void setDeltaSyncIntervalMillis(long deltaSyncIntervalMillis) {
+        this.deltaSyncIntervalMillis = deltaSyncIntervalMillis;
+    }
+
+    public int getSyncChunkSize() {
+        return syncChunkSize;
+    }
+
+    public void setSyncChunkSize(int syncChunkSize) {
+        this.syncChunkSize = syncChunkSize;
+    }
+
+    public int getBatchPartitions() {
+        return batchPartitions;
+    }
+
+    public void setBatchPartitions(int batchPartitions) {
+        this.batchPartitions = batchPartitions;
+    }
+
+    public boolean isUniqueVisitorsEnabled() {
+        return uniqueVisitorsEnabled;
+    }
+
+    public void setUniqueVisitorsEnabled(boolean uniqueVisitorsEnabled) {
+        this.uniqueVisitorsEnabled = uniqueVisitorsEnabled;
+    }
+}
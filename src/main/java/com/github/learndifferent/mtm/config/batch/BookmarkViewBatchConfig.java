@@ -1,28 +1,27 @@
 package com.github.learndifferent.mtm.config.batch;
 
-import cn.hutool.core.collection.ListUtil;
-import com.github.learndifferent.mtm.constant.consist.RedisConstant;
+import com.github.learndifferent.mtm.config.ViewCounterConfigProperties;
 import com.github.learndifferent.mtm.entity.ViewDataDO;
+import com.github.learndifferent.mtm.manager.ViewAggregationManager;
+import com.github.learndifferent.mtm.manager.ViewStorageManager;
+import com.github.learndifferent.mtm.mapper.BookmarkViewMapper;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
-import java.util.Set;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.collections.CollectionUtils;
-import org.apache.ibatis.session.SqlSessionFactory;
-import org.mybatis.spring.batch.builder.MyBatisBatchItemWriterBuilder;
 import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
 import org.springframework.batch.core.configuration.annotation.StepScope;
-import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.core.listener.JobExecutionListenerSupport;
+import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.batch.item.ItemWriter;
-import org.springframework.batch.item.support.ListItemReader;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 
 /**
  * Bookmark View Batch Configuration
@@ -37,34 +36,69 @@ public class BookmarkViewBatchConfig {
 
     private final JobBuilderFactory jobBuilderFactory;
     private final StepBuilderFactory stepBuilderFactory;
-    private final StringRedisTemplate redisTemplate;
-    private final SqlSessionFactory sqlSessionFactory;
+    private final BookmarkViewMapper bookmarkViewMapper;
+    private final ViewCounterConfigProperties configProperties;
+    private final ViewAggregationManager viewAggregationManager;
+    private final ViewStorageManager viewStorageManager;
 
     public static final String JOB_NAME = "updateBookmarkViewJob";
     public static final String STEP_NAME = "updateBookmarkViewStep";
-
-    /**
-     * the length of {@link RedisConstant#WEB_VIEW_COUNT_PREFIX}
-     */
-    private final static int LENGTH_OF_KEY_WEB_VIEW_COUNT_PREFIX = RedisConstant.WEB_VIEW_COUNT_PREFIX.length();
+    public static final String PARTITION_STEP_NAME = "updateBookmarkViewPartitionStep";
 
     @Bean
     public Job updateBookmarkViewJob() {
         log.info("[BookmarkViewBatch] Update bookmark views batch job is started");
         return jobBuilderFactory
                 .get(JOB_NAME)
+                .listener(new JobExecutionListenerSupport() {
+                    @Override
+                    public void beforeJob(JobExecution jobExecution) {
+                        // flush the views in memory to Redis first
+                        viewAggregationManager.flush();
+                    }
+                })
                 .start(updateBookmarkViewStep())
                 .build();
     }
 
+    /**
+     * The manager step, which splits the shards of views into partitions
+     * and runs {@link #updateBookmarkViewPartitionStep()} for each partition in parallel
+     *
+     * @return manager step
+     */
     @Bean
     public Step updateBookmarkViewStep() {
-        log.info("[BookmarkViewBatch] Update bookmark views step is started");
+        int gridSize = this.configProperties.getBatchPartitions();
+        log.info("[BookmarkViewBatch] Update bookmark views step is started with {} partitions", gridSize);
+
+        SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("bookmark-view-batch-");
+        taskExecutor.setConcurrencyLimit(gridSize);
+
         return stepBuilderFactory
                 .get(STEP_NAME)
-                .allowStartIfComplete(true)
-                .<ViewDataDO, ViewDataDO>chunk(10)
-                .reader(updateBookmarkViewReader())
+                .partitioner(PARTITION_STEP_NAME, new BookmarkViewPartitioner(this.viewStorageManager.getShards()))
+                .step(updateBookmarkViewPartitionStep())
+                .gridSize(gridSize)
+                .taskExecutor(taskExecutor)
+                .build();
+    }
+
+    /**
+     * The worker step, which has its own reader and writer for the shards in the partition.
+     * <p>
+     * A failed partition restarts from the shard it was reading,
+     * and the completed partitions are skipped when the job restarts.
+     * </p>
+     *
+     * @return worker step
+     */
+    @Bean
+    public Step updateBookmarkViewPartitionStep() {
+        return stepBuilderFactory
+                .get(PARTITION_STEP_NAME)
+                .<ViewDataDO, ViewDataDO>chunk(this.configProperties.getSyncChunkSize())
+                .reader(updateBookmarkViewReader(null, null))
                 .writer(updateBookmarkViewWriter())
                 .build();
     }
@@ -72,65 +106,21 @@ public class BookmarkViewBatchConfig {
     @Bean
     @StepScope
     public ItemWriter<ViewDataDO> updateBookmarkViewWriter() {
-        log.info("[BookmarkViewBatch - BatchItemWriter] Updating bookmark views");
-        MyBatisBatchItemWriterBuilder<ViewDataDO> writerBuilder = new MyBatisBatchItemWriterBuilder<>();
-
-        return writerBuilder
-                .sqlSessionFactory(sqlSessionFactory)
-                .statementId("com.github.learndifferent.mtm.mapper.BookmarkViewMapper.upsertBookmarkView")
-                .build();
+        // upsert each chunk with one multi-row statement
+        return items -> {
+            List<ViewDataDO> data = new ArrayList<>(items);
+            this.viewStorageManager.setUniqueVisitors(data);
+            this.bookmarkViewMapper.upsertAll(data);
+        };
     }
 
     @Bean
     @StepScope
-    public ItemReader<ViewDataDO> updateBookmarkViewReader() {
-        log.info("[BookmarkViewBatch - BatchItemReader] Update bookmark views reader is started");
-        log.info("[BookmarkViewBatch - BatchItemReader] Getting views data from Redis for updating bookmark views");
-        // all views data keys
-        Set<String> keys = this.redisTemplate.opsForSet().members(RedisConstant.VIEW_KEY_SET);
-        boolean hasNoKeys = CollectionUtils.isEmpty(keys);
-        log.info("[BookmarkViewBatch - BatchItemReader] Keys for views data {}", hasNoKeys ? "is empty" : keys);
-        if (hasNoKeys) {
-            return new ListItemReader<>(ListUtil.empty());
-        }
-
-        List<ViewDataDO> viewDataList = new ArrayList<>();
-
-        List<String> failKeys = new ArrayList<>();
-
-        for (String key : keys) {
-            log.info("[BookmarkViewBatch - BatchItemReader] Getting views data for key: {}", key);
-            String val = this.redisTemplate.opsForValue().get(key);
-            if (Objects.isNull(val)) {
-                log.warn("[BookmarkViewBatch - BatchItemReader] Can't get views data for key: {}", key);
-                continue;
-            }
-
-            try {
-                // get views
-                int views = Integer.parseInt(val);
-                // get bookmark id
-                String bookmarkIdStr = key.substring(LENGTH_OF_KEY_WEB_VIEW_COUNT_PREFIX);
-                long bookmarkId = Long.parseLong(bookmarkIdStr);
-                // create data
-                ViewDataDO data = ViewDataDO.builder().views(views).bookmarkId(bookmarkId).build();
-                // add data to set
-                viewDataList.add(data);
-                log.info(
-                        "[BookmarkViewBatch - BatchItemReader] Get views data for key: {}, views: {}, bookmark Id: {}",
-                        key, views, bookmarkId);
-            } catch (Exception e) {
-                log.error("[BookmarkViewBatch - BatchItemReader] Can't get views for key: {}", key, e);
-                failKeys.add(key);
-            }
-        }
-
-        if (CollectionUtils.isNotEmpty(failKeys)) {
-            log.warn("[BookmarkViewBatch - BatchItemReader] Fail Views Data Keys: {}", failKeys);
-        }
-
-        log.info("[BookmarkViewBatch - BatchItemReader] Get views data: {}", viewDataList);
-        return new ListItemReader<>(viewDataList);
+    public ItemStreamReader<ViewDataDO> updateBookmarkViewReader(
+            @Value("#{stepExecutionContext['" + BookmarkViewPartitioner.FROM_SHARD + "']}") Integer fromShard,
+            @Value("#{stepExecutionContext['" + BookmarkViewPartitioner.TO_SHARD + "']}") Integer toShard) {
+        log.info("[BookmarkViewBatch - BatchItemReader] Scanning views data in shards [{}, {})", fromShard, toShard);
+        return new BookmarkViewItemReader(this.viewStorageManager, fromShard, toShard);
     }
 
 }
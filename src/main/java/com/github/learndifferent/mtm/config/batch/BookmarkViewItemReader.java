@@ -0,0 +1,114 @@
+package com.github.learndifferent.mtm.config.batch;
+
+import com.github.learndifferent.mtm.entity.ViewDataDO;
+import com.github.learndifferent.mtm.manager.ViewStorageManager;
+import java.io.IOException;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.data.redis.core.Cursor;
+
+/**
+ * Read the views of bookmarks from the Redis hashes shard by shard with HSCAN,
+ * so that only one scan page is kept in memory.
+ * <p>
+ * The reader reads the shards in [fromShard, toShard), and saves the current shard in the execution context,
+ * so a failed partition restarts from the shard it was reading.
+ * </p>
+ *
+ * @author zhou
+ * @date 2023/9/30
+ */
+@Slf4j
+public class BookmarkViewItemReader implements ItemStreamReader<ViewDataDO> {
+
+    /**
+     * Key of the current shard in the execution context
+     */
+    private static final String CURRENT_SHARD = "bookmarkViewReader.currentShard";
+
+    private final ViewStorageManager viewStorageManager;
+
+    private final int fromShard;
+
+    private final int toShard;
+
+    private int shard;
+
+    private Cursor<Map.Entry<Object, Object>> cursor;
+
+    private long readCount;
+
+    private long failCount;
+
+    public BookmarkViewItemReader(ViewStorageManager viewStorageManager, int fromShard, int toShard) {
+        this.viewStorageManager = viewStorageManager;
+        this.fromShard = fromShard;
+        this.toShard = Math.min(toShard, viewStorageManager.getShards());
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        // read the shard again if restarting, which is fine because the views are upserted
+        int startShard = executionContext.containsKey(CURRENT_SHARD)
+                ? executionContext.getInt(CURRENT_SHARD) : fromShard;
+        shard = startShard - 1;
+        readCount = 0L;
+        failCount = 0L;
+        log.info("[BookmarkViewBatch - BatchItemReader] Reading shards [{}, {}) from shard {}",
+                fromShard, toShard, startShard);
+    }
+
+    @Override
+    public ViewDataDO read() {
+        while (true) {
+            if (cursor == null || !cursor.hasNext()) {
+                closeCursor();
+                if (++shard >= toShard) {
+                    log.info("[BookmarkViewBatch - BatchItemReader] Read views data of {} bookmarks "
+                            + "in shards [{}, {}), {} failed", readCount, fromShard, toShard, failCount);
+                    return null;
+                }
+                cursor = viewStorageManager.scan(shard);
+                continue;
+            }
+
+            Map.Entry<Object, Object> entry = cursor.next();
+            try {
+                long bookmarkId = Long.parseLong(entry.getKey().toString());
+                int views = Integer.parseInt(entry.getValue().toString());
+                readCount++;
+                return ViewDataDO.builder().bookmarkId(bookmarkId).views(views).build();
+            } catch (Exception e) {
+                failCount++;
+                log.error("[BookmarkViewBatch - BatchItemReader] Can't get views for bookmark: {}, value: {}",
+                        entry.getKey(), entry.getValue(), e);
+            }
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        executionContext.putInt(CURRENT_SHARD, Math.max(shard, fromShard));
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        closeCursor();
+    }
+
+    private void closeCursor() {
+        if (cursor == null) {
+            return;
+        }
+        try {
+            cursor.close();
+        } catch (IOException e) {
+            log.warn("[BookmarkViewBatch - BatchItemReader] Failed to close the cursor of shard {}", shard, e);
+        } finally {
+            cursor = null;
+        }
+    }
+}
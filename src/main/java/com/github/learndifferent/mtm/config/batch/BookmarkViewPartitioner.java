@@ -0,0 +1,51 @@
+package com.github.learndifferent.mtm.config.batch;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+
+/**
+ * Split the Redis hashes that store the views into partitions.
+ * <p>
+ * The views are sharded by the hash of the bookmark ID,
+ * so each partition reads a range of shards: [{@value #FROM_SHARD}, {@value #TO_SHARD}).
+ * </p>
+ *
+ * @author zhou
+ * @date 2023/10/8
+ */
+public class BookmarkViewPartitioner implements Partitioner {
+
+    public static final String FROM_SHARD = "fromShard";
+
+    public static final String TO_SHARD = "toShard";
+
+    private static final String PARTITION_PREFIX = "partition";
+
+    private final int shards;
+
+    public BookmarkViewPartitioner(int shards) {
+        this.shards = shards;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        int partitions = Math.max(1, Math.min(gridSize, shards));
+        Map<String, ExecutionContext> result = new HashMap<>(partitions * 2);
+
+        // the first (shards % partitions) partitions have one more shard
+        int size = shards / partitions;
+        int remainder = shards % partitions;
+        int from = 0;
+        for (int i = 0; i < partitions; i++) {
+            int to = from + size + (i < remainder ? 1 : 0);
+            ExecutionContext context = new ExecutionContext();
+            context.putInt(FROM_SHARD, from);
+            context.putInt(TO_SHARD, to);
+            result.put(PARTITION_PREFIX + i, context);
+            from = to;
+        }
+        return result;
+    }
+}
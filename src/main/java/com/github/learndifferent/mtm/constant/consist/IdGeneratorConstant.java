@@ -22,4 +22,12 @@ public final class IdGeneratorConstant {
     public static final String REPLY_NOTIFICATION_TABLE = "reply_notification";
 
     public static final int STEP = 1000;
+
+    public static final int MAX_STEP = 1000000;
+
+    public static final long SEGMENT_DURATION_MINUTES = 15L;
+
+    public static final long WORKER_ID_LEASE_SECONDS = 60L;
+
+    public static final long WORKER_ID_LEASE_MARGIN_SECONDS = 10L;
 }
\ No newline at end of file
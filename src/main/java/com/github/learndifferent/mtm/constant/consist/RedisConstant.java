@@ -43,14 +43,90 @@ public final class RedisConstant {
 
     /**
      * The key of the set in Redis which stores all the keys that contain the view data
+     * <p>This is the legacy layout of views, which is migrated to {@link #VIEW_HASH_PREFIX}</p>
      */
     public static final String VIEW_KEY_SET = "all:view";
 
     /**
      * The key prefix of the key that stores the number of views of a bookmark
+     * <p>This is the legacy layout of views, which is migrated to {@link #VIEW_HASH_PREFIX}</p>
      */
     public static final String WEB_VIEW_COUNT_PREFIX = "view:";
 
+    /**
+     * Key: prefix + shard
+     * <p>The hash stores the views of bookmarks in the shard. Field: bookmark ID, value: views</p>
+     */
+    public static final String VIEW_HASH_PREFIX = "views:shard:";
+
+    /**
+     * Key: prefix + bookmark ID
+     * <p>The HyperLogLog of all unique visitors of the bookmark, which the daily visitors are rolled up into</p>
+     */
+    public static final String UNIQUE_VISITOR_PREFIX = "views:uv:";
+
+    /**
+     * Key: prefix + bookmark ID + ":" + date (yyyyMMdd, UTC)
+     * <p>The HyperLogLog of the unique visitors of the bookmark on the day</p>
+     */
+    public static final String DAILY_UNIQUE_VISITOR_PREFIX = "views:uv:daily:";
+
+    /**
+     * Key: prefix + date (yyyyMMdd, UTC)
+     * <p>The set of the IDs of the bookmarks that have visitors on the day, which is used to roll up the visitors</p>
+     */
+    public static final String UNIQUE_VISITOR_BOOKMARKS_PREFIX = "views:uv:bookmarks:";
+
+    /**
+     * Key: prefix + hour (yyyyMMddHH, UTC)
+     * <p>The sorted set of the views of bookmarks in the hour. Member: bookmark ID, score: views</p>
+     */
+    public static final String HOURLY_VIEW_RANKING_PREFIX = "views:rank:hour:";
+
+    /**
+     * Key: prefix + date (yyyyMMdd, UTC)
+     * <p>The sorted set of the views of bookmarks on the day. Member: bookmark ID, score: views</p>
+     */
+    public static final String DAILY_VIEW_RANKING_PREFIX = "views:rank:day:";
+
+    /**
+     * Key: prefix + window
+     * <p>The union of the buckets in the window, which is kept for a short time</p>
+     */
+    public static final String WINDOW_VIEW_RANKING_PREFIX = "views:rank:window:";
+
+    /**
+     * Key: prefix + window
+     * <p>The marker of the window that has no views, which is kept as long as the union of the window</p>
+     */
+    public static final String EMPTY_WINDOW_VIEW_RANKING_PREFIX = "views:rank:empty:";
+
+    /**
+     * The set of the IDs of the bookmarks whose views have changed since the last delta sync
+     */
+    public static final String VIEW_DIRTY_SET = "views:dirty";
+
+    /**
+     * The set of the IDs of the bookmarks whose views are being synced to the database.
+     * <p>It is renamed from {@link #VIEW_DIRTY_SET}, and is kept until all bookmarks in it are synced</p>
+     */
+    public static final String VIEW_SYNCING_SET = "views:syncing";
+
+    /**
+     * The lock of syncing the changed views to the database
+     */
+    public static final String VIEW_SYNC_LOCK = "views:sync:lock";
+
+    /**
+     * The key exists if the views in the legacy layout have been migrated to the hashes
+     */
+    public static final String VIEW_MIGRATION_DONE = "views:migration:done";
+
+    /**
+     * The lock of migrating the views in the legacy layout to the hashes
+     */
+    public static final String VIEW_MIGRATION_LOCK = "views:migration:lock";
+
     /**
      * The key of user role's change record is "change:record:" + {@code userId}
      */
@@ -81,6 +157,63 @@ public final class RedisConstant {
      */
     public static final String IDEMPOTENCY_KEY_PREFIX = "idempotency:key:";
 
+    /**
+     * Key: prefix + worker ID
+     * <p>The value is the owner of the snowflake worker ID lease, and the key expires when the lease expires</p>
+     */
+    public static final String WORKER_ID_LEASE_PREFIX = "id:worker:";
+
+    /**
+     * Key: prefix + alias of the Elasticsearch index
+     * <p>The hash of the progress of rebuilding the index, which is used to resume the rebuild</p>
+     */
+    public static final String REINDEX_PROGRESS_PREFIX = "search:reindex:";
+
+    /**
+     * Key: prefix + alias of the Elasticsearch index
+     * <p>The lock of rebuilding the index</p>
+     */
+    public static final String REINDEX_LOCK_PREFIX = "search:reindex:lock:";
+
+    /**
+     * The lock of relaying the changes in the search outbox to Elasticsearch
+     */
+    public static final String SEARCH_OUTBOX_RELAY_LOCK = "search:outbox:lock";
+
+    /**
+     * Key: prefix + alias of the Elasticsearch index
+     * <p>The generation of the search results of the index, which is increased when the data changes</p>
+     */
+    public static final String SEARCH_CACHE_GENERATION_PREFIX = "search:cache:generation:";
+
+    /**
+     * Key: prefix + key of the search, which starts with the generation of the index
+     * <p>The cached search results</p>
+     */
+    public static final String SEARCH_CACHE_RESULTS_PREFIX = "search:cache:results:";
+
+    /**
+     * The stream of the changes of tags and users, which are applied to the autocomplete suggestions of each node
+     */
+    public static final String SUGGESTION_CHANGES = "search:suggestion:changes";
+
+    /**
+     * The sequence of the changes of tags and users, which is used to find the missing changes
+     */
+    public static final String SUGGESTION_CHANGE_SEQUENCE = "search:suggestion:sequence";
+
+    /**
+     * Key: prefix + start of the time bucket (yyyyMMddHHmm, UTC)
+     * <p>The sorted set of the trending keywords searched in the time bucket</p>
+     */
+    public static final String TRENDING_BUCKET_PREFIX = "trending:bucket:";
+
+    /**
+     * Key: prefix + ID of the node
+     * <p>The sorted set of the trending keywords merged from the time buckets by the node</p>
+     */
+    public static final String TRENDING_MERGED_PREFIX = "trending:merged:";
+
 
     public static final String COMMENT_COUNT = "COMMENT_COUNT";
     public static final String USER_NAME = "USER_NAME";
@@ -47,6 +47,18 @@ public final class SearchConstant {
 
     public static final String IMG = "img";
 
+    /**
+     * Keyword sub-field of the URL, which is used to break the ties of the scores when paginating by cursor.
+     * Sorting on it uses doc values instead of loading the fielddata of {@code _id}.
+     */
+    public static final String URL_KEYWORD = "url.keyword";
+
+    /**
+     * The URLs in database have at most 600 characters, so none of them is skipped by the keyword sub-field,
+     * whose default limit of the dynamic mapping is 256
+     */
+    public static final int URL_KEYWORD_IGNORE_ABOVE = 1024;
+
     public static final String PRE_TAGS = "<span style='color:red'>";
 
     public static final String POST_TAGS = "</span>";
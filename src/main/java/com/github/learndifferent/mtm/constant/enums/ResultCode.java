@@ -196,6 +196,18 @@ public enum ResultCode {
      * Unable to connect to the server
      */
     CONNECTION_ERROR(5001, "Unable to connect to the server. Please try again later."),
+    /**
+     * The search took too long
+     */
+    SEARCH_TIMEOUT(5002, "The search took too long. Please try again later."),
+    /**
+     * The search cursor is invalid or the index it points to no longer exists
+     */
+    SEARCH_CURSOR_INVALID(5003, "The search results have expired. Please search again."),
+    /**
+     * The search mode can't be paginated by cursor
+     */
+    SEARCH_CURSOR_NOT_SUPPORTED(5004, "Only bookmarks can be paginated by cursor."),
     /**
      * Unknown Error
      */
@@ -14,38 +14,66 @@ public enum SearchMode implements ConvertByNames {
     /**
      * Search for bookmarked websites in Elasticsearch
      */
-    WEB(SearchConstant.INDEX_WEB),
+    WEB(SearchConstant.INDEX_WEB, SearchConstant.INDEX_WEB),
     /**
      * Search for tags in Elasticsearch
      */
-    TAG(SearchConstant.INDEX_TAG),
+    TAG(SearchConstant.INDEX_TAG, SearchConstant.INDEX_TAG),
     /**
      * Search for users in Elasticsearch
      */
-    USER(SearchConstant.INDEX_USER),
+    USER(SearchConstant.INDEX_USER, SearchConstant.INDEX_USER),
     /**
      * Search for bookmarks in MySQL
      */
-    BOOKMARK_MYSQL(SearchConstant.SEARCH_BOOKMARK_IN_MYSQL),
+    BOOKMARK_MYSQL(SearchConstant.SEARCH_BOOKMARK_IN_MYSQL, SearchConstant.INDEX_WEB),
     /**
      * Search for tags in MySQL
      */
-    TAG_MYSQL(SearchConstant.SEARCH_TAG_IN_MYSQL),
+    TAG_MYSQL(SearchConstant.SEARCH_TAG_IN_MYSQL, SearchConstant.INDEX_TAG),
     /**
      * Search for users in MySQL
      */
-    USER_MYSQL(SearchConstant.SEARCH_USER_IN_MYSQL);
+    USER_MYSQL(SearchConstant.SEARCH_USER_IN_MYSQL, SearchConstant.INDEX_USER);
 
     private final String mode;
 
-    SearchMode(final String mode) {
+    /**
+     * The Elasticsearch index that has the same data as the search mode
+     */
+    private final String index;
+
+    SearchMode(final String mode, final String index) {
         this.mode = mode;
+        this.index = index;
     }
 
     public String mode() {
         return mode;
     }
 
+    public String index() {
+        return index;
+    }
+
+    /**
+     * Get the mode that searches the same data in MySQL, which the searches in Elasticsearch fall back to
+     *
+     * @return the mode in MySQL, or this mode if it already searches in MySQL
+     */
+    public SearchMode mySqlMode() {
+        switch (this) {
+            case WEB:
+                return BOOKMARK_MYSQL;
+            case TAG:
+                return TAG_MYSQL;
+            case USER:
+                return USER_MYSQL;
+            default:
+                return this;
+        }
+    }
+
     @Override
     public String[] namesForConverter() {
         return new String[]{this.mode, this.name()};
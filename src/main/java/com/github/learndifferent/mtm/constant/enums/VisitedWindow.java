@@ -0,0 +1,42 @@
+package com.github.learndifferent.mtm.constant.enums;
+
+/**
+ * Time window of the most visited bookmarks
+ *
+ * @author zhou
+ * @date 2023/10/15
+ */
+public enum VisitedWindow implements ConvertByNames {
+
+    /**
+     * All time, which is ranked by the views in database
+     */
+    ALL("all"),
+    /**
+     * Last hour, which is ranked by the hourly buckets in Redis
+     */
+    LAST_HOUR("1h"),
+    /**
+     * Last 24 hours, which is ranked by the hourly buckets in Redis
+     */
+    LAST_DAY("24h"),
+    /**
+     * Last 7 days, which is ranked by the daily buckets in Redis
+     */
+    LAST_WEEK("7d");
+
+    private final String window;
+
+    VisitedWindow(final String window) {
+        this.window = window;
+    }
+
+    public String window() {
+        return window;
+    }
+
+    @Override
+    public String[] namesForConverter() {
+        return new String[]{this.window, this.name()};
+    }
+}
@@ -8,6 +8,7 @@ import com.github.learndifferent.mtm.vo.BatchJobVO;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 /**
@@ -33,4 +34,16 @@ public class BatchJobController {
     public BatchJobVO updateBookmarkView() {
         return batchJobService.updateBookmarkView();
     }
+
+    /**
+     * Restart the failed job of updating the view count of bookmarks
+     *
+     * @param jobExecutionId ID of the failed job execution
+     * @return Batch job result
+     */
+    @AccessPermissionCheck(dataAccessType = DataAccessType.IS_ADMIN)
+    @GetMapping("/update-bookmark-views/restart")
+    public BatchJobVO restartUpdateBookmarkView(@RequestParam("jobExecutionId") long jobExecutionId) {
+        return batchJobService.restartUpdateBookmarkView(jobExecutionId);
+    }
 }
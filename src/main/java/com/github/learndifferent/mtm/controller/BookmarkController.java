@@ -10,6 +10,7 @@ import com.github.learndifferent.mtm.constant.enums.AddDataMode;
 import com.github.learndifferent.mtm.constant.enums.PageInfoParam;
 import com.github.learndifferent.mtm.constant.enums.Privacy;
 import com.github.learndifferent.mtm.constant.enums.ResultCode;
+import com.github.learndifferent.mtm.constant.enums.VisitedWindow;
 import com.github.learndifferent.mtm.dto.PageInfoDTO;
 import com.github.learndifferent.mtm.exception.ServiceException;
 import com.github.learndifferent.mtm.query.BasicWebDataRequest;
@@ -64,8 +65,8 @@ public class BookmarkController {
      *                be added to the database and ElasticSearch
      *                </p>
      *                <p>
-     *                Note that this value will be ignored if this is a private bookmark
-     *                because only public data can be added to Elasticsearch
+     *                This value is no longer used, because public bookmarks are always added to Elasticsearch
+     *                through the search outbox, and private data is never added to Elasticsearch
      *                </p>
      * @return The result of bookmarking a new web page
      * @throws ServiceException Exception will be thrown with the result code of {@link ResultCode#URL_MALFORMED},
@@ -198,6 +199,8 @@ public class BookmarkController {
      * Get visited bookmarks
      *
      * @param pageInfo Pagination information
+     * @param window   {@code all} for all views (default), {@code 1h} for the last hour,
+     *                 {@code 24h} for the last 24 hours and {@code 7d} for the last 7 days
      * @return visited bookmarks
      * @throws com.github.learndifferent.mtm.exception.ServiceException This will throw an exception with the result
      *                                                                  code of
@@ -207,7 +210,8 @@ public class BookmarkController {
     @GetMapping("/visited-bookmarks")
     @AccessPermissionCheck(dataAccessType = DataAccessType.IS_ADMIN)
     public List<VisitedBookmarkVO> getVisitedBookmarks(
-            @PageInfo(size = 20, paramName = PageInfoParam.CURRENT_PAGE) PageInfoDTO pageInfo) {
-        return bookmarkService.getVisitedBookmarks(pageInfo);
+            @PageInfo(size = 20, paramName = PageInfoParam.CURRENT_PAGE) PageInfoDTO pageInfo,
+            @RequestParam(value = "window", defaultValue = "all") VisitedWindow window) {
+        return bookmarkService.getVisitedBookmarks(pageInfo, window);
     }
 }
\ No newline at end of file
@@ -5,20 +5,32 @@ import com.github.learndifferent.mtm.annotation.general.log.SystemLog;
 import com.github.learndifferent.mtm.annotation.general.page.PageInfo;
 import com.github.learndifferent.mtm.annotation.validation.AccessPermissionCheck;
 import com.github.learndifferent.mtm.annotation.validation.AccessPermissionCheck.DataAccessType;
+import com.github.learndifferent.mtm.config.ElasticsearchConfigProperties;
 import com.github.learndifferent.mtm.constant.consist.ErrorInfoConstant;
 import com.github.learndifferent.mtm.constant.enums.OptsType;
 import com.github.learndifferent.mtm.constant.enums.PageInfoParam;
+import com.github.learndifferent.mtm.constant.enums.ResultCode;
 import com.github.learndifferent.mtm.constant.enums.SearchMode;
 import com.github.learndifferent.mtm.dto.PageInfoDTO;
 import com.github.learndifferent.mtm.dto.search.SearchResultsDTO;
+import com.github.learndifferent.mtm.exception.ServiceException;
 import com.github.learndifferent.mtm.response.ResultCreator;
 import com.github.learndifferent.mtm.response.ResultVO;
 import com.github.learndifferent.mtm.service.SearchService;
 import com.github.learndifferent.mtm.vo.FindPageVO;
+import com.github.learndifferent.mtm.vo.ReindexProgressVO;
+import com.github.learndifferent.mtm.vo.SearchCacheMetricsVO;
 import com.github.learndifferent.mtm.vo.SearchDataStatusVO;
+import com.github.learndifferent.mtm.vo.SuggestionVO;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
+import org.springframework.util.StringUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -26,6 +38,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
 /**
  * Search Page Controller
@@ -40,6 +53,7 @@ import org.springframework.web.bind.annotation.RestController;
 public class SearchController {
 
     private final SearchService searchService;
+    private final ElasticsearchConfigProperties elasticsearchConfigProperties;
 
     /**
      * Search
@@ -56,14 +70,18 @@ public class SearchController {
      *                  unbounded.
      * @param rangeTo   upper range value for range query if the search mode is {@link SearchMode#TAG}. Null indicates
      *                  unbounded.
-     * @return {@link ResultVO}<{@link SearchResultsDTO}> Search results
+     * @return {@link ResultVO}<{@link SearchResultsDTO}> Search results. The servlet thread is released while
+     * waiting for Elasticsearch, and the request fails if there are no results before the deadline.
      * @throws com.github.learndifferent.mtm.exception.ServiceException an exception with the result code of
      *                                                                  {@link com.github.learndifferent.mtm.constant.enums.ResultCode#NO_RESULTS_FOUND
      *                                                                  NO_RESULTS_FOUND} will be thrown if there are
-     *                                                                  no results that match the keyword
+     *                                                                  no results that match the keyword, and
+     *                                                                  {@link com.github.learndifferent.mtm.constant.enums.ResultCode#SEARCH_TIMEOUT
+     *                                                                  SEARCH_TIMEOUT} if the search takes longer
+     *                                                                  than the deadline
      */
     @GetMapping
-    public ResultVO<SearchResultsDTO> search(@RequestParam("mode") SearchMode mode,
+    public DeferredResult<ResultVO<SearchResultsDTO>> search(@RequestParam("mode") SearchMode mode,
                                              @RequestParam("keyword")
                                              @NotBlank(message = ErrorInfoConstant.NO_DATA)
                                                      String keyword,
@@ -74,8 +92,89 @@ public class SearchController {
                                              @RequestParam(required = false, value = "rangeTo")
                                                      Integer rangeTo) {
 
-        SearchResultsDTO results = searchService.search(mode, keyword, pageInfo, rangeFrom, rangeTo);
-        return ResultCreator.okResult(results);
+        CompletableFuture<SearchResultsDTO> future =
+                searchService.searchAsync(mode, keyword, pageInfo, rangeFrom, rangeTo);
+        return toDeferredResult(future);
+    }
+
+    /**
+     * Search by cursor, so the deep pages cost the same as the first page
+     *
+     * @param mode    search for bookmarked websites in Elasticsearch if the search mode is {@link SearchMode#WEB},
+     *                and search for bookmarks in MySQL if the search mode is {@link SearchMode#BOOKMARK_MYSQL}.
+     *                Other modes can't be paginated by cursor.
+     * @param keyword keyword
+     * @param cursor  the cursor returned with the previous page, or empty to get the first page
+     * @param size    size, which is 10 by default
+     * @return {@link ResultVO}<{@link SearchResultsDTO}> Search results with the cursor of the next page, which is
+     * null if there are no more results. The total count and total pages are only returned with the first page.
+     * @throws com.github.learndifferent.mtm.exception.ServiceException an exception with the result code of
+     *                                                                  {@link com.github.learndifferent.mtm.constant.enums.ResultCode#SEARCH_CURSOR_INVALID
+     *                                                                  SEARCH_CURSOR_INVALID} will be thrown if the
+     *                                                                  cursor is invalid or the results have expired,
+     *                                                                  which means searching again from the first page
+     */
+    @GetMapping("/cursor")
+    public DeferredResult<ResultVO<SearchResultsDTO>> searchByCursor(
+            @RequestParam("mode") SearchMode mode,
+            @RequestParam("keyword") @NotBlank(message = ErrorInfoConstant.NO_DATA) String keyword,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "10") @Positive(message = ErrorInfoConstant.NO_DATA) int size) {
+        String currentCursor = StringUtils.hasText(cursor) ? cursor : null;
+        CompletableFuture<SearchResultsDTO> future =
+                searchService.searchByCursorAsync(mode, keyword, currentCursor, size);
+        return toDeferredResult(future);
+    }
+
+    /**
+     * Release the servlet thread while waiting for the search results
+     *
+     * @param future search results
+     * @return the results, or the error if there are no results before the deadline
+     */
+    private DeferredResult<ResultVO<SearchResultsDTO>> toDeferredResult(CompletableFuture<SearchResultsDTO> future) {
+        long deadlineMillis = elasticsearchConfigProperties.getSearchDeadlineMillis();
+        DeferredResult<ResultVO<SearchResultsDTO>> deferredResult = new DeferredResult<>(deadlineMillis);
+
+        deferredResult.onTimeout(() -> {
+            // set the error before cancelling, since the cancellation completes the future in the current thread
+            deferredResult.setErrorResult(new ServiceException(ResultCode.SEARCH_TIMEOUT));
+            // cancel the search in Elasticsearch
+            future.cancel(true);
+        });
+        future.whenComplete((results, e) -> {
+            if (e == null) {
+                deferredResult.setResult(ResultCreator.okResult(results));
+                return;
+            }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof CancellationException) {
+                // the search is cancelled after the deadline, and the error has been set
+                return;
+            }
+            deferredResult.setErrorResult(cause);
+        });
+        return deferredResult;
+    }
+
+    /**
+     * Autocomplete the tags or usernames while typing
+     *
+     * @param mode   suggest tags if the search mode is {@link SearchMode#TAG} or {@link SearchMode#TAG_MYSQL},
+     *               and usernames if the search mode is {@link SearchMode#USER} or {@link SearchMode#USER_MYSQL}.
+     *               There are no suggestions for bookmarks.
+     * @param prefix prefix, which is case-insensitive
+     * @param size   max number of suggestions, which is 10 by default and can't be more than 10
+     * @return {@link ResultVO}<{@link List}<{@link SuggestionVO}>> suggestions ordered by the number of public
+     * bookmarks for tags, and by length for usernames
+     */
+    @GetMapping("/suggest")
+    public ResultVO<List<SuggestionVO>> suggest(@RequestParam("mode") SearchMode mode,
+                                                @RequestParam("prefix")
+                                                @NotBlank(message = ErrorInfoConstant.NO_DATA) String prefix,
+                                                @RequestParam(value = "size", defaultValue = "10") int size) {
+        List<SuggestionVO> suggestions = searchService.suggest(mode, prefix, size);
+        return ResultCreator.okResult(suggestions);
     }
 
     /**
@@ -147,7 +246,8 @@ public class SearchController {
      * @param mode Generate user data if {@link SearchMode#USER},
      *             generate tag data if {@link SearchMode#TAG}
      *             and generate bookmark data if {@link SearchMode#WEB}.
-     * @return true if success
+     * @return true if the generation is started in the background, false if the data is being generated.
+     * The searches use the old data until the generation is done.
      */
     @GetMapping("/build")
     @IdempotencyCheck
@@ -156,6 +256,19 @@ public class SearchController {
         return ResultCreator.okResult(success);
     }
 
+    /**
+     * Get the progress of data generation for Elasticsearch
+     *
+     * @param mode Get the progress of user data if {@link SearchMode#USER},
+     *             tag data if {@link SearchMode#TAG}
+     *             and bookmark data if {@link SearchMode#WEB}.
+     * @return progress
+     */
+    @GetMapping("/build/progress")
+    public ReindexProgressVO getGenerationProgress(@RequestParam("mode") SearchMode mode) {
+        return searchService.getGenerationProgress(mode);
+    }
+
     /**
      * Delete a specific trending keyword (Guest does not have the permission)
      *
@@ -192,4 +305,20 @@ public class SearchController {
         boolean success = searchService.deleteTrending();
         return ResultCreator.okResult(success);
     }
-}
\ No newline at end of file
+
+    /**
+     * Get the metrics of the search result cache
+     *
+     * @return hit rate of the cache, number of cached results and generation of each index
+     * @throws com.github.learndifferent.mtm.exception.ServiceException This will throw an exception with the result
+     *                                                                  code of
+     *                                                                  {@link com.github.learndifferent.mtm.constant.enums.ResultCode#PERMISSION_DENIED
+     *                                                                  PERMISSION_DENIED} if the user is not admin
+     */
+    @GetMapping("/cache/metrics")
+    @AccessPermissionCheck(dataAccessType = DataAccessType.IS_ADMIN)
+    public ResultVO<SearchCacheMetricsVO> getCacheMetrics() {
+        SearchCacheMetricsVO metrics = searchService.getCacheMetrics();
+        return ResultCreator.okResult(metrics);
+    }
+}
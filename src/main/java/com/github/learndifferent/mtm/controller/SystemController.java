@@ -13,11 +13,13 @@ import com.github.learndifferent.mtm.entity.SysMenu;
 import com.github.learndifferent.mtm.query.SysMenuRequest;
 import com.github.learndifferent.mtm.response.ResultCreator;
 import com.github.learndifferent.mtm.response.ResultVO;
+import com.github.learndifferent.mtm.service.IdGeneratorService;
 import com.github.learndifferent.mtm.service.SystemLogService;
 import com.github.learndifferent.mtm.service.SystemMenuService;
 import com.github.learndifferent.mtm.utils.LoginUtils;
 import com.github.learndifferent.mtm.validationgroup.OnCreation;
 import com.github.learndifferent.mtm.validationgroup.OnUpdate;
+import com.github.learndifferent.mtm.vo.IdGeneratorMetricsVO;
 import java.util.List;
 import javax.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
@@ -45,6 +47,7 @@ public class SystemController {
 
     private final SystemLogService logService;
     private final SystemMenuService systemMenuService;
+    private final IdGeneratorService idGeneratorService;
 
     /**
      * Get all system logs
@@ -156,4 +159,20 @@ public class SystemController {
         List<SysLog> logs = logService.getSystemLogsFromDatabaseDirectly(pageInfo);
         return ResultCreator.okResult(logs);
     }
+
+    /**
+     * Get the metrics of the ID generator
+     *
+     * @return metrics of each business tag and the executor that updates the segments
+     * @throws com.github.learndifferent.mtm.exception.ServiceException This will throw an exception with the result
+     *                                                                  code of
+     *                                                                  {@link ResultCode#PERMISSION_DENIED}
+     *                                                                  if the user is not admin
+     */
+    @GetMapping("/id-generator/metrics")
+    @AccessPermissionCheck(dataAccessType = DataAccessType.IS_ADMIN)
+    public ResultVO<IdGeneratorMetricsVO> getIdGeneratorMetrics() {
+        IdGeneratorMetricsVO metrics = idGeneratorService.getMetrics();
+        return ResultCreator.okResult(metrics);
+    }
 }
@@ -5,7 +5,10 @@ import com.github.learndifferent.mtm.annotation.validation.AccessPermissionCheck
 import com.github.learndifferent.mtm.response.ResultCreator;
 import com.github.learndifferent.mtm.response.ResultVO;
 import com.github.learndifferent.mtm.service.ViewCounterService;
+import com.github.learndifferent.mtm.utils.IpUtils;
+import com.github.learndifferent.mtm.utils.LoginUtils;
 import java.util.List;
+import javax.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -27,12 +30,15 @@ public class ViewCounterController {
 
     /**
      * Increase the number of views of a bookmark
+     * and add the current user (user ID, or IP for Guest) to the unique visitors of the bookmark
      *
      * @param bookmarkId ID of the bookmark
+     * @param request    request
      */
     @GetMapping
-    public void increaseViews(@RequestParam("bookmarkId") Long bookmarkId) {
-        viewCounterService.increaseViewsAndAddToSet(bookmarkId);
+    public void increaseViews(@RequestParam("bookmarkId") Long bookmarkId, HttpServletRequest request) {
+        String visitor = LoginUtils.isGuest() ? "ip:" + IpUtils.getIp(request) : "user:" + LoginUtils.getCurrentUserId();
+        viewCounterService.increaseViewsAndAddToSet(bookmarkId, visitor);
     }
 
     /**
@@ -47,6 +53,18 @@ public class ViewCounterController {
         return ResultCreator.okResult(views);
     }
 
+    /**
+     * Count the number of unique visitors of a bookmark
+     *
+     * @param bookmarkId ID of the bookmark
+     * @return unique visitors, or 0 if unique visitors are not enabled
+     */
+    @GetMapping("/count/unique")
+    public ResultVO<Integer> countUniqueVisitors(@RequestParam("bookmarkId") Long bookmarkId) {
+        int uniqueVisitors = viewCounterService.countUniqueVisitors(bookmarkId);
+        return ResultCreator.okResult(uniqueVisitors);
+    }
+
     /**
      * Save the numbers of views from Redis to the database,
      * or add the view data from database to Redis if the Redis has no view data
@@ -22,6 +22,11 @@ public class Segment {
      */
     private volatile long maxId;
 
+    /**
+     * Step, which is the number of IDs in this segment
+     */
+    private volatile int step;
+
     private SegmentBuffer buffer;
 
     public Segment(SegmentBuffer buffer) {
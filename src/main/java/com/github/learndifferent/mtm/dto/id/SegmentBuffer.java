@@ -1,14 +1,17 @@
 package com.github.learndifferent.mtm.dto.id;
 
-import java.util.Arrays;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A segment buffer to store the segments and information related to a specific business tag
+ * <p>
+ * The buffer holds the current segment and the preloaded next segment in two {@link AtomicReference}s.
+ * A segment is never reused after it's exhausted: the refill thread creates a new segment and publishes it
+ * with CAS, and the threads that find the current segment exhausted swap the current segment with CAS as well,
+ * so no lock is needed to take an ID from the buffer.
+ * </p>
  *
  * @author zhou
  * @date 2023/9/3
@@ -21,19 +24,24 @@ public class SegmentBuffer {
     private String tag;
 
     /**
-     * Double buffer
+     * Current segment
      */
-    private final Segment[] segments;
+    private final AtomicReference<Segment> currentSegment;
 
     /**
-     * Index of current segment in {@link #segments}
+     * Next segment, null if the next segment is not ready
      */
-    private volatile int currentSegmentIndex;
+    private final AtomicReference<Segment> nextSegment;
 
     /**
-     * true if the next segment is ready to switch
+     * Step of the latest segment, which changes with the speed of ID consumption
      */
-    private volatile boolean isNextSegmentReady;
+    private volatile int step;
+
+    /**
+     * Timestamp in milliseconds of the latest segment update
+     */
+    private volatile long updateTimestamp;
 
     /**
      * True if initialization successful
@@ -45,34 +53,54 @@ public class SegmentBuffer {
      */
     private final AtomicBoolean isThreadRunning;
 
-    private final ReadWriteLock readWriteLock;
-
     public SegmentBuffer() {
-        segments = new Segment[]{new Segment(this), new Segment(this)};
-        currentSegmentIndex = 0;
+        currentSegment = new AtomicReference<>(new Segment(this));
+        nextSegment = new AtomicReference<>(null);
         isInitialized = false;
         isThreadRunning = new AtomicBoolean(false);
-        readWriteLock = new ReentrantReadWriteLock();
     }
 
     public Segment getCurrentSegment() {
-        return segments[currentSegmentIndex];
-    }
-
-    public int getNexSegmentIndex() {
-        return (currentSegmentIndex + 1) % 2;
+        return currentSegment.get();
     }
 
-    public void switchCurrentSegmentIndex() {
-        currentSegmentIndex = getNexSegmentIndex();
+    public Segment getNextSegment() {
+        return nextSegment.get();
     }
 
-    public Lock getReadLock() {
-        return readWriteLock.readLock();
+    /**
+     * Publish the next segment
+     *
+     * @param segment the next segment, which should be fully updated before publishing
+     * @return true if published, false if there is already a next segment that is ready to switch
+     */
+    public boolean publishNextSegment(Segment segment) {
+        return nextSegment.compareAndSet(null, segment);
     }
 
-    public Lock getWriteLock() {
-        return readWriteLock.writeLock();
+    /**
+     * Switch the current segment to the next segment if the current segment is still the exhausted one
+     *
+     * @param exhaustedSegment the segment that has run out of IDs
+     * @return true if the current segment is no longer the exhausted segment after calling this method,
+     * which means the caller can retry to get the ID from the current segment.
+     * <p>Return false if the next segment is not ready.</p>
+     */
+    public boolean switchToNextSegment(Segment exhaustedSegment) {
+        if (currentSegment.get() != exhaustedSegment) {
+            // another thread has already switched the current segment
+            return true;
+        }
+        Segment next = nextSegment.get();
+        if (next == null) {
+            return false;
+        }
+        if (currentSegment.compareAndSet(exhaustedSegment, next)) {
+            // the next segment is now the current segment,
+            // so clear it to indicate that the next segment should be updated
+            nextSegment.compareAndSet(next, null);
+        }
+        return true;
     }
 
     /**
@@ -96,16 +124,24 @@ public class SegmentBuffer {
         this.tag = tag;
     }
 
-    public Segment[] getSegments() {
-        return segments;
+    public int getStep() {
+        return step;
     }
 
-    public boolean isNextSegmentReady() {
-        return isNextSegmentReady;
+    public void setStep(int step) {
+        this.step = step;
     }
 
-    public void setNextSegmentReady(boolean nextSegmentReady) {
-        isNextSegmentReady = nextSegmentReady;
+    public long getUpdateTimestamp() {
+        return updateTimestamp;
+    }
+
+    public void setUpdateTimestamp(long updateTimestamp) {
+        this.updateTimestamp = updateTimestamp;
+    }
+
+    public boolean isNextSegmentReady() {
+        return nextSegment.get() != null;
     }
 
     public boolean isInitialized() {
@@ -125,30 +161,26 @@ public class SegmentBuffer {
             return false;
         }
         SegmentBuffer that = (SegmentBuffer) o;
-        return currentSegmentIndex == that.currentSegmentIndex && isNextSegmentReady == that.isNextSegmentReady
-                && isInitialized == that.isInitialized && Objects.equals(tag, that.tag) && Arrays.equals(segments,
-                that.segments) && Objects.equals(isThreadRunning, that.isThreadRunning)
-                && Objects.equals(readWriteLock, that.readWriteLock);
+        return isInitialized == that.isInitialized && Objects.equals(tag, that.tag)
+                && Objects.equals(currentSegment, that.currentSegment)
+                && Objects.equals(nextSegment, that.nextSegment)
+                && Objects.equals(isThreadRunning, that.isThreadRunning);
     }
 
     @Override
     public int hashCode() {
-        int result = Objects.hash(tag, currentSegmentIndex, isNextSegmentReady, isInitialized, isThreadRunning,
-                readWriteLock);
-        result = 31 * result + Arrays.hashCode(segments);
-        return result;
+        return Objects.hash(tag, currentSegment, nextSegment, isInitialized, isThreadRunning);
     }
 
     @Override
     public String toString() {
         return "SegmentBuffer{" +
                 "tag='" + tag + '\'' +
-//                ", segments=" + Arrays.toString(segments) +
-                ", currentSegmentIndex=" + currentSegmentIndex +
-                ", isNextSegmentReady=" + isNextSegmentReady +
+//                ", currentSegment=" + currentSegment +
+                ", step=" + step +
+                ", isNextSegmentReady=" + isNextSegmentReady() +
                 ", isInitialized=" + isInitialized +
                 ", isThreadRunning=" + isThreadRunning +
-                ", readWriteLock=" + readWriteLock +
                 '}';
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,149 @@
+package com.github.learndifferent.mtm.dto.search;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * A heavy-hitters sketch with the Space-Saving algorithm
+ * <p>
+ * The sketch keeps at most {@code capacity} counters, so the memory is bounded no matter how many distinct
+ * items are added. When a new item arrives and all counters are in use, the counter with the smallest count
+ * is given to the new item, which inherits the count as its possible overestimation (error).
+ * Any item that occurs more than {@code total / capacity} times is guaranteed to have a counter.
+ * </p>
+ *
+ * @author zhou
+ * @date 2023/11/11
+ */
+public class HeavyHitterSketch {
+
+    private static final Comparator<Counter> ORDER = Comparator
+            .comparingLong((Counter counter) -> counter.count)
+            .thenComparingLong(counter -> counter.sequence);
+
+    /**
+     * Max number of counters
+     */
+    private final int capacity;
+
+    /**
+     * Key is the item, value is the counter
+     */
+    private final Map<String, Counter> counters;
+
+    /**
+     * Counters in ascending order of the count, so the smallest one is found quickly
+     */
+    private final TreeSet<Counter> orderedCounters = new TreeSet<>(ORDER);
+
+    /**
+     * Sequence of the counters, which makes the order of the counters with the same count stable
+     */
+    private long sequence;
+
+    private long total;
+
+    public HeavyHitterSketch(int capacity) {
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    private static final class Counter {
+
+        private final String item;
+        private final long sequence;
+        private long count;
+
+        /**
+         * Max overestimation of the count
+         */
+        private final long error;
+
+        private Counter(String item, long sequence, long count, long error) {
+            this.item = item;
+            this.sequence = sequence;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Add the item once
+     *
+     * @param item item
+     */
+    public void add(String item) {
+        add(item, 1L);
+    }
+
+    /**
+     * Add the item
+     *
+     * @param item  item
+     * @param times number of occurrences, and the item is ignored if it's not positive
+     */
+    public synchronized void add(String item, long times) {
+        if (times <= 0L) {
+            return;
+        }
+        total += times;
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            // the position in the tree set depends on the count
+            orderedCounters.remove(counter);
+            counter.count += times;
+            orderedCounters.add(counter);
+            return;
+        }
+        long error = 0L;
+        if (counters.size() >= capacity) {
+            Counter smallest = orderedCounters.pollFirst();
+            counters.remove(smallest.item);
+            error = smallest.count;
+        }
+        counter = new Counter(item, sequence++, error + times, error);
+        counters.put(item, counter);
+        orderedCounters.add(counter);
+    }
+
+    /**
+     * Get the items that have occurred most
+     *
+     * @param size max number of items
+     * @return key is the item, value is the guaranteed number of occurrences (the count minus the possible
+     * overestimation), in descending order of the value. The items that are not guaranteed to have occurred
+     * are not included.
+     */
+    public synchronized List<Map.Entry<String, Long>> top(int size) {
+        return orderedCounters.stream()
+                .filter(counter -> counter.count > counter.error)
+                .<Map.Entry<String, Long>>map(counter ->
+                        new SimpleImmutableEntry<>(counter.item, counter.count - counter.error))
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(size)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Get the number of items that have counters
+     *
+     * @return number of items
+     */
+    public synchronized int size() {
+        return counters.size();
+    }
+
+    /**
+     * Get the total number of occurrences of all items
+     *
+     * @return total number of occurrences
+     */
+    public synchronized long getTotal() {
+        return total;
+    }
+}
@@ -0,0 +1,281 @@
+package com.github.learndifferent.mtm.dto.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A prefix index to autocomplete the texts
+ * <p>
+ * The texts are stored in a trie (case-insensitive), and each node of the trie keeps the top completions
+ * of the texts that start with its prefix, which are ordered by weight (descending), length and the text.
+ * So the completions of a prefix are found by walking down the trie once, no matter how many texts
+ * start with the prefix.
+ * </p>
+ * <p>
+ * When a text is added, updated or removed, only the top completions of the nodes on its path are
+ * recomputed from the completions of the node itself and the top completions of its children.
+ * Queries hold the read lock and updates hold the write lock.
+ * </p>
+ *
+ * @author zhou
+ * @date 2023/11/5
+ */
+public class PrefixIndex {
+
+    private static final Comparator<Completion> ORDER = Comparator
+            .comparingLong(Completion::getWeight).reversed()
+            .thenComparingInt(completion -> completion.getText().length())
+            .thenComparing(Completion::getText)
+            .thenComparing(Completion::getId);
+
+    /**
+     * Max number of completions kept by each node
+     */
+    private final int maxCompletions;
+
+    private final Node root = new Node();
+
+    /**
+     * Key is the ID, value is the completion
+     */
+    private final Map<String, Completion> completionsById = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public PrefixIndex(int maxCompletions) {
+        this.maxCompletions = maxCompletions;
+    }
+
+    /**
+     * A text and its weight
+     */
+    public static final class Completion {
+
+        /**
+         * ID of the data, which is the tag itself for tags, and the user ID for users
+         */
+        private final String id;
+
+        private final String text;
+
+        private final long weight;
+
+        public Completion(String id, String text, long weight) {
+            this.id = id;
+            this.text = text;
+            this.weight = weight;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public long getWeight() {
+            return weight;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Completion that = (Completion) o;
+            return weight == that.weight && id.equals(that.id) && text.equals(that.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, text, weight);
+        }
+    }
+
+    private static final class Node {
+
+        /**
+         * Children, which is null if there are no children
+         */
+        private Map<Character, Node> children;
+
+        /**
+         * Completions whose text ends at this node, which is null if there are none
+         */
+        private List<Completion> completions;
+
+        /**
+         * Top completions of the texts that start with the prefix of this node
+         */
+        private List<Completion> top = Collections.emptyList();
+
+        private boolean isEmpty() {
+            return children == null && completions == null;
+        }
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Add the text or update the text and weight of the ID
+     *
+     * @param id     ID of the data
+     * @param text   text to autocomplete
+     * @param weight weight of the text
+     */
+    public void put(String id, String text, long weight) {
+        Completion completion = new Completion(id, text, weight);
+        lock.writeLock().lock();
+        try {
+            Completion old = completionsById.put(id, completion);
+            if (completion.equals(old)) {
+                return;
+            }
+            if (old != null) {
+                removeFromTrie(old);
+            }
+            addToTrie(completion);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the text of the ID
+     *
+     * @param id ID of the data
+     */
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Completion old = completionsById.remove(id);
+            if (old != null) {
+                removeFromTrie(old);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the completions of the prefix
+     *
+     * @param prefix prefix
+     * @param size   max number of completions, which is no more than the max completions of the index
+     * @return completions ordered by weight (descending), length and the text
+     */
+    public List<Completion> complete(String prefix, int size) {
+        String key = normalize(prefix);
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.children == null ? null : node.children.get(key.charAt(i));
+            }
+            if (node == null) {
+                return Collections.emptyList();
+            }
+            List<Completion> top = node.top;
+            return new ArrayList<>(top.subList(0, Math.min(size, top.size())));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of texts
+     *
+     * @return number of texts
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return completionsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addToTrie(Completion completion) {
+        String key = normalize(completion.getText());
+        List<Node> path = new ArrayList<>(key.length() + 1);
+        Node node = root;
+        path.add(node);
+        for (int i = 0; i < key.length(); i++) {
+            if (node.children == null) {
+                node.children = new HashMap<>(4);
+            }
+            node = node.children.computeIfAbsent(key.charAt(i), c -> new Node());
+            path.add(node);
+        }
+        if (node.completions == null) {
+            node.completions = new ArrayList<>(1);
+        }
+        node.completions.add(completion);
+        recomputeTop(path);
+    }
+
+    private void removeFromTrie(Completion completion) {
+        String key = normalize(completion.getText());
+        List<Node> path = new ArrayList<>(key.length() + 1);
+        Node node = root;
+        path.add(node);
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.children == null ? null : node.children.get(key.charAt(i));
+            path.add(node);
+        }
+        if (node == null || node.completions == null) {
+            return;
+        }
+        node.completions.remove(completion);
+        if (node.completions.isEmpty()) {
+            node.completions = null;
+        }
+        // remove the nodes that have no texts
+        for (int i = path.size() - 1; i > 0 && path.get(i).isEmpty(); i--) {
+            Node parent = path.get(i - 1);
+            parent.children.remove(key.charAt(i - 1));
+            if (parent.children.isEmpty()) {
+                parent.children = null;
+            }
+            path.remove(i);
+        }
+        recomputeTop(path);
+    }
+
+    /**
+     * Recompute the top completions from the bottom of the path to the root
+     *
+     * @param path nodes from the root
+     */
+    private void recomputeTop(List<Node> path) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node node = path.get(i);
+            List<Completion> candidates = new ArrayList<>();
+            if (node.completions != null) {
+                candidates.addAll(node.completions);
+            }
+            if (node.children != null) {
+                node.children.values().forEach(child -> candidates.addAll(child.top));
+            }
+            candidates.sort(ORDER);
+            node.top = candidates.size() > maxCompletions
+                    ? new ArrayList<>(candidates.subList(0, maxCompletions))
+                    : candidates;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.learndifferent.mtm.dto.search;
+
+import java.io.Serializable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Document to write to the new index when rebuilding an Elasticsearch index
+ *
+ * @author zhou
+ * @date 2023/10/22
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ReindexDocumentDTO implements Serializable {
+
+    /**
+     * Key of the row in database, which is used to read the rows after it
+     */
+    private String key;
+
+    /**
+     * ID of the document
+     */
+    private String id;
+
+    /**
+     * Document in JSON
+     */
+    private String json;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,76 @@
+package com.github.learndifferent.mtm.dto.search;
+
+import com.github.learndifferent.mtm.constant.enums.ResultCode;
+import com.github.learndifferent.mtm.exception.ServiceException;
+import com.github.learndifferent.mtm.utils.JsonUtils;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Position of the last result of a page, from which the next page continues
+ * <p>
+ * The cursor is given to the client as an opaque token, which is the URL-safe Base64 of its JSON.
+ * </p>
+ *
+ * @author zhou
+ * @date 2023/11/25
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SearchCursorDTO implements Serializable {
+
+    /**
+     * The concrete Elasticsearch index that the first page was searched in, so the next pages are searched
+     * in the same version of the index even if the alias has been moved to a rebuilt one.
+     * Null if searching in MySQL.
+     */
+    private String index;
+
+    /**
+     * Sort values of the last result, which are the "search_after" values in Elasticsearch
+     * and the keyset values in MySQL
+     */
+    private List<Object> sortValues;
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Encode the cursor to a token
+     *
+     * @return token
+     */
+    public String encode() {
+        byte[] json = JsonUtils.toJson(this).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+    }
+
+    /**
+     * Decode the token
+     *
+     * @param token token
+     * @return the cursor
+     * @throws ServiceException with the result code of {@link ResultCode#SEARCH_CURSOR_INVALID} if the token
+     *                          is not a valid cursor
+     */
+    public static SearchCursorDTO decode(String token) {
+        try {
+            String json = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            SearchCursorDTO cursor = JsonUtils.toObject(json, SearchCursorDTO.class);
+            // the token of "null" is decoded to null
+            if (cursor == null || cursor.getSortValues() == null || cursor.getSortValues().isEmpty()) {
+                throw new ServiceException(ResultCode.SEARCH_CURSOR_INVALID);
+            }
+            return cursor;
+        } catch (IllegalArgumentException | ServiceException e) {
+            throw new ServiceException(ResultCode.SEARCH_CURSOR_INVALID);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.learndifferent.mtm.dto.search;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.io.Serializable;
 import java.util.List;
 import lombok.AllArgsConstructor;
@@ -33,6 +34,17 @@ public class SearchResultsDTO implements Serializable {
      * Paginated search results
      */
     private List<? extends SearchResults> paginatedResults;
+    /**
+     * Token to get the next page when paginating by cursor, which is null if there are no more results
+     * or if paginating by page number
+     */
+    private String cursor;
+    /**
+     * True if the search fell back to MySQL while Elasticsearch was unavailable or slow,
+     * so the results are not cached as the results of Elasticsearch
+     */
+    @JsonIgnore
+    private transient boolean fallback;
 
     private static final long serialVersionUID = 1L;
 }
\ No newline at end of file
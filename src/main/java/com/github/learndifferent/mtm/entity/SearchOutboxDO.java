@@ -0,0 +1,50 @@
+package com.github.learndifferent.mtm.entity;
+
+import java.io.Serializable;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+/**
+ * A change of the data that needs to be applied to Elasticsearch
+ *
+ * @author zhou
+ * @date 2023/10/29
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Accessors(chain = true)
+@Builder
+public class SearchOutboxDO implements Serializable {
+
+    /**
+     * ID, which is increasing in the order of the changes
+     */
+    private Long id;
+
+    /**
+     * Name of the Elasticsearch index
+     */
+    private String indexName;
+
+    /**
+     * ID of the document
+     */
+    private String docId;
+
+    /**
+     * Creation time
+     */
+    private Instant creationTime;
+
+    /**
+     * Time when the change was sent to Elasticsearch, null if it has not been sent
+     */
+    private Instant relayTime;
+
+    private static final long serialVersionUID = 1L;
+}
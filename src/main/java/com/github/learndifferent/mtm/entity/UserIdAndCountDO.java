@@ -0,0 +1,34 @@
+package com.github.learndifferent.mtm.entity;
+
+import java.io.Serializable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+/**
+ * User ID and count the number of bookmarks of this user
+ *
+ * @author zhou
+ * @date 2023/11/26
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Accessors(chain = true)
+public class UserIdAndCountDO implements Serializable {
+
+    /**
+     * User ID
+     */
+    Long userId;
+
+    /**
+     * Count the number of bookmarks of this user
+     */
+    Integer number;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -30,5 +30,10 @@ public class ViewDataDO implements Serializable {
      */
     private Integer views;
 
+    /**
+     * The number of unique visitors of the bookmark, which is estimated by HyperLogLog
+     */
+    private Integer uniqueVisitors;
+
     private static final long serialVersionUID = 1L;
 }
\ No newline at end of file
@@ -1,9 +1,7 @@
 package com.github.learndifferent.mtm.manager;
 
-import com.github.learndifferent.mtm.constant.consist.RedisConstant;
 import com.github.learndifferent.mtm.mapper.BookmarkViewMapper;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 
 /**
@@ -16,13 +14,16 @@ import org.springframework.stereotype.Component;
 public class DeleteViewManager {
 
     private final BookmarkViewMapper bookmarkViewMapper;
-    private final StringRedisTemplate redisTemplate;
+    private final ViewAggregationManager viewAggregationManager;
+    private final ViewStorageManager viewStorageManager;
 
     @Autowired
     public DeleteViewManager(BookmarkViewMapper bookmarkViewMapper,
-                             StringRedisTemplate redisTemplate) {
+                             ViewAggregationManager viewAggregationManager,
+                             ViewStorageManager viewStorageManager) {
         this.bookmarkViewMapper = bookmarkViewMapper;
-        this.redisTemplate = redisTemplate;
+        this.viewAggregationManager = viewAggregationManager;
+        this.viewStorageManager = viewStorageManager;
     }
 
     /**
@@ -31,12 +32,12 @@ public class DeleteViewManager {
      * @param id ID of the bookmark
      */
     public void deleteBookmarkView(long id) {
+        // drop the views that have not been flushed to Redis
+        viewAggregationManager.discardPendingViews(id);
         boolean success = bookmarkViewMapper.deleteViewData(id);
         if (success) {
             // remove from Redis
-            String key = RedisConstant.WEB_VIEW_COUNT_PREFIX + id;
-            redisTemplate.delete(key);
-            redisTemplate.opsForSet().remove(RedisConstant.VIEW_KEY_SET, key);
+            viewStorageManager.deleteViews(id);
         }
     }
 }
@@ -0,0 +1,352 @@
+package com.github.learndifferent.mtm.manager;
+
+import com.github.learndifferent.mtm.config.ElasticsearchBulkConfigProperties;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Elasticsearch Indexing Manager
+ * <p>
+ * All document writes are put into a bounded buffer and return immediately, and a single thread moves them
+ * into a {@link BulkProcessor}, which sends them to Elasticsearch in bulk requests by count, size and interval.
+ * </p>
+ * <p>
+ * When Elasticsearch is slow, the bulk processor blocks the thread that moves the documents,
+ * the buffer fills up and new documents are rejected, so the request threads never wait for Elasticsearch.
+ * The documents rejected by Elasticsearch because it's busy are retried with exponential backoff,
+ * and other failures are passed to the {@link IndexingFailureListener}s.
+ * The documents that have been written are passed to the {@link IndexingSuccessListener}s,
+ * and the indices that documents have been written to are passed to the {@link IndexedListener}s.
+ * </p>
+ *
+ * @author zhou
+ * @date 2023/10/21
+ */
+@Component
+@Slf4j
+public class ElasticsearchIndexingManager {
+
+    /**
+     * Wait time for the in-flight bulk requests when shutting down
+     */
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30L;
+
+    /**
+     * Listener of the documents that can't be written to Elasticsearch
+     */
+    @FunctionalInterface
+    public interface IndexingFailureListener {
+
+        /**
+         * Called when the document can't be written to Elasticsearch
+         *
+         * @param index name of the index
+         * @param id    ID of the document
+         * @param cause cause of the failure
+         */
+        void onFailure(String index, String id, Throwable cause);
+    }
+
+    /**
+     * Listener of the documents that have been written to Elasticsearch
+     */
+    @FunctionalInterface
+    public interface IndexingSuccessListener {
+
+        /**
+         * Called when Elasticsearch acknowledges the write of the document
+         *
+         * @param index name of the index
+         * @param id    ID of the document
+         */
+        void onSuccess(String index, String id);
+    }
+
+    /**
+     * Listener of the indices that documents have been written to
+     */
+    @FunctionalInterface
+    public interface IndexedListener {
+
+        /**
+         * Called when the documents have been written to Elasticsearch,
+         * which are searchable after the next refresh of the indices
+         *
+         * @param indices names of the indices
+         */
+        void onIndexed(Set<String> indices);
+    }
+
+    private final RestHighLevelClient client;
+    private final ElasticsearchBulkConfigProperties configProperties;
+    private final BlockingQueue<DocWriteRequest<?>> buffer;
+    private final List<IndexingFailureListener> failureListeners = new CopyOnWriteArrayList<>();
+    private final List<IndexingSuccessListener> successListeners = new CopyOnWriteArrayList<>();
+    private final List<IndexedListener> indexedListeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private BulkProcessor bulkProcessor;
+    private Thread drainThread;
+    private volatile boolean running;
+
+    @Autowired
+    public ElasticsearchIndexingManager(@Qualifier("restHighLevelClient") RestHighLevelClient client,
+                                        ElasticsearchBulkConfigProperties configProperties) {
+        this.client = client;
+        this.configProperties = configProperties;
+        this.buffer = new ArrayBlockingQueue<>(configProperties.getQueueCapacity());
+    }
+
+    @PostConstruct
+    public void start() {
+        TimeValue retryDelay = TimeValue.timeValueMillis(configProperties.getRetryInitialDelayMillis());
+        bulkProcessor = BulkProcessor
+                .builder((request, listener) -> client.bulkAsync(request, RequestOptions.DEFAULT, listener),
+                        new BulkListener())
+                .setBulkActions(configProperties.getBulkActions())
+                .setBulkSize(new ByteSizeValue(configProperties.getBulkSizeKb(), ByteSizeUnit.KB))
+                .setFlushInterval(TimeValue.timeValueMillis(configProperties.getFlushIntervalMillis()))
+                .setConcurrentRequests(configProperties.getConcurrentRequests())
+                .setBackoffPolicy(BackoffPolicy.exponentialBackoff(retryDelay, configProperties.getMaxRetries()))
+                .build();
+
+        running = true;
+        drainThread = new Thread(this::drain, "es-indexing-thread");
+        drainThread.setDaemon(true);
+        drainThread.start();
+        log.info("[ElasticsearchIndexing] Send documents in bulk: {} actions, {} KB, every {} ms",
+                configProperties.getBulkActions(), configProperties.getBulkSizeKb(),
+                configProperties.getFlushIntervalMillis());
+    }
+
+    /**
+     * Send the buffered documents before shutting down
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (drainThread != null) {
+            // the thread stops after it polls again
+            try {
+                drainThread.join(TimeUnit.SECONDS.toMillis(SHUTDOWN_TIMEOUT_SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (bulkProcessor == null) {
+            return;
+        }
+        // the thread has stopped, so move the rest in this thread
+        List<DocWriteRequest<?>> rest = new ArrayList<>();
+        buffer.drainTo(rest);
+        rest.forEach(bulkProcessor::add);
+        try {
+            bulkProcessor.awaitClose(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Add a listener of the documents that can't be written to Elasticsearch
+     *
+     * @param listener listener
+     */
+    public void addFailureListener(IndexingFailureListener listener) {
+        failureListeners.add(listener);
+    }
+
+    /**
+     * Add a listener of the documents that have been written to Elasticsearch
+     *
+     * @param listener listener
+     */
+    public void addSuccessListener(IndexingSuccessListener listener) {
+        successListeners.add(listener);
+    }
+
+    /**
+     * Add a listener of the indices that documents have been written to
+     *
+     * @param listener listener
+     */
+    public void addIndexedListener(IndexedListener listener) {
+        indexedListeners.add(listener);
+    }
+
+    /**
+     * Index the document (create or replace) without waiting for Elasticsearch
+     *
+     * @param index name of the index
+     * @param id    ID of the document
+     * @param json  document in JSON
+     * @return true if the document is accepted, false if the buffer is full
+     */
+    public boolean index(String index, String id, String json) {
+        IndexRequest request = new IndexRequest(index).id(id).source(json, XContentType.JSON);
+        return offer(request);
+    }
+
+    /**
+     * Delete the document without waiting for Elasticsearch
+     *
+     * @param index name of the index
+     * @param id    ID of the document
+     * @return true if the deletion is accepted, false if the buffer is full
+     */
+    public boolean delete(String index, String id) {
+        return offer(new DeleteRequest(index, id));
+    }
+
+    /**
+     * Get the number of documents that are waiting to be added to a bulk request
+     *
+     * @return number of documents in the buffer
+     */
+    public int getBufferedCount() {
+        return buffer.size();
+    }
+
+    /**
+     * Get the number of documents that are rejected because the buffer is full
+     *
+     * @return number of rejected documents
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    private boolean offer(DocWriteRequest<?> request) {
+        boolean accepted = running && buffer.offer(request);
+        if (!accepted) {
+            rejectedCount.incrementAndGet();
+            log.warn("[ElasticsearchIndexing] The buffer is full or closed, rejected {} of index {}",
+                    request.id(), request.index());
+            notifyFailure(request.index(), request.id(),
+                    new IllegalStateException("The indexing buffer is full or closed"));
+        }
+        return accepted;
+    }
+
+    private void drain() {
+        int batchSize = configProperties.getBulkActions();
+        List<DocWriteRequest<?>> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                DocWriteRequest<?> first = buffer.poll(1L, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+                // this blocks when all concurrent bulk requests are in flight, which fills up the buffer
+                batch.forEach(bulkProcessor::add);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("[ElasticsearchIndexing] Failed to add {} documents to the bulk request", batch.size(), e);
+                batch.forEach(r -> notifyFailure(r.index(), r.id(), e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void notifyFailure(String index, String id, Throwable cause) {
+        for (IndexingFailureListener listener : failureListeners) {
+            try {
+                listener.onFailure(index, id, cause);
+            } catch (Exception e) {
+                log.error("[ElasticsearchIndexing] Failure listener threw an exception", e);
+            }
+        }
+    }
+
+    private void notifySuccess(String index, String id) {
+        for (IndexingSuccessListener listener : successListeners) {
+            try {
+                listener.onSuccess(index, id);
+            } catch (Exception e) {
+                log.error("[ElasticsearchIndexing] Success listener threw an exception", e);
+            }
+        }
+    }
+
+    private void notifyIndexed(Set<String> indices) {
+        if (indices.isEmpty()) {
+            return;
+        }
+        for (IndexedListener listener : indexedListeners) {
+            try {
+                listener.onIndexed(indices);
+            } catch (Exception e) {
+                log.error("[ElasticsearchIndexing] Indexed listener threw an exception", e);
+            }
+        }
+    }
+
+    private class BulkListener implements BulkProcessor.Listener {
+
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request) {
+            log.debug("[ElasticsearchIndexing] Sending bulk request {} with {} actions",
+                    executionId, request.numberOfActions());
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+            Set<String> indexed = new HashSet<>();
+            int failures = 0;
+            for (BulkItemResponse item : response.getItems()) {
+                if (item.isFailed()) {
+                    failures++;
+                    notifyFailure(item.getIndex(), item.getId(), item.getFailure().getCause());
+                } else {
+                    notifySuccess(item.getIndex(), item.getId());
+                    indexed.add(item.getIndex());
+                }
+            }
+            notifyIndexed(indexed);
+            if (failures == 0) {
+                return;
+            }
+            log.error("[ElasticsearchIndexing] {} of {} actions failed in bulk request {}",
+                    failures, request.numberOfActions(), executionId);
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+            log.error("[ElasticsearchIndexing] Bulk request {} with {} actions failed",
+                    executionId, request.numberOfActions(), failure);
+            request.requests().forEach(r -> notifyFailure(r.index(), r.id(), failure));
+        }
+    }
+}
@@ -0,0 +1,515 @@
+package com.github.learndifferent.mtm.manager;
+
+import com.github.learndifferent.mtm.config.ElasticsearchBulkConfigProperties;
+import com.github.learndifferent.mtm.constant.consist.SearchConstant;
+import com.github.learndifferent.mtm.dto.search.ReindexDocumentDTO;
+import com.github.learndifferent.mtm.utils.RedisKeyUtils;
+import com.github.learndifferent.mtm.vo.ReindexProgressVO;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest.AliasActions;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.GetAliasesResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.rest.RestStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+/**
+ * Elasticsearch Reindex Manager
+ * <p>
+ * The searches use an alias (e.g. {@code web}), and rebuilding the index writes to a new versioned index
+ * (e.g. {@code web_v20231022093000}) while the old one is still being searched. The rows are read from database
+ * in batches of ascending keys, and the batches are sent in parallel bulk requests. The alias is moved to the new
+ * index atomically when all rows are written, and then the old index is deleted.
+ * </p>
+ * <p>
+ * The progress is saved in Redis after each batch. The key of the last row, whose document and all documents
+ * before it have been written, is saved as well, so a failed or interrupted rebuild continues from that row
+ * into the same new index next time.
+ * </p>
+ * <p>
+ * The new index is published in the progress as well, so all nodes write the changed documents to the new index
+ * while it's being rebuilt, or while the failed rebuild is waiting to be resumed.
+ * </p>
+ *
+ * @author zhou
+ * @date 2023/10/22
+ */
+@Component
+@Slf4j
+public class ElasticsearchReindexManager {
+
+    public static final String STATUS_NONE = "NONE";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_FAILED = "FAILED";
+    public static final String STATUS_DONE = "DONE";
+
+    private static final String FIELD_TARGET_INDEX = "targetIndex";
+    private static final String FIELD_STATUS = "status";
+    private static final String FIELD_INDEXED_COUNT = "indexedCount";
+    private static final String FIELD_TOTAL_COUNT = "totalCount";
+    private static final String FIELD_LAST_KEY = "lastKey";
+    private static final String FIELD_START_TIME = "startTime";
+    private static final String FIELD_UPDATE_TIME = "updateTime";
+    private static final String FIELD_MESSAGE = "message";
+
+    /**
+     * The name of the new index is the alias, this separator and the version
+     */
+    private static final String VERSION_SEPARATOR = "_v";
+
+    private static final String REFRESH_INTERVAL = "index.refresh_interval";
+
+    /**
+     * The lock expires if the node that is rebuilding the index crashes, and it's renewed after each batch
+     */
+    private static final Duration LOCK_TIMEOUT = Duration.ofMinutes(10L);
+
+    private static final DateTimeFormatter VERSION_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withZone(ZoneOffset.UTC);
+
+    /**
+     * Loader of the rows after the key
+     */
+    @FunctionalInterface
+    public interface BatchLoader {
+
+        /**
+         * Load the documents of the rows whose key is greater than the last key, in ascending order of the key
+         *
+         * @param lastKey key of the last row that has been loaded (null if from the beginning)
+         * @param size    max number of documents
+         * @return documents
+         */
+        List<ReindexDocumentDTO> load(String lastKey, int size);
+    }
+
+    private final RestHighLevelClient client;
+    private final StringRedisTemplate redisTemplate;
+    private final ElasticsearchBulkConfigProperties configProperties;
+    private final SearchResultCacheManager searchResultCacheManager;
+
+    private final ExecutorService reindexExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "es-reindex-thread");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public ElasticsearchReindexManager(@Qualifier("restHighLevelClient") RestHighLevelClient client,
+                                       StringRedisTemplate redisTemplate,
+                                       ElasticsearchBulkConfigProperties configProperties,
+                                       SearchResultCacheManager searchResultCacheManager) {
+        this.client = client;
+        this.redisTemplate = redisTemplate;
+        this.configProperties = configProperties;
+        this.searchResultCacheManager = searchResultCacheManager;
+    }
+
+    /**
+     * Check if the index is the alias itself or a versioned index built for the alias
+     *
+     * @param index name of the index
+     * @param alias alias
+     * @return true if the index belongs to the alias
+     */
+    public static boolean isIndexOfAlias(String index, String alias) {
+        return index != null && (index.equals(alias) || index.startsWith(alias + VERSION_SEPARATOR));
+    }
+
+    /**
+     * Stop the running rebuilds, which can be resumed later
+     */
+    @PreDestroy
+    public void stop() {
+        reindexExecutor.shutdownNow();
+    }
+
+    /**
+     * Rebuild the index in the background, or resume the rebuild if the last one failed
+     *
+     * @param alias      alias of the index
+     * @param totalCount number of rows in database, which is used to show the progress
+     * @param loader     loader of the rows
+     * @return true if started, false if the index is being rebuilt
+     */
+    public boolean reindex(String alias, long totalCount, BatchLoader loader) {
+        String lockKey = RedisKeyUtils.getReindexLockKey(alias);
+        String owner = UUID.randomUUID().toString();
+        boolean locked = Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(lockKey, owner, LOCK_TIMEOUT));
+        if (!locked) {
+            log.info("[ElasticsearchReindex] The index {} is being rebuilt", alias);
+            return false;
+        }
+
+        try {
+            reindexExecutor.execute(() -> {
+                try {
+                    rebuild(alias, totalCount, loader, lockKey);
+                } finally {
+                    unlock(lockKey, owner);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            unlock(lockKey, owner);
+            log.error("[ElasticsearchReindex] Unable to rebuild the index {}", alias, e);
+            return false;
+        }
+    }
+
+    private void unlock(String lockKey, String owner) {
+        if (owner.equals(redisTemplate.opsForValue().get(lockKey))) {
+            redisTemplate.delete(lockKey);
+        }
+    }
+
+    /**
+     * Get the new index that is being built on any node, so the documents written during the rebuild
+     * can be written to the new index as well.
+     * <p>
+     * The new index of a failed rebuild is returned as well, since the rebuild continues from the last key
+     * into the same index, and the changes of the rows before the key would be lost otherwise.
+     * </p>
+     *
+     * @param alias alias of the index
+     * @return name of the new index, or empty if the index is not being rebuilt
+     */
+    public Optional<String> getBuildingIndex(String alias) {
+        List<Object> values = redisTemplate.opsForHash().multiGet(RedisKeyUtils.getReindexProgressKey(alias),
+                Arrays.asList(FIELD_STATUS, FIELD_TARGET_INDEX));
+        if (CollectionUtils.isEmpty(values) || values.size() < 2) {
+            return Optional.empty();
+        }
+        Object status = values.get(0);
+        boolean isBuilding = STATUS_RUNNING.equals(status) || STATUS_FAILED.equals(status);
+        return isBuilding ? Optional.ofNullable(values.get(1)).map(Object::toString) : Optional.empty();
+    }
+
+    /**
+     * Get the progress of rebuilding the index
+     *
+     * @param alias alias of the index
+     * @return progress
+     */
+    public ReindexProgressVO getProgress(String alias) {
+        Map<Object, Object> fields = redisTemplate.opsForHash().entries(RedisKeyUtils.getReindexProgressKey(alias));
+        if (CollectionUtils.isEmpty(fields)) {
+            return ReindexProgressVO.builder().alias(alias).status(STATUS_NONE).build();
+        }
+        return ReindexProgressVO.builder()
+                .alias(alias)
+                .targetIndex(getString(fields, FIELD_TARGET_INDEX))
+                .status(getString(fields, FIELD_STATUS))
+                .indexedCount(getLong(fields, FIELD_INDEXED_COUNT))
+                .totalCount(getLong(fields, FIELD_TOTAL_COUNT))
+                .lastKey(getString(fields, FIELD_LAST_KEY))
+                .startTime(getInstant(fields, FIELD_START_TIME))
+                .updateTime(getInstant(fields, FIELD_UPDATE_TIME))
+                .message(getString(fields, FIELD_MESSAGE))
+                .build();
+    }
+
+    private String getString(Map<Object, Object> fields, String field) {
+        Object value = fields.get(field);
+        return value == null ? null : value.toString();
+    }
+
+    private Long getLong(Map<Object, Object> fields, String field) {
+        String value = getString(fields, field);
+        return value == null ? null : Long.valueOf(value);
+    }
+
+    private Instant getInstant(Map<Object, Object> fields, String field) {
+        Long value = getLong(fields, field);
+        return value == null ? null : Instant.ofEpochMilli(value);
+    }
+
+    private void rebuild(String alias, long totalCount, BatchLoader loader, String lockKey) {
+        String progressKey = RedisKeyUtils.getReindexProgressKey(alias);
+        ReindexProgressVO progress = getProgress(alias);
+        try {
+            String targetIndex = progress.getTargetIndex();
+            boolean canResume = (STATUS_RUNNING.equals(progress.getStatus())
+                    || STATUS_FAILED.equals(progress.getStatus()))
+                    && targetIndex != null
+                    && existsIndex(targetIndex);
+
+            String lastKey = null;
+            long indexedCount = 0L;
+            if (canResume) {
+                lastKey = progress.getLastKey();
+                indexedCount = Optional.ofNullable(progress.getIndexedCount()).orElse(0L);
+                log.info("[ElasticsearchReindex] Resume rebuilding {} into {} after key {}",
+                        alias, targetIndex, lastKey);
+            } else {
+                targetIndex = alias + VERSION_SEPARATOR + VERSION_FORMATTER.format(Instant.now());
+                createIndex(alias, targetIndex);
+                redisTemplate.delete(progressKey);
+                redisTemplate.opsForHash().put(progressKey, FIELD_TARGET_INDEX, targetIndex);
+                redisTemplate.opsForHash().put(progressKey, FIELD_INDEXED_COUNT, "0");
+                redisTemplate.opsForHash().put(progressKey, FIELD_START_TIME, now());
+                log.info("[ElasticsearchReindex] Rebuild {} into {}", alias, targetIndex);
+            }
+            Map<String, String> runningFields = new HashMap<>(4);
+            runningFields.put(FIELD_STATUS, STATUS_RUNNING);
+            runningFields.put(FIELD_TOTAL_COUNT, String.valueOf(totalCount));
+            runningFields.put(FIELD_UPDATE_TIME, now());
+            redisTemplate.opsForHash().putAll(progressKey, runningFields);
+            redisTemplate.opsForHash().delete(progressKey, FIELD_MESSAGE);
+
+            // the other nodes write the changes to the new index as well from now on,
+            // and the rows are loaded after that, so no change is missed
+            int batchSize = configProperties.getReindexBatchSize();
+            BatchWriter writer = new BatchWriter(targetIndex, progressKey, indexedCount);
+            while (true) {
+                List<ReindexDocumentDTO> batch = loader.load(lastKey, batchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                lastKey = batch.get(batch.size() - 1).getKey();
+                writer.send(batch, lastKey);
+                redisTemplate.expire(lockKey, LOCK_TIMEOUT);
+                if (batch.size() < batchSize) {
+                    break;
+                }
+            }
+            long indexed = writer.awaitAll();
+
+            swapAlias(alias, targetIndex);
+            searchResultCacheManager.invalidate(alias);
+            redisTemplate.opsForHash().put(progressKey, FIELD_STATUS, STATUS_DONE);
+            redisTemplate.opsForHash().put(progressKey, FIELD_UPDATE_TIME, now());
+            log.info("[ElasticsearchReindex] Rebuilt {} with {} documents, and the alias now points to {}",
+                    alias, indexed, targetIndex);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            log.error("[ElasticsearchReindex] Failed to rebuild {}, which can be resumed later", alias, e);
+            Map<String, String> failedFields = new HashMap<>(4);
+            failedFields.put(FIELD_STATUS, STATUS_FAILED);
+            failedFields.put(FIELD_MESSAGE, String.valueOf(e.getMessage()));
+            failedFields.put(FIELD_UPDATE_TIME, now());
+            redisTemplate.opsForHash().putAll(progressKey, failedFields);
+        }
+    }
+
+    private String now() {
+        return String.valueOf(System.currentTimeMillis());
+    }
+
+    private boolean existsIndex(String index) throws IOException {
+        return client.indices().exists(new GetIndexRequest(index), RequestOptions.DEFAULT);
+    }
+
+    private void createIndex(String alias, String index) throws IOException {
+        // don't refresh while loading, which is restored before the alias is moved
+        CreateIndexRequest request = new CreateIndexRequest(index)
+                .settings(Settings.builder().put(REFRESH_INTERVAL, "-1"));
+        if (SearchConstant.INDEX_WEB.equals(alias)) {
+            request.mapping(getWebMapping());
+        }
+        client.indices().create(request, RequestOptions.DEFAULT);
+    }
+
+    /**
+     * The URL of bookmarks is mapped as the dynamic mapping does, but the keyword sub-field keeps the long URLs
+     * as well, since the cursor pagination sorts on it to break the ties of the scores
+     *
+     * @return mapping of the bookmark index
+     */
+    private Map<String, Object> getWebMapping() {
+        Map<String, Object> keyword = new HashMap<>(4);
+        keyword.put("type", "keyword");
+        keyword.put("ignore_above", SearchConstant.URL_KEYWORD_IGNORE_ABOVE);
+
+        Map<String, Object> url = new HashMap<>(4);
+        url.put("type", "text");
+        url.put("fields", Collections.singletonMap("keyword", keyword));
+
+        return Collections.singletonMap("properties", Collections.singletonMap(SearchConstant.URL, url));
+    }
+
+    private void swapAlias(String alias, String targetIndex) throws IOException {
+        UpdateSettingsRequest settingsRequest = new UpdateSettingsRequest(targetIndex)
+                .settings(Settings.builder().putNull(REFRESH_INTERVAL));
+        client.indices().putSettings(settingsRequest, RequestOptions.DEFAULT);
+        client.indices().refresh(new RefreshRequest(targetIndex), RequestOptions.DEFAULT);
+
+        Set<String> oldIndices = getIndicesOfAlias(alias).stream()
+                .filter(index -> !index.equals(targetIndex))
+                .collect(Collectors.toSet());
+
+        IndicesAliasesRequest request = new IndicesAliasesRequest();
+        request.addAliasAction(AliasActions.add().index(targetIndex).alias(alias));
+        oldIndices.forEach(index -> request.addAliasAction(AliasActions.remove().index(index).alias(alias)));
+        boolean isConcreteIndex = oldIndices.isEmpty() && existsIndex(alias);
+        if (isConcreteIndex) {
+            // the index that was created before using the alias has the same name as the alias,
+            // so it's deleted in the same request
+            request.addAliasAction(AliasActions.removeIndex().index(alias));
+        }
+        client.indices().updateAliases(request, RequestOptions.DEFAULT);
+
+        if (oldIndices.isEmpty()) {
+            return;
+        }
+        try {
+            String[] indices = oldIndices.toArray(new String[0]);
+            client.indices().delete(new DeleteIndexRequest(indices), RequestOptions.DEFAULT);
+        } catch (Exception e) {
+            log.warn("[ElasticsearchReindex] Unable to delete the old indices {}", oldIndices, e);
+        }
+    }
+
+    private Set<String> getIndicesOfAlias(String alias) throws IOException {
+        GetAliasesResponse response = client.indices().getAlias(new GetAliasesRequest(alias), RequestOptions.DEFAULT);
+        if (RestStatus.NOT_FOUND.equals(response.status())) {
+            return Collections.emptySet();
+        }
+        return response.getAliases().keySet();
+    }
+
+    /**
+     * Send the batches in parallel bulk requests and save the progress
+     * after all batches before a batch are written as well
+     */
+    private class BatchWriter {
+
+        private final String targetIndex;
+        private final String progressKey;
+        private final int concurrentRequests;
+        private final Semaphore permits;
+
+        /**
+         * Key is the sequence of the batch that is written but some batches before it are not,
+         * value is the last key and the size of the batch
+         */
+        private final TreeMap<Long, Map.Entry<String, Integer>> writtenBatches = new TreeMap<>();
+
+        private long nextSequence;
+        private long savedSequence = -1L;
+        private long indexedCount;
+        private volatile Exception failure;
+
+        BatchWriter(String targetIndex, String progressKey, long indexedCount) {
+            this.targetIndex = targetIndex;
+            this.progressKey = progressKey;
+            this.indexedCount = indexedCount;
+            this.concurrentRequests = Math.max(1, configProperties.getReindexConcurrentRequests());
+            this.permits = new Semaphore(concurrentRequests);
+        }
+
+        void send(List<ReindexDocumentDTO> batch, String lastKey) throws InterruptedException {
+            throwIfFailed();
+            // wait if all concurrent requests are in flight
+            permits.acquire();
+            if (failure != null) {
+                permits.release();
+                throwIfFailed();
+            }
+
+            long sequence = nextSequence++;
+            int size = batch.size();
+            BulkRequest request = new BulkRequest();
+            batch.forEach(document -> request.add(new IndexRequest(targetIndex)
+                    .id(document.getId())
+                    .source(document.getJson(), XContentType.JSON)));
+
+            client.bulkAsync(request, RequestOptions.DEFAULT, new ActionListener<BulkResponse>() {
+                @Override
+                public void onResponse(BulkResponse response) {
+                    try {
+                        if (response.hasFailures()) {
+                            failure = new IllegalStateException(response.buildFailureMessage());
+                        } else {
+                            saveProgress(sequence, lastKey, size);
+                        }
+                    } catch (Exception e) {
+                        failure = e;
+                    } finally {
+                        permits.release();
+                    }
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    failure = e;
+                    permits.release();
+                }
+            });
+        }
+
+        long awaitAll() throws InterruptedException {
+            permits.acquire(concurrentRequests);
+            permits.release(concurrentRequests);
+            throwIfFailed();
+            synchronized (this) {
+                return indexedCount;
+            }
+        }
+
+        private void throwIfFailed() {
+            if (failure != null) {
+                throw new IllegalStateException("Failed to write documents to " + targetIndex, failure);
+            }
+        }
+
+        private synchronized void saveProgress(long sequence, String lastKey, int size) {
+            writtenBatches.put(sequence, new AbstractMap.SimpleImmutableEntry<>(lastKey, size));
+
+            String savedKey = null;
+            while (writtenBatches.containsKey(savedSequence + 1)) {
+                Map.Entry<String, Integer> written = writtenBatches.remove(++savedSequence);
+                savedKey = written.getKey();
+                indexedCount += written.getValue();
+            }
+            if (savedKey == null) {
+                return;
+            }
+            Map<String, String> fields = new HashMap<>(4);
+            fields.put(FIELD_LAST_KEY, savedKey);
+            fields.put(FIELD_INDEXED_COUNT, String.valueOf(indexedCount));
+            fields.put(FIELD_UPDATE_TIME, now());
+            redisTemplate.opsForHash().putAll(progressKey, fields);
+        }
+    }
+}
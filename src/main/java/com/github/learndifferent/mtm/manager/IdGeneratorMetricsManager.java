@@ -0,0 +1,299 @@
+package com.github.learndifferent.mtm.manager;
+
+import com.github.learndifferent.mtm.dto.id.Segment;
+import com.github.learndifferent.mtm.dto.id.SegmentBuffer;
+import com.github.learndifferent.mtm.vo.IdGeneratorMetricsVO;
+import com.github.learndifferent.mtm.vo.IdGeneratorTagMetricsVO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * ID Generator Metrics Manager
+ * <p>
+ * Record the metrics of the segment ID allocator for each business tag,
+ * and register them to the {@link MeterRegistry} with the tag {@value #BIZ_TAG}
+ * </p>
+ *
+ * @author zhou
+ * @date 2023/9/17
+ */
+@Component
+@Slf4j
+public class IdGeneratorMetricsManager {
+
+    private static final String BIZ_TAG = "biz_tag";
+
+    private static final String RESULT_TAG = "result";
+
+    /**
+     * Sampling period of the IDs issued per second
+     */
+    private static final long SAMPLING_SECONDS = 10L;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Key is the business tag, value is the meters of the tag
+     */
+    private final Map<String, TagMeters> tagsAndMeters = new ConcurrentHashMap<>();
+
+    private final Counter rejectedCounter;
+
+    private volatile ThreadPoolExecutor executor;
+
+    private ScheduledExecutorService samplingService;
+
+    @Autowired
+    public IdGeneratorMetricsManager(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.rejectedCounter = Counter.builder("id.generator.executor.rejected")
+                .description("Segment update tasks rejected by the executor")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        samplingService = new ScheduledThreadPoolExecutor(
+                // core pool size
+                1,
+                // thread factory
+                runnable -> {
+                    Thread thread = new Thread(runnable, "id-generator-metrics-thread");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        samplingService.scheduleAtFixedRate(this::sampleIssuedPerSecond,
+                SAMPLING_SECONDS, SAMPLING_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (samplingService != null) {
+            samplingService.shutdownNow();
+        }
+    }
+
+    /**
+     * Sample the IDs issued per second in the last sampling period
+     */
+    void sampleIssuedPerSecond() {
+        tagsAndMeters.values().forEach(meters -> {
+            long issued = meters.issued.sum();
+            meters.issuedPerSecond = (double) (issued - meters.lastIssued) / SAMPLING_SECONDS;
+            meters.lastIssued = issued;
+        });
+    }
+
+    /**
+     * Register the meters of the segment buffer
+     *
+     * @param buffer segment buffer
+     */
+    public void registerBuffer(SegmentBuffer buffer) {
+        tagsAndMeters.computeIfAbsent(buffer.getTag(), tag -> new TagMeters(buffer));
+    }
+
+    /**
+     * Remove the meters of the business tag
+     *
+     * @param tag business tag
+     */
+    public void removeBuffer(String tag) {
+        Optional.ofNullable(tagsAndMeters.remove(tag))
+                .ifPresent(meters -> meters.meters.forEach(meterRegistry::remove));
+    }
+
+    /**
+     * Register the meters of the executor that updates the segments
+     *
+     * @param executor executor
+     */
+    public void registerExecutor(ThreadPoolExecutor executor) {
+        this.executor = executor;
+        Gauge.builder("id.generator.executor.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Threads that are updating segments")
+                .register(meterRegistry);
+        Gauge.builder("id.generator.executor.pool.size", executor, ThreadPoolExecutor::getPoolSize)
+                .register(meterRegistry);
+        Gauge.builder("id.generator.executor.saturation", executor, IdGeneratorMetricsManager::getSaturation)
+                .description("Active threads / max threads")
+                .register(meterRegistry);
+    }
+
+    public void recordIssued(String tag, long count) {
+        Optional.ofNullable(tagsAndMeters.get(tag)).ifPresent(meters -> meters.issued.add(count));
+    }
+
+    public void recordRefill(String tag, long nanos, boolean success) {
+        Optional.ofNullable(tagsAndMeters.get(tag))
+                .map(meters -> success ? meters.refillTimer : meters.refillFailureTimer)
+                .ifPresent(timer -> timer.record(nanos, TimeUnit.NANOSECONDS));
+    }
+
+    public void recordWait(String tag, long nanos) {
+        Optional.ofNullable(tagsAndMeters.get(tag))
+                .ifPresent(meters -> meters.waitTimer.record(nanos, TimeUnit.NANOSECONDS));
+    }
+
+    public void recordNextSegmentNotReady(String tag) {
+        Optional.ofNullable(tagsAndMeters.get(tag)).ifPresent(meters -> meters.notReadyCounter.increment());
+    }
+
+    public void recordExhausted(String tag) {
+        Optional.ofNullable(tagsAndMeters.get(tag)).ifPresent(meters -> meters.exhaustedCounter.increment());
+    }
+
+    public void recordRejected() {
+        rejectedCounter.increment();
+    }
+
+    /**
+     * Get the metrics of all business tags and the executor
+     *
+     * @return metrics
+     */
+    public IdGeneratorMetricsVO getMetrics() {
+        List<IdGeneratorTagMetricsVO> tags = tagsAndMeters.values()
+                .stream()
+                .map(TagMeters::toMetrics)
+                .collect(Collectors.toList());
+
+        IdGeneratorMetricsVO metrics = IdGeneratorMetricsVO.builder()
+                .tags(tags)
+                .executorRejectedTaskCount((long) rejectedCounter.count())
+                .build();
+
+        ThreadPoolExecutor currentExecutor = executor;
+        if (currentExecutor != null) {
+            metrics.setExecutorActiveCount(currentExecutor.getActiveCount());
+            metrics.setExecutorPoolSize(currentExecutor.getPoolSize());
+            metrics.setExecutorMaxPoolSize(currentExecutor.getMaximumPoolSize());
+            metrics.setExecutorLargestPoolSize(currentExecutor.getLargestPoolSize());
+            metrics.setExecutorCompletedTaskCount(currentExecutor.getCompletedTaskCount());
+            metrics.setExecutorSaturation(getSaturation(currentExecutor));
+        }
+        return metrics;
+    }
+
+    private static double getSaturation(ThreadPoolExecutor executor) {
+        return (double) executor.getActiveCount() / executor.getMaximumPoolSize();
+    }
+
+    private static double getRemainingPercentage(SegmentBuffer buffer) {
+        Segment segment = buffer.getCurrentSegment();
+        int step = segment.getStep();
+        if (step <= 0) {
+            return 0D;
+        }
+        double percentage = 100D * segment.getRemainingIdCount() / step;
+        return Math.max(0D, Math.min(100D, percentage));
+    }
+
+    /**
+     * Meters of a business tag
+     */
+    private class TagMeters {
+
+        private final SegmentBuffer buffer;
+
+        private final LongAdder issued = new LongAdder();
+
+        private volatile long lastIssued;
+
+        private volatile double issuedPerSecond;
+
+        private final Timer refillTimer;
+
+        private final Timer refillFailureTimer;
+
+        private final Timer waitTimer;
+
+        private final Counter notReadyCounter;
+
+        private final Counter exhaustedCounter;
+
+        private final List<Meter> meters;
+
+        private TagMeters(SegmentBuffer buffer) {
+            this.buffer = buffer;
+            String tag = buffer.getTag();
+
+            FunctionCounter issuedCounter = FunctionCounter.builder("id.generator.issued", issued, LongAdder::sum)
+                    .description("IDs issued")
+                    .tag(BIZ_TAG, tag)
+                    .register(meterRegistry);
+            Gauge issuedPerSecondGauge = Gauge.builder("id.generator.issued.rate", this, m -> m.issuedPerSecond)
+                    .description("IDs issued per second")
+                    .tag(BIZ_TAG, tag)
+                    .register(meterRegistry);
+            Gauge remainingGauge = Gauge.builder("id.generator.segment.remaining", buffer,
+                            IdGeneratorMetricsManager::getRemainingPercentage)
+                    .description("Percentage of the remaining IDs in the current segment")
+                    .tag(BIZ_TAG, tag)
+                    .register(meterRegistry);
+            this.refillTimer = Timer.builder("id.generator.segment.refill")
+                    .description("Duration of updating a segment from database")
+                    .tags(BIZ_TAG, tag, RESULT_TAG, "success")
+                    .register(meterRegistry);
+            this.refillFailureTimer = Timer.builder("id.generator.segment.refill")
+                    .description("Duration of updating a segment from database")
+                    .tags(BIZ_TAG, tag, RESULT_TAG, "failure")
+                    .register(meterRegistry);
+            this.waitTimer = Timer.builder("id.generator.segment.wait")
+                    .description("Time spent waiting for the next segment")
+                    .tag(BIZ_TAG, tag)
+                    .register(meterRegistry);
+            this.notReadyCounter = Counter.builder("id.generator.segment.not.ready")
+                    .description("Times the next segment was not ready when the current segment ran out")
+                    .tag(BIZ_TAG, tag)
+                    .register(meterRegistry);
+            this.exhaustedCounter = Counter.builder("id.generator.segment.exhausted")
+                    .description("Times both segments were not ready after waiting")
+                    .tag(BIZ_TAG, tag)
+                    .register(meterRegistry);
+
+            this.meters = new ArrayList<>(Arrays.asList(issuedCounter, issuedPerSecondGauge, remainingGauge,
+                    refillTimer, refillFailureTimer, waitTimer, notReadyCounter, exhaustedCounter));
+        }
+
+        private IdGeneratorTagMetricsVO toMetrics() {
+            return IdGeneratorTagMetricsVO.builder()
+                    .tag(buffer.getTag())
+                    .step(buffer.getStep())
+                    .issuedCount(issued.sum())
+                    .issuedPerSecond(issuedPerSecond)
+                    .remainingPercentage(getRemainingPercentage(buffer))
+                    .refillCount(refillTimer.count())
+                    .refillFailureCount(refillFailureTimer.count())
+                    .refillMeanMillis(refillTimer.mean(TimeUnit.MILLISECONDS))
+                    .refillMaxMillis(refillTimer.max(TimeUnit.MILLISECONDS))
+                    .nextSegmentNotReadyCount((long) notReadyCounter.count())
+                    .exhaustedCount((long) exhaustedCounter.count())
+                    .waitCount(waitTimer.count())
+                    .waitTotalMillis(waitTimer.totalTime(TimeUnit.MILLISECONDS))
+                    .waitMaxMillis(waitTimer.max(TimeUnit.MILLISECONDS))
+                    .build();
+        }
+    }
+}
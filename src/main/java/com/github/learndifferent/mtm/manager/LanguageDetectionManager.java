@@ -0,0 +1,104 @@
+package com.github.learndifferent.mtm.manager;
+
+import com.github.learndifferent.mtm.config.TrendingConfigProperties;
+import com.github.pemistahl.lingua.api.Language;
+import com.github.pemistahl.lingua.api.LanguageDetector;
+import java.lang.Character.UnicodeScript;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Language Detection Manager
+ * <p>
+ * Detect whether the keyword is Japanese, Chinese or neither of them. Most keywords are settled by the
+ * Unicode scripts of their characters:
+ * <ul>
+ *     <li>Keywords that contain kana are Japanese</li>
+ *     <li>Keywords that contain no Chinese characters (Han) are neither Japanese nor Chinese</li>
+ * </ul>
+ * Only the keywords written in Chinese characters without kana, which may be Japanese or Chinese,
+ * are detected by the language models of {@link LanguageDetector}, and the results are kept in an LRU cache.
+ * The {@link LanguageDetector} is lazy, so the language models are not loaded until they are needed.
+ * </p>
+ *
+ * @author zhou
+ * @date 2023/11/19
+ */
+@Component
+public class LanguageDetectionManager {
+
+    private final ObjectProvider<LanguageDetector> languageDetectorProvider;
+
+    /**
+     * Key is the keyword, value is the language detected by the language models
+     */
+    private final Map<String, Language> languageCache;
+
+    @Autowired
+    public LanguageDetectionManager(ObjectProvider<LanguageDetector> languageDetectorProvider,
+                                    TrendingConfigProperties configProperties) {
+        this.languageDetectorProvider = languageDetectorProvider;
+        int maxEntries = configProperties.getLanguageCacheSize();
+        this.languageCache = Collections.synchronizedMap(new LinkedHashMap<String, Language>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Language> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Detect the language of the keyword
+     *
+     * @param keyword keyword
+     * @return {@link Language#JAPANESE}, {@link Language#CHINESE} or {@link Language#UNKNOWN}
+     */
+    public Language detectLanguageOf(String keyword) {
+        Language language = classifyByScripts(keyword);
+        if (language != null) {
+            return language;
+        }
+
+        Language cached = languageCache.get(keyword);
+        if (cached != null) {
+            return cached;
+        }
+
+        Language detected = languageDetectorProvider.getObject().detectLanguageOf(keyword);
+        languageCache.put(keyword, detected);
+        return detected;
+    }
+
+    /**
+     * Classify the keyword by the Unicode scripts of its characters
+     *
+     * @param keyword keyword
+     * @return the language, or null if the keyword is written in Chinese characters without kana,
+     * which needs the language models
+     */
+    static Language classifyByScripts(String keyword) {
+        boolean hasHan = false;
+        for (int i = 0; i < keyword.length(); ) {
+            int codePoint = keyword.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (codePoint < 0x80) {
+                // skip ASCII quickly
+                continue;
+            }
+            UnicodeScript script = UnicodeScript.of(codePoint);
+            if (UnicodeScript.HIRAGANA.equals(script) || UnicodeScript.KATAKANA.equals(script)) {
+                return Language.JAPANESE;
+            }
+            if (UnicodeScript.HAN.equals(script)) {
+                hasHan = true;
+            }
+        }
+        return hasHan ? null : Language.UNKNOWN;
+    }
+}
@@ -0,0 +1,144 @@
+package com.github.learndifferent.mtm.manager;
+
+import com.github.learndifferent.mtm.config.TrendingConfigProperties;
+import com.github.pemistahl.lingua.api.Language;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.cn.smart.SmartChineseAnalyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.ja.JapaneseAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Query Analysis Manager
+ * <p>
+ * Tokenize the search keywords in-process with the Lucene analyzers that match the analyzers of the
+ * Elasticsearch indices, instead of sending an analyze request to Elasticsearch for each keyword:
+ * <ul>
+ *     <li>{@link EnglishAnalyzer} for the "english" analyzer</li>
+ *     <li>{@link JapaneseAnalyzer} for the "kuromoji" analyzer</li>
+ *     <li>{@link SmartChineseAnalyzer} for the "ik_smart" analyzer, which is the closest analyzer
+ *     shipped with Lucene</li>
+ * </ul>
+ * The tokens of the recently analyzed keywords are kept in an LRU cache,
+ * since the same keywords are searched again and again.
+ * </p>
+ *
+ * @author zhou
+ * @date 2023/11/18
+ */
+@Slf4j
+@Component
+public class QueryAnalysisManager {
+
+    private final LanguageDetectionManager languageDetectionManager;
+
+    /**
+     * Analyzers are thread-safe, and the token streams are reused for each thread
+     */
+    private final Analyzer englishAnalyzer = new EnglishAnalyzer();
+    private final Analyzer japaneseAnalyzer = new JapaneseAnalyzer();
+    private final Analyzer chineseAnalyzer = new SmartChineseAnalyzer();
+
+    /**
+     * Key is the keyword, value is the tokens of the keyword
+     */
+    private final Map<String, List<String>> tokensCache;
+
+    @Autowired
+    public QueryAnalysisManager(LanguageDetectionManager languageDetectionManager,
+                                TrendingConfigProperties configProperties) {
+        this.languageDetectionManager = languageDetectionManager;
+        int maxEntries = configProperties.getAnalysisCacheSize();
+        this.tokensCache = Collections.synchronizedMap(new LinkedHashMap<String, List<String>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        englishAnalyzer.close();
+        japaneseAnalyzer.close();
+        chineseAnalyzer.close();
+    }
+
+    /**
+     * Tokenize the keyword with the analyzer of its language
+     *
+     * @param keyword keyword
+     * @return tokens of the keyword, or an empty list if the keyword is empty or can't be analyzed
+     */
+    public List<String> analyze(String keyword) {
+        if (StringUtils.isEmpty(keyword)) {
+            return Collections.emptyList();
+        }
+
+        List<String> cached = tokensCache.get(keyword);
+        if (cached != null) {
+            return cached;
+        }
+
+        Analyzer analyzer = detectLanguageAndGetAnalyzer(keyword);
+        try {
+            List<String> tokens = Collections.unmodifiableList(tokenize(analyzer, keyword));
+            tokensCache.put(keyword, tokens);
+            return tokens;
+        } catch (IOException e) {
+            log.error("IOException while analyzing the keyword: {}", keyword, e);
+            return Collections.emptyList();
+        }
+    }
+
+    private List<String> tokenize(Analyzer analyzer, String keyword) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream tokenStream = analyzer.tokenStream(null, keyword)) {
+            CharTermAttribute term = tokenStream.addAttribute(CharTermAttribute.class);
+            tokenStream.reset();
+            while (tokenStream.incrementToken()) {
+                tokens.add(term.toString());
+            }
+            tokenStream.end();
+        }
+        return tokens;
+    }
+
+    /**
+     * Determine the language and return the analyzer for English, Chinese, and Japanese
+     *
+     * @param keyword keyword
+     * @return the analyzer
+     */
+    private Analyzer detectLanguageAndGetAnalyzer(String keyword) {
+
+        Language lan = this.languageDetectionManager.detectLanguageOf(keyword);
+
+        if (Language.JAPANESE.equals(lan)) {
+            // If the language is Japanese, use a Japanese tokenizer
+            return japaneseAnalyzer;
+        }
+
+        if (Language.CHINESE.equals(lan)) {
+            // If the language is Chinese, use a Chinese tokenizer
+            return chineseAnalyzer;
+        }
+
+        // By default, use an English tokenizer
+        return englishAnalyzer;
+    }
+}
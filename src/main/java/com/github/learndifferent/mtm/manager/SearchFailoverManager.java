@@ -0,0 +1,291 @@
+package com.github.learndifferent.mtm.manager;
+
+import com.github.learndifferent.mtm.config.SearchFailoverConfigProperties;
+import com.github.learndifferent.mtm.constant.enums.ResultCode;
+import com.github.learndifferent.mtm.exception.ServiceException;
+import com.github.learndifferent.mtm.manager.failover.LatencyWindow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Search Failover Manager
+ * <p>
+ * A circuit breaker decides whether the searches are sent to Elasticsearch or shed to MySQL,
+ * based on the rolling latency percentiles and the failure rate of the latest searches in Elasticsearch.
+ * </p>
+ * <p>
+ * The breaker is {@link State#CLOSED} at first, and all searches are sent to Elasticsearch.
+ * It opens when the 99th percentile of the latencies is over the budget or too many searches fail,
+ * and all searches are shed to MySQL for a while. Then it is {@link State#HALF_OPEN}, and Elasticsearch is
+ * probed back in gradually: the share of the searches sent to Elasticsearch increases with each successful probe,
+ * until the breaker closes again. A slow or failed probe opens it again.
+ * </p>
+ *
+ * @author zhou
+ * @date 2023/12/2
+ */
+@Component
+@Slf4j
+public class SearchFailoverManager {
+
+    public static final String ELASTICSEARCH = "elasticsearch";
+
+    public static final String MYSQL = "mysql";
+
+    private static final String BACKEND_TAG = "backend";
+
+    private static final String REASON_TAG = "reason";
+
+    /**
+     * State of the circuit breaker
+     */
+    public enum State {
+        /**
+         * All searches are sent to Elasticsearch
+         */
+        CLOSED,
+        /**
+         * Some searches are sent to Elasticsearch to probe it, and others are shed to MySQL
+         */
+        HALF_OPEN,
+        /**
+         * All searches are shed to MySQL
+         */
+        OPEN
+    }
+
+    private final SearchFailoverConfigProperties configProperties;
+    private final LongSupplier nanoClock;
+    private final LatencyWindow elasticsearchLatencies;
+    private final LatencyWindow mySqlLatencies;
+    private final Counter shedCounter;
+    private final Counter failureCounter;
+    private final ScheduledExecutorService scheduler;
+
+    private State state = State.CLOSED;
+
+    /**
+     * Time when the breaker opened, in nanoseconds
+     */
+    private long openedAt;
+
+    /**
+     * Number of successful probes since the breaker became half-open
+     */
+    private int probeSuccesses;
+
+    /**
+     * The share of the searches sent to Elasticsearch is accumulated until it reaches 1,
+     * so the probes are spread evenly among the searches
+     */
+    private double probeCredit;
+
+    @Autowired
+    public SearchFailoverManager(SearchFailoverConfigProperties configProperties, MeterRegistry meterRegistry) {
+        this(configProperties, meterRegistry, System::nanoTime);
+    }
+
+    public SearchFailoverManager(SearchFailoverConfigProperties configProperties,
+                                 MeterRegistry meterRegistry,
+                                 LongSupplier nanoClock) {
+        this.configProperties = configProperties;
+        this.nanoClock = nanoClock;
+        this.elasticsearchLatencies = new LatencyWindow(configProperties.getWindowSize());
+        this.mySqlLatencies = new LatencyWindow(configProperties.getWindowSize());
+
+        this.shedCounter = fallbackCounter(meterRegistry, "shed");
+        this.failureCounter = fallbackCounter(meterRegistry, "failure");
+        latencyGauge(meterRegistry, ELASTICSEARCH, elasticsearchLatencies, 0.5D);
+        latencyGauge(meterRegistry, ELASTICSEARCH, elasticsearchLatencies, 0.99D);
+        latencyGauge(meterRegistry, MYSQL, mySqlLatencies, 0.5D);
+        latencyGauge(meterRegistry, MYSQL, mySqlLatencies, 0.99D);
+        Gauge.builder("search.failover.state", this, manager -> manager.getState().ordinal())
+                .description("State of the circuit breaker of Elasticsearch: 0 closed, 1 half-open, 2 open")
+                .register(meterRegistry);
+
+        this.scheduler = new ScheduledThreadPoolExecutor(
+                // core pool size
+                1,
+                // thread factory
+                runnable -> {
+                    Thread thread = new Thread(runnable, "search-failover-thread");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    private static Counter fallbackCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("search.failover.fallbacks")
+                .description("Searches in Elasticsearch that fall back to MySQL")
+                .tag(REASON_TAG, reason)
+                .register(meterRegistry);
+    }
+
+    private static void latencyGauge(MeterRegistry meterRegistry,
+                                     String backend,
+                                     LatencyWindow window,
+                                     double percentile) {
+        Gauge.builder("search.failover.latency", window,
+                        w -> TimeUnit.NANOSECONDS.toMicros(w.percentile(percentile)) / 1000D)
+                .description("Latency percentile of the latest searches in milliseconds")
+                .tag(BACKEND_TAG, backend)
+                .tag("quantile", String.valueOf(percentile))
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return configProperties.isEnabled();
+    }
+
+    /**
+     * Get the current time to measure the latencies
+     *
+     * @return current time in nanoseconds
+     */
+    public long nanoTime() {
+        return nanoClock.getAsLong();
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Check if the search should be sent to Elasticsearch
+     *
+     * @return true if the search should be sent to Elasticsearch, false if it should be shed to MySQL
+     */
+    public synchronized boolean tryAcquireElasticsearch() {
+        if (!isEnabled() || State.CLOSED.equals(state)) {
+            return true;
+        }
+        if (State.OPEN.equals(state)) {
+            long openNanos = TimeUnit.MILLISECONDS.toNanos(configProperties.getOpenMillis());
+            if (nanoTime() - openedAt < openNanos) {
+                shedCounter.increment();
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probeSuccesses = 0;
+            // the first search after the breaker becomes half-open is the first probe
+            probeCredit = 1D;
+            log.info("[SearchFailover] Probing Elasticsearch");
+        } else {
+            probeCredit += (double) (probeSuccesses + 1) / configProperties.getProbeSteps();
+        }
+        if (probeCredit >= 1D) {
+            probeCredit -= 1D;
+            return true;
+        }
+        shedCounter.increment();
+        return false;
+    }
+
+    /**
+     * Record the search in Elasticsearch
+     *
+     * @param latencyNanos latency in nanoseconds
+     * @param failed       true if Elasticsearch failed or didn't respond before the deadline
+     */
+    public synchronized void recordElasticsearch(long latencyNanos, boolean failed) {
+        if (failed) {
+            failureCounter.increment();
+        }
+        if (!isEnabled()) {
+            return;
+        }
+        long budgetNanos = TimeUnit.MILLISECONDS.toNanos(configProperties.getLatencyBudgetMillis());
+        switch (state) {
+            case CLOSED:
+                elasticsearchLatencies.add(latencyNanos, failed);
+                if (elasticsearchLatencies.size() < configProperties.getMinSamples()) {
+                    return;
+                }
+                long p99 = elasticsearchLatencies.percentile(0.99D);
+                double failureRate = elasticsearchLatencies.failureRate();
+                if (p99 > budgetNanos || failureRate >= configProperties.getFailureRateThreshold()) {
+                    log.warn("[SearchFailover] Shedding the searches to MySQL. "
+                                    + "p99 of Elasticsearch: {} ms, failure rate: {}",
+                            TimeUnit.NANOSECONDS.toMillis(p99), failureRate);
+                    open();
+                }
+                return;
+            case HALF_OPEN:
+                if (failed || latencyNanos > budgetNanos) {
+                    log.warn("[SearchFailover] The probe of Elasticsearch failed or took {} ms",
+                            TimeUnit.NANOSECONDS.toMillis(latencyNanos));
+                    open();
+                    return;
+                }
+                probeSuccesses++;
+                if (probeSuccesses >= configProperties.getProbeSteps()) {
+                    log.info("[SearchFailover] Elasticsearch is back in");
+                    state = State.CLOSED;
+                    // the latencies before opening should not open the breaker again
+                    elasticsearchLatencies.clear();
+                }
+                return;
+            default:
+                // the search started before the breaker opened
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = nanoTime();
+    }
+
+    /**
+     * Record the search in MySQL
+     *
+     * @param latencyNanos latency in nanoseconds
+     */
+    public void recordMySql(long latencyNanos) {
+        mySqlLatencies.add(latencyNanos, false);
+    }
+
+    /**
+     * Run the task if Elasticsearch doesn't respond before the deadline
+     *
+     * @param task task
+     * @return the scheduled task, which should be cancelled if Elasticsearch responds in time
+     */
+    public ScheduledFuture<?> scheduleDeadline(Runnable task) {
+        return scheduler.schedule(task, configProperties.getDeadlineMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Check if the exception means that Elasticsearch is unavailable, rather than the search has no results
+     *
+     * @param e exception thrown by the search
+     * @return true if the search should fall back to MySQL
+     */
+    public static boolean isUnavailable(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof CancellationException) {
+            return false;
+        }
+        if (cause instanceof ServiceException) {
+            return ResultCode.CONNECTION_ERROR.equals(((ServiceException) cause).getResultCode());
+        }
+        return true;
+    }
+}
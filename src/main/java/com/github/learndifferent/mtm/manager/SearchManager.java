@@ -1,52 +1,37 @@
 package com.github.learndifferent.mtm.manager;
 
-import com.github.learndifferent.mtm.annotation.modify.webdata.WebsiteDataClean;
-import com.github.learndifferent.mtm.constant.consist.SearchConstant;
+import com.github.learndifferent.mtm.config.ElasticsearchConfigProperties;
 import com.github.learndifferent.mtm.constant.enums.ResultCode;
-import com.github.learndifferent.mtm.dto.BasicWebDataDTO;
-import com.github.learndifferent.mtm.dto.search.UserForSearchDTO;
-import com.github.learndifferent.mtm.dto.search.WebForSearchDTO;
 import com.github.learndifferent.mtm.exception.ServiceException;
-import com.github.learndifferent.mtm.utils.ApplicationContextUtils;
-import com.github.learndifferent.mtm.utils.BeanUtils;
-import com.github.learndifferent.mtm.utils.JsonUtils;
-import com.github.learndifferent.mtm.utils.ThrowExceptionUtils;
-import com.github.pemistahl.lingua.api.Language;
-import com.github.pemistahl.lingua.api.LanguageDetector;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.RejectedExecutionException;
 import lombok.extern.slf4j.Slf4j;
 import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
-import org.elasticsearch.action.bulk.BulkRequest;
-import org.elasticsearch.action.bulk.BulkResponse;
-import org.elasticsearch.action.delete.DeleteRequest;
-import org.elasticsearch.action.index.IndexRequest;
-import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.support.master.AcknowledgedResponse;
+import org.elasticsearch.client.Cancellable;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.client.core.CountRequest;
 import org.elasticsearch.client.core.CountResponse;
-import org.elasticsearch.client.indices.AnalyzeRequest;
-import org.elasticsearch.client.indices.AnalyzeResponse;
-import org.elasticsearch.client.indices.AnalyzeResponse.AnalyzeToken;
 import org.elasticsearch.client.indices.GetIndexRequest;
 import org.elasticsearch.common.unit.TimeValue;
-import org.elasticsearch.common.xcontent.XContentType;
-import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.SearchHits;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.AsyncResult;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 
 /**
  * Elasticsearch Manager
@@ -59,15 +44,36 @@ import org.springframework.util.StringUtils;
 public class SearchManager {
 
     private final RestHighLevelClient client;
-    private final TrendingManager trendingManager;
-    private final LanguageDetector languageDetector;
+    private final TrendingAggregationManager trendingAggregationManager;
+    private final QueryAnalysisManager queryAnalysisManager;
+    private final Executor searchTaskExecutor;
+    private final TimeValue searchTimeout;
+    private final ElasticsearchReindexManager elasticsearchReindexManager;
+    private final SearchResultCacheManager searchResultCacheManager;
 
     public SearchManager(@Qualifier("restHighLevelClient") RestHighLevelClient client,
-                         TrendingManager trendingManager,
-                         LanguageDetector languageDetector) {
+                         TrendingAggregationManager trendingAggregationManager,
+                         QueryAnalysisManager queryAnalysisManager,
+                         @Qualifier("searchTaskExecutor") Executor searchTaskExecutor,
+                         ElasticsearchConfigProperties elasticsearchConfigProperties,
+                         ElasticsearchReindexManager elasticsearchReindexManager,
+                         SearchResultCacheManager searchResultCacheManager) {
         this.client = client;
-        this.trendingManager = trendingManager;
-        this.languageDetector = languageDetector;
+        this.trendingAggregationManager = trendingAggregationManager;
+        this.queryAnalysisManager = queryAnalysisManager;
+        this.searchTaskExecutor = searchTaskExecutor;
+        this.searchTimeout = TimeValue.timeValueMillis(elasticsearchConfigProperties.getSearchTimeoutMillis());
+        this.elasticsearchReindexManager = elasticsearchReindexManager;
+        this.searchResultCacheManager = searchResultCacheManager;
+    }
+
+    /**
+     * Get the timeout of the search in Elasticsearch
+     *
+     * @return timeout, after which Elasticsearch returns the hits it has found
+     */
+    public TimeValue getSearchTimeout() {
+        return searchTimeout;
     }
 
     /**
@@ -128,58 +134,20 @@ public class SearchManager {
         }
     }
 
-    @Async("asyncTaskExecutor")
-    @WebsiteDataClean
-    public Future<Boolean> saveToElasticsearchAsync(BasicWebDataDTO data) {
-
-        IndexRequest request = getIndexRequest(data);
-        boolean success = false;
-
-        try {
-            IndexResponse response = client.index(request, RequestOptions.DEFAULT);
-            int status = response.status().getStatus();
-            if (RestStatus.OK.getStatus() <= status
-                    && RestStatus.ACCEPTED.getStatus() >= status) {
-                // Any response status code between OK (200) and ACCEPTED (202) is considered successful
-                // Success includes both successful creation and pre-existing index.
-                success = true;
-            }
-        } catch (IOException e) {
-            // If unable to store, abandon it
-            log.error("IOException while saving document to Elasticsearch. "
-                    + "Dropped this data because it can be added to Elasticsearch later manually.", e);
-        }
-        return AsyncResult.forValue(success);
-    }
-
-    private IndexRequest getIndexRequest(BasicWebDataDTO bookmark) {
-
-        WebForSearchDTO data = BeanUtils.convert(bookmark, WebForSearchDTO.class);
-        String json = JsonUtils.toJson(data);
-        IndexRequest request = new IndexRequest(SearchConstant.INDEX_WEB);
-        request.id(data.getUrl());
-        request.timeout(new TimeValue(8, TimeUnit.SECONDS));
-        request.source(json, XContentType.JSON);
-        return request;
-    }
-
-    @Async("asyncTaskExecutor")
-    public void saveToElasticsearchAsync(UserForSearchDTO user) {
-
-        IndexRequest request = getIndexRequest(user);
-        try {
-            client.index(request, RequestOptions.DEFAULT);
-        } catch (IOException e) {
-            log.error("IOException while saving document to Elasticsearch. Data: {}", user, e);
-        }
-    }
-
-    private IndexRequest getIndexRequest(UserForSearchDTO user) {
-        IndexRequest request = new IndexRequest(SearchConstant.INDEX_USER);
-        Long id = user.getId();
-        String json = JsonUtils.toJson(user);
-        request.id(String.valueOf(id)).source(json, XContentType.JSON);
-        return request;
+    /**
+     * Get the indices that the documents of the alias are written to.
+     * <p>
+     * If the index is being rebuilt, the documents are written to the new index as well,
+     * so the changes are not lost when the alias is moved to the new index.
+     * </p>
+     *
+     * @param alias alias of the index
+     * @return the alias, and the new index if the index is being rebuilt
+     */
+    public List<String> getIndicesToWrite(String alias) {
+        return elasticsearchReindexManager.getBuildingIndex(alias)
+                .map(index -> Arrays.asList(alias, index))
+                .orElseGet(() -> Collections.singletonList(alias));
     }
 
     /**
@@ -195,9 +163,14 @@ public class SearchManager {
     }
 
     private boolean deleteIndex(String indexName) {
-        DeleteIndexRequest request = new DeleteIndexRequest(indexName);
         try {
+            // the index may be an alias that can't be deleted directly, so delete the indices it points to
+            String[] indices = client.indices()
+                    .get(new GetIndexRequest(indexName), RequestOptions.DEFAULT)
+                    .getIndices();
+            DeleteIndexRequest request = new DeleteIndexRequest(indices);
             AcknowledgedResponse response = client.indices().delete(request, RequestOptions.DEFAULT);
+            searchResultCacheManager.invalidate(indexName);
             return response.isAcknowledged();
         } catch (IOException e) {
             log.error("IOException while deleting index {}. ", indexName, e);
@@ -205,110 +178,70 @@ public class SearchManager {
         }
     }
 
-    public void throwExceptionIfFailToDeleteIndex(String indexTag) {
-        boolean cantDelete = !checkAndDeleteIndex(indexTag);
-        ThrowExceptionUtils.throwIfTrue(cantDelete, ResultCode.FAILED);
-    }
-
-    public void updateBulkRequest(BulkRequest bulkRequest, String index, String id, String json) {
-        IndexRequest request = new IndexRequest(index);
-        request.id(id);
-        request.source(json, XContentType.JSON);
-        bulkRequest.add(request);
-    }
-
-    public boolean sendBulkRequest(BulkRequest bulkRequest) {
-        try {
-            BulkResponse response = client.bulk(bulkRequest, RequestOptions.DEFAULT);
-            return !response.hasFailures();
-        } catch (IOException e) {
-            log.error("IOException while sending bulk request.", e);
-            throw new ServiceException(ResultCode.CONNECTION_ERROR);
-        }
-    }
-
-    @Async("asyncTaskExecutor")
-    public void removeUserFromElasticsearchAsync(long id) {
-
-        DeleteRequest request = new DeleteRequest(SearchConstant.INDEX_USER, String.valueOf(id));
-        try {
-            client.delete(request, RequestOptions.DEFAULT);
-        } catch (IOException e) {
-            log.error("IOException while deleting user data from Elasticsearch. ", e);
-        }
-    }
-
     public SearchHits searchAndGetHits(SearchRequest searchRequest) throws IOException {
         SearchResponse response = client.search(searchRequest, RequestOptions.DEFAULT);
         return response.getHits();
     }
 
     /**
-     * Asynchronously analyzes the given keyword using the specified analyzer and add the trending keywords to a
-     * trending list.
+     * Search without blocking the current thread.
+     * <p>
+     * The future is completed in the search task executor whether the search succeeds or fails,
+     * and the search request will be cancelled if the future is cancelled.
+     * </p>
      *
-     * @param keyword  The keyword to be analyzed and added to the trending list.
-     * @param analyzer The analyzer
+     * @param searchRequest search request
+     * @return hits
      */
-    @Async("asyncTaskExecutor")
-    public void analyzeAndAddTrendingAsync(String keyword, String analyzer) {
-
-        if (StringUtils.isEmpty(keyword)) {
-            return;
-        }
-
-        AnalyzeRequest request = AnalyzeRequest.withIndexAnalyzer(SearchConstant.INDEX_WEB, analyzer, keyword);
-        try {
-            AnalyzeResponse analyze = client.indices().analyze(request, RequestOptions.DEFAULT);
-            List<AnalyzeResponse.AnalyzeToken> tokens = analyze.getTokens();
-            tokens.forEach(this::addTrending);
-        } catch (IOException e) {
-            log.error("IOException while adding data to trending list. "
-                    + "Dropped this data because it's not important.", e);
-        }
-    }
-
-    private void addTrending(AnalyzeToken token) {
-        String val = token.getTerm();
-        if (val.length() > 1) {
-            // Count keywords with byte length greater than 1
-            // and increment the 'score' by 1 for each occurrence.
-            trendingManager.addToTrendingList(val);
-        }
-    }
-
-    public void addToTrendingList(String keyword) {
-        // Determine the language and get the analyzer
-        String analyzer = detectLanguageAndGetAnalyzer(keyword);
-        // Tokenize the search query and add the resulting tokens to the trending list.
-        SearchManager searchManager = ApplicationContextUtils.getBean(SearchManager.class);
-        searchManager.analyzeAndAddTrendingAsync(keyword, analyzer);
+    public CompletableFuture<SearchHits> searchAndGetHitsAsync(SearchRequest searchRequest) {
+        CompletableFuture<SearchHits> future = new CompletableFuture<>();
+
+        Cancellable cancellable = client.searchAsync(searchRequest, RequestOptions.DEFAULT,
+                new ActionListener<SearchResponse>() {
+                    @Override
+                    public void onResponse(SearchResponse response) {
+                        try {
+                            searchTaskExecutor.execute(() -> future.complete(response.getHits()));
+                        } catch (RejectedExecutionException e) {
+                            future.completeExceptionally(e);
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        // the dependent stages may fall back to MySQL, which should not block the I/O thread
+                        try {
+                            searchTaskExecutor.execute(() -> future.completeExceptionally(e));
+                        } catch (RejectedExecutionException rejected) {
+                            rejected.addSuppressed(e);
+                            future.completeExceptionally(rejected);
+                        }
+                    }
+                });
+
+        future.whenComplete((hits, e) -> {
+            if (future.isCancelled()) {
+                cancellable.cancel();
+            }
+        });
+        return future;
     }
 
     /**
-     * Determine the language and return the required Elasticsearch analyzer
-     * for English, Chinese, and Japanese
+     * Tokenize the keyword in-process and count the tokens in the trending list.
+     * Trending keywords cost no network I/O until they are flushed to Redis.
      *
-     * @param keyword keyword
-     * @return the analyzer
+     * @param keyword The keyword to be analyzed and added to the trending list.
      */
-    private String detectLanguageAndGetAnalyzer(String keyword) {
-
-        Language lan = this.languageDetector.detectLanguageOf(keyword);
-
-        // By default, use an English tokenizer
-        String analyzer = "english";
-
-        if (Language.JAPANESE.equals(lan)) {
-            // If the language is Japanese, use a Japanese tokenizer
-            analyzer = SearchConstant.ANALYZER_JAPANESE;
-        }
+    public void addToTrendingList(String keyword) {
+        queryAnalysisManager.analyze(keyword).forEach(this::addTrending);
+    }
 
-        if (Language.CHINESE.equals(lan)) {
-            // If the language is Chinese, use a Chinese tokenizer
-            analyzer = SearchConstant.ANALYZER_CHINESE;
+    private void addTrending(String val) {
+        if (val.length() > 1) {
+            // Count keywords with byte length greater than 1 in memory,
+            // and the 'score' is incremented by the occurrences when flushed to Redis.
+            trendingAggregationManager.addToTrendingList(val);
         }
-
-        return analyzer;
     }
-}
\ No newline at end of file
+}
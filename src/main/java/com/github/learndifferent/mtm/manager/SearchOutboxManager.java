@@ -0,0 +1,75 @@
+package com.github.learndifferent.mtm.manager;
+
+import com.github.learndifferent.mtm.constant.consist.SearchConstant;
+import com.github.learndifferent.mtm.mapper.SearchOutboxMapper;
+import java.util.Collections;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Record the changes of the data that needs to be applied to Elasticsearch in the search outbox.
+ * <p>
+ * The methods should be called in the same transaction as the changes, so the changes are recorded
+ * if and only if they are committed. The relay ({@link SearchOutboxRelayManager}) applies them later.
+ * </p>
+ * <p>
+ * The changes of a bookmark should be recorded before deleting its tags,
+ * because the tags of the bookmark are read from database.
+ * </p>
+ *
+ * @author zhou
+ * @date 2023/10/29
+ */
+@Component
+@RequiredArgsConstructor
+public class SearchOutboxManager {
+
+    private final SearchOutboxMapper searchOutboxMapper;
+
+    /**
+     * Record the change of a bookmark, which changes the data of its URL and tags
+     *
+     * @param bookmarkId ID of the bookmark
+     */
+    public void recordBookmarkChange(long bookmarkId) {
+        searchOutboxMapper.addUrlChangeOfBookmark(SearchConstant.INDEX_WEB, bookmarkId);
+        searchOutboxMapper.addTagChangesOfBookmark(SearchConstant.INDEX_TAG, bookmarkId);
+    }
+
+    /**
+     * Record the change of the data of a URL
+     *
+     * @param url URL
+     */
+    public void recordUrlChange(String url) {
+        searchOutboxMapper.addChanges(SearchConstant.INDEX_WEB, Collections.singletonList(url));
+    }
+
+    /**
+     * Record the change of a tag
+     *
+     * @param tag tag
+     */
+    public void recordTagChange(String tag) {
+        searchOutboxMapper.addChanges(SearchConstant.INDEX_TAG, Collections.singletonList(tag));
+    }
+
+    /**
+     * Record the change of a user
+     *
+     * @param userId ID of the user
+     */
+    public void recordUserChange(long userId) {
+        searchOutboxMapper.addChanges(SearchConstant.INDEX_USER, Collections.singletonList(String.valueOf(userId)));
+    }
+
+    /**
+     * Record the changes of all public bookmarks of a user, which change the data of their URLs and tags
+     *
+     * @param userId ID of the user
+     */
+    public void recordUserBookmarksChange(long userId) {
+        searchOutboxMapper.addUrlChangesOfUserBookmarks(SearchConstant.INDEX_WEB, userId);
+        searchOutboxMapper.addTagChangesOfUserBookmarks(SearchConstant.INDEX_TAG, userId);
+    }
+}
@@ -0,0 +1,418 @@
+package com.github.learndifferent.mtm.manager;
+
+import com.github.learndifferent.mtm.config.SearchOutboxConfigProperties;
+import com.github.learndifferent.mtm.constant.consist.RedisConstant;
+import com.github.learndifferent.mtm.constant.consist.SearchConstant;
+import com.github.learndifferent.mtm.dto.search.TagForSearchDTO;
+import com.github.learndifferent.mtm.dto.search.UserForSearchDTO;
+import com.github.learndifferent.mtm.dto.search.WebForSearchDTO;
+import com.github.learndifferent.mtm.entity.SearchOutboxDO;
+import com.github.learndifferent.mtm.mapper.BookmarkMapper;
+import com.github.learndifferent.mtm.mapper.SearchOutboxMapper;
+import com.github.learndifferent.mtm.mapper.TagMapper;
+import com.github.learndifferent.mtm.mapper.UserMapper;
+import com.github.learndifferent.mtm.utils.BeanUtils;
+import com.github.learndifferent.mtm.utils.JsonUtils;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Relay the changes in the search outbox to Elasticsearch.
+ * <p>
+ * The changes are read in the order they were added, and the changes of the same document in a batch are
+ * coalesced. The current data of each document is read from database after reading the changes,
+ * so the document is indexed if it exists in database, or deleted if not, no matter how many times
+ * and in which order it has changed.
+ * </p>
+ * <p>
+ * The documents are sent to Elasticsearch through the shared bulk indexer, and the changes are marked as relayed.
+ * The changes are deleted only after Elasticsearch acknowledges all writes of the document, and the changes of
+ * the documents that the bulk indexer rejects or Elasticsearch fails to write are sent again in the next relay.
+ * If the writes are lost, e.g. the node crashes before the bulk request is sent, the changes are sent again
+ * after {@link SearchOutboxConfigProperties#getAckTimeoutSeconds()} seconds.
+ * </p>
+ * <p>
+ * A document is not sent again while its previous writes are waiting for the acknowledgement, so an
+ * acknowledgement always belongs to the writes of the changes that were sent with them.
+ * </p>
+ *
+ * @author zhou
+ * @date 2023/10/29
+ */
+@Component
+@Slf4j
+public class SearchOutboxRelayManager {
+
+    /**
+     * The lock makes sure only one node relays the changes at a time, and it expires if the node crashes
+     */
+    private static final Duration LOCK_TIMEOUT = Duration.ofMinutes(1L);
+
+    private static final List<String> INDICES =
+            Arrays.asList(SearchConstant.INDEX_WEB, SearchConstant.INDEX_TAG, SearchConstant.INDEX_USER);
+
+    private final SearchOutboxMapper searchOutboxMapper;
+    private final BookmarkMapper bookmarkMapper;
+    private final TagMapper tagMapper;
+    private final UserMapper userMapper;
+    private final SearchManager searchManager;
+    private final ElasticsearchIndexingManager elasticsearchIndexingManager;
+    private final SearchResultCacheManager searchResultCacheManager;
+    private final SuggestionManager suggestionManager;
+    private final StringRedisTemplate redisTemplate;
+    private final SearchOutboxConfigProperties configProperties;
+
+    /**
+     * Key is the alias and the ID of the document, value is the writes of the document sent by this node
+     * that are waiting for the acknowledgement of Elasticsearch
+     */
+    private final Map<String, PendingWrites> pendingWrites = new ConcurrentHashMap<>();
+
+    /**
+     * IDs of the changes whose writes are acknowledged, which are deleted in the next relay
+     */
+    private final Queue<Long> acknowledgedChangeIds = new ConcurrentLinkedQueue<>();
+
+    /**
+     * IDs of the changes whose writes failed, which are sent again in the next relay
+     */
+    private final Queue<Long> failedChangeIds = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Writes of a document and the changes that they apply
+     */
+    private static class PendingWrites {
+
+        private final List<Long> changeIds;
+
+        private final long sentAtMillis = System.currentTimeMillis();
+
+        /**
+         * Number of writes that are not acknowledged, plus one until all writes are added to the bulk indexer
+         */
+        private final AtomicInteger remaining = new AtomicInteger(1);
+
+        private PendingWrites(List<Long> changeIds) {
+            this.changeIds = changeIds;
+        }
+    }
+
+    public SearchOutboxRelayManager(SearchOutboxMapper searchOutboxMapper,
+                                    BookmarkMapper bookmarkMapper,
+                                    TagMapper tagMapper,
+                                    UserMapper userMapper,
+                                    SearchManager searchManager,
+                                    ElasticsearchIndexingManager elasticsearchIndexingManager,
+                                    SearchResultCacheManager searchResultCacheManager,
+                                    SuggestionManager suggestionManager,
+                                    StringRedisTemplate redisTemplate,
+                                    SearchOutboxConfigProperties configProperties) {
+        this.searchOutboxMapper = searchOutboxMapper;
+        this.bookmarkMapper = bookmarkMapper;
+        this.tagMapper = tagMapper;
+        this.userMapper = userMapper;
+        this.searchManager = searchManager;
+        this.elasticsearchIndexingManager = elasticsearchIndexingManager;
+        this.searchResultCacheManager = searchResultCacheManager;
+        this.suggestionManager = suggestionManager;
+        this.redisTemplate = redisTemplate;
+        this.configProperties = configProperties;
+    }
+
+    @PostConstruct
+    public void registerListeners() {
+        elasticsearchIndexingManager.addSuccessListener(this::onWriteAcknowledged);
+        elasticsearchIndexingManager.addFailureListener(this::onWriteFailed);
+    }
+
+    /**
+     * Delete the changes of the document after all writes of it are acknowledged
+     *
+     * @param index name of the index, which may be the versioned index that the alias points to
+     * @param id    ID of the document
+     */
+    private void onWriteAcknowledged(String index, String id) {
+        getPendingKey(index, id).ifPresent(key -> {
+            PendingWrites writes = pendingWrites.get(key);
+            if (writes != null && writes.remaining.decrementAndGet() == 0) {
+                complete(key, writes);
+            }
+        });
+    }
+
+    /**
+     * Send the changes of the document again in the next relay if the bulk indexer rejects it
+     * or Elasticsearch fails to write it
+     *
+     * @param index name of the index, which may be the versioned index that the alias points to
+     * @param id    ID of the document
+     * @param cause cause of the failure
+     */
+    private void onWriteFailed(String index, String id, Throwable cause) {
+        getPendingKey(index, id).map(pendingWrites::remove)
+                .ifPresent(writes -> failedChangeIds.addAll(writes.changeIds));
+    }
+
+    private void complete(String key, PendingWrites writes) {
+        // the writes may have failed, and the changes will be sent again
+        if (pendingWrites.remove(key, writes)) {
+            acknowledgedChangeIds.addAll(writes.changeIds);
+        }
+    }
+
+    private Optional<String> getPendingKey(String index, String id) {
+        return id == null ? Optional.empty() : getAlias(index).map(alias -> toPendingKey(alias, id));
+    }
+
+    private static String toPendingKey(String alias, String id) {
+        // the aliases don't contain the separator
+        return alias + ":" + id;
+    }
+
+    private Optional<String> getAlias(String index) {
+        return INDICES.stream()
+                .filter(alias -> ElasticsearchReindexManager.isIndexOfAlias(index, alias))
+                .findFirst();
+    }
+
+    /**
+     * A scheduled task to run {@link #relay()}
+     * every {@link SearchOutboxConfigProperties#getRelayIntervalMillis()} milliseconds
+     */
+    @Scheduled(fixedDelayString = "${custom-search-outbox.relay-interval-millis:1000}")
+    public void relayScheduled() {
+        try {
+            int relayed = relay();
+            if (relayed > 0) {
+                log.debug("[SearchOutbox] Relayed {} changes to Elasticsearch", relayed);
+            }
+        } catch (Exception e) {
+            log.error("[SearchOutbox] Failed to relay the changes to Elasticsearch", e);
+        }
+    }
+
+    /**
+     * Relay the changes in the outbox to Elasticsearch
+     *
+     * @return number of changes relayed
+     */
+    public int relay() {
+        // any node can apply the acknowledgements of the writes it has sent
+        applyAcknowledgements();
+
+        String owner = UUID.randomUUID().toString();
+        boolean locked = Boolean.TRUE.equals(redisTemplate.opsForValue()
+                .setIfAbsent(RedisConstant.SEARCH_OUTBOX_RELAY_LOCK, owner, LOCK_TIMEOUT));
+        if (!locked) {
+            return 0;
+        }
+
+        try {
+            int batchSize = configProperties.getBatchSize();
+            int relayed = 0;
+            for (int i = 0; i < configProperties.getMaxBatchesPerRelay(); i++) {
+                List<SearchOutboxDO> changes =
+                        searchOutboxMapper.getChanges(batchSize, configProperties.getAckTimeoutSeconds());
+                if (changes.isEmpty()) {
+                    break;
+                }
+                int sent = relayBatch(changes);
+                relayed += sent;
+                // stop if the bulk indexer is full or all documents are waiting for the acknowledgements,
+                // and retry in the next relay
+                if (sent < changes.size() || changes.size() < batchSize) {
+                    break;
+                }
+            }
+            return relayed;
+        } finally {
+            if (owner.equals(redisTemplate.opsForValue().get(RedisConstant.SEARCH_OUTBOX_RELAY_LOCK))) {
+                redisTemplate.delete(RedisConstant.SEARCH_OUTBOX_RELAY_LOCK);
+            }
+        }
+    }
+
+    /**
+     * Delete the changes whose writes are acknowledged, and mark the changes whose writes failed as not sent
+     */
+    private void applyAcknowledgements() {
+        List<Long> acknowledged = drain(acknowledgedChangeIds);
+        List<Long> failed = drain(failedChangeIds);
+        try {
+            if (!acknowledged.isEmpty()) {
+                searchOutboxMapper.deleteChanges(acknowledged);
+            }
+            if (!failed.isEmpty()) {
+                searchOutboxMapper.resetRelayTime(failed);
+            }
+        } catch (Exception e) {
+            // the changes are sent again after the timeout if they are not applied in the next relay
+            log.warn("[SearchOutbox] Unable to apply the acknowledgements, which will be retried", e);
+            acknowledgedChangeIds.addAll(acknowledged);
+            failedChangeIds.addAll(failed);
+        }
+    }
+
+    private List<Long> drain(Queue<Long> queue) {
+        List<Long> ids = new ArrayList<>();
+        Long id;
+        while ((id = queue.poll()) != null) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    /**
+     * Send the current documents of the changes to the bulk indexer and mark the changes as relayed
+     *
+     * @param changes changes
+     * @return number of changes sent. The changes of the documents that are waiting for the acknowledgements
+     * are not sent, and the changes of the documents that the bulk indexer rejects are sent again in the next relay.
+     */
+    private int relayBatch(List<SearchOutboxDO> changes) {
+        // coalesce the changes of the same document
+        Map<String, Map<String, List<Long>>> changeIdsByIndex = changes.stream()
+                .collect(Collectors.groupingBy(SearchOutboxDO::getIndexName, LinkedHashMap::new,
+                        Collectors.groupingBy(SearchOutboxDO::getDocId, LinkedHashMap::new,
+                                Collectors.mapping(SearchOutboxDO::getId, Collectors.toList()))));
+
+        List<Long> sentIds = new ArrayList<>(changes.size());
+        List<Long> droppedIds = new ArrayList<>();
+        Map<String, Set<String>> sentDocIdsByIndex = new LinkedHashMap<>();
+        int rejected = 0;
+        long expiredBefore = System.currentTimeMillis()
+                - TimeUnit.SECONDS.toMillis(configProperties.getAckTimeoutSeconds());
+        for (Map.Entry<String, Map<String, List<Long>>> entry : changeIdsByIndex.entrySet()) {
+            String index = entry.getKey();
+            Map<String, List<Long>> changeIdsByDocId = entry.getValue();
+            if (!INDICES.contains(index)) {
+                log.warn("[SearchOutbox] Unknown index {}, the changes of {} are dropped",
+                        index, changeIdsByDocId.keySet());
+                changeIdsByDocId.values().forEach(droppedIds::addAll);
+                continue;
+            }
+            Map<String, String> documents = getDocuments(index, changeIdsByDocId.keySet());
+            List<String> targetIndices = searchManager.getIndicesToWrite(index);
+            for (Map.Entry<String, List<Long>> docEntry : changeIdsByDocId.entrySet()) {
+                String docId = docEntry.getKey();
+                String key = toPendingKey(index, docId);
+                PendingWrites previous = pendingWrites.get(key);
+                if (previous != null && previous.sentAtMillis >= expiredBefore) {
+                    // wait for the previous writes, and send the document again in the next relay
+                    continue;
+                }
+                PendingWrites writes = new PendingWrites(docEntry.getValue());
+                pendingWrites.put(key, writes);
+                sentIds.addAll(writes.changeIds);
+                sentDocIdsByIndex.computeIfAbsent(index, k -> new LinkedHashSet<>()).add(docId);
+
+                boolean accepted = send(targetIndices, docId, documents.get(docId), writes);
+                if (!accepted) {
+                    rejected++;
+                }
+                // all writes are added, so the last acknowledgement completes them
+                if (writes.remaining.decrementAndGet() == 0) {
+                    complete(key, writes);
+                }
+            }
+        }
+
+        if (!droppedIds.isEmpty()) {
+            searchOutboxMapper.deleteChanges(droppedIds);
+        }
+        if (!sentIds.isEmpty()) {
+            searchOutboxMapper.markRelayed(sentIds);
+        }
+        // the search results in database have changed, and the results in Elasticsearch
+        // will be invalidated again after the documents are written
+        sentDocIdsByIndex.keySet().forEach(searchResultCacheManager::invalidate);
+        sentDocIdsByIndex.forEach(suggestionManager::recordChanges);
+        if (rejected > 0) {
+            log.warn("[SearchOutbox] The bulk indexer rejected {} documents, which will be retried", rejected);
+            // the rejected changes are sent again in the next relay
+            return 0;
+        }
+        return sentIds.size() + droppedIds.size();
+    }
+
+    /**
+     * Send the document to the indices, or delete it from the indices if it doesn't exist in database
+     *
+     * @return true if all writes are accepted by the bulk indexer
+     */
+    private boolean send(List<String> targetIndices, String docId, String json, PendingWrites writes) {
+        for (String targetIndex : targetIndices) {
+            writes.remaining.incrementAndGet();
+            boolean accepted = json == null
+                    ? elasticsearchIndexingManager.delete(targetIndex, docId)
+                    : elasticsearchIndexingManager.index(targetIndex, docId, json);
+            if (!accepted) {
+                // the failure listener has been notified, and the changes will be sent again
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the current documents from database
+     *
+     * @param index  name of the index
+     * @param docIds IDs of the documents
+     * @return key is the ID of the document, value is the document in JSON.
+     * The documents that don't exist in database are not included, and they should be deleted from Elasticsearch.
+     */
+    private Map<String, String> getDocuments(String index, Set<String> docIds) {
+        switch (index) {
+            case SearchConstant.INDEX_WEB:
+                List<WebForSearchDTO> webs = bookmarkMapper.getPublicBasicWebDataForSearchByUrls(docIds);
+                return toJsonMap(webs, WebForSearchDTO::getUrl);
+            case SearchConstant.INDEX_TAG:
+                List<TagForSearchDTO> tags = BeanUtils.convertList(
+                        tagMapper.getTagsAndCountOfPublicBookmarksByTags(docIds), TagForSearchDTO.class);
+                return toJsonMap(tags, TagForSearchDTO::getTag);
+            case SearchConstant.INDEX_USER:
+                List<Long> userIds = docIds.stream()
+                        .filter(NumberUtils::isDigits)
+                        .map(Long::valueOf)
+                        .collect(Collectors.toList());
+                if (userIds.isEmpty()) {
+                    return Collections.emptyMap();
+                }
+                List<UserForSearchDTO> users =
+                        BeanUtils.convertList(userMapper.getUsersByIds(userIds), UserForSearchDTO.class);
+                return toJsonMap(users, user -> String.valueOf(user.getId()));
+            default:
+                return Collections.emptyMap();
+        }
+    }
+
+    private <T> Map<String, String> toJsonMap(List<T> documents, Function<T, String> getId) {
+        Map<String, String> result = new HashMap<>(documents.size() * 2);
+        documents.forEach(document -> result.put(getId.apply(document), JsonUtils.toJson(document)));
+        return result;
+    }
+}
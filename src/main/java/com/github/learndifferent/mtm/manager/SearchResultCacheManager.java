@@ -0,0 +1,375 @@
+package com.github.learndifferent.mtm.manager;
+
+import com.github.learndifferent.mtm.config.SearchCacheConfigProperties;
+import com.github.learndifferent.mtm.constant.consist.SearchConstant;
+import com.github.learndifferent.mtm.constant.enums.SearchMode;
+import com.github.learndifferent.mtm.dto.search.SearchResultsDTO;
+import com.github.learndifferent.mtm.utils.RedisKeyUtils;
+import com.github.learndifferent.mtm.vo.SearchCacheMetricsVO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.SerializationUtils;
+
+/**
+ * Search Result Cache Manager
+ * <p>
+ * The search results are cached in memory (least recently used ones are evicted first),
+ * and optionally in Redis, so they can be shared by all nodes.
+ * </p>
+ * <p>
+ * Each index has a generation in Redis, which is increased when the data of the index changes,
+ * and the key of the results contains the generation of the index when they were searched.
+ * So the results are invalidated at once when the generation changes, and they are never served
+ * after that, no matter how long they have been cached. Each node reads the generations from Redis
+ * every {@link SearchCacheConfigProperties#getGenerationRefreshMillis()} milliseconds,
+ * and the cache is bypassed if the generations can't be read.
+ * </p>
+ * <p>
+ * The generation is increased when the changes are relayed from the search outbox, which are
+ * already in database, again after the documents are written to Elasticsearch and the index is refreshed,
+ * and when the index is rebuilt or deleted.
+ * </p>
+ *
+ * @author zhou
+ * @date 2023/11/4
+ */
+@Component
+@Slf4j
+public class SearchResultCacheManager {
+
+    private static final List<String> INDICES =
+            Arrays.asList(SearchConstant.INDEX_WEB, SearchConstant.INDEX_TAG, SearchConstant.INDEX_USER);
+
+    private static final String TIER_TAG = "tier";
+
+    private static final String RESULT_TAG = "result";
+
+    /**
+     * The cache is bypassed if the generations have not been read for this many refresh intervals
+     */
+    private static final int MAX_MISSED_REFRESHES = 3;
+
+    private final StringRedisTemplate redisTemplate;
+    private final ElasticsearchIndexingManager elasticsearchIndexingManager;
+    private final SearchCacheConfigProperties configProperties;
+
+    /**
+     * Key is the alias of the index, value is the latest generation read from Redis
+     */
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    /**
+     * Aliases of the indices that will be invalidated after the refresh
+     */
+    private final Set<String> pendingAliases = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Key is the key of the search, which contains the generation, value is the results
+     */
+    private final Map<String, SearchResultsDTO> localCache;
+
+    private final Counter localHitCounter;
+    private final Counter localMissCounter;
+    private final Counter redisHitCounter;
+    private final Counter redisMissCounter;
+
+    /**
+     * Time of the last successful read of the generations
+     */
+    private volatile long generationsReadAt;
+
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public SearchResultCacheManager(StringRedisTemplate redisTemplate,
+                                    ElasticsearchIndexingManager elasticsearchIndexingManager,
+                                    SearchCacheConfigProperties configProperties,
+                                    MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.elasticsearchIndexingManager = elasticsearchIndexingManager;
+        this.configProperties = configProperties;
+        INDICES.forEach(alias -> generations.put(alias, new AtomicLong()));
+
+        int maxEntries = configProperties.getLocalMaxEntries();
+        this.localCache = Collections.synchronizedMap(new LinkedHashMap<String, SearchResultsDTO>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SearchResultsDTO> eldest) {
+                return size() > maxEntries;
+            }
+        });
+
+        this.localHitCounter = requestCounter(meterRegistry, "local", "hit");
+        this.localMissCounter = requestCounter(meterRegistry, "local", "miss");
+        this.redisHitCounter = requestCounter(meterRegistry, "redis", "hit");
+        this.redisMissCounter = requestCounter(meterRegistry, "redis", "miss");
+        Gauge.builder("search.cache.local.size", localCache, Map::size)
+                .description("Search results cached in memory")
+                .register(meterRegistry);
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String tier, String result) {
+        return Counter.builder("search.cache.requests")
+                .description("Requests of the search result cache")
+                .tag(TIER_TAG, tier)
+                .tag(RESULT_TAG, result)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        elasticsearchIndexingManager.addIndexedListener(this::invalidateAfterRefresh);
+        scheduler = new ScheduledThreadPoolExecutor(
+                // core pool size
+                1,
+                // thread factory
+                runnable -> {
+                    Thread thread = new Thread(runnable, "search-cache-thread");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        long refreshMillis = configProperties.getGenerationRefreshMillis();
+        scheduler.scheduleWithFixedDelay(this::refreshGenerations, 0L, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Read the generations from Redis
+     */
+    void refreshGenerations() {
+        try {
+            List<String> keys = INDICES.stream()
+                    .map(RedisKeyUtils::getSearchCacheGenerationKey)
+                    .collect(Collectors.toList());
+            List<String> values = redisTemplate.opsForValue().multiGet(keys);
+            if (values == null) {
+                return;
+            }
+            for (int i = 0; i < INDICES.size(); i++) {
+                String value = values.get(i);
+                updateGeneration(INDICES.get(i), value == null ? 0L : Long.parseLong(value));
+            }
+            generationsReadAt = System.currentTimeMillis();
+        } catch (Exception e) {
+            log.warn("[SearchCache] Unable to read the generations, the cache is bypassed until they are read", e);
+        }
+    }
+
+    private void updateGeneration(String alias, long generation) {
+        long previous = generations.get(alias).getAndSet(generation);
+        if (generation < previous) {
+            // the generations are lost in Redis, so the old keys may be used again,
+            // or this node has just increased it after reading, which only costs the cached results
+            log.debug("[SearchCache] The generation of {} goes back from {} to {}", alias, previous, generation);
+            localCache.clear();
+        }
+    }
+
+    /**
+     * Get the key of the search
+     *
+     * @param mode      search mode
+     * @param keyword   keyword
+     * @param from      from
+     * @param size      size
+     * @param rangeFrom lower range value
+     * @param rangeTo   upper range value
+     * @return key of the search, which contains the current generation of the index,
+     * or empty if the results should not be cached
+     */
+    public Optional<String> getKey(SearchMode mode,
+                                   String keyword,
+                                   int from,
+                                   int size,
+                                   Integer rangeFrom,
+                                   Integer rangeTo) {
+        if (!configProperties.isEnabled() || !isGenerationFresh()) {
+            return Optional.empty();
+        }
+        long generation = generations.get(mode.index()).get();
+        // the keyword is the last part, so the colons in it don't make the keys ambiguous
+        String key = generation + ":" + mode.name() + ":" + from + ":" + size + ":"
+                + rangeFrom + ":" + rangeTo + ":" + normalize(keyword);
+        return Optional.of(key);
+    }
+
+    private boolean isGenerationFresh() {
+        long maxAge = configProperties.getGenerationRefreshMillis() * MAX_MISSED_REFRESHES;
+        return System.currentTimeMillis() - generationsReadAt <= maxAge;
+    }
+
+    private String normalize(String keyword) {
+        return keyword.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Get the cached results
+     *
+     * @param key key of the search
+     * @return results, or empty if not cached
+     */
+    public Optional<SearchResultsDTO> get(String key) {
+        SearchResultsDTO results = localCache.get(key);
+        if (results != null) {
+            localHitCounter.increment();
+            return Optional.of(results);
+        }
+        localMissCounter.increment();
+
+        if (!configProperties.isRedisEnabled()) {
+            return Optional.empty();
+        }
+        results = getFromRedis(key);
+        if (results == null) {
+            redisMissCounter.increment();
+            return Optional.empty();
+        }
+        redisHitCounter.increment();
+        localCache.put(key, results);
+        return Optional.of(results);
+    }
+
+    private SearchResultsDTO getFromRedis(String key) {
+        try {
+            String value = redisTemplate.opsForValue().get(RedisKeyUtils.getSearchCacheResultsKey(key));
+            if (value == null) {
+                return null;
+            }
+            Object results = SerializationUtils.deserialize(Base64.getDecoder().decode(value));
+            return results instanceof SearchResultsDTO ? (SearchResultsDTO) results : null;
+        } catch (Exception e) {
+            log.warn("[SearchCache] Unable to get the results of {} from Redis", key, e);
+            return null;
+        }
+    }
+
+    /**
+     * Cache the results
+     *
+     * @param key     key of the search, which should be got before searching,
+     *                so the results are not cached with a newer generation
+     * @param results results
+     */
+    public void put(String key, SearchResultsDTO results) {
+        if (results == null) {
+            return;
+        }
+        localCache.put(key, results);
+        if (configProperties.isRedisEnabled()) {
+            putToRedis(key, results);
+        }
+    }
+
+    private void putToRedis(String key, SearchResultsDTO results) {
+        try {
+            byte[] bytes = SerializationUtils.serialize(results);
+            if (bytes == null) {
+                return;
+            }
+            String value = Base64.getEncoder().encodeToString(bytes);
+            redisTemplate.opsForValue().set(RedisKeyUtils.getSearchCacheResultsKey(key), value,
+                    Duration.ofSeconds(configProperties.getRedisTtlSeconds()));
+        } catch (Exception e) {
+            log.warn("[SearchCache] Unable to put the results of {} to Redis", key, e);
+        }
+    }
+
+    /**
+     * Invalidate all results of the index
+     *
+     * @param alias alias of the index
+     */
+    public void invalidate(String alias) {
+        AtomicLong generation = generations.get(alias);
+        if (generation == null) {
+            return;
+        }
+        try {
+            Long newGeneration = redisTemplate.opsForValue()
+                    .increment(RedisKeyUtils.getSearchCacheGenerationKey(alias));
+            if (newGeneration != null) {
+                generation.accumulateAndGet(newGeneration, Math::max);
+            }
+        } catch (Exception e) {
+            // this node bypasses the cache until it reads the generations again,
+            // and the results of this node are removed since the generation doesn't change
+            log.error("[SearchCache] Unable to invalidate the results of {}", alias, e);
+            generationsReadAt = 0L;
+            localCache.clear();
+        }
+    }
+
+    /**
+     * Invalidate the results of the indices after the refresh of the indices,
+     * so the new documents are searchable. Multiple invalidations of an index in this period are merged.
+     *
+     * @param indices names of the indices, which may be the versioned indices that the aliases point to
+     */
+    private void invalidateAfterRefresh(Set<String> indices) {
+        INDICES.stream()
+                .filter(alias -> indices.stream().anyMatch(index -> ElasticsearchReindexManager
+                        .isIndexOfAlias(index, alias)))
+                .filter(pendingAliases::add)
+                .forEach(alias -> scheduler.schedule(() -> {
+                    pendingAliases.remove(alias);
+                    invalidate(alias);
+                }, configProperties.getRefreshDelayMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Get the metrics of the cache
+     *
+     * @return metrics
+     */
+    public SearchCacheMetricsVO getMetrics() {
+        long localHits = (long) localHitCounter.count();
+        long localMisses = (long) localMissCounter.count();
+        long redisHits = (long) redisHitCounter.count();
+        long requests = localHits + localMisses;
+        double hitRate = requests == 0L ? 0D : (double) (localHits + redisHits) / requests;
+
+        Map<String, Long> currentGenerations = new LinkedHashMap<>();
+        generations.forEach((alias, generation) -> currentGenerations.put(alias, generation.get()));
+
+        return SearchCacheMetricsVO.builder()
+                .enabled(configProperties.isEnabled() && isGenerationFresh())
+                .localHits(localHits)
+                .localMisses(localMisses)
+                .redisHits(redisHits)
+                .redisMisses((long) redisMissCounter.count())
+                .hitRate(hitRate)
+                .localSize(localCache.size())
+                .generations(currentGenerations)
+                .build();
+    }
+}
@@ -0,0 +1,342 @@
+package com.github.learndifferent.mtm.manager;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.github.learndifferent.mtm.config.SuggestionConfigProperties;
+import com.github.learndifferent.mtm.constant.consist.RedisConstant;
+import com.github.learndifferent.mtm.constant.consist.SearchConstant;
+import com.github.learndifferent.mtm.dto.search.PrefixIndex;
+import com.github.learndifferent.mtm.entity.TagAndCountDO;
+import com.github.learndifferent.mtm.entity.UserDO;
+import com.github.learndifferent.mtm.mapper.TagMapper;
+import com.github.learndifferent.mtm.mapper.UserMapper;
+import com.github.learndifferent.mtm.utils.JsonUtils;
+import com.github.learndifferent.mtm.vo.SuggestionVO;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisZSetCommands.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Autocomplete suggestions of tags and usernames
+ * <p>
+ * Each node keeps the tags (weighted by the number of public bookmarks) and the usernames in
+ * {@link PrefixIndex}es in memory, so the suggestions are returned without Elasticsearch or database.
+ * </p>
+ * <p>
+ * All tags and users are loaded from database when the node starts. After that, the changes of tags and users
+ * that the search outbox relay applies are added to a stream in Redis with a sequence number,
+ * and each node reads the stream and loads the current data of the changed tags and users from database.
+ * If a node misses some changes, it loads all tags and users again.
+ * </p>
+ *
+ * @author zhou
+ * @date 2023/11/5
+ */
+@Component
+@Slf4j
+public class SuggestionManager {
+
+    private static final String FIELD_SEQUENCE = "sequence";
+    private static final String FIELD_INDEX = "index";
+    private static final String FIELD_IDS = "ids";
+
+    private static final String STREAM_START = "0-0";
+
+    /**
+     * Max number of changes read at a time
+     */
+    private static final long READ_COUNT = 100L;
+
+    private final TagMapper tagMapper;
+    private final UserMapper userMapper;
+    private final StringRedisTemplate redisTemplate;
+    private final SuggestionConfigProperties configProperties;
+
+    private volatile PrefixIndex tagIndex;
+    private volatile PrefixIndex userIndex;
+
+    /**
+     * ID of the last change read from the stream, which is only accessed in the suggestion thread
+     */
+    private String lastRecordId;
+
+    /**
+     * Sequence of the last change read from the stream, which is only accessed in the suggestion thread
+     */
+    private long lastSequence;
+
+    private volatile boolean loaded;
+
+    private ScheduledExecutorService executor;
+
+    @Autowired
+    public SuggestionManager(TagMapper tagMapper,
+                             UserMapper userMapper,
+                             StringRedisTemplate redisTemplate,
+                             SuggestionConfigProperties configProperties) {
+        this.tagMapper = tagMapper;
+        this.userMapper = userMapper;
+        this.redisTemplate = redisTemplate;
+        this.configProperties = configProperties;
+        this.tagIndex = new PrefixIndex(configProperties.getMaxSuggestions());
+        this.userIndex = new PrefixIndex(configProperties.getMaxSuggestions());
+    }
+
+    @PostConstruct
+    public void start() {
+        // the loading and the changes run in the same thread, so they are applied in order
+        executor = new ScheduledThreadPoolExecutor(
+                // core pool size
+                1,
+                // thread factory
+                runnable -> {
+                    Thread thread = new Thread(runnable, "suggestion-thread");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        long reloadMinutes = configProperties.getReloadIntervalMinutes();
+        executor.scheduleWithFixedDelay(this::loadAllQuietly, 0L, reloadMinutes, TimeUnit.MINUTES);
+        long pollMillis = configProperties.getPollIntervalMillis();
+        executor.scheduleWithFixedDelay(this::applyChangesQuietly, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Get the suggestions of the prefix
+     *
+     * @param index  {@link SearchConstant#INDEX_TAG} for tags, {@link SearchConstant#INDEX_USER} for usernames
+     * @param prefix prefix
+     * @param size   max number of suggestions
+     * @return suggestions ordered by the number of public bookmarks for tags, and by length for usernames.
+     * Empty if the tags and users have not been loaded.
+     */
+    public List<SuggestionVO> suggest(String index, String prefix, int size) {
+        PrefixIndex prefixIndex = getPrefixIndex(index);
+        if (prefixIndex == null) {
+            return Collections.emptyList();
+        }
+        int validSize = Math.max(1, Math.min(size, configProperties.getMaxSuggestions()));
+        return prefixIndex.complete(prefix, validSize).stream()
+                .map(completion -> SuggestionVO.builder()
+                        .id(completion.getId())
+                        .text(completion.getText())
+                        .count(completion.getWeight())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    private PrefixIndex getPrefixIndex(String index) {
+        switch (index) {
+            case SearchConstant.INDEX_TAG:
+                return tagIndex;
+            case SearchConstant.INDEX_USER:
+                return userIndex;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Add the changes of tags or users to the stream, so all nodes apply them.
+     * This should be called after the changes are committed.
+     *
+     * @param index  {@link SearchConstant#INDEX_TAG} or {@link SearchConstant#INDEX_USER}, and others are ignored
+     * @param docIds tags, or IDs of the users
+     */
+    public void recordChanges(String index, Collection<String> docIds) {
+        if (getPrefixIndex(index) == null || docIds.isEmpty()) {
+            return;
+        }
+        try {
+            Long sequence = redisTemplate.opsForValue().increment(RedisConstant.SUGGESTION_CHANGE_SEQUENCE);
+            Map<String, String> fields = new HashMap<>(4);
+            fields.put(FIELD_SEQUENCE, String.valueOf(sequence));
+            fields.put(FIELD_INDEX, index);
+            fields.put(FIELD_IDS, JsonUtils.toJson(docIds));
+            redisTemplate.opsForStream()
+                    .add(StreamRecords.newRecord().in(RedisConstant.SUGGESTION_CHANGES).ofMap(fields));
+            redisTemplate.opsForStream().trim(RedisConstant.SUGGESTION_CHANGES, configProperties.getMaxChanges());
+        } catch (Exception e) {
+            log.error("[Suggestion] Unable to record the changes of {} in {}, "
+                    + "which will be loaded in the next reload", docIds, index, e);
+        }
+    }
+
+    private void loadAllQuietly() {
+        try {
+            loadAll();
+        } catch (Exception e) {
+            log.error("[Suggestion] Unable to load the tags and users", e);
+        }
+    }
+
+    private void applyChangesQuietly() {
+        if (!loaded) {
+            // retry if the tags and users could not be loaded when starting
+            loadAllQuietly();
+            return;
+        }
+        try {
+            applyChanges();
+        } catch (Exception e) {
+            log.error("[Suggestion] Unable to apply the changes of tags and users", e);
+        }
+    }
+
+    /**
+     * Load all tags and users from database into new prefix indices, and replace the old ones
+     */
+    void loadAll() {
+        // read the position first, so the changes during loading are applied again, which is harmless
+        List<MapRecord<String, Object, Object>> lastRecords = redisTemplate.opsForStream()
+                .reverseRange(RedisConstant.SUGGESTION_CHANGES, Range.unbounded(), Limit.limit().count(1));
+        String recordId = STREAM_START;
+        long sequence;
+        if (lastRecords == null || lastRecords.isEmpty()) {
+            String value = redisTemplate.opsForValue().get(RedisConstant.SUGGESTION_CHANGE_SEQUENCE);
+            sequence = NumberUtils.toLong(value, 0L);
+        } else {
+            MapRecord<String, Object, Object> last = lastRecords.get(0);
+            recordId = last.getId().getValue();
+            sequence = NumberUtils.toLong(String.valueOf(last.getValue().get(FIELD_SEQUENCE)), 0L);
+        }
+
+        long start = System.currentTimeMillis();
+        int batchSize = configProperties.getLoadBatchSize();
+        PrefixIndex newTagIndex = new PrefixIndex(configProperties.getMaxSuggestions());
+        String lastTag = null;
+        List<TagAndCountDO> tags;
+        do {
+            tags = tagMapper.getTagsAndCountOfPublicBookmarksAfter(lastTag, batchSize);
+            tags.forEach(tag -> putTag(newTagIndex, tag));
+            lastTag = tags.isEmpty() ? lastTag : tags.get(tags.size() - 1).getTag();
+        } while (tags.size() == batchSize);
+
+        PrefixIndex newUserIndex = new PrefixIndex(configProperties.getMaxSuggestions());
+        Long lastUserId = null;
+        List<UserDO> users;
+        do {
+            users = userMapper.getUsersAfter(lastUserId, batchSize);
+            users.forEach(user -> putUser(newUserIndex, user));
+            lastUserId = users.isEmpty() ? lastUserId : users.get(users.size() - 1).getId();
+        } while (users.size() == batchSize);
+
+        tagIndex = newTagIndex;
+        userIndex = newUserIndex;
+        lastRecordId = recordId;
+        lastSequence = sequence;
+        loaded = true;
+        log.info("[Suggestion] Loaded {} tags and {} users in {} ms",
+                newTagIndex.size(), newUserIndex.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Read the changes from the stream and apply them
+     */
+    void applyChanges() {
+        List<MapRecord<String, Object, Object>> records;
+        do {
+            records = redisTemplate.opsForStream().read(StreamReadOptions.empty().count(READ_COUNT),
+                    StreamOffset.create(RedisConstant.SUGGESTION_CHANGES, ReadOffset.from(lastRecordId)));
+            if (records == null || records.isEmpty()) {
+                return;
+            }
+
+            Map<String, Set<String>> docIdsByIndex = new LinkedHashMap<>();
+            for (MapRecord<String, Object, Object> record : records) {
+                Map<Object, Object> fields = record.getValue();
+                long sequence = NumberUtils.toLong(String.valueOf(fields.get(FIELD_SEQUENCE)), 0L);
+                if (sequence != lastSequence + 1) {
+                    log.warn("[Suggestion] Missing the changes between {} and {}, load all tags and users again",
+                            lastSequence, sequence);
+                    loadAll();
+                    return;
+                }
+                List<String> docIds = JsonUtils.toObject(String.valueOf(fields.get(FIELD_IDS)),
+                        new TypeReference<List<String>>() {});
+                docIdsByIndex.computeIfAbsent(String.valueOf(fields.get(FIELD_INDEX)), k -> new LinkedHashSet<>())
+                        .addAll(docIds);
+                lastSequence = sequence;
+            }
+
+            docIdsByIndex.forEach(this::reload);
+            lastRecordId = records.get(records.size() - 1).getId().getValue();
+        } while (records.size() == READ_COUNT);
+    }
+
+    /**
+     * Load the current data of the tags or users from database
+     *
+     * @param index  name of the index
+     * @param docIds tags, or IDs of the users
+     */
+    private void reload(String index, Set<String> docIds) {
+        if (SearchConstant.INDEX_TAG.equals(index)) {
+            PrefixIndex prefixIndex = tagIndex;
+            Set<String> missing = new LinkedHashSet<>(docIds);
+            tagMapper.getTagsAndCountOfPublicBookmarksByTags(docIds).forEach(tag -> {
+                missing.remove(tag.getTag());
+                putTag(prefixIndex, tag);
+            });
+            missing.forEach(prefixIndex::remove);
+            return;
+        }
+        if (SearchConstant.INDEX_USER.equals(index)) {
+            PrefixIndex prefixIndex = userIndex;
+            Set<String> missing = new LinkedHashSet<>(docIds);
+            List<Long> userIds = docIds.stream()
+                    .filter(NumberUtils::isDigits)
+                    .map(Long::valueOf)
+                    .collect(Collectors.toList());
+            if (!userIds.isEmpty()) {
+                userMapper.getUsersByIds(userIds).forEach(user -> {
+                    missing.remove(String.valueOf(user.getId()));
+                    putUser(prefixIndex, user);
+                });
+            }
+            missing.forEach(prefixIndex::remove);
+        }
+    }
+
+    private void putTag(PrefixIndex prefixIndex, TagAndCountDO tag) {
+        int number = tag.getNumber() == null ? 0 : tag.getNumber();
+        if (number > 0) {
+            prefixIndex.put(tag.getTag(), tag.getTag(), number);
+        } else {
+            prefixIndex.remove(tag.getTag());
+        }
+    }
+
+    private void putUser(PrefixIndex prefixIndex, UserDO user) {
+        // the usernames have no weight, so the shorter ones come first
+        prefixIndex.put(String.valueOf(user.getId()), user.getUserName(), 0L);
+    }
+}
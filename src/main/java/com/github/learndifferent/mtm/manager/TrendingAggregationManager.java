@@ -0,0 +1,120 @@
+package com.github.learndifferent.mtm.manager;
+
+import com.github.learndifferent.mtm.config.TrendingConfigProperties;
+import com.github.learndifferent.mtm.dto.search.HeavyHitterSketch;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Trending Aggregation Manager
+ * <p>
+ * Count the trending keywords in memory with a {@link HeavyHitterSketch}, whose memory is bounded no matter
+ * how many distinct keywords arrive, and flush the scores of the keywords that occur most to Redis
+ * by {@link TrendingManager} with one pipeline every {@link TrendingConfigProperties#getFlushIntervalMillis()}
+ * milliseconds. The rare keywords are dropped, since they never become trending.
+ * </p>
+ * <p>
+ * A new sketch is used in each interval. The keywords that are being added while the sketch is replaced
+ * may be lost, which is fine for trending searches.
+ * </p>
+ *
+ * @author zhou
+ * @date 2023/11/11
+ */
+@Component
+@Slf4j
+public class TrendingAggregationManager {
+
+    private final TrendingManager trendingManager;
+    private final TrendingConfigProperties configProperties;
+    private final AtomicReference<HeavyHitterSketch> sketch;
+
+    private ScheduledExecutorService flushService;
+
+    @Autowired
+    public TrendingAggregationManager(TrendingManager trendingManager,
+                                      TrendingConfigProperties configProperties) {
+        this.trendingManager = trendingManager;
+        this.configProperties = configProperties;
+        this.sketch = new AtomicReference<>(new HeavyHitterSketch(configProperties.getSketchCapacity()));
+    }
+
+    @PostConstruct
+    public void start() {
+        long interval = configProperties.getFlushIntervalMillis();
+        flushService = new ScheduledThreadPoolExecutor(
+                // core pool size
+                1,
+                // thread factory
+                runnable -> {
+                    Thread thread = new Thread(runnable, "trending-flush-thread");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        flushService.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("[TrendingAggregation] Flush top {} trending keywords to Redis every {} ms",
+                configProperties.getFlushSize(), interval);
+    }
+
+    /**
+     * Flush the counted keywords before shutting down
+     */
+    @PreDestroy
+    public void stop() {
+        if (flushService != null) {
+            flushService.shutdownNow();
+        }
+        flushQuietly();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            // keep the scheduled task running
+            log.error("[TrendingAggregation] Failed to flush the trending keywords. "
+                    + "Dropped them because they are not important.", e);
+        }
+    }
+
+    /**
+     * Count the keyword in memory
+     *
+     * @param word keyword
+     */
+    public void addToTrendingList(String word) {
+        sketch.get().add(word);
+    }
+
+    /**
+     * Replace the sketch and flush the scores of the keywords that occur most in it to Redis.
+     * <p>
+     * Only the positive guaranteed scores are flushed, so no keywords are added to Redis with the score of 0.
+     * </p>
+     *
+     * @return number of keywords flushed
+     */
+    public int flush() {
+        HeavyHitterSketch current = sketch.getAndSet(new HeavyHitterSketch(configProperties.getSketchCapacity()));
+        List<Map.Entry<String, Long>> top = current.top(configProperties.getFlushSize());
+        if (top.isEmpty()) {
+            return 0;
+        }
+        Map<String, Long> wordsAndScores = new LinkedHashMap<>(top.size() * 2);
+        top.forEach(entry -> wordsAndScores.put(entry.getKey(), entry.getValue()));
+        trendingManager.addToTrendingList(wordsAndScores);
+        log.debug("[TrendingAggregation] Flushed {} of {} keywords ({} occurrences)",
+                top.size(), current.size(), current.getTotal());
+        return top.size();
+    }
+}
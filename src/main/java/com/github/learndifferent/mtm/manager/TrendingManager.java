@@ -2,39 +2,192 @@ package com.github.learndifferent.mtm.manager;
 
 import com.github.learndifferent.mtm.annotation.modify.string.EmptyStringCheck;
 import com.github.learndifferent.mtm.annotation.modify.string.EmptyStringCheck.ExceptionIfEmpty;
+import com.github.learndifferent.mtm.config.TrendingConfigProperties;
 import com.github.learndifferent.mtm.constant.consist.SearchConstant;
-import com.github.learndifferent.mtm.constant.enums.ResultCode;
 import com.github.learndifferent.mtm.exception.ServiceException;
-import java.util.Optional;
+import com.github.learndifferent.mtm.utils.RedisKeyUtils;
+import com.github.learndifferent.mtm.utils.UUIDUtils;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisZSetCommands.Aggregate;
+import org.springframework.data.redis.connection.RedisZSetCommands.Weights;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Component;
 
 /**
  * Trending Manager
+ * <p>
+ * The scores of the trending keywords are added to the sorted set of the current time bucket, which expires
+ * after it leaves the window, and the keywords with the lowest scores in each bucket are trimmed.
+ * </p>
+ * <p>
+ * The top trending keywords are the union of the buckets in the window, and each bucket is weighted by
+ * exponential decay since its end, so the old spikes fade away. The union is computed every
+ * {@link TrendingConfigProperties#getTopRefreshMillis()} milliseconds and the top keywords are served from memory.
+ * </p>
  *
  * @author zhou
  * @date 2021/09/05
  */
 @Component
+@Slf4j
 public class TrendingManager {
 
+    private static final DateTimeFormatter BUCKET_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyyMMddHHmm").withZone(ZoneOffset.UTC);
+
+    /**
+     * The merged keywords are kept for a while in case the node stops, and they are overwritten in each refresh
+     */
+    private static final long MERGED_TTL_SECONDS = 60L;
+
     private final StringRedisTemplate redisTemplate;
+    private final TrendingConfigProperties configProperties;
+
+    /**
+     * Each node merges the buckets into its own key, so the nodes don't read the keys that others are writing
+     */
+    private final String mergedKey = RedisKeyUtils.getTrendingMergedKey(UUIDUtils.getUuid(8));
+
+    /**
+     * Top trending keywords in descending order of the decayed scores
+     */
+    private volatile Set<String> top = Collections.emptySet();
+
+    private ScheduledExecutorService refreshService;
 
     @Autowired
-    public TrendingManager(StringRedisTemplate redisTemplate) {
+    public TrendingManager(StringRedisTemplate redisTemplate, TrendingConfigProperties configProperties) {
         this.redisTemplate = redisTemplate;
+        this.configProperties = configProperties;
+    }
+
+    @PostConstruct
+    public void start() {
+        refreshService = new ScheduledThreadPoolExecutor(
+                // core pool size
+                1,
+                // thread factory
+                runnable -> {
+                    Thread thread = new Thread(runnable, "trending-refresh-thread");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        long interval = configProperties.getTopRefreshMillis();
+        refreshService.scheduleWithFixedDelay(this::refreshTopQuietly, 0L, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refreshService != null) {
+            refreshService.shutdownNow();
+        }
+    }
+
+    private void refreshTopQuietly() {
+        try {
+            refreshTop();
+        } catch (Exception e) {
+            // keep the scheduled task running and serve the previous top keywords
+            log.warn("[Trending] Unable to refresh the top trending keywords", e);
+        }
+    }
+
+    /**
+     * Merge the buckets in the window with decay and keep the top keywords in memory
+     */
+    void refreshTop() {
+        Instant now = Instant.now();
+        List<String> buckets = getBucketKeys(now);
+        double[] weights = getWeights(now);
+        long end = configProperties.getTopSize() - 1L;
+
+        Set<String> merged = redisTemplate.execute((RedisCallback<Set<String>>) connection -> {
+            RedisSerializer<String> serializer = redisTemplate.getStringSerializer();
+            byte[] destination = serializer.serialize(mergedKey);
+            byte[][] sources = buckets.stream().map(serializer::serialize).toArray(byte[][]::new);
+            connection.zUnionStore(destination, Aggregate.SUM, Weights.of(weights), sources);
+            connection.expire(destination, MERGED_TTL_SECONDS);
+            Set<byte[]> words = connection.zRevRange(destination, 0L, end);
+            if (words == null) {
+                return Collections.emptySet();
+            }
+            return words.stream()
+                    .map(serializer::deserialize)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+        });
+        top = merged == null ? Collections.emptySet() : Collections.unmodifiableSet(merged);
+    }
+
+    /**
+     * Keys of the current bucket and the previous ones in the window
+     *
+     * @param now now
+     * @return keys from the newest bucket to the oldest one
+     */
+    List<String> getBucketKeys(Instant now) {
+        Instant current = getBucketStart(now);
+        Duration bucket = Duration.ofMinutes(configProperties.getBucketMinutes());
+        List<String> keys = new ArrayList<>(configProperties.getBucketCount());
+        for (int i = 0; i < configProperties.getBucketCount(); i++) {
+            Instant start = current.minus(bucket.multipliedBy(i));
+            keys.add(RedisKeyUtils.getTrendingBucketKey(BUCKET_FORMATTER.format(start)));
+        }
+        return keys;
+    }
+
+    /**
+     * Weights of the buckets, which are halved for every half-life since the end of the bucket
+     *
+     * @param now now
+     * @return weights from the newest bucket to the oldest one. The current bucket is weighted by 1.
+     */
+    double[] getWeights(Instant now) {
+        long bucketMillis = TimeUnit.MINUTES.toMillis(configProperties.getBucketMinutes());
+        double halfLifeMillis = TimeUnit.MINUTES.toMillis(configProperties.getHalfLifeMinutes());
+        long currentEnd = getBucketStart(now).toEpochMilli() + bucketMillis;
+        double[] weights = new double[configProperties.getBucketCount()];
+        for (int i = 0; i < weights.length; i++) {
+            long end = currentEnd - bucketMillis * i;
+            long age = Math.max(0L, now.toEpochMilli() - end);
+            weights[i] = Math.pow(0.5D, age / halfLifeMillis);
+        }
+        return weights;
+    }
+
+    private Instant getBucketStart(Instant time) {
+        long bucketMillis = TimeUnit.MINUTES.toMillis(configProperties.getBucketMinutes());
+        long millis = time.toEpochMilli();
+        return Instant.ofEpochMilli(millis - Math.floorMod(millis, bucketMillis));
     }
 
     /**
      * Get top 20 trending keywords
      *
-     * @return Top 20 trending keywords
+     * @return Top 20 trending keywords, which are merged every few seconds
      */
     public Set<String> getTop20Trending() {
-
-        return redisTemplate.opsForZSet().reverseRange(SearchConstant.TRENDING, 0, 19);
+        return top;
     }
 
     /**
@@ -48,9 +201,21 @@ public class TrendingManager {
     public boolean deleteTrendingWord(
             @ExceptionIfEmpty(errorMessage = "Please choose a word to delete") String word) {
 
-        Long success = redisTemplate.opsForZSet().remove(SearchConstant.TRENDING, word);
+        List<String> buckets = getBucketKeys(Instant.now());
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            buckets.forEach(bucket -> stringConnection.zRem(bucket, word));
+            return null;
+        });
+
+        Set<String> currentTop = new LinkedHashSet<>(top);
+        boolean inTop = currentTop.remove(word);
+        top = Collections.unmodifiableSet(currentTop);
 
-        return success != null && success != 0;
+        boolean removed = results.stream()
+                .filter(Objects::nonNull)
+                .anyMatch(result -> result instanceof Long && (Long) result > 0L);
+        return removed || inTop;
     }
 
     /**
@@ -59,19 +224,35 @@ public class TrendingManager {
      * @return true if success
      */
     public boolean deleteTrending() {
-        Boolean success = redisTemplate.delete(SearchConstant.TRENDING);
-        return Optional.ofNullable(success).orElse(false);
+        List<String> keys = getBucketKeys(Instant.now());
+        // the keywords before they are counted in time buckets
+        keys.add(SearchConstant.TRENDING);
+        Long deleted = redisTemplate.delete(keys);
+        top = Collections.emptySet();
+        return deleted != null && deleted > 0L;
     }
 
     /**
-     * Put the {@code word} in trending list and increment the score of it
+     * Put the words in the current bucket and increment the scores of them with one pipeline,
+     * then trim the keywords with the lowest scores in the bucket
      *
-     * @param word the word to put in trending list
+     * @param wordsAndScores key is the word to put in trending list, value is the score to increment
      */
-    @EmptyStringCheck
-    public void addToTrendingList(
-            @ExceptionIfEmpty(resultCode = ResultCode.NO_RESULTS_FOUND) String word) {
-
-        redisTemplate.opsForZSet().incrementScore(SearchConstant.TRENDING, word, 1);
+    public void addToTrendingList(Map<String, Long> wordsAndScores) {
+        if (wordsAndScores.isEmpty()) {
+            return;
+        }
+        String bucket = getBucketKeys(Instant.now()).get(0);
+        long ttlSeconds = TimeUnit.MINUTES.toSeconds(
+                (long) configProperties.getBucketMinutes() * (configProperties.getBucketCount() + 1));
+        long maxSize = configProperties.getBucketMaxSize();
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            wordsAndScores.forEach((word, score) -> stringConnection.zIncrBy(bucket, score, word));
+            // keep the keywords with the highest scores
+            stringConnection.zRemRange(bucket, 0L, -maxSize - 1L);
+            stringConnection.expire(bucket, ttlSeconds);
+            return null;
+        });
     }
-}
\ No newline at end of file
+}
@@ -8,7 +8,6 @@ import com.github.learndifferent.mtm.constant.enums.AccessPrivilege;
 import com.github.learndifferent.mtm.constant.enums.ResultCode;
 import com.github.learndifferent.mtm.constant.enums.UserRole;
 import com.github.learndifferent.mtm.dto.UserDTO;
-import com.github.learndifferent.mtm.dto.search.UserForSearchDTO;
 import com.github.learndifferent.mtm.entity.UserDO;
 import com.github.learndifferent.mtm.exception.ServiceException;
 import com.github.learndifferent.mtm.mapper.BookmarkMapper;
@@ -42,7 +41,7 @@ public class UserManager {
     private final UserMapper userMapper;
     private final CommentMapper commentMapper;
     private final NotificationManager notificationManager;
-    private final SearchManager searchManager;
+    private final SearchOutboxManager searchOutboxManager;
     private final IdGeneratorService idGeneratorService;
 
     public BookmarksAndTotalPagesVO getUserBookmarks(long userId,
@@ -76,6 +75,8 @@ public class UserManager {
 
         long userId = checkUserExistsAndReturnUserId(username, notEncryptedPassword);
 
+        // Record the changes of the user's public bookmarks before deleting them, which are read from database
+        searchOutboxManager.recordUserBookmarksChange(userId);
         // Delete bookmarks related to the user
         bookmarkMapper.deleteUserBookmarks(userId);
         // Delete comment data related to the user
@@ -84,8 +85,8 @@ public class UserManager {
         // Delete all notifications related to the user (Redis don't need transaction in this situation)
         notificationManager.deleteReplyNotificationData(userId);
 
-        // Remove user data from Elasticsearch asynchronously
-        searchManager.removeUserFromElasticsearchAsync(userId);
+        // Remove user data from Elasticsearch through the search outbox
+        searchOutboxManager.recordUserChange(userId);
 
         // Remove user data from database (false if the user does not exist)
         return userMapper.deleteUserByUserId(userId);
@@ -146,6 +147,7 @@ public class UserManager {
      *                          {@link ResultCode#PASSWORD_TOO_SHORT}
      */
     @AccessPermissionCheck(dataAccessType = DataAccessType.USER_CREATE)
+    @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
     public String createUserAndGetUsername(@Username String username,
                                            @Password String notEncryptedPassword,
                                            UserRole role) {
@@ -164,23 +166,13 @@ public class UserManager {
     private String createUserAndGetUsername(UserDTO user) {
         boolean success = userMapper.addUser(user);
         if (success) {
-            saveToElasticsearchAsync(user);
+            // add to Elasticsearch through the search outbox
+            searchOutboxManager.recordUserChange(user.getId());
             return user.getUserName();
         }
         throw new ServiceException(ResultCode.USER_ALREADY_EXIST);
     }
 
-    private void saveToElasticsearchAsync(UserDTO user) {
-        // add to Elasticsearch asynchronously
-        UserForSearchDTO data = UserForSearchDTO.builder()
-                .id(user.getId())
-                .userName(user.getUserName())
-                .createTime(user.getCreateTime())
-                .role(user.getRole())
-                .build();
-        searchManager.saveToElasticsearchAsync(data);
-    }
-
     /**
      * Get user by name and password
      *
@@ -0,0 +1,357 @@
+package com.github.learndifferent.mtm.manager;
+
+import com.github.learndifferent.mtm.config.ViewCounterConfigProperties;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * View Aggregation Manager
+ * <p>
+ * Aggregate the views of bookmarks in memory with {@link LongAdder},
+ * and flush them to Redis by {@link ViewStorageManager} with one pipeline every
+ * {@link ViewCounterConfigProperties#getFlushIntervalMillis()} milliseconds.
+ * </p>
+ * <p>
+ * The counters are never reset. Each counter remembers how many views have been flushed,
+ * so a failed flush is simply retried in the next flush.
+ * </p>
+ *
+ * @author zhou
+ * @date 2023/9/24
+ */
+@Component
+@Slf4j
+public class ViewAggregationManager {
+
+    /**
+     * Max number of bookmarks in one pipeline
+     */
+    private static final int FLUSH_BATCH_SIZE = 1000;
+
+    /**
+     * Wait time for the running flush when shutting down
+     */
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5L;
+
+    /**
+     * The counter is in the map and accepts views
+     */
+    private static final long ACTIVE = -1L;
+
+    /**
+     * The counter is being removed from the map
+     */
+    private static final long RETIRING = -2L;
+
+    /**
+     * The counter of a deleted bookmark, whose views are dropped
+     */
+    private static final long DISCARDED = Long.MAX_VALUE;
+
+    private final ViewStorageManager viewStorageManager;
+    private final ViewCounterConfigProperties configProperties;
+
+    /**
+     * Key is the bookmark ID, value is the views that have not been flushed to Redis
+     */
+    private final Map<Long, PendingViews> pendingViews = new ConcurrentHashMap<>();
+
+    /**
+     * Key is the bookmark ID, value is the visitors that have not been flushed to Redis.
+     * <p>
+     * The visitors are deduplicated in memory, so a client that keeps refreshing the page
+     * only adds one element to the HyperLogLog in each flush.
+     * </p>
+     */
+    private final ConcurrentHashMap<Long, Set<String>> pendingVisitors = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService flushService;
+
+    @Autowired
+    public ViewAggregationManager(ViewStorageManager viewStorageManager,
+                                  ViewCounterConfigProperties configProperties) {
+        this.viewStorageManager = viewStorageManager;
+        this.configProperties = configProperties;
+    }
+
+    @PostConstruct
+    public void start() {
+        long interval = configProperties.getFlushIntervalMillis();
+        flushService = new ScheduledThreadPoolExecutor(
+                // core pool size
+                1,
+                // thread factory
+                runnable -> {
+                    Thread thread = new Thread(runnable, "view-flush-thread");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        flushService.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("[ViewAggregation] Flush views to Redis every {} ms", interval);
+    }
+
+    /**
+     * Drain the pending views before shutting down
+     */
+    @PreDestroy
+    public void stop() {
+        if (flushService != null) {
+            flushService.shutdown();
+            try {
+                flushService.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushQuietly();
+        long remaining = countAllPendingViews();
+        if (remaining > 0) {
+            log.error("[ViewAggregation] {} views are lost because they can't be flushed to Redis", remaining);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            // keep the scheduled task running
+            log.error("[ViewAggregation] Failed to flush views", e);
+        }
+    }
+
+    /**
+     * Increase the views of the bookmark in memory
+     *
+     * @param bookmarkId ID of the bookmark
+     */
+    public void increaseViews(long bookmarkId) {
+        addViews(bookmarkId, 1L);
+    }
+
+    /**
+     * Increase the views of the bookmark and add the visitor to the unique visitors of the bookmark in memory
+     *
+     * @param bookmarkId ID of the bookmark
+     * @param visitor    visitor
+     */
+    public void increaseViews(long bookmarkId, String visitor) {
+        addViews(bookmarkId, 1L);
+        addVisitors(bookmarkId, Collections.singleton(visitor));
+    }
+
+    private void addVisitors(long bookmarkId, Collection<String> visitors) {
+        // the set is only modified while holding the lock of the map entry,
+        // so no visitors will be added to a set that is being flushed
+        pendingVisitors.compute(bookmarkId, (id, set) -> {
+            Set<String> result = set == null ? new HashSet<>() : set;
+            result.addAll(visitors);
+            return result;
+        });
+    }
+
+    private void addViews(long bookmarkId, long views) {
+        PendingViews counter = pendingViews.get(bookmarkId);
+        if (counter == null) {
+            counter = pendingViews.computeIfAbsent(bookmarkId, id -> new PendingViews());
+        }
+        counter.views.add(views);
+        if (counter.claimed.get() != ACTIVE) {
+            // the counter was removed from the map while adding the views
+            long lateViews = counter.claimLateViews();
+            if (lateViews > 0) {
+                addViews(bookmarkId, lateViews);
+            }
+        }
+    }
+
+    /**
+     * Get the views of the bookmark that have not been flushed to Redis
+     *
+     * @param bookmarkId ID of the bookmark
+     * @return pending views
+     */
+    public long getPendingViews(long bookmarkId) {
+        PendingViews counter = pendingViews.get(bookmarkId);
+        return counter == null ? 0L : Math.max(0L, counter.views.sum() - counter.flushed);
+    }
+
+    private long countAllPendingViews() {
+        return pendingViews.keySet().stream().mapToLong(this::getPendingViews).sum();
+    }
+
+    /**
+     * Drop the pending views and visitors of the deleted bookmark
+     *
+     * @param bookmarkId ID of the bookmark
+     */
+    public synchronized void discardPendingViews(long bookmarkId) {
+        pendingVisitors.remove(bookmarkId);
+        PendingViews counter = pendingViews.remove(bookmarkId);
+        if (counter != null) {
+            counter.claimed.set(DISCARDED);
+        }
+    }
+
+    /**
+     * Flush the pending views to Redis with pipelines
+     */
+    public synchronized void flush() {
+        List<FlushEntry> batch = new ArrayList<>(Math.min(pendingViews.size(), FLUSH_BATCH_SIZE));
+        int idleFlushesBeforeEviction = configProperties.getIdleFlushesBeforeEviction();
+        List<Long> idleBookmarkIds = new ArrayList<>();
+
+        for (Map.Entry<Long, PendingViews> entry : pendingViews.entrySet()) {
+            PendingViews counter = entry.getValue();
+            long total = counter.views.sum();
+            if (total > counter.flushed) {
+                counter.idleFlushes = 0;
+                batch.add(new FlushEntry(entry.getKey(), counter, total));
+                if (batch.size() >= FLUSH_BATCH_SIZE) {
+                    writeToRedis(batch);
+                    batch.clear();
+                }
+            } else if (++counter.idleFlushes >= idleFlushesBeforeEviction) {
+                idleBookmarkIds.add(entry.getKey());
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeToRedis(batch);
+        }
+
+        idleBookmarkIds.forEach(this::evict);
+
+        flushVisitors();
+    }
+
+    private void flushVisitors() {
+        Map<Long, Set<String>> batch = new LinkedHashMap<>();
+        for (Long bookmarkId : pendingVisitors.keySet()) {
+            Set<String> visitors = pendingVisitors.remove(bookmarkId);
+            if (visitors == null) {
+                continue;
+            }
+            batch.put(bookmarkId, visitors);
+            if (batch.size() >= FLUSH_BATCH_SIZE) {
+                writeVisitorsToRedis(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeVisitorsToRedis(batch);
+        }
+    }
+
+    private void writeVisitorsToRedis(Map<Long, Set<String>> batch) {
+        try {
+            viewStorageManager.addUniqueVisitors(batch);
+        } catch (RuntimeException e) {
+            // put them back, and they will be flushed again in the next flush
+            batch.forEach(this::addVisitors);
+            throw e;
+        }
+    }
+
+    private void writeToRedis(List<FlushEntry> batch) {
+        Map<Long, Long> bookmarkIdsAndViews = new LinkedHashMap<>(batch.size() * 2);
+        batch.forEach(entry -> bookmarkIdsAndViews.put(entry.bookmarkId, entry.total - entry.counter.flushed));
+        // If the pipeline fails, the views will be flushed again in the next flush
+        viewStorageManager.increaseViews(bookmarkIdsAndViews);
+        batch.forEach(entry -> entry.counter.flushed = entry.total);
+    }
+
+    private void evict(long bookmarkId) {
+        PendingViews counter = pendingViews.get(bookmarkId);
+        if (counter == null || counter.views.sum() > counter.flushed) {
+            return;
+        }
+        // writers that add views from now on will wait until the views are claimed
+        counter.claimed.set(RETIRING);
+        pendingViews.remove(bookmarkId, counter);
+        long total = counter.views.sum();
+        counter.claimed.set(total);
+        long lateViews = total - counter.flushed;
+        if (lateViews > 0) {
+            addViews(bookmarkId, lateViews);
+        }
+    }
+
+    /**
+     * Views of a bookmark
+     */
+    private static class PendingViews {
+
+        private final LongAdder views = new LongAdder();
+
+        /**
+         * Views that have been flushed to Redis
+         */
+        private volatile long flushed;
+
+        /**
+         * Consecutive flushes without new views
+         */
+        private int idleFlushes;
+
+        /**
+         * {@link #ACTIVE} or {@link #RETIRING} or {@link #DISCARDED},
+         * or the views that have been moved after the counter is removed from the map
+         */
+        private final AtomicLong claimed = new AtomicLong(ACTIVE);
+
+        /**
+         * Claim the views that are added after the counter is removed from the map
+         *
+         * @return views that should be added to the new counter
+         */
+        private long claimLateViews() {
+            // wait for the evicting thread to count the views
+            long current;
+            while ((current = claimed.get()) == RETIRING) {
+                Thread.yield();
+            }
+            while (true) {
+                long total = views.sum();
+                if (total <= current) {
+                    return 0L;
+                }
+                if (claimed.compareAndSet(current, total)) {
+                    return total - current;
+                }
+                current = claimed.get();
+            }
+        }
+    }
+
+    /**
+     * Views of a bookmark to flush
+     */
+    private static class FlushEntry {
+
+        private final long bookmarkId;
+        private final PendingViews counter;
+        private final long total;
+
+        private FlushEntry(long bookmarkId, PendingViews counter, long total) {
+            this.bookmarkId = bookmarkId;
+            this.counter = counter;
+            this.total = total;
+        }
+    }
+}
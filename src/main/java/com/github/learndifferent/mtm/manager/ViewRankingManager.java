@@ -0,0 +1,222 @@
+package com.github.learndifferent.mtm.manager;
+
+import com.github.learndifferent.mtm.constant.enums.VisitedWindow;
+import com.github.learndifferent.mtm.utils.RedisKeyUtils;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+/**
+ * View Ranking Manager
+ * <p>
+ * The views are added to the sorted set of the current hour and the sorted set of the current day (UTC)
+ * when they are flushed to Redis. The rankings of the sliding windows are the union of the buckets
+ * in the window, and the oldest bucket is weighted by the part of it that is still in the window.
+ * </p>
+ * <p>
+ * The union of each window is kept for a short time, so it's not computed for every request.
+ * The window that has no views is marked for the same time, since the union of empty buckets is not stored.
+ * </p>
+ *
+ * @author zhou
+ * @date 2023/10/15
+ */
+@Component
+@Slf4j
+public class ViewRankingManager {
+
+    private static final DateTimeFormatter HOUR_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyyMMddHH").withZone(ZoneOffset.UTC);
+
+    private static final DateTimeFormatter DAY_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+
+    /**
+     * The hourly buckets are kept for more than 24 hours for the last 24 hours ranking
+     */
+    private static final long HOURLY_BUCKET_TTL_SECONDS = Duration.ofHours(26L).getSeconds();
+
+    /**
+     * The daily buckets are kept for more than 7 days for the last 7 days ranking
+     */
+    private static final long DAILY_BUCKET_TTL_SECONDS = Duration.ofDays(8L).getSeconds();
+
+    /**
+     * Store the union of the buckets and set its TTL atomically, so the union never lives without a TTL,
+     * unless the union exists or the window is marked as empty. The keys are the union, the empty marker
+     * and the buckets, and the arguments are the TTL in seconds and the weights of the buckets.
+     * Return the number of bookmarks in the union.
+     */
+    private static final RedisScript<Long> UNION_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[2]) == 1 then return 0 end "
+                    + "local count = redis.call('zcard', KEYS[1]) "
+                    + "if count > 0 then return count end "
+                    + "local args = {KEYS[1], #KEYS - 2} "
+                    + "for i = 3, #KEYS do args[#args + 1] = KEYS[i] end "
+                    + "args[#args + 1] = 'WEIGHTS' "
+                    + "for i = 2, #ARGV do args[#args + 1] = ARGV[i] end "
+                    + "count = redis.call('zunionstore', unpack(args)) "
+                    + "if count > 0 then redis.call('expire', KEYS[1], ARGV[1]) "
+                    + "else redis.call('set', KEYS[2], '1', 'EX', ARGV[1]) end "
+                    + "return count",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Autowired
+    public ViewRankingManager(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Add the views to the buckets of now in the pipeline
+     *
+     * @param connection          connection of the pipeline
+     * @param bookmarkIdsAndViews key is the bookmark ID, value is the views to add
+     */
+    public void increaseViews(StringRedisConnection connection, Map<Long, Long> bookmarkIdsAndViews) {
+        increaseViews(connection, bookmarkIdsAndViews, Instant.now());
+    }
+
+    void increaseViews(StringRedisConnection connection, Map<Long, Long> bookmarkIdsAndViews, Instant now) {
+        String hourlyKey = RedisKeyUtils.getHourlyViewRankingKey(HOUR_FORMATTER.format(now));
+        String dailyKey = RedisKeyUtils.getDailyViewRankingKey(DAY_FORMATTER.format(now));
+        bookmarkIdsAndViews.forEach((bookmarkId, views) -> {
+            String member = String.valueOf(bookmarkId);
+            connection.zIncrBy(hourlyKey, views, member);
+            connection.zIncrBy(dailyKey, views, member);
+        });
+        connection.expire(hourlyKey, HOURLY_BUCKET_TTL_SECONDS);
+        connection.expire(dailyKey, DAILY_BUCKET_TTL_SECONDS);
+    }
+
+    /**
+     * Get the most visited bookmarks in the window
+     *
+     * @param window window, which should not be {@link VisitedWindow#ALL}
+     * @param from   from
+     * @param size   size
+     * @return bookmark IDs and their views in the window, in descending order of the views
+     */
+    public List<TypedTuple<String>> getRanking(VisitedWindow window, int from, int size) {
+        return getRanking(window, from, size, Instant.now());
+    }
+
+    List<TypedTuple<String>> getRanking(VisitedWindow window, int from, int size, Instant now) {
+        String key = RedisKeyUtils.getWindowViewRankingKey(window.window());
+        if (getOrCreateRanking(window, key, now) <= 0L) {
+            return Collections.emptyList();
+        }
+        Set<TypedTuple<String>> ranking = redisTemplate.opsForZSet()
+                .reverseRangeWithScores(key, from, from + size - 1L);
+        return ranking == null ? Collections.emptyList() : new ArrayList<>(ranking);
+    }
+
+    /**
+     * Remove the bookmark from the buckets of the last 7 days
+     *
+     * @param bookmarkId ID of the bookmark
+     */
+    public void removeBookmark(long bookmarkId) {
+        Instant now = Instant.now();
+        String member = String.valueOf(bookmarkId);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (int i = 0; i <= 24; i++) {
+                Instant hour = now.minus(i, ChronoUnit.HOURS);
+                stringConnection.zRem(RedisKeyUtils.getHourlyViewRankingKey(HOUR_FORMATTER.format(hour)), member);
+            }
+            for (int i = 0; i <= 7; i++) {
+                Instant day = now.minus(i, ChronoUnit.DAYS);
+                stringConnection.zRem(RedisKeyUtils.getDailyViewRankingKey(DAY_FORMATTER.format(day)), member);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Get the number of bookmarks in the union of the window, and store the union if it doesn't exist
+     *
+     * @param window window
+     * @param key    key of the union
+     * @param now    now
+     * @return number of bookmarks in the union
+     */
+    private long getOrCreateRanking(VisitedWindow window, String key, Instant now) {
+        List<String> buckets = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        long ttlSeconds;
+        switch (window) {
+            case LAST_HOUR:
+                addHourlyBuckets(now, 1, buckets, weights);
+                ttlSeconds = 30L;
+                break;
+            case LAST_DAY:
+                addHourlyBuckets(now, 24, buckets, weights);
+                ttlSeconds = 120L;
+                break;
+            case LAST_WEEK:
+                addDailyBuckets(now, buckets, weights);
+                ttlSeconds = 600L;
+                break;
+            default:
+                throw new IllegalArgumentException("No buckets for the window: " + window);
+        }
+
+        List<String> keys = new ArrayList<>(buckets.size() + 2);
+        keys.add(key);
+        keys.add(RedisKeyUtils.getEmptyWindowViewRankingKey(window.window()));
+        keys.addAll(buckets);
+        Object[] args = new Object[weights.size() + 1];
+        args[0] = String.valueOf(ttlSeconds);
+        for (int i = 0; i < weights.size(); i++) {
+            args[i + 1] = String.valueOf(weights.get(i));
+        }
+        Long count = redisTemplate.execute(UNION_SCRIPT, keys, args);
+        return count == null ? 0L : count;
+    }
+
+    /**
+     * The current hour and the previous {@code hours} hours,
+     * and the oldest one is weighted by the part that is still in the window
+     */
+    private void addHourlyBuckets(Instant now, int hours, List<String> buckets, List<Double> weights) {
+        Instant hourStart = now.truncatedTo(ChronoUnit.HOURS);
+        double passed = (double) Duration.between(hourStart, now).getSeconds() / Duration.ofHours(1L).getSeconds();
+        for (int i = 0; i <= hours; i++) {
+            Instant hour = hourStart.minus(i, ChronoUnit.HOURS);
+            buckets.add(RedisKeyUtils.getHourlyViewRankingKey(HOUR_FORMATTER.format(hour)));
+            weights.add(i == hours ? 1D - passed : 1D);
+        }
+    }
+
+    /**
+     * Today and the previous 7 days, and the oldest one is weighted by the part that is still in the window
+     */
+    private void addDailyBuckets(Instant now, List<String> buckets, List<Double> weights) {
+        Instant dayStart = now.truncatedTo(ChronoUnit.DAYS);
+        double passed = (double) Duration.between(dayStart, now).getSeconds() / Duration.ofDays(1L).getSeconds();
+        int days = 7;
+        for (int i = 0; i <= days; i++) {
+            Instant day = dayStart.minus(i, ChronoUnit.DAYS);
+            buckets.add(RedisKeyUtils.getDailyViewRankingKey(DAY_FORMATTER.format(day)));
+            weights.add(i == days ? 1D - passed : 1D);
+        }
+    }
+}
@@ -0,0 +1,572 @@
+package com.github.learndifferent.mtm.manager;
+
+import com.github.learndifferent.mtm.config.ViewCounterConfigProperties;
+import com.github.learndifferent.mtm.constant.consist.RedisConstant;
+import com.github.learndifferent.mtm.entity.ViewDataDO;
+import com.github.learndifferent.mtm.utils.RedisKeyUtils;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+/**
+ * View Storage Manager
+ * <p>
+ * The views of bookmarks are stored in {@link ViewCounterConfigProperties#getHashShards()} Redis hashes
+ * ({@link RedisConstant#VIEW_HASH_PREFIX} + shard), and the field is the bookmark ID.
+ * </p>
+ * <p>
+ * The views in the legacy layout ({@link RedisConstant#WEB_VIEW_COUNT_PREFIX} + bookmark ID
+ * and {@link RedisConstant#VIEW_KEY_SET}) are migrated to the hashes once when the application is ready,
+ * and they are still read until the migration is done. The nodes that don't migrate the views
+ * check if the migration is done by another node when they read the views.
+ * </p>
+ * <p>
+ * The IDs of the bookmarks whose views are increased are added to {@link RedisConstant#VIEW_DIRTY_SET},
+ * so that only the changed views are synced to the database.
+ * </p>
+ * <p>
+ * If {@link ViewCounterConfigProperties#isUniqueVisitorsEnabled()}, the visitors are added to
+ * the daily HyperLogLog of the bookmark, which is rolled up into the HyperLogLog of all visitors of the bookmark
+ * every day.
+ * </p>
+ *
+ * @author zhou
+ * @date 2023/9/30
+ */
+@Component
+@Slf4j
+public class ViewStorageManager {
+
+    /**
+     * Number of elements to scan in each iteration, and max number of keys to migrate in one batch
+     */
+    public static final int SCAN_COUNT = 1000;
+
+    private static final Duration MIGRATION_LOCK_TIMEOUT = Duration.ofMinutes(10L);
+
+    /**
+     * Interval to check if the migration is done by another node
+     */
+    private static final long MIGRATION_CHECK_INTERVAL_MILLIS = 10_000L;
+
+    /**
+     * Add the views of each legacy key to the hash and delete the legacy key atomically,
+     * so the views increased by the nodes still using the legacy layout are not lost.
+     * The keys are the legacy key and the hash key of each bookmark, and the arguments are the bookmark IDs.
+     * Return the number of migrated bookmarks.
+     */
+    private static final RedisScript<Long> MIGRATE_SCRIPT = new DefaultRedisScript<>(
+            "local migrated = 0 "
+                    + "for i = 1, #ARGV do "
+                    + "local value = redis.call('get', KEYS[2 * i - 1]) "
+                    + "if value == false then "
+                    + "migrated = migrated + 1 "
+                    + "elseif string.match(value, '^%-?%d+$') then "
+                    + "redis.call('hincrby', KEYS[2 * i], ARGV[i], value) "
+                    + "redis.call('del', KEYS[2 * i - 1]) "
+                    + "migrated = migrated + 1 "
+                    + "end "
+                    + "end "
+                    + "return migrated",
+            Long.class);
+
+    /**
+     * The daily visitors are kept for 3 days, so they can still be rolled up if the rollup of a day failed
+     */
+    private static final long DAILY_UNIQUE_VISITOR_TTL_SECONDS = Duration.ofDays(3L).getSeconds();
+
+    private final StringRedisTemplate redisTemplate;
+    private final int shards;
+    private final boolean uniqueVisitorsEnabled;
+    private final ViewRankingManager viewRankingManager;
+
+    /**
+     * True if there are no views in the legacy layout
+     */
+    private volatile boolean legacyViewsMigrated;
+
+    /**
+     * Time in milliseconds when the migration was checked
+     */
+    private volatile long migrationCheckedAt;
+
+    @Autowired
+    public ViewStorageManager(StringRedisTemplate redisTemplate,
+                              ViewCounterConfigProperties configProperties,
+                              ViewRankingManager viewRankingManager) {
+        this.redisTemplate = redisTemplate;
+        this.viewRankingManager = viewRankingManager;
+        this.shards = configProperties.getHashShards();
+        this.uniqueVisitorsEnabled = configProperties.isUniqueVisitorsEnabled();
+    }
+
+    public boolean isUniqueVisitorsEnabled() {
+        return uniqueVisitorsEnabled;
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    /**
+     * Check if there are no views in the legacy layout.
+     * <p>
+     * If another node is migrating the views, check if the migration is done at most once every 10 seconds.
+     * </p>
+     *
+     * @return true if the views in the legacy layout have been migrated
+     */
+    public boolean isLegacyViewsMigrated() {
+        if (legacyViewsMigrated) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now - migrationCheckedAt < MIGRATION_CHECK_INTERVAL_MILLIS) {
+            return false;
+        }
+        migrationCheckedAt = now;
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(RedisConstant.VIEW_MIGRATION_DONE))) {
+            legacyViewsMigrated = true;
+            log.info("[ViewStorage] Views in the legacy layout have been migrated");
+        }
+        return legacyViewsMigrated;
+    }
+
+    private String getHashKey(long bookmarkId) {
+        return RedisKeyUtils.getViewHashKey(RedisKeyUtils.getViewHashShard(bookmarkId, shards));
+    }
+
+    /**
+     * Increase the views of bookmarks, mark the bookmarks as dirty
+     * and add the views to the ranking buckets with one pipeline
+     *
+     * @param bookmarkIdsAndViews key is the bookmark ID, value is the views to add
+     */
+    public void increaseViews(Map<Long, Long> bookmarkIdsAndViews) {
+        if (bookmarkIdsAndViews.isEmpty()) {
+            return;
+        }
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            String[] bookmarkIds = new String[bookmarkIdsAndViews.size()];
+            int i = 0;
+            for (Map.Entry<Long, Long> entry : bookmarkIdsAndViews.entrySet()) {
+                bookmarkIds[i] = String.valueOf(entry.getKey());
+                stringConnection.hIncrBy(getHashKey(entry.getKey()), bookmarkIds[i], entry.getValue());
+                i++;
+            }
+            stringConnection.sAdd(RedisConstant.VIEW_DIRTY_SET, bookmarkIds);
+            viewRankingManager.increaseViews(stringConnection, bookmarkIdsAndViews);
+            return null;
+        });
+    }
+
+    /**
+     * Get the views of bookmarks stored in the hashes with one pipeline
+     *
+     * @param bookmarkIds IDs of the bookmarks
+     * @return key is the bookmark ID, value is the views. The bookmarks that have no views are not included.
+     */
+    public Map<Long, Long> getViews(List<Long> bookmarkIds) {
+        List<Object> values = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            bookmarkIds.forEach(id -> stringConnection.hGet(getHashKey(id), String.valueOf(id)));
+            return null;
+        });
+
+        Map<Long, Long> result = new LinkedHashMap<>(bookmarkIds.size() * 2);
+        for (int i = 0; i < bookmarkIds.size(); i++) {
+            Object views = values.get(i);
+            if (Objects.nonNull(views)) {
+                result.put(bookmarkIds.get(i), parseViews(views));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Add the visitors to the unique visitors of today with one pipeline
+     *
+     * @param bookmarkIdsAndVisitors key is the bookmark ID, value is the visitors
+     */
+    public void addUniqueVisitors(Map<Long, ? extends Collection<String>> bookmarkIdsAndVisitors) {
+        if (!uniqueVisitorsEnabled || bookmarkIdsAndVisitors.isEmpty()) {
+            return;
+        }
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        String bookmarksKey = RedisKeyUtils.getUniqueVisitorBookmarksKey(today);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            String[] bookmarkIds = new String[bookmarkIdsAndVisitors.size()];
+            int i = 0;
+            for (Map.Entry<Long, ? extends Collection<String>> entry : bookmarkIdsAndVisitors.entrySet()) {
+                String key = RedisKeyUtils.getDailyUniqueVisitorKey(entry.getKey(), today);
+                stringConnection.pfAdd(key, entry.getValue().toArray(new String[0]));
+                stringConnection.expire(key, DAILY_UNIQUE_VISITOR_TTL_SECONDS);
+                bookmarkIds[i++] = String.valueOf(entry.getKey());
+            }
+            stringConnection.sAdd(bookmarksKey, bookmarkIds);
+            stringConnection.expire(bookmarksKey, DAILY_UNIQUE_VISITOR_TTL_SECONDS);
+            // the unique visitors should be synced to the database
+            stringConnection.sAdd(RedisConstant.VIEW_DIRTY_SET, bookmarkIds);
+            return null;
+        });
+    }
+
+    /**
+     * Count the unique visitors of the bookmark
+     *
+     * @param bookmarkId ID of the bookmark
+     * @return unique visitors, or 0 if unique visitors are not enabled
+     */
+    public long countUniqueVisitors(long bookmarkId) {
+        if (!uniqueVisitorsEnabled) {
+            return 0L;
+        }
+        Long count = redisTemplate.opsForHyperLogLog().size(getUniqueVisitorKeys(bookmarkId));
+        return count == null ? 0L : count;
+    }
+
+    /**
+     * Set the unique visitors of the view data with one pipeline if unique visitors are enabled
+     *
+     * @param viewData view data
+     */
+    public void setUniqueVisitors(List<ViewDataDO> viewData) {
+        if (!uniqueVisitorsEnabled || viewData.isEmpty()) {
+            return;
+        }
+        List<Object> counts = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            viewData.forEach(data -> stringConnection.pfCount(getUniqueVisitorKeys(data.getBookmarkId())));
+            return null;
+        });
+        for (int i = 0; i < viewData.size(); i++) {
+            long count = parseViews(counts.get(i));
+            viewData.get(i).setUniqueVisitors((int) Math.min(count, Integer.MAX_VALUE));
+        }
+    }
+
+    /**
+     * The visitors of yesterday and today may not have been rolled up,
+     * and counting multiple HyperLogLogs returns the cardinality of their union
+     */
+    private String[] getUniqueVisitorKeys(long bookmarkId) {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        return new String[]{RedisKeyUtils.getUniqueVisitorKey(bookmarkId),
+                RedisKeyUtils.getDailyUniqueVisitorKey(bookmarkId, today),
+                RedisKeyUtils.getDailyUniqueVisitorKey(bookmarkId, today.minusDays(1L))};
+    }
+
+    /**
+     * Roll up the unique visitors of the day into the unique visitors of all time.
+     * <p>Merging HyperLogLogs is idempotent, so it's fine to roll up a day more than once.</p>
+     *
+     * @param date the day
+     * @return number of bookmarks that are rolled up
+     */
+    public long rollUpUniqueVisitors(LocalDate date) {
+        if (!uniqueVisitorsEnabled) {
+            return 0L;
+        }
+        String bookmarksKey = RedisKeyUtils.getUniqueVisitorBookmarksKey(date);
+        long count = 0L;
+        ScanOptions options = ScanOptions.scanOptions().count(SCAN_COUNT).build();
+        try (Cursor<String> cursor = redisTemplate.opsForSet().scan(bookmarksKey, options)) {
+            List<Long> bookmarkIds = new ArrayList<>(SCAN_COUNT);
+            while (cursor.hasNext()) {
+                bookmarkIds.add(Long.parseLong(cursor.next()));
+                if (bookmarkIds.size() >= SCAN_COUNT) {
+                    count += mergeUniqueVisitors(bookmarkIds, date);
+                    bookmarkIds.clear();
+                }
+            }
+            count += mergeUniqueVisitors(bookmarkIds, date);
+        } catch (IOException e) {
+            log.warn("[ViewStorage] Failed to close the cursor of {}", bookmarksKey, e);
+        }
+        redisTemplate.delete(bookmarksKey);
+        return count;
+    }
+
+    private int mergeUniqueVisitors(List<Long> bookmarkIds, LocalDate date) {
+        if (bookmarkIds.isEmpty()) {
+            return 0;
+        }
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            bookmarkIds.forEach(id -> {
+                String totalKey = RedisKeyUtils.getUniqueVisitorKey(id);
+                stringConnection.pfMerge(totalKey, totalKey, RedisKeyUtils.getDailyUniqueVisitorKey(id, date));
+            });
+            return null;
+        });
+        return bookmarkIds.size();
+    }
+
+    /**
+     * Move the dirty bookmarks to {@link RedisConstant#VIEW_SYNCING_SET} for syncing.
+     * <p>
+     * If the syncing set exists, which means the last sync was not finished,
+     * the syncing set will be synced first and the new dirty bookmarks will be synced next time.
+     * </p>
+     *
+     * @return true if there are bookmarks to sync
+     */
+    public boolean prepareDirtyBookmarksForSync() {
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(RedisConstant.VIEW_SYNCING_SET))) {
+            return true;
+        }
+        if (Boolean.FALSE.equals(redisTemplate.hasKey(RedisConstant.VIEW_DIRTY_SET))) {
+            return false;
+        }
+        return Boolean.TRUE.equals(
+                redisTemplate.renameIfAbsent(RedisConstant.VIEW_DIRTY_SET, RedisConstant.VIEW_SYNCING_SET));
+    }
+
+    /**
+     * Get the IDs of the bookmarks to sync
+     *
+     * @param count max number of the bookmark IDs
+     * @return IDs of the bookmarks, or an empty list if all bookmarks are synced
+     */
+    public List<Long> getBookmarkIdsToSync(int count) {
+        Set<String> ids = redisTemplate.opsForSet().distinctRandomMembers(RedisConstant.VIEW_SYNCING_SET, count);
+        if (ids == null) {
+            return Collections.emptyList();
+        }
+        List<Long> bookmarkIds = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            try {
+                bookmarkIds.add(Long.parseLong(id));
+            } catch (NumberFormatException e) {
+                log.warn("[ViewStorage] Invalid bookmark ID {} in the syncing set", id);
+                redisTemplate.opsForSet().remove(RedisConstant.VIEW_SYNCING_SET, id);
+            }
+        }
+        return bookmarkIds;
+    }
+
+    /**
+     * Remove the synced bookmarks from {@link RedisConstant#VIEW_SYNCING_SET}
+     *
+     * @param bookmarkIds IDs of the synced bookmarks
+     */
+    public void markSynced(List<Long> bookmarkIds) {
+        if (bookmarkIds.isEmpty()) {
+            return;
+        }
+        Object[] ids = bookmarkIds.stream().map(String::valueOf).toArray();
+        redisTemplate.opsForSet().remove(RedisConstant.VIEW_SYNCING_SET, ids);
+    }
+
+    /**
+     * Try to lock the delta sync, so that only one node syncs the changed views at the same time
+     *
+     * @param owner   owner of the lock
+     * @param timeout timeout of the lock
+     * @return true if locked
+     */
+    public boolean tryLockSync(String owner, Duration timeout) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue()
+                .setIfAbsent(RedisConstant.VIEW_SYNC_LOCK, owner, timeout));
+    }
+
+    public void unlockSync(String owner) {
+        if (owner.equals(redisTemplate.opsForValue().get(RedisConstant.VIEW_SYNC_LOCK))) {
+            redisTemplate.delete(RedisConstant.VIEW_SYNC_LOCK);
+        }
+    }
+
+    /**
+     * Set the views of bookmarks with one pipeline
+     *
+     * @param viewData views of bookmarks
+     */
+    public void setViews(Collection<ViewDataDO> viewData) {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            viewData.forEach(data -> stringConnection.hSet(getHashKey(data.getBookmarkId()),
+                    String.valueOf(data.getBookmarkId()), String.valueOf(data.getViews())));
+            return null;
+        });
+    }
+
+    /**
+     * Get the views of the bookmark stored in Redis
+     *
+     * @param bookmarkId ID of the bookmark
+     * @return views
+     */
+    public long getViews(long bookmarkId) {
+        Object views = redisTemplate.opsForHash().get(getHashKey(bookmarkId), String.valueOf(bookmarkId));
+        long result = parseViews(views);
+        if (!isLegacyViewsMigrated()) {
+            // views that have not been migrated
+            result += parseViews(redisTemplate.opsForValue().get(RedisConstant.WEB_VIEW_COUNT_PREFIX + bookmarkId));
+        }
+        return result;
+    }
+
+    private long parseViews(Object views) {
+        if (Objects.isNull(views)) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(views.toString());
+        } catch (NumberFormatException e) {
+            log.error("Cannot convert {} to views", views, e);
+            return 0L;
+        }
+    }
+
+    /**
+     * Check if there are no views stored in Redis
+     *
+     * @return true if there are no views
+     */
+    public boolean hasNoViews() {
+        List<String> keys = IntStream.range(0, shards)
+                .mapToObj(RedisKeyUtils::getViewHashKey)
+                .collect(Collectors.toList());
+        Long count = redisTemplate.countExistingKeys(keys);
+        boolean hasNoLegacyViews = isLegacyViewsMigrated()
+                || Boolean.FALSE.equals(redisTemplate.hasKey(RedisConstant.VIEW_KEY_SET));
+        return (count == null || count == 0L) && hasNoLegacyViews;
+    }
+
+    /**
+     * Scan the views in the shard.
+     * <p>The cursor should be closed after use.</p>
+     *
+     * @param shard shard
+     * @return cursor of the fields (bookmark IDs) and values (views)
+     */
+    public Cursor<Map.Entry<Object, Object>> scan(int shard) {
+        ScanOptions options = ScanOptions.scanOptions().count(SCAN_COUNT).build();
+        return redisTemplate.opsForHash().scan(RedisKeyUtils.getViewHashKey(shard), options);
+    }
+
+    /**
+     * Delete the views of the bookmark
+     *
+     * @param bookmarkId ID of the bookmark
+     */
+    public void deleteViews(long bookmarkId) {
+        redisTemplate.opsForHash().delete(getHashKey(bookmarkId), String.valueOf(bookmarkId));
+        if (uniqueVisitorsEnabled) {
+            // the daily unique visitors will expire
+            redisTemplate.delete(RedisKeyUtils.getUniqueVisitorKey(bookmarkId));
+        }
+        viewRankingManager.removeBookmark(bookmarkId);
+        if (!isLegacyViewsMigrated()) {
+            String legacyKey = RedisConstant.WEB_VIEW_COUNT_PREFIX + bookmarkId;
+            redisTemplate.delete(legacyKey);
+            redisTemplate.opsForSet().remove(RedisConstant.VIEW_KEY_SET, legacyKey);
+        }
+    }
+
+    /**
+     * Migrate the views in the legacy layout to the hashes.
+     * <p>
+     * Only one node migrates the views. The views are added to the hashes with HINCRBY,
+     * so the views increased during the migration are kept.
+     * Other nodes check if the migration is done when they read the views.
+     * </p>
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyViews() {
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(RedisConstant.VIEW_MIGRATION_DONE))) {
+            legacyViewsMigrated = true;
+            return;
+        }
+
+        String owner = UUID.randomUUID().toString();
+        Boolean locked = redisTemplate.opsForValue()
+                .setIfAbsent(RedisConstant.VIEW_MIGRATION_LOCK, owner, MIGRATION_LOCK_TIMEOUT);
+        if (!Boolean.TRUE.equals(locked)) {
+            log.info("[ViewStorage] Views in the legacy layout are being migrated by another node");
+            return;
+        }
+
+        log.info("[ViewStorage] Migrating views in the legacy layout to the hashes");
+        long migrated = 0L;
+        ScanOptions options = ScanOptions.scanOptions().count(SCAN_COUNT).build();
+        try (Cursor<String> cursor = redisTemplate.opsForSet().scan(RedisConstant.VIEW_KEY_SET, options)) {
+            List<String> keys = new ArrayList<>(SCAN_COUNT);
+            while (cursor.hasNext()) {
+                keys.add(cursor.next());
+                if (keys.size() >= SCAN_COUNT) {
+                    migrated += migrateLegacyKeys(keys);
+                    keys.clear();
+                }
+            }
+            migrated += migrateLegacyKeys(keys);
+
+            redisTemplate.delete(RedisConstant.VIEW_KEY_SET);
+            redisTemplate.opsForValue().set(RedisConstant.VIEW_MIGRATION_DONE, String.valueOf(migrated));
+            legacyViewsMigrated = true;
+            log.info("[ViewStorage] Migrated views of {} bookmarks", migrated);
+        } catch (IOException e) {
+            log.error("[ViewStorage] Failed to close the cursor", e);
+        } catch (Exception e) {
+            // the remaining views will be migrated when the application restarts
+            log.error("[ViewStorage] Failed to migrate views after migrating {} bookmarks", migrated, e);
+        } finally {
+            if (owner.equals(redisTemplate.opsForValue().get(RedisConstant.VIEW_MIGRATION_LOCK))) {
+                redisTemplate.delete(RedisConstant.VIEW_MIGRATION_LOCK);
+            }
+        }
+    }
+
+    private long migrateLegacyKeys(List<String> keys) {
+        int prefixLength = RedisConstant.WEB_VIEW_COUNT_PREFIX.length();
+        List<String> scriptKeys = new ArrayList<>(keys.size() * 2);
+        List<String> bookmarkIds = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            try {
+                long bookmarkId = Long.parseLong(key.substring(prefixLength));
+                scriptKeys.add(key);
+                scriptKeys.add(getHashKey(bookmarkId));
+                bookmarkIds.add(String.valueOf(bookmarkId));
+            } catch (Exception e) {
+                log.warn("[ViewStorage] Can't migrate views for key: {}", key, e);
+            }
+        }
+        if (bookmarkIds.isEmpty()) {
+            return 0L;
+        }
+
+        Long migrated = redisTemplate.execute(MIGRATE_SCRIPT, scriptKeys, bookmarkIds.toArray());
+        long result = migrated == null ? 0L : migrated;
+        if (result < bookmarkIds.size()) {
+            log.warn("[ViewStorage] Can't migrate views of {} bookmarks, which are not numbers",
+                    bookmarkIds.size() - result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,222 @@
+package com.github.learndifferent.mtm.manager;
+
+import com.github.learndifferent.mtm.config.IdGeneratorConfigProperties;
+import com.github.learndifferent.mtm.exception.ServiceException;
+import com.github.learndifferent.mtm.manager.id.SnowflakeIdGenerator;
+import com.github.learndifferent.mtm.manager.id.WorkerIdLeaseStore;
+import com.github.learndifferent.mtm.utils.UUIDUtils;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Snowflake Worker ID Lease Manager
+ * <p>
+ * Claim a unique worker ID from {@link WorkerIdLeaseStore} at startup,
+ * keep it alive with heartbeats and release it on shutdown.
+ * The IDs are generated locally by {@link SnowflakeIdGenerator},
+ * so getting an ID never waits for the lease store while the lease is fresh.
+ * </p>
+ * <p>
+ * If the lease hasn't been renewed for the lease time minus the safety margin (e.g. the lease store is down),
+ * the lease may expire and another node may lease the same worker ID. Then getting an ID renews the lease
+ * first, and fails if the lease still can't be renewed, rather than risking duplicate IDs.
+ * </p>
+ *
+ * @author zhou
+ * @date 2023/9/10
+ */
+@Component
+@Slf4j
+public class WorkerIdLeaseManager {
+
+    private final WorkerIdLeaseStore workerIdLeaseStore;
+
+    private final IdGeneratorConfigProperties idGeneratorConfigProperties;
+
+    /**
+     * Owner of the lease, which is unique for each node
+     */
+    private final String owner;
+
+    private final LongSupplier clock;
+
+    private volatile SnowflakeIdGenerator generator;
+
+    /**
+     * Time in milliseconds after which the worker ID should not be used unless the lease is renewed
+     */
+    private volatile long leaseFencedAt;
+
+    private ScheduledExecutorService heartbeatService;
+
+    @Autowired
+    public WorkerIdLeaseManager(WorkerIdLeaseStore workerIdLeaseStore,
+                                IdGeneratorConfigProperties idGeneratorConfigProperties) {
+        this(workerIdLeaseStore, idGeneratorConfigProperties, System::currentTimeMillis);
+    }
+
+    public WorkerIdLeaseManager(WorkerIdLeaseStore workerIdLeaseStore,
+                                IdGeneratorConfigProperties idGeneratorConfigProperties,
+                                LongSupplier clock) {
+        this.workerIdLeaseStore = workerIdLeaseStore;
+        this.idGeneratorConfigProperties = idGeneratorConfigProperties;
+        this.clock = clock;
+        this.owner = getHostName() + ":" + UUIDUtils.getUuid(8);
+    }
+
+    private String getHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+
+    /**
+     * Lease a worker ID and start the heartbeat
+     *
+     * @throws ServiceException if no worker ID is available
+     */
+    @PostConstruct
+    public void start() {
+        long leasedAt = clock.getAsLong();
+        long workerId = acquireWorkerId();
+        generator = new SnowflakeIdGenerator(workerId, -1L, clock);
+        leaseFencedAt = getLeaseFencedAt(leasedAt);
+
+        heartbeatService = new ScheduledThreadPoolExecutor(
+                // core pool size
+                1,
+                // thread factory
+                runnable -> {
+                    Thread thread = new Thread(runnable, "worker-id-lease-heartbeat-thread");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // renew the lease 3 times in each lease time
+        long heartbeatMillis = getLeaseMillis() / 3;
+        heartbeatService.scheduleAtFixedRate(this::renewLease, heartbeatMillis, heartbeatMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the heartbeat and release the worker ID
+     */
+    @PreDestroy
+    public void stop() {
+        if (heartbeatService != null) {
+            heartbeatService.shutdownNow();
+        }
+        SnowflakeIdGenerator current = generator;
+        if (current != null) {
+            workerIdLeaseStore.release(current.getWorkerId(), owner);
+            log.info("Released snowflake worker ID {} of {}", current.getWorkerId(), owner);
+        }
+    }
+
+    /**
+     * Renew the lease of the worker ID.
+     * If the lease is lost, lease a new worker ID and continue from the last timestamp.
+     */
+    public synchronized void renewLease() {
+        SnowflakeIdGenerator current = generator;
+        long workerId = current.getWorkerId();
+        // the lease in the store starts no earlier than this, so the lease is fenced before it expires
+        long renewedAt = clock.getAsLong();
+        try {
+            if (workerIdLeaseStore.renew(workerId, owner, getLeaseMillis())) {
+                leaseFencedAt = getLeaseFencedAt(renewedAt);
+                return;
+            }
+            log.warn("Lease of snowflake worker ID {} of {} is lost, leasing a new worker ID", workerId, owner);
+            long newWorkerId = acquireWorkerId();
+            generator = new SnowflakeIdGenerator(newWorkerId, current.getLastTimestamp(), clock);
+            leaseFencedAt = getLeaseFencedAt(renewedAt);
+        } catch (RuntimeException e) {
+            // keep using the current worker ID until the lease is fenced, and retry on the next heartbeat
+            log.error("Failed to renew the lease of snowflake worker ID {} of {}", workerId, owner, e);
+        }
+    }
+
+    private long getLeaseFencedAt(long renewedAt) {
+        long marginMillis = TimeUnit.SECONDS.toMillis(idGeneratorConfigProperties.getWorkerIdLeaseMarginSeconds());
+        return renewedAt + getLeaseMillis() - marginMillis;
+    }
+
+    /**
+     * Get the generator if the lease of its worker ID is fresh
+     *
+     * @return the generator
+     * @throws ServiceException if the lease may have expired and it can't be renewed
+     */
+    private SnowflakeIdGenerator getLeasedGenerator() {
+        if (clock.getAsLong() < leaseFencedAt) {
+            return generator;
+        }
+        // the heartbeats have failed, so renew the lease before generating any more IDs
+        renewLease();
+        if (clock.getAsLong() < leaseFencedAt) {
+            return generator;
+        }
+        throw new ServiceException("The lease of snowflake worker ID " + generator.getWorkerId()
+                + " may have expired and can't be renewed");
+    }
+
+    private long acquireWorkerId() {
+        long leaseMillis = getLeaseMillis();
+        long workerIdCount = SnowflakeIdGenerator.MAX_WORKER_ID + 1;
+        // start from a random worker ID to reduce conflicts when the nodes start at the same time
+        long start = ThreadLocalRandom.current().nextLong(workerIdCount);
+        for (long i = 0; i < workerIdCount; i++) {
+            long workerId = (start + i) % workerIdCount;
+            if (workerIdLeaseStore.tryAcquire(workerId, owner, leaseMillis)) {
+                log.info("Leased snowflake worker ID {} for {}", workerId, owner);
+                return workerId;
+            }
+        }
+        throw new ServiceException("No snowflake worker ID is available");
+    }
+
+    private long getLeaseMillis() {
+        return TimeUnit.SECONDS.toMillis(idGeneratorConfigProperties.getWorkerIdLeaseSeconds());
+    }
+
+    public long getWorkerId() {
+        return generator.getWorkerId();
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * Generate ID
+     *
+     * @return ID
+     * @throws ServiceException if the lease of the worker ID may have expired and it can't be renewed
+     */
+    public long nextId() {
+        return getLeasedGenerator().nextId();
+    }
+
+    /**
+     * Generate IDs
+     *
+     * @param count number of IDs
+     * @return IDs in ascending order
+     * @throws ServiceException if the lease of the worker ID may have expired and it can't be renewed
+     */
+    public long[] nextIds(int count) {
+        return getLeasedGenerator().nextIds(count);
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.learndifferent.mtm.manager.failover;
+
+import java.util.Arrays;
+
+/**
+ * Latencies and failures of the latest searches in a backend.
+ * <p>
+ * The window keeps a fixed number of the latest searches, and the oldest one is replaced when it is full.
+ * </p>
+ *
+ * @author zhou
+ * @date 2023/12/2
+ */
+public class LatencyWindow {
+
+    private final long[] latencies;
+
+    private final boolean[] failures;
+
+    /**
+     * Position of the next search
+     */
+    private int next;
+
+    private int size;
+
+    private int failureCount;
+
+    public LatencyWindow(int capacity) {
+        this.latencies = new long[capacity];
+        this.failures = new boolean[capacity];
+    }
+
+    /**
+     * Add the search to the window
+     *
+     * @param latencyNanos latency in nanoseconds
+     * @param failed       true if the search failed
+     */
+    public synchronized void add(long latencyNanos, boolean failed) {
+        if (size == latencies.length) {
+            if (failures[next]) {
+                failureCount--;
+            }
+        } else {
+            size++;
+        }
+        latencies[next] = latencyNanos;
+        failures[next] = failed;
+        if (failed) {
+            failureCount++;
+        }
+        next = (next + 1) % latencies.length;
+    }
+
+    /**
+     * Get the number of searches in the window
+     *
+     * @return number of searches
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Get the failure rate of the searches in the window
+     *
+     * @return failed searches / all searches, or 0 if the window is empty
+     */
+    public synchronized double failureRate() {
+        return size == 0 ? 0D : (double) failureCount / size;
+    }
+
+    /**
+     * Get the percentile of the latencies in the window
+     *
+     * @param percentile percentile between 0 and 1, such as 0.99
+     * @return the latency in nanoseconds that the given share of the searches are not slower than,
+     * or 0 if the window is empty
+     */
+    public synchronized long percentile(double percentile) {
+        if (size == 0) {
+            return 0L;
+        }
+        long[] sorted = Arrays.copyOf(latencies, size);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * size) - 1;
+        return sorted[Math.max(0, Math.min(index, size - 1))];
+    }
+
+    /**
+     * Remove all searches from the window
+     */
+    public synchronized void clear() {
+        next = 0;
+        size = 0;
+        failureCount = 0;
+        Arrays.fill(failures, false);
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.learndifferent.mtm.manager.id;
+
+import com.github.learndifferent.mtm.utils.RedisKeyUtils;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.BooleanUtils;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+/**
+ * Worker ID lease store backed by Redis.
+ * <p>
+ * Each worker ID is a key that stores the owner and expires with the lease.
+ * Renewing and releasing only take effect when the key is still owned by the owner.
+ * </p>
+ *
+ * @author zhou
+ * @date 2023/9/10
+ */
+@Component
+@RequiredArgsConstructor
+public class RedisWorkerIdLeaseStore implements WorkerIdLeaseStore {
+
+    private final StringRedisTemplate redisTemplate;
+
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then "
+                    + "return redis.call('pexpire', KEYS[1], ARGV[2]) "
+                    + "else return 0 end",
+            Long.class);
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then "
+                    + "return redis.call('del', KEYS[1]) "
+                    + "else return 0 end",
+            Long.class);
+
+    @Override
+    public boolean tryAcquire(long workerId, String owner, long leaseMillis) {
+        String key = RedisKeyUtils.getWorkerIdLeaseKey(workerId);
+        Boolean success = redisTemplate.opsForValue().setIfAbsent(key, owner, leaseMillis, TimeUnit.MILLISECONDS);
+        return BooleanUtils.isTrue(success);
+    }
+
+    @Override
+    public boolean renew(long workerId, String owner, long leaseMillis) {
+        String key = RedisKeyUtils.getWorkerIdLeaseKey(workerId);
+        Long result = redisTemplate.execute(RENEW_SCRIPT, Collections.singletonList(key),
+                owner, String.valueOf(leaseMillis));
+        return result != null && result == 1L;
+    }
+
+    @Override
+    public void release(long workerId, String owner) {
+        String key = RedisKeyUtils.getWorkerIdLeaseKey(workerId);
+        redisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(key), owner);
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.learndifferent.mtm.manager.id;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Snowflake ID generator with a leased worker ID.
+ * <p>
+ * The layout is the same as Hutool's snowflake: 41 bits timestamp (since {@link #EPOCH}),
+ * 10 bits worker ID (datacenter ID and worker ID) and 12 bits sequence,
+ * so the IDs are still greater than the IDs generated by Hutool before.
+ * </p>
+ * <p>
+ * The generator never waits for the clock.
+ * If the clock moves backwards, or the sequence of the current millisecond runs out,
+ * it keeps using the last timestamp and borrows the sequence from the next milliseconds,
+ * until the clock catches up with the borrowed timestamp.
+ * </p>
+ *
+ * @author zhou
+ * @date 2023/9/10
+ */
+public class SnowflakeIdGenerator {
+
+    /**
+     * Same as the default epoch of Hutool's snowflake
+     */
+    public static final long EPOCH = 1288834974657L;
+
+    private static final int WORKER_ID_BITS = 10;
+
+    private static final int SEQUENCE_BITS = 12;
+
+    private static final int TIMESTAMP_SHIFT = WORKER_ID_BITS + SEQUENCE_BITS;
+
+    public static final long MAX_WORKER_ID = ~(-1L << WORKER_ID_BITS);
+
+    private static final long SEQUENCE_MASK = ~(-1L << SEQUENCE_BITS);
+
+    private final long workerId;
+
+    private final LongSupplier clock;
+
+    /**
+     * The timestamp of the last ID, which may be ahead of the clock when borrowing
+     */
+    private long lastTimestamp;
+
+    private long sequence;
+
+    /**
+     * Create the generator
+     *
+     * @param workerId      worker ID
+     * @param lastTimestamp the last timestamp used by the previous generator on this node,
+     *                      so the IDs won't go backwards after changing the worker ID
+     * @param clock         clock in milliseconds
+     */
+    public SnowflakeIdGenerator(long workerId, long lastTimestamp, LongSupplier clock) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("Worker ID should be between 0 and " + MAX_WORKER_ID);
+        }
+        this.workerId = workerId;
+        this.lastTimestamp = lastTimestamp;
+        this.sequence = SEQUENCE_MASK;
+        this.clock = clock;
+    }
+
+    public SnowflakeIdGenerator(long workerId) {
+        this(workerId, -1L, System::currentTimeMillis);
+    }
+
+    public long getWorkerId() {
+        return workerId;
+    }
+
+    public synchronized long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    /**
+     * Generate ID
+     *
+     * @return ID
+     */
+    public synchronized long nextId() {
+        return generate();
+    }
+
+    /**
+     * Generate IDs with one lock
+     *
+     * @param count number of IDs
+     * @return IDs in ascending order
+     */
+    public synchronized long[] nextIds(int count) {
+        long[] ids = new long[Math.max(count, 0)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = generate();
+        }
+        return ids;
+    }
+
+    private long generate() {
+        long now = clock.getAsLong();
+        if (now > lastTimestamp) {
+            lastTimestamp = now;
+            sequence = 0L;
+        } else {
+            // the same millisecond, or the clock moved backwards
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0L) {
+                // the sequence of the last timestamp runs out, borrow the next millisecond
+                lastTimestamp++;
+            }
+        }
+        return ((lastTimestamp - EPOCH) << TIMESTAMP_SHIFT) | (workerId << SEQUENCE_BITS) | sequence;
+    }
+}
@@ -0,0 +1,43 @@
+package com.github.learndifferent.mtm.manager.id;
+
+/**
+ * Store of the snowflake worker ID leases.
+ * <p>
+ * A worker ID can only be leased by one owner (node) at a time.
+ * The lease expires if the owner doesn't renew it in time,
+ * so the worker ID of a crashed node can be claimed by another node.
+ * </p>
+ *
+ * @author zhou
+ * @date 2023/9/10
+ */
+public interface WorkerIdLeaseStore {
+
+    /**
+     * Try to lease the worker ID
+     *
+     * @param workerId    worker ID
+     * @param owner       owner of the lease
+     * @param leaseMillis lease time in milliseconds
+     * @return true if the worker ID is leased by the owner
+     */
+    boolean tryAcquire(long workerId, String owner, long leaseMillis);
+
+    /**
+     * Renew the lease of the worker ID
+     *
+     * @param workerId    worker ID
+     * @param owner       owner of the lease
+     * @param leaseMillis lease time in milliseconds
+     * @return true if renewed, false if the lease is not owned by the owner (e.g. the lease has expired)
+     */
+    boolean renew(long workerId, String owner, long leaseMillis);
+
+    /**
+     * Release the lease of the worker ID if it's owned by the owner
+     *
+     * @param workerId worker ID
+     * @param owner    owner of the lease
+     */
+    void release(long workerId, String owner);
+}
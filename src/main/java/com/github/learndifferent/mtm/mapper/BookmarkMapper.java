@@ -6,8 +6,10 @@ import com.github.learndifferent.mtm.dto.NewBookmarkDTO;
 import com.github.learndifferent.mtm.dto.PopularBookmarkDTO;
 import com.github.learndifferent.mtm.dto.search.WebForSearchDTO;
 import com.github.learndifferent.mtm.entity.BookmarkDO;
+import com.github.learndifferent.mtm.entity.UserIdAndCountDO;
 import com.github.learndifferent.mtm.vo.BookmarkVO;
 import com.github.learndifferent.mtm.vo.VisitedBookmarkVO;
+import java.util.Collection;
 import java.util.List;
 import org.apache.ibatis.annotations.Param;
 import org.springframework.stereotype.Repository;
@@ -46,11 +48,24 @@ public interface BookmarkMapper {
     List<PopularBookmarkDTO> getPopularPublicBookmarks(@Param("from") int from, @Param("size") int size);
 
     /**
-     * Get all public basic bookmark for search
+     * Get public basic bookmark data for search in ascending order of the URL,
+     * one document for each URL, which is the latest public bookmark of the URL
      *
+     * @param lastUrl the URLs after it will be returned (null if from the beginning)
+     * @param size    size
      * @return {@code List<WebForSearchDTO>}
      */
-    List<WebForSearchDTO> getAllPublicBasicWebDataForSearch();
+    List<WebForSearchDTO> getPublicBasicWebDataForSearchAfter(@Param("lastUrl") String lastUrl,
+                                                              @Param("size") int size);
+
+    /**
+     * Get public basic bookmark data for search of the URLs, one document for each URL,
+     * which is the latest public bookmark of the URL
+     *
+     * @param urls URLs
+     * @return {@code List<WebForSearchDTO>}, which doesn't contain the URLs that have no public bookmarks
+     */
+    List<WebForSearchDTO> getPublicBasicWebDataForSearchByUrls(@Param("urls") Collection<String> urls);
 
     /**
      * Get the count of public bookmarks for all users and private bookmarks for a specific user
@@ -109,6 +124,15 @@ public interface BookmarkMapper {
     int countUserBookmarks(@Param("userId") long userId,
                            @Param("shouldIncludePrivate") boolean shouldIncludePrivate);
 
+    /**
+     * Get the number of public bookmarks of the users with one query
+     *
+     * @param userIds user IDs
+     * @return user IDs and the number of public bookmarks,
+     * which doesn't contain the users who have no public bookmarks
+     */
+    List<UserIdAndCountDO> countPublicBookmarksOfUsers(@Param("userIds") Collection<Long> userIds);
+
     /**
      * Get public bookmarks of a user
      * <p>
@@ -197,6 +221,14 @@ public interface BookmarkMapper {
      */
     List<VisitedBookmarkVO> getVisitedBookmarks(@Param("from") int from, @Param("size") int size);
 
+    /**
+     * Get the bookmarks that are not deleted, without views
+     *
+     * @param bookmarkIds IDs of the bookmarks
+     * @return bookmarks
+     */
+    List<VisitedBookmarkVO> getVisitedBookmarksByIds(@Param("bookmarkIds") List<Long> bookmarkIds);
+
     /**
      * Search website data by keyword
      *
@@ -215,7 +247,32 @@ public interface BookmarkMapper {
      * @param keyword keyword
      * @return the number of website data
      */
-    long countWebDataByKeyword(String keyword);
+    long countWebDataByKeyword(@Param("keyword") String keyword);
+
+    /**
+     * Search website data by keyword in ascending order of the URL, one result for each URL,
+     * which is the latest public bookmark of the URL that matches the keyword
+     * <p>
+     * The URLs after the last URL are found with the index on the URL, so the deep pages cost the same
+     * as the first page.
+     * </p>
+     *
+     * @param keyword keyword
+     * @param lastUrl the URLs after it will be returned (null if from the beginning)
+     * @param size    size
+     * @return website data
+     */
+    List<WebForSearchDTO> searchWebDataByKeywordAfter(@Param("keyword") String keyword,
+                                                      @Param("lastUrl") String lastUrl,
+                                                      @Param("size") int size);
+
+    /**
+     * get the number of URLs of website data by keyword
+     *
+     * @param keyword keyword
+     * @return the number of URLs
+     */
+    long countUrlsOfWebDataByKeyword(@Param("keyword") String keyword);
 
     /**
      * Retrieve the bookmark by ID
@@ -22,6 +22,14 @@ public interface BookmarkViewMapper {
      */
     void addAll(@Param("set") Set<ViewDataDO> allViewData);
 
+    /**
+     * Insert the view data, or update the views if the bookmark already has view data
+     *
+     * @param viewData view data
+     * @return number of affected rows
+     */
+    int upsertAll(@Param("list") List<ViewDataDO> viewData);
+
     /**
      * Clear all view data
      *
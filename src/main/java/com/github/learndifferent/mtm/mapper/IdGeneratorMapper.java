@@ -31,7 +31,8 @@ public interface IdGeneratorMapper {
                                @Param("description") String description);
 
     /**
-     * Update the max ID or insert a new record if the record does not exist
+     * Update the max ID by adding the step and save the step,
+     * or insert a new record if the record does not exist
      *
      * @param bizTag               business tag
      * @param step                 step
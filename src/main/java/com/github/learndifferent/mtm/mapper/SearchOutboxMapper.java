@@ -0,0 +1,99 @@
+package com.github.learndifferent.mtm.mapper;
+
+import com.github.learndifferent.mtm.entity.SearchOutboxDO;
+import java.util.List;
+import org.apache.ibatis.annotations.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Search Outbox Mapper
+ * <p>
+ * The changes are added in the same transaction as the data, and they are sent to Elasticsearch by the relay.
+ * The changes are deleted after Elasticsearch acknowledges the writes.
+ * </p>
+ *
+ * @author zhou
+ * @date 2023/10/29
+ */
+@Repository
+public interface SearchOutboxMapper {
+
+    /**
+     * Add the changes
+     *
+     * @param indexName name of the Elasticsearch index
+     * @param docIds    IDs of the documents that have changed
+     * @return number of added changes
+     */
+    int addChanges(@Param("indexName") String indexName, @Param("docIds") List<String> docIds);
+
+    /**
+     * Add the change of the URL of the bookmark
+     *
+     * @param indexName  name of the Elasticsearch index of the bookmark data
+     * @param bookmarkId ID of the bookmark
+     * @return number of added changes
+     */
+    int addUrlChangeOfBookmark(@Param("indexName") String indexName, @Param("bookmarkId") long bookmarkId);
+
+    /**
+     * Add the changes of the tags of the bookmark
+     *
+     * @param indexName  name of the Elasticsearch index of the tag data
+     * @param bookmarkId ID of the bookmark
+     * @return number of added changes
+     */
+    int addTagChangesOfBookmark(@Param("indexName") String indexName, @Param("bookmarkId") long bookmarkId);
+
+    /**
+     * Add the changes of the URLs of the user's public bookmarks
+     *
+     * @param indexName name of the Elasticsearch index of the bookmark data
+     * @param userId    ID of the user
+     * @return number of added changes
+     */
+    int addUrlChangesOfUserBookmarks(@Param("indexName") String indexName, @Param("userId") long userId);
+
+    /**
+     * Add the changes of the tags of the user's public bookmarks
+     *
+     * @param indexName name of the Elasticsearch index of the tag data
+     * @param userId    ID of the user
+     * @return number of added changes
+     */
+    int addTagChangesOfUserBookmarks(@Param("indexName") String indexName, @Param("userId") long userId);
+
+    /**
+     * Get the oldest changes that have not been sent to Elasticsearch,
+     * or have not been acknowledged since they were sent
+     *
+     * @param size              max number of changes
+     * @param ackTimeoutSeconds the changes sent before this number of seconds ago are sent again
+     * @return changes in ascending order of the ID
+     */
+    List<SearchOutboxDO> getChanges(@Param("size") int size, @Param("ackTimeoutSeconds") long ackTimeoutSeconds);
+
+    /**
+     * Mark the changes as sent to Elasticsearch
+     *
+     * @param ids IDs of the changes
+     * @return number of marked changes
+     */
+    int markRelayed(@Param("ids") List<Long> ids);
+
+    /**
+     * Mark the changes as not sent, so they are sent again in the next relay
+     *
+     * @param ids IDs of the changes
+     * @return number of reset changes
+     */
+    int resetRelayTime(@Param("ids") List<Long> ids);
+
+    /**
+     * Delete the changes that have been applied to Elasticsearch
+     *
+     * @param ids IDs of the changes
+     * @return number of deleted changes
+     */
+    int deleteChanges(@Param("ids") List<Long> ids);
+}
@@ -3,6 +3,7 @@ package com.github.learndifferent.mtm.mapper;
 import com.github.learndifferent.mtm.dto.search.TagForSearchDTO;
 import com.github.learndifferent.mtm.entity.TagAndCountDO;
 import com.github.learndifferent.mtm.entity.TagDO;
+import java.util.Collection;
 import java.util.List;
 import org.apache.ibatis.annotations.Param;
 import org.springframework.stereotype.Repository;
@@ -85,11 +86,23 @@ public interface TagMapper {
     void deleteAllTagsByBookmarkId(long bookmarkId);
 
     /**
-     * Get all the tags and count the numbers of public bookmarks
+     * Get the tags and count the numbers of public bookmarks in ascending order of the tag
      *
+     * @param lastTag the tags after it will be returned (null if from the beginning)
+     * @param size    size
      * @return a list of tags and count the numbers of public bookmarks
      */
-    List<TagAndCountDO> getAllTagsAndCountOfPublicBookmarks();
+    List<TagAndCountDO> getTagsAndCountOfPublicBookmarksAfter(@Param("lastTag") String lastTag,
+                                                              @Param("size") int size);
+
+    /**
+     * Get the tags and count the numbers of public bookmarks
+     *
+     * @param tags tags
+     * @return a list of tags and count the numbers of public bookmarks,
+     * which doesn't contain the tags that have no public bookmarks
+     */
+    List<TagAndCountDO> getTagsAndCountOfPublicBookmarksByTags(@Param("tags") Collection<String> tags);
 
     /**
      * Get popular tags
@@ -7,6 +7,7 @@ import com.github.learndifferent.mtm.dto.UserIdAndUsernameDTO;
 import com.github.learndifferent.mtm.dto.search.UserForSearchWithMoreInfo;
 import com.github.learndifferent.mtm.entity.UserDO;
 import com.github.learndifferent.mtm.vo.UserBookmarkNumberVO;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -51,6 +52,23 @@ public interface UserMapper {
      */
     List<UserDO> getUsers(@Param("from") Integer from, @Param("size") Integer size);
 
+    /**
+     * Get users in ascending order of the ID
+     *
+     * @param lastId the users whose ID is greater than it will be returned (null if from the beginning)
+     * @param size   size
+     * @return {@link List}<{@link UserDO}> users
+     */
+    List<UserDO> getUsersAfter(@Param("lastId") Long lastId, @Param("size") int size);
+
+    /**
+     * Get users by IDs
+     *
+     * @param ids IDs of the users
+     * @return {@link List}<{@link UserDO}> users, which doesn't contain the deleted users
+     */
+    List<UserDO> getUsersByIds(@Param("ids") Collection<Long> ids);
+
     /**
      * Count the number of users
      *
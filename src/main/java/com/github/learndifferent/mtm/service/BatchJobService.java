@@ -1,5 +1,6 @@
 package com.github.learndifferent.mtm.service;
 
+import com.github.learndifferent.mtm.constant.enums.ResultCode;
 import com.github.learndifferent.mtm.vo.BatchJobVO;
 
 /**
@@ -16,4 +17,17 @@ public interface BatchJobService {
      * @return {@link BatchJobVO}
      */
     BatchJobVO updateBookmarkView();
-}
\ No newline at end of file
+
+    /**
+     * Restart the failed job of updating bookmark views.
+     * <p>
+     * Only the failed partitions will be run again, and each of them restarts from the shard it was reading.
+     * </p>
+     *
+     * @param jobExecutionId ID of the failed job execution
+     * @return {@link BatchJobVO}
+     * @throws com.github.learndifferent.mtm.exception.ServiceException {@link ResultCode#BATCH_JOB_ERROR}
+     *                                                                  if the job can't be restarted
+     */
+    BatchJobVO restartUpdateBookmarkView(long jobExecutionId);
+}
@@ -8,6 +8,7 @@ import com.github.learndifferent.mtm.constant.enums.Order;
 import com.github.learndifferent.mtm.constant.enums.OrderField;
 import com.github.learndifferent.mtm.constant.enums.Privacy;
 import com.github.learndifferent.mtm.constant.enums.ResultCode;
+import com.github.learndifferent.mtm.constant.enums.VisitedWindow;
 import com.github.learndifferent.mtm.dto.PageInfoDTO;
 import com.github.learndifferent.mtm.exception.ServiceException;
 import com.github.learndifferent.mtm.query.BasicWebDataRequest;
@@ -68,8 +69,8 @@ public interface BookmarkService {
      *                      be added to the database and ElasticSearch
      *                      </p>
      *                      <p>
-     *                      Note that this value will be ignored if this is a private bookmark
-     *                      because only public data can be added to Elasticsearch
+     *                      This value is no longer used, because public bookmarks are always added to Elasticsearch
+     *                      through the search outbox, and private data is never added to Elasticsearch
      *                      </p>
      * @return {@link ResultVO}<{@link BookmarkingResultVO}> The result of bookmarking a new web page
      * @throws ServiceException Exception will be thrown with the result code of {@link ResultCode#URL_MALFORMED},
@@ -218,4 +219,18 @@ public interface BookmarkService {
      * @return visited bookmarks
      */
     List<VisitedBookmarkVO> getVisitedBookmarks(PageInfoDTO pageInfo);
+
+    /**
+     * Get the most visited bookmarks in the window
+     * <p>
+     * The views of {@link VisitedWindow#ALL} are read from database by {@link #getVisitedBookmarks(PageInfoDTO)},
+     * and the views of the other windows are read from the time-bucketed rankings in Redis,
+     * which are up to date after the views are flushed from memory.
+     * </p>
+     *
+     * @param pageInfo pagination information
+     * @param window   the window of the views
+     * @return visited bookmarks, and the views are the views in the window
+     */
+    List<VisitedBookmarkVO> getVisitedBookmarks(PageInfoDTO pageInfo, VisitedWindow window);
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.github.learndifferent.mtm.service;
 
+import com.github.learndifferent.mtm.vo.IdGeneratorMetricsVO;
+
 /**
  * ID Generator Service
  *
@@ -31,4 +33,35 @@ public interface IdGeneratorService {
      * @return ID
      */
     long generateId(String tag, String tableName, String primaryKeyColumnName);
-}
\ No newline at end of file
+
+    /**
+     * Reserve IDs in one call
+     *
+     * @param count number of IDs
+     * @return IDs, or an empty array if the count is not positive
+     */
+    long[] reserveIds(int count);
+
+    /**
+     * Reserve IDs of the business tag in one call.
+     * <p>
+     * The IDs are taken from the current segment at once.
+     * If the current segment doesn't have enough IDs, the rest are taken from the next segment,
+     * so the IDs are in ascending order but may not be contiguous.
+     * </p>
+     *
+     * @param tag                  business tag
+     * @param tableName            table name
+     * @param primaryKeyColumnName primary key column name
+     * @param count                number of IDs
+     * @return IDs, or an empty array if the count is not positive
+     */
+    long[] reserveIds(String tag, String tableName, String primaryKeyColumnName, int count);
+
+    /**
+     * Get the metrics of the ID generator
+     *
+     * @return metrics of each business tag and the executor that updates the segments
+     */
+    IdGeneratorMetricsVO getMetrics();
+}
@@ -3,7 +3,12 @@ package com.github.learndifferent.mtm.service;
 import com.github.learndifferent.mtm.constant.enums.SearchMode;
 import com.github.learndifferent.mtm.dto.PageInfoDTO;
 import com.github.learndifferent.mtm.dto.search.SearchResultsDTO;
+import com.github.learndifferent.mtm.vo.ReindexProgressVO;
+import com.github.learndifferent.mtm.vo.SearchCacheMetricsVO;
+import com.github.learndifferent.mtm.vo.SuggestionVO;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Search and trending searches
@@ -56,16 +61,29 @@ public interface SearchService {
      *             generate bookmark data   if t{@link SearchMode#WEB},
      *             and generate tag data if {@link SearchMode#TAG}.
      *             The default mode is {@link SearchMode#WEB}.
-     * @return true if success
+     * @return true if the generation is started in the background, false if the data is being generated
      */
     boolean generateDataForElasticsearchBasedOnDatabase(SearchMode mode);
 
+    /**
+     * Get the progress of data generation for Elasticsearch
+     *
+     * @param mode get the progress of user data if {@link SearchMode#USER},
+     *             bookmark data if {@link SearchMode#WEB}
+     *             and tag data if {@link SearchMode#TAG}
+     * @return progress
+     */
+    ReindexProgressVO getGenerationProgress(SearchMode mode);
+
     /**
      * Search
      * <p>
      * Add the keyword to trending list if the search mode is {@link SearchMode#WEB}
      * or {@link SearchMode#BOOKMARK_MYSQL}.
      * </p>
+     * <p>
+     * It waits for the results of {@link #searchAsync(SearchMode, String, PageInfoDTO, Integer, Integer)}.
+     * </p>
      *
      * @param mode      Search for users in Elasticsearch if the search mode is {@link SearchMode#USER},
      *                  search for bookmarked websites in Elasticsearch if the search mode is {@link SearchMode#WEB},
@@ -87,6 +105,78 @@ public interface SearchService {
      */
     SearchResultsDTO search(SearchMode mode, String keyword, PageInfoDTO pageInfo, Integer rangeFrom, Integer rangeTo);
 
+    /**
+     * Search without blocking the current thread while waiting for Elasticsearch
+     * <p>
+     * The searches in Elasticsearch are sent with the async client and the future is completed when
+     * the response arrives. The searches in MySQL are done in the search task executor.
+     * </p>
+     * <p>
+     * The results are cached until the data of the index changes, and the cached results are returned
+     * in a completed future.
+     * </p>
+     *
+     * @param mode      search mode, which is the same as {@link #search(SearchMode, String, PageInfoDTO, Integer,
+     *                  Integer)}
+     * @param keyword   keyword
+     * @param pageInfo  pagination information
+     * @param rangeFrom lower range value for range query if the search mode is {@link SearchMode#TAG}. Null indicates
+     *                  unbounded.
+     * @param rangeTo   upper range value for range query if the search mode is {@link SearchMode#TAG}. Null indicates
+     *                  unbounded.
+     * @return {@link CompletableFuture}<{@link SearchResultsDTO}> Search results. The future is completed
+     * exceptionally with {@link com.github.learndifferent.mtm.exception.ServiceException} if there are no results
+     * (result code {@link com.github.learndifferent.mtm.constant.enums.ResultCode#NO_RESULTS_FOUND})
+     * or if unable to connect to Elasticsearch
+     * (result code {@link com.github.learndifferent.mtm.constant.enums.ResultCode#CONNECTION_ERROR}).
+     */
+    CompletableFuture<SearchResultsDTO> searchAsync(SearchMode mode,
+                                                    String keyword,
+                                                    PageInfoDTO pageInfo,
+                                                    Integer rangeFrom,
+                                                    Integer rangeTo);
+
+    /**
+     * Search by cursor, so the deep pages cost the same as the first page
+     * <p>
+     * Only bookmarks can be paginated by cursor. The bookmarks in Elasticsearch are paginated with
+     * "search_after" in the same version of the index, and the bookmarks in MySQL are paginated by the URL.
+     * The results are not cached.
+     * </p>
+     * <p>
+     * It waits for the results of {@link #searchByCursorAsync(SearchMode, String, String, int)}.
+     * </p>
+     *
+     * @param mode    search for bookmarked websites in Elasticsearch if the search mode is {@link SearchMode#WEB},
+     *                and search for bookmarks in MySQL if the search mode is {@link SearchMode#BOOKMARK_MYSQL}
+     * @param keyword keyword
+     * @param cursor  cursor returned with the previous page, or null to get the first page
+     * @param size    size
+     * @return {@link SearchResultsDTO} Search results with the cursor of the next page, which is null if there
+     * are no more results. The total count and total pages are only returned with the first page.
+     * @throws com.github.learndifferent.mtm.exception.ServiceException an exception with the result code of
+     *                                                                  {@link com.github.learndifferent.mtm.constant.enums.ResultCode#SEARCH_CURSOR_INVALID
+     *                                                                  SEARCH_CURSOR_INVALID} will be thrown if the
+     *                                                                  cursor is invalid or expired, and
+     *                                                                  {@link com.github.learndifferent.mtm.constant.enums.ResultCode#SEARCH_CURSOR_NOT_SUPPORTED
+     *                                                                  SEARCH_CURSOR_NOT_SUPPORTED} if the search
+     *                                                                  mode is not for bookmarks
+     */
+    SearchResultsDTO searchByCursor(SearchMode mode, String keyword, String cursor, int size);
+
+    /**
+     * Search by cursor without blocking the current thread while waiting for Elasticsearch
+     *
+     * @param mode    search mode, which is the same as {@link #searchByCursor(SearchMode, String, String, int)}
+     * @param keyword keyword
+     * @param cursor  cursor returned with the previous page, or null to get the first page
+     * @param size    size
+     * @return {@link CompletableFuture}<{@link SearchResultsDTO}> Search results with the cursor of the next page.
+     * The future is completed exceptionally with {@link com.github.learndifferent.mtm.exception.ServiceException}
+     * if the search fails.
+     */
+    CompletableFuture<SearchResultsDTO> searchByCursorAsync(SearchMode mode, String keyword, String cursor, int size);
+
     /**
      * Get top 20 trending keywords
      *
@@ -109,4 +199,23 @@ public interface SearchService {
      * @return true if success
      */
     boolean deleteTrending();
+
+    /**
+     * Get the metrics of the search result cache
+     *
+     * @return metrics of the search result cache
+     */
+    SearchCacheMetricsVO getCacheMetrics();
+
+    /**
+     * Get the autocomplete suggestions of the prefix from memory
+     *
+     * @param mode   suggest tags if the search mode is {@link SearchMode#TAG} or {@link SearchMode#TAG_MYSQL},
+     *               and usernames if the search mode is {@link SearchMode#USER} or {@link SearchMode#USER_MYSQL}.
+     *               There are no suggestions for bookmarks.
+     * @param prefix prefix
+     * @param size   max number of suggestions
+     * @return suggestions ordered by the number of public bookmarks for tags, and by length for usernames
+     */
+    List<SuggestionVO> suggest(SearchMode mode, String prefix, int size);
 }
\ No newline at end of file
@@ -14,8 +14,8 @@ public interface ViewCounterService {
     /**
      * Increase the number of views of a bookmark.
      * <p>
-     * This will increment the number of views of the bookmark that stores in Redis
-     * and will add the key that stores this view data to a set in Redis.
+     * The views are aggregated in memory first, and then they will be flushed to Redis periodically,
+     * which will increment the number of views of the bookmark that stores in a Redis hash.
      * </p>
      *
      * @param bookmarkId ID of the bookmark
@@ -23,13 +23,33 @@ public interface ViewCounterService {
     void increaseViewsAndAddToSet(Long bookmarkId);
 
     /**
-     * Count the number of views of a bookmark stored in Redis
+     * Increase the number of views of a bookmark,
+     * and add the visitor to the unique visitors of the bookmark if unique visitors are enabled.
+     *
+     * @param bookmarkId ID of the bookmark
+     * @param visitor    user ID, or IP for Guest
+     * @see #increaseViewsAndAddToSet(Long)
+     */
+    void increaseViewsAndAddToSet(Long bookmarkId, String visitor);
+
+    /**
+     * Count the number of views of a bookmark stored in Redis,
+     * including the views that have not been flushed to Redis
      *
      * @param bookmarkId ID of the bookmark
      * @return views
      */
     int countViews(Long bookmarkId);
 
+    /**
+     * Count the number of unique visitors of a bookmark, which is estimated by HyperLogLog
+     * and doesn't include the visitors that have not been flushed to Redis
+     *
+     * @param bookmarkId ID of the bookmark
+     * @return unique visitors, or 0 if unique visitors are not enabled
+     */
+    int countUniqueVisitors(Long bookmarkId);
+
     /**
      * Save the numbers of views from Redis to the database,
      * or add the view data from database to Redis if the Redis has no view data.
@@ -38,8 +58,19 @@ public interface ViewCounterService {
      * if the method saved the numbers of views from Redis to the database
      * </p>
      *
-     * @return Return a list of keys that failed to save
+     * @return Return a list of bookmark IDs that failed to save
      * @see BookmarkService#getVisitedBookmarks(PageInfoDTO)
      */
     List<String> updateViewsAndReturnFailKeys();
-}
\ No newline at end of file
+
+    /**
+     * Save the numbers of views of the bookmarks whose views have changed since the last sync to the database.
+     * <p>
+     * This will also delete the value of the key "bookmarks:visited" stored in cache
+     * if any views are saved to the database
+     * </p>
+     *
+     * @return number of bookmarks whose views are saved
+     */
+    int syncChangedViewsToDb();
+}
@@ -14,6 +14,7 @@ import org.springframework.batch.core.JobParameter;
 import org.springframework.batch.core.JobParameters;
 import org.springframework.batch.core.JobParametersBuilder;
 import org.springframework.batch.core.JobParametersInvalidException;
+import org.springframework.batch.core.explore.JobExplorer;
 import org.springframework.batch.core.launch.JobLauncher;
 import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
 import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
@@ -33,21 +34,38 @@ import org.springframework.stereotype.Service;
 public class BatchJobServiceImpl implements BatchJobService {
 
     private final JobLauncher jobLauncher;
+    private final JobExplorer jobExplorer;
     private final Job bookmarkViewBatchJob;
 
     public static final long TWELVE_HOURS = 43_200_000L;
 
     public BatchJobServiceImpl(JobLauncher jobLauncher,
+                               JobExplorer jobExplorer,
                                @Qualifier(BookmarkViewBatchConfig.JOB_NAME) Job bookmarkViewBatchJob) {
         this.jobLauncher = jobLauncher;
+        this.jobExplorer = jobExplorer;
         this.bookmarkViewBatchJob = bookmarkViewBatchJob;
     }
 
     @Override
     public BatchJobVO updateBookmarkView() {
+        return runBookmarkViewJob(getTimestampJobParameters());
+    }
 
-        JobParameters parameters = getTimestampJobParameters();
+    @Override
+    public BatchJobVO restartUpdateBookmarkView(long jobExecutionId) {
+        JobExecution failedExecution = jobExplorer.getJobExecution(jobExecutionId);
+        boolean isBookmarkViewJob = failedExecution != null
+                && BookmarkViewBatchConfig.JOB_NAME.equals(failedExecution.getJobInstance().getJobName());
+        if (!isBookmarkViewJob) {
+            log.warn("[BatchJobService] Can't find the job execution {} of updating bookmark views", jobExecutionId);
+            throw new ServiceException(ResultCode.BATCH_JOB_ERROR);
+        }
+        // running the job with the same parameters restarts the failed job instance
+        return runBookmarkViewJob(failedExecution.getJobParameters());
+    }
 
+    private BatchJobVO runBookmarkViewJob(JobParameters parameters) {
         try {
             log.info("[BatchJobService] Starting batch job with parameters: {}", parameters);
 
@@ -67,6 +85,7 @@ public class BatchJobServiceImpl implements BatchJobService {
 
             return BatchJobVO.builder()
                     .jobId(jobId)
+                    .jobExecutionId(execution.getId())
                     .jobInstanceId(instanceId)
                     .jobParameters(jobParametersMap)
                     .exitCode(exitCode)
@@ -1,6 +1,5 @@
 package com.github.learndifferent.mtm.service.impl;
 
-import static com.github.learndifferent.mtm.constant.enums.AddDataMode.ADD_TO_DATABASE_AND_ELASTICSEARCH;
 import static com.github.learndifferent.mtm.constant.enums.Privacy.PUBLIC;
 
 import com.github.learndifferent.mtm.annotation.modify.webdata.WebsiteDataClean;
@@ -18,6 +17,7 @@ import com.github.learndifferent.mtm.constant.enums.Order;
 import com.github.learndifferent.mtm.constant.enums.OrderField;
 import com.github.learndifferent.mtm.constant.enums.Privacy;
 import com.github.learndifferent.mtm.constant.enums.ResultCode;
+import com.github.learndifferent.mtm.constant.enums.VisitedWindow;
 import com.github.learndifferent.mtm.dto.BasicWebDataDTO;
 import com.github.learndifferent.mtm.dto.BasicWebDataDTO.BasicWebDataDTOBuilder;
 import com.github.learndifferent.mtm.dto.BookmarkFilterDTO;
@@ -28,8 +28,9 @@ import com.github.learndifferent.mtm.entity.BookmarkDO;
 import com.github.learndifferent.mtm.exception.ServiceException;
 import com.github.learndifferent.mtm.manager.DeleteTagManager;
 import com.github.learndifferent.mtm.manager.DeleteViewManager;
-import com.github.learndifferent.mtm.manager.SearchManager;
+import com.github.learndifferent.mtm.manager.SearchOutboxManager;
 import com.github.learndifferent.mtm.manager.UserManager;
+import com.github.learndifferent.mtm.manager.ViewRankingManager;
 import com.github.learndifferent.mtm.mapper.BookmarkMapper;
 import com.github.learndifferent.mtm.query.BasicWebDataRequest;
 import com.github.learndifferent.mtm.query.UsernamesRequest;
@@ -51,12 +52,14 @@ import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
@@ -67,7 +70,10 @@ import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -83,13 +89,14 @@ import org.springframework.web.multipart.MultipartFile;
 public class BookmarkServiceImpl implements BookmarkService {
 
     private final BookmarkMapper bookmarkMapper;
-    private final SearchManager searchManager;
+    private final SearchOutboxManager searchOutboxManager;
     private final DeleteViewManager deleteViewManager;
     private final DeleteTagManager deleteTagManager;
     private final HomeTimelineStrategyContext homeTimelineStrategyContext;
     private final UserManager userManager;
     private final WebScraperProcessorFacade webScraperProcessorFacade;
     private final IdGeneratorService idGeneratorService;
+    private final ViewRankingManager viewRankingManager;
 
     @Override
     public List<BookmarkVO> filterPublicBookmarks(UsernamesRequest usernames,
@@ -117,12 +124,42 @@ public class BookmarkServiceImpl implements BookmarkService {
      *                          if something goes wrong.
      */
     @WebsiteDataClean
+    @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
     public boolean bookmarkWithBasicWebData(BasicWebDataDTO data, long userId, Privacy privacy) {
         userManager.checkIfUserBookmarked(userId, data.getUrl());
 
         long id = idGeneratorService.generateId();
+        return addBookmark(data, id, userId, privacy);
+    }
+
+    /**
+     * Convert the basic website data into a bookmark with the ID that has been reserved
+     *
+     * @param data    Basic website data that contains title, URL, image and description
+     * @param id      ID of the bookmark
+     * @param userId  User ID of the user who is bookmarking
+     * @param privacy {@link Privacy#PUBLIC} if this is a public bookmark and
+     *                {@link Privacy#PRIVATE} if this is private
+     * @return true if success
+     * @throws ServiceException Throw exceptions with the result code of {@link ResultCode#ALREADY_SAVED},
+     *                          {@link ResultCode#PERMISSION_DENIED} and {@link ResultCode#URL_MALFORMED}
+     *                          if something goes wrong.
+     */
+    @WebsiteDataClean
+    @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
+    public boolean bookmarkWithBasicWebData(BasicWebDataDTO data, long id, long userId, Privacy privacy) {
+        userManager.checkIfUserBookmarked(userId, data.getUrl());
+        return addBookmark(data, id, userId, privacy);
+    }
+
+    private boolean addBookmark(BasicWebDataDTO data, long id, long userId, Privacy privacy) {
         NewBookmarkDTO newBookmark = NewBookmarkDTO.of(data, id, userId, privacy);
-        return bookmarkMapper.addBookmark(newBookmark);
+        boolean success = bookmarkMapper.addBookmark(newBookmark);
+        if (success && PUBLIC.equals(privacy)) {
+            // only public bookmarks are searchable
+            searchOutboxManager.recordUrlChange(newBookmark.getUrl());
+        }
+        return success;
     }
 
     @Override
@@ -132,28 +169,12 @@ public class BookmarkServiceImpl implements BookmarkService {
 
         BasicWebDataDTO basic = webScraperProcessorFacade.process(request);
 
-        // Only public data can be added to Elasticsearch
-        boolean shouldAddToDatabaseAndElasticsearch = PUBLIC.equals(privacy)
-                && ADD_TO_DATABASE_AND_ELASTICSEARCH.equals(mode);
-
-        return shouldAddToDatabaseAndElasticsearch
-                ? saveToElasticsearchAndDatabase(currentUserId, basic)
-                : saveToDatabase(currentUserId, basic, privacy);
-    }
-
-    private BookmarkingResultVO saveToElasticsearchAndDatabase(long userId, BasicWebDataDTO data) {
-        // save to Elasticsearch asynchronously
-        Future<Boolean> elasticsearchResult = searchManager.saveToElasticsearchAsync(data);
-        // save to database and get the BookmarkingResultVO
-        BookmarkingResultVO result = saveToDatabase(userId, data, PUBLIC);
-        // get the result of saving to Elasticsearch asynchronously
-        boolean hasSavedToElasticsearch = false;
-        try {
-            hasSavedToElasticsearch = elasticsearchResult.get(10L, TimeUnit.SECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException e) {
-            log.error("Exception when saving to Elasticsearch asynchronously", e);
-        }
-        return result.setHasSavedToElasticsearch(hasSavedToElasticsearch);
+        BookmarkingResultVO result = saveToDatabase(currentUserId, basic, privacy);
+        // Only public data can be added to Elasticsearch. The change is recorded in the search outbox
+        // in the same transaction as the bookmark, and relayed to Elasticsearch in the background.
+        return PUBLIC.equals(privacy)
+                ? result.setHasSavedToElasticsearch(result.getHasSavedToDatabase())
+                : result;
     }
 
     private BookmarkingResultVO saveToDatabase(long userId, BasicWebDataDTO basic, Privacy privacy) {
@@ -208,7 +229,10 @@ public class BookmarkServiceImpl implements BookmarkService {
 
     @Override
     @AccessPermissionCheck(dataAccessType = DataAccessType.BOOKMARK)
+    @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
     public boolean deleteBookmark(@BookmarkId long id, @UserId long userId) {
+        // record the change before deleting the tags, which are read from database
+        searchOutboxManager.recordBookmarkChange(id);
         boolean success = bookmarkMapper.deleteBookmarkById(id);
         if (success) {
             // delete views
@@ -221,6 +245,7 @@ public class BookmarkServiceImpl implements BookmarkService {
 
     @Override
     @AccessPermissionCheck(dataAccessType = DataAccessType.BOOKMARK)
+    @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
     public boolean changePrivacySettings(@BookmarkId long id, @UserId long userId) {
         log.info("Changing privacy settings: id = {}, userId = {}", id, userId);
         BookmarkDO bookmark = bookmarkMapper.getBookmarkById(id);
@@ -233,7 +258,12 @@ public class BookmarkServiceImpl implements BookmarkService {
         BookmarkDO bookmarkWithUpdatedPublicStatus = bookmark.setIsPublic(currentPublicStatus);
         log.info("Current public status: {}, bookmark: {}", currentPublicStatus, bookmarkWithUpdatedPublicStatus);
 
-        return bookmarkMapper.updateBookmark(bookmarkWithUpdatedPublicStatus);
+        boolean success = bookmarkMapper.updateBookmark(bookmarkWithUpdatedPublicStatus);
+        if (success) {
+            // the URL and the tags of the bookmark become searchable or not
+            searchOutboxManager.recordBookmarkChange(id);
+        }
+        return success;
     }
 
     @Override
@@ -350,10 +380,12 @@ public class BookmarkServiceImpl implements BookmarkService {
         Document document = Jsoup.parse(in, "UTF-8", "");
         Elements dts = document.getElementsByTag("dt");
 
-        dts.forEach(dt -> {
-            BasicWebDataDTO basicWebData = getBasicWebDataFromElement(dt);
-            bookmarkAndUpdateResult(userId, result, basicWebData);
-        });
+        // reserve the IDs of all bookmarks in one call
+        long[] ids = idGeneratorService.reserveIds(dts.size());
+        for (int i = 0; i < dts.size(); i++) {
+            BasicWebDataDTO basicWebData = getBasicWebDataFromElement(dts.get(i));
+            bookmarkAndUpdateResult(userId, ids[i], result, basicWebData);
+        }
     }
 
     private BasicWebDataDTO getBasicWebDataFromElement(Element dt) {
@@ -376,9 +408,9 @@ public class BookmarkServiceImpl implements BookmarkService {
         return webBuilder.build();
     }
 
-    private void bookmarkAndUpdateResult(long userId, int[] result, BasicWebDataDTO web) {
+    private void bookmarkAndUpdateResult(long userId, long id, int[] result, BasicWebDataDTO web) {
         try {
-            boolean success = bookmarkAndGetResult(userId, web);
+            boolean success = bookmarkAndGetResult(userId, id, web);
             updateImportingResult(result, success);
         } catch (ServiceException e) {
             ResultCode resultCode = e.getResultCode();
@@ -386,11 +418,11 @@ public class BookmarkServiceImpl implements BookmarkService {
         }
     }
 
-    private boolean bookmarkAndGetResult(long userId, BasicWebDataDTO web) {
+    private boolean bookmarkAndGetResult(long userId, long id, BasicWebDataDTO web) {
         BookmarkServiceImpl bookmarkService =
                 ApplicationContextUtils.getBean(BookmarkServiceImpl.class);
         // the imported bookmarks are public
-        return bookmarkService.bookmarkWithBasicWebData(web, userId, PUBLIC);
+        return bookmarkService.bookmarkWithBasicWebData(web, id, userId, PUBLIC);
     }
 
     private void updateImportingResult(int[] result, boolean success) {
@@ -430,4 +462,39 @@ public class BookmarkServiceImpl implements BookmarkService {
         int size = pageInfo.getSize();
         return bookmarkMapper.getVisitedBookmarks(from, size);
     }
+
+    @Override
+    public List<VisitedBookmarkVO> getVisitedBookmarks(PageInfoDTO pageInfo, VisitedWindow window) {
+        if (VisitedWindow.ALL.equals(window)) {
+            return ApplicationContextUtils.getBean(BookmarkServiceImpl.class).getVisitedBookmarks(pageInfo);
+        }
+
+        List<TypedTuple<String>> ranking =
+                viewRankingManager.getRanking(window, pageInfo.getFrom(), pageInfo.getSize());
+        if (CollectionUtils.isEmpty(ranking)) {
+            return Collections.emptyList();
+        }
+
+        List<Long> bookmarkIds = ranking.stream()
+                .map(TypedTuple::getValue)
+                .filter(Objects::nonNull)
+                .map(Long::valueOf)
+                .collect(Collectors.toList());
+        Map<Long, VisitedBookmarkVO> bookmarks = bookmarkMapper.getVisitedBookmarksByIds(bookmarkIds)
+                .stream()
+                .collect(Collectors.toMap(VisitedBookmarkVO::getBookmarkId, Function.identity()));
+
+        // keep the order of the ranking, and skip the deleted bookmarks
+        List<VisitedBookmarkVO> result = new ArrayList<>(ranking.size());
+        for (TypedTuple<String> tuple : ranking) {
+            String bookmarkId = tuple.getValue();
+            VisitedBookmarkVO bookmark = bookmarkId == null ? null : bookmarks.get(Long.valueOf(bookmarkId));
+            if (bookmark == null) {
+                continue;
+            }
+            double views = Optional.ofNullable(tuple.getScore()).orElse(0D);
+            result.add(bookmark.setViews((int) Math.round(views)));
+        }
+        return result;
+    }
 }
@@ -148,7 +148,10 @@ public class CommentServiceImpl implements CommentService {
                                                  @BookmarkId long bookmarkId,
                                                  @UserId long userId,
                                                  @ReplyToCommentId Long replyToCommentId) {
-        long id = idGeneratorService.generateId();
+        // reserve the IDs of the comment and its history in one call
+        long[] ids = idGeneratorService.reserveIds(2);
+        long id = ids[0];
+        long historyId = ids[1];
         CommentDO commentDO = CommentDO.builder()
                 .id(id)
                 .comment(comment)
@@ -165,7 +168,7 @@ public class CommentServiceImpl implements CommentService {
         if (success) {
             log.info("[CommentService] Comment added. Comment ID: {}, Comment: {}, User ID: {}, Bookmark ID: {}",
                     id, comment, userId, bookmarkId);
-            recordHistoryAndSendNotification(commentDO);
+            recordHistoryAndSendNotification(commentDO, historyId);
             log.info(
                     "[CommentService] Comment history and notification sent. Comment ID: {}, Comment: {}, User ID: {}, Bookmark ID: {}",
                     id, comment, userId, bookmarkId);
@@ -178,12 +181,11 @@ public class CommentServiceImpl implements CommentService {
         return success;
     }
 
-    private void recordHistoryAndSendNotification(CommentDO commentDO) {
+    private void recordHistoryAndSendNotification(CommentDO commentDO, long id) {
         // add history
         Long commentId = commentDO.getId();
         String comment = commentDO.getComment();
         Instant creationTime = commentDO.getCreationTime();
-        long id = idGeneratorService.generateId();
 
         log.info("[CommentService] Adding comment history. ID: {}, Comment ID: {}, Comment: {}, Creation Time: {}",
                 id, commentId, comment, creationTime);
@@ -1,13 +1,15 @@
 package com.github.learndifferent.mtm.service.impl;
 
-import cn.hutool.core.util.IdUtil;
-import com.github.learndifferent.mtm.constant.consist.IdGeneratorConstant;
+import com.github.learndifferent.mtm.config.IdGeneratorConfigProperties;
 import com.github.learndifferent.mtm.dto.id.Segment;
 import com.github.learndifferent.mtm.dto.id.SegmentBuffer;
 import com.github.learndifferent.mtm.exception.ServiceException;
+import com.github.learndifferent.mtm.manager.IdGeneratorMetricsManager;
+import com.github.learndifferent.mtm.manager.WorkerIdLeaseManager;
 import com.github.learndifferent.mtm.mapper.IdGeneratorMapper;
 import com.github.learndifferent.mtm.service.IdGeneratorService;
 import com.github.learndifferent.mtm.utils.ApplicationContextUtils;
+import com.github.learndifferent.mtm.vo.IdGeneratorMetricsVO;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -16,7 +18,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.SynchronousQueue;
@@ -25,7 +27,8 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import javax.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections.CollectionUtils;
@@ -45,13 +48,19 @@ import org.springframework.transaction.annotation.Transactional;
 @Slf4j
 public class IdGeneratorServiceImpl implements IdGeneratorService {
 
+    private final IdGeneratorMapper idGeneratorMapper;
+
+    private final IdGeneratorConfigProperties idGeneratorConfigProperties;
+
+    private final WorkerIdLeaseManager workerIdLeaseManager;
+
+    private final IdGeneratorMetricsManager idGeneratorMetricsManager;
+
     @Override
     public long generateId() {
-        return IdUtil.getSnowflakeNextId();
+        return workerIdLeaseManager.nextId();
     }
 
-    private final IdGeneratorMapper idGeneratorMapper;
-
     /**
      * Key is the business tag,
      * value is the buffer that stores the ID information
@@ -63,10 +72,25 @@ public class IdGeneratorServiceImpl implements IdGeneratorService {
      */
     private volatile boolean isInitialized = false;
 
+    /**
+     * Max times to spin when waiting for the next segment
+     */
+    private static final int MAX_SPIN_TIMES = 1000;
+
+    /**
+     * Nanoseconds to park each time after spinning when waiting for the next segment
+     */
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100L);
+
+    /**
+     * Max nanoseconds to wait for the next segment
+     */
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(500L);
+
     /**
      * Executor
      */
-    private final ExecutorService executorService = new ThreadPoolExecutor(3,
+    private final ThreadPoolExecutor executorService = new ThreadPoolExecutor(3,
             8,
             60L,
             TimeUnit.SECONDS,
@@ -92,6 +116,16 @@ public class IdGeneratorServiceImpl implements IdGeneratorService {
         }
     }
 
+    @PostConstruct
+    public void registerExecutorMetrics() {
+        idGeneratorMetricsManager.registerExecutor(executorService);
+    }
+
+    @Override
+    public IdGeneratorMetricsVO getMetrics() {
+        return idGeneratorMetricsManager.getMetrics();
+    }
+
     @Override
     public boolean init() {
         if (isInitialized) {
@@ -138,6 +172,7 @@ public class IdGeneratorServiceImpl implements IdGeneratorService {
         // 2. remove the tags in cache because they are expired
         tagsToRemove.forEach(tagToRemove -> {
             tagsAndIdsCache.remove(tagToRemove);
+            idGeneratorMetricsManager.removeBuffer(tagToRemove);
             log.info("Remove tag {} from IdCache", tagToRemove);
         });
     }
@@ -160,6 +195,7 @@ public class IdGeneratorServiceImpl implements IdGeneratorService {
 
         // put the 'tag' and its 'buffer' (buffer includes ID information for the tag) into cache
         tagsAndIdsCache.put(tag, buffer);
+        idGeneratorMetricsManager.registerBuffer(buffer);
         log.info("Add tag {} from database to IdCache, SegmentBuffer: {}", tag, buffer);
     }
 
@@ -200,13 +236,15 @@ public class IdGeneratorServiceImpl implements IdGeneratorService {
         // create the record in database:
         if (hasNoCurrentTag) {
             // the first ID will be 1, so the max ID in database will be step + 1
-            long maxId = IdGeneratorConstant.STEP + 1;
-            boolean wasPreviouslyAbsent = idGeneratorMapper
-                    .insertIfNotPresent(tag, maxId, IdGeneratorConstant.STEP, null);
+            int step = idGeneratorConfigProperties.getMinStep();
+            long maxId = step + 1;
+            boolean wasPreviouslyAbsent = idGeneratorMapper.insertIfNotPresent(tag, maxId, step, null);
             if (wasPreviouslyAbsent) {
                 // if the record was previously absent and now exists,
                 // generate the first ID (which is 1) for the newly added tag
-                return generateFirstIdForNewlyAddedTag(tag, maxId);
+                long firstId = generateFirstIdForNewlyAddedTag(tag, maxId, step);
+                idGeneratorMetricsManager.recordIssued(tag, 1L);
+                return firstId;
             }
 
             // update the cache if the record was NOT previously absent in the database,
@@ -225,37 +263,76 @@ public class IdGeneratorServiceImpl implements IdGeneratorService {
             // it actually triggers the initial initialization process for that tag,
             // which also initializes the segment buffer.
             // Therefore, in most cases, this process will not be executed.
+            initSegmentBuffer(tag, buffer, tableName, primaryKeyColumnName);
+        }
+        //  get the ID from buffer if initialized
+        long id = getIdFromSegmentBuffer(buffer, tableName, primaryKeyColumnName);
+        idGeneratorMetricsManager.recordIssued(tag, 1L);
+        return id;
+    }
+
+    @Override
+    public long[] reserveIds(int count) {
+        return workerIdLeaseManager.nextIds(count);
+    }
+
+    @Override
+    public long[] reserveIds(String tag, String tableName, String primaryKeyColumnName, int count) {
+        if (count <= 0) {
+            return new long[0];
+        }
+        long[] ids = new long[count];
+        // generating the first ID also makes sure that the tag and its segment buffer are initialized
+        ids[0] = generateId(tag, tableName, primaryKeyColumnName);
+        SegmentBuffer buffer = tagsAndIdsCache.get(tag);
+        fillIdsFromSegmentBuffer(buffer, ids, 1, tableName, primaryKeyColumnName);
+        idGeneratorMetricsManager.recordIssued(tag, count - 1L);
+        log.info("Reserved {} IDs for tag {}, first ID: {}, last ID: {}", count, tag, ids[0], ids[count - 1]);
+        return ids;
+    }
+
+    private void initSegmentBuffer(String tag,
+                                   SegmentBuffer buffer,
+                                   String tableName,
+                                   String primaryKeyColumnName) {
+        synchronized (buffer) {
+            if (buffer.isInitialized()) {
+                return;
+            }
             Segment currentSegment = buffer.getCurrentSegment();
-            updateSegmentFromDb(tag, currentSegment, tableName, primaryKeyColumnName);
+            // start with the min step, and the step will change with the speed of ID consumption
+            int step = idGeneratorConfigProperties.getMinStep();
+            long start = System.nanoTime();
+            updateSegmentFromDb(tag, currentSegment, step, tableName, primaryKeyColumnName);
+            idGeneratorMetricsManager.recordRefill(tag, System.nanoTime() - start, true);
+            buffer.setStep(step);
+            buffer.setUpdateTimestamp(System.currentTimeMillis());
             log.info("Init buffer. Update tag {} and segment {} from db", tag, currentSegment);
             buffer.setInitialized(true);
         }
-        //  get the ID from buffer if initialized
-        return getIdFromSegmentBuffer(buffer, tableName, primaryKeyColumnName);
     }
 
-    private long generateFirstIdForNewlyAddedTag(String tag, long maxId) {
+    private long generateFirstIdForNewlyAddedTag(String tag, long maxId, int step) {
         // If the record was previously absent and now exists
         // add the tag to the cache (this will create a new segment buffer)
         addTagToCache(tag);
         // get the buffer
         SegmentBuffer buffer = tagsAndIdsCache.get(tag);
         // initialize the segment buffer
-        initSegmentBufferForAbsentTag(tag, maxId, buffer);
+        initSegmentBufferForAbsentTag(tag, maxId, step, buffer);
         // return the value
         return 1L;
     }
 
-    private void initSegmentBufferForAbsentTag(String tag, long maxId, SegmentBuffer buffer) {
+    private void initSegmentBufferForAbsentTag(String tag, long maxId, int step, SegmentBuffer buffer) {
         if (buffer.isInitialized()) {
             log.info("[Tag {} , Segment Buffer {}] has already been initialized", tag, buffer);
             return;
         }
 
         long firstId = 1;
-        if (firstId + IdGeneratorConstant.STEP != maxId) {
-            log.warn("The max ID is not correct when the current ID is 1. Max ID: {}, Step: {}", maxId,
-                    IdGeneratorConstant.STEP);
+        if (firstId + step != maxId) {
+            log.warn("The max ID is not correct when the current ID is 1. Max ID: {}, Step: {}", maxId, step);
             throw new ServiceException("The max ID is not correct");
         }
 
@@ -264,49 +341,54 @@ public class IdGeneratorServiceImpl implements IdGeneratorService {
         // set the max ID and current ID for the first segment
         Segment firstSegment = buffer.getCurrentSegment();
         setMaxIdAndCurrentIdForSegment(maxId, currentId, firstSegment);
+        firstSegment.setStep(step);
+        buffer.setStep(step);
+        buffer.setUpdateTimestamp(System.currentTimeMillis());
 
         // set the inti status to 'true'
         buffer.setInitialized(true);
         log.info("Init buffer. Add tag {} and segment {} from db", tag, firstSegment);
     }
 
-    private void updateSegmentFromDb(String tag, Segment segment, String tableName, String primaryKeyColumnName) {
-
-        SegmentBuffer buffer = segment.getBuffer();
-        boolean isInitialized = buffer.isInitialized();
-
-        // if the buffer has been initialized, get the max ID from the segment
-        // if the buffer has NOT been initialized, update the max ID and get it from database
-        long maxId = isInitialized ? segment.getMaxId() : updateAndGetMaxIdFromDatabase(tag);
+    private void updateSegmentFromDb(String tag,
+                                     Segment segment,
+                                     int step,
+                                     String tableName,
+                                     String primaryKeyColumnName) {
+        // update the max ID with the step and get it from database
+        long maxId = updateAndGetMaxIdFromDatabase(tag, step);
 
         // current ID
-        long currentId = getCurrentIdFromDatabaseOrCalculateIt(maxId, tableName, primaryKeyColumnName);
+        long currentId = getCurrentIdFromDatabaseOrCalculateIt(maxId, step, tableName, primaryKeyColumnName);
         // set max ID and current iD
         setMaxIdAndCurrentIdForSegment(maxId, currentId, segment);
+        segment.setStep(step);
     }
 
     private long getCurrentIdFromDatabaseOrCalculateIt(long maxId,
+                                                       int step,
                                                        String tableName,
                                                        String primaryKeyColumnName) {
         // get the last ID of the table
         Long lastId = idGeneratorMapper.getLastId(primaryKeyColumnName, tableName);
 
-        // if the last ID is not null and is valid, return it as current ID
-        if (Objects.nonNull(lastId) && checkIfCurrentIdValid(lastId, maxId)) {
+        // if the last ID is not null and is in the range of this segment, return it as current ID
+        if (Objects.nonNull(lastId) && lastId >= maxId - step
+                && checkIfCurrentIdValid(lastId, maxId)) {
             // if the current ID in cache is valid, return it
             log.info("Retrieve current ID {} from primary key {} of table {}", lastId, primaryKeyColumnName, tableName);
             return lastId;
         }
 
         // calculate it from the max ID and step otherwise
-        long currentId = maxId - IdGeneratorConstant.STEP;
-        log.info("Calculate current ID {} from max ID {} and step {}", currentId, maxId, IdGeneratorConstant.STEP);
+        long currentId = maxId - step;
+        log.info("Calculate current ID {} from max ID {} and step {}", currentId, maxId, step);
         return currentId;
     }
 
-    private long updateAndGetMaxIdFromDatabase(String tag) {
+    private long updateAndGetMaxIdFromDatabase(String tag, int step) {
         IdGeneratorServiceImpl bean = ApplicationContextUtils.getBean(IdGeneratorServiceImpl.class);
-        return bean.updateOrInsertRecordAndGetMaxId(tag);
+        return bean.updateOrInsertRecordAndGetMaxId(tag, step);
     }
 
     private void setMaxIdAndCurrentIdForSegment(long maxId, long currentId, Segment segment) {
@@ -321,163 +403,246 @@ public class IdGeneratorServiceImpl implements IdGeneratorService {
      * Update the max ID or insert the record if the record doesn't exist,
      * and get the current max ID
      *
-     * @param tag business tag
+     * @param tag  business tag
+     * @param step step to increase the max ID, which will also be saved as the step of the business tag
      * @return max ID
      */
     @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
-    public long updateOrInsertRecordAndGetMaxId(String tag) {
-        idGeneratorMapper.updateMaxIdOrInsertIfNotPresent(tag, IdGeneratorConstant.STEP, null);
+    public long updateOrInsertRecordAndGetMaxId(String tag, int step) {
+        idGeneratorMapper.updateMaxIdOrInsertIfNotPresent(tag, step, null);
         Long maxId = idGeneratorMapper.getMaxId(tag);
         return Optional.ofNullable(maxId).orElseThrow(() -> new ServiceException("Can't get the max ID"));
     }
 
     private long getIdFromSegmentBuffer(SegmentBuffer buffer, String tableName, String primaryKeyColumnName) {
         while (true) {
-            // ----- Start: read lock  ------
-            Lock readLock = buffer.getReadLock();
-            readLock.lock();
-            try {
-                // get the current segment
-                Segment currentSegment = buffer.getCurrentSegment();
-                // check if
-                boolean isNextNotReady = !buffer.isNextSegmentReady();
-                // check if needed to update the next segment (Preload the IDs in advance)
-                if (isNextNotReady
-                        // remaining ID count is less than 90%
-                        && (currentSegment.getRemainingIdCount() < 0.9 * IdGeneratorConstant.STEP)
-                        // successfully to change the thread running status from 'false' to 'true'
-                        && buffer.getThreadRunningAtomicBoolean().compareAndSet(false, true)) {
-
-                    // use executor service to update the next segment
-                    executorService.execute(() -> {
-                        // get the next segment
-                        Segment[] segments = buffer.getSegments();
-                        int nexSegmentIndex = buffer.getNexSegmentIndex();
-                        Segment nextSegment = segments[nexSegmentIndex];
-
-                        boolean isUpdated = false;
-
-                        try {
-                            // update the next segment
-                            String tag = buffer.getTag();
-                            updateSegmentFromDb(tag, nextSegment, tableName, primaryKeyColumnName);
-                            isUpdated = true;
-                            log.info("update segment [tag: {}] from database {}", tag, nextSegment);
-                        } catch (ServiceException e) {
-                            log.error("update segment [tag: {}] from database failed", buffer.getTag(), e);
-                        } finally {
-                            if (isUpdated) {
-                                // If the update is successful,
-                                // set the status to 'ready' with the implementation of a 'write lock'
-                                // to handle potential concurrent thread attempts to modify the status
-                                Lock writeLock = buffer.getWriteLock();
-                                writeLock.lock();
-                                try {
-                                    // the next segment is ready now after updating
-                                    buffer.setNextSegmentReady(true);
-                                    // remember to set the thread running status to 'false'
-                                    buffer.getThreadRunningAtomicBoolean().set(false);
-                                } finally {
-                                    writeLock.unlock();
-                                }
-                            } else {
-                                // If the update fails, regardless of the outcome,
-                                // set the running status of the thread to 'false'
-                                buffer.getThreadRunningAtomicBoolean().set(false);
-                            }
-                        }
-                    });
-                }
-
-                // after checking if needed to update the next segment
-                // get the current ID if valid (current ID < max ID):
-                // get and increment the previous ID and get the current ID
-                AtomicLong previousId = currentSegment.getCurrentId();
-                long currentId = previousId.incrementAndGet();
-                // check if the current ID is less than the max ID
-                if (checkIfCurrentIdValid(currentId, currentSegment.getMaxId())) {
-                    // then the current ID is valid, return it
-                    return currentId;
-                }
-            } finally {
-                readLock.unlock();
-            }
-            // ----- End: read lock -----
-
-            // if the current ID is invalid (current ID >= max ID),
-            // use a spin lock to wait, until no other thread
-            // is currently executing the operation to modify the next segment
-            waitAndSleep(buffer);
-
-            // --- Start: write lock  ------
-            Lock writeLock = buffer.getWriteLock();
-            writeLock.lock();
-            try {
-                // After using the spin lock to wait,
-                // the current ID may be updated and is valid now,
-                // so check and return the current ID if it's a valid ID
-                Segment currentSegment = buffer.getCurrentSegment();
-                long currentId = currentSegment.getCurrentId().getAndIncrement();
-                if (checkIfCurrentIdValid(currentId, currentSegment.getMaxId())) {
-                    return currentId;
-                }
-
-                // the next segment is normally ready after updating
-                boolean isNextReady = buffer.isNextSegmentReady();
-                if (isNextReady) {
-                    // switch the current segment to the next segment
-                    buffer.switchCurrentSegmentIndex();
-                    // set the next segment to 'not ready' to indicate
-                    // that the next segment should be updated
-                    buffer.setNextSegmentReady(false);
-                } else {
-                    log.warn("Both two segments in {} are not ready!", buffer);
-                    throw new ServiceException("Both two segments in " + buffer + " are not ready!");
-                }
-            } finally {
-                writeLock.unlock();
+            // get the current segment
+            Segment currentSegment = buffer.getCurrentSegment();
+            // check if needed to update the next segment (Preload the IDs in advance)
+            preloadNextSegmentIfNecessary(buffer, currentSegment, tableName, primaryKeyColumnName);
+
+            // after checking if needed to update the next segment
+            // get the current ID if valid (current ID < max ID):
+            // get and increment the previous ID and get the current ID
+            long currentId = currentSegment.getCurrentId().incrementAndGet();
+            // check if the current ID is less than the max ID
+            if (checkIfCurrentIdValid(currentId, currentSegment.getMaxId())) {
+                // then the current ID is valid, return it
+                return currentId;
             }
-            // --- End: write lock -----
-            // Following the completion of the 'write lock' process,
+
+            // if the current ID is invalid (current ID >= max ID), switch to the next segment
+            switchToNextSegment(buffer, currentSegment, tableName, primaryKeyColumnName);
             // the while loop will persist until a valid current ID is obtained.
         }
     }
 
+    /**
+     * Fill the array with the IDs from segment buffer, starting from the index {@code from}.
+     * <p>
+     * The IDs are reserved from the current segment with one atomic operation.
+     * If the current segment doesn't have enough IDs, take all the remaining IDs in it
+     * and continue with the next segment.
+     * </p>
+     *
+     * @param buffer               segment buffer
+     * @param ids                  the array to fill
+     * @param from                 the index to start filling
+     * @param tableName            table name
+     * @param primaryKeyColumnName primary key column name
+     */
+    private void fillIdsFromSegmentBuffer(SegmentBuffer buffer,
+                                          long[] ids,
+                                          int from,
+                                          String tableName,
+                                          String primaryKeyColumnName) {
+        int filled = from;
+        while (filled < ids.length) {
+            Segment currentSegment = buffer.getCurrentSegment();
+            preloadNextSegmentIfNecessary(buffer, currentSegment, tableName, primaryKeyColumnName);
+
+            // reserve all the remaining IDs at once
+            int remaining = ids.length - filled;
+            long previousId = currentSegment.getCurrentId().getAndAdd(remaining);
+            // only the IDs that are less than the max ID are valid
+            long lastValidId = Math.min(previousId + remaining, currentSegment.getMaxId() - 1);
+            for (long id = previousId + 1; id <= lastValidId; id++) {
+                ids[filled++] = id;
+            }
+
+            if (filled < ids.length) {
+                // the current segment has run out of IDs, continue with the next segment
+                switchToNextSegment(buffer, currentSegment, tableName, primaryKeyColumnName);
+            }
+        }
+    }
+
+    private void preloadNextSegmentIfNecessary(SegmentBuffer buffer,
+                                               Segment currentSegment,
+                                               String tableName,
+                                               String primaryKeyColumnName) {
+        if (!buffer.isNextSegmentReady()
+                // remaining ID count is less than 90%
+                && (currentSegment.getRemainingIdCount() < 0.9 * currentSegment.getStep())
+                // successfully to change the thread running status from 'false' to 'true'
+                && buffer.getThreadRunningAtomicBoolean().compareAndSet(false, true)) {
+            // use executor service to update the next segment
+            updateNextSegmentAsync(buffer, tableName, primaryKeyColumnName);
+        }
+    }
+
+    /**
+     * Switch the exhausted segment to the next segment with CAS.
+     * If another thread has already switched it, the caller can just retry with the new current segment.
+     * If the next segment is not ready, wait until the thread that updates the next segment finishes.
+     *
+     * @param buffer               segment buffer
+     * @param exhaustedSegment     the segment that has run out of IDs
+     * @param tableName            table name
+     * @param primaryKeyColumnName primary key column name
+     * @throws ServiceException if the next segment is still not ready after waiting
+     */
+    private void switchToNextSegment(SegmentBuffer buffer,
+                                     Segment exhaustedSegment,
+                                     String tableName,
+                                     String primaryKeyColumnName) {
+        if (buffer.switchToNextSegment(exhaustedSegment)) {
+            return;
+        }
+
+        String tag = buffer.getTag();
+        idGeneratorMetricsManager.recordNextSegmentNotReady(tag);
+        long start = System.nanoTime();
+        waitForNextSegment(buffer, tableName, primaryKeyColumnName);
+        idGeneratorMetricsManager.recordWait(tag, System.nanoTime() - start);
+
+        if (!buffer.switchToNextSegment(exhaustedSegment)) {
+            idGeneratorMetricsManager.recordExhausted(tag);
+            log.warn("Both two segments in {} are not ready!", buffer);
+            throw new ServiceException("Both two segments in " + buffer + " are not ready!");
+        }
+    }
+
+    private void updateNextSegmentAsync(SegmentBuffer buffer, String tableName, String primaryKeyColumnName) {
+        try {
+            executorService.execute(() -> updateNextSegment(buffer, tableName, primaryKeyColumnName));
+        } catch (RejectedExecutionException e) {
+            // all threads are busy, so let the next thread that runs out of IDs update the next segment
+            log.warn("Failed to submit the task to update segment [tag: {}]", buffer.getTag(), e);
+            idGeneratorMetricsManager.recordRejected();
+            buffer.getThreadRunningAtomicBoolean().set(false);
+        }
+    }
+
+    /**
+     * Update the next segment from database and publish it.
+     * <p>
+     * The thread running status should be set to 'true' by the caller with CAS before calling this method,
+     * and it will be set to 'false' after the next segment is published or the update fails.
+     * </p>
+     *
+     * @param buffer               current segment buffer
+     * @param tableName            table name
+     * @param primaryKeyColumnName primary key column name
+     */
+    private void updateNextSegment(SegmentBuffer buffer, String tableName, String primaryKeyColumnName) {
+        String tag = buffer.getTag();
+        long start = System.nanoTime();
+        boolean isUpdated = false;
+        try {
+            // create a new segment instead of reusing the exhausted one,
+            // so the threads that are still holding the exhausted segment won't get the IDs from the new range
+            Segment nextSegment = new Segment(buffer);
+            int step = calculateNextStep(buffer);
+            updateSegmentFromDb(tag, nextSegment, step, tableName, primaryKeyColumnName);
+            buffer.setStep(step);
+            buffer.setUpdateTimestamp(System.currentTimeMillis());
+            // the next segment is ready now after publishing
+            buffer.publishNextSegment(nextSegment);
+            isUpdated = true;
+            log.info("update segment [tag: {}] from database {}", tag, nextSegment);
+        } catch (ServiceException e) {
+            log.error("update segment [tag: {}] from database failed", tag, e);
+        } finally {
+            idGeneratorMetricsManager.recordRefill(tag, System.nanoTime() - start, isUpdated);
+            // remember to set the thread running status to 'false'
+            buffer.getThreadRunningAtomicBoolean().set(false);
+        }
+    }
+
+    /**
+     * Calculate the step of the next segment based on how fast the business tag consumes IDs.
+     * <p>
+     * If the last segment was updated less than {@link IdGeneratorConfigProperties#getSegmentDurationMinutes()}
+     * ago, the IDs are consumed fast, so double the step (not exceeding the max step).
+     * If it was updated more than twice that duration ago, halve the step (not less than the min step).
+     * </p>
+     *
+     * @param buffer current segment buffer
+     * @return step of the next segment
+     */
+    private int calculateNextStep(SegmentBuffer buffer) {
+        int step = buffer.getStep();
+        int minStep = idGeneratorConfigProperties.getMinStep();
+        int maxStep = idGeneratorConfigProperties.getMaxStep();
+
+        long duration = System.currentTimeMillis() - buffer.getUpdateTimestamp();
+        long segmentDuration = TimeUnit.MINUTES.toMillis(idGeneratorConfigProperties.getSegmentDurationMinutes());
+
+        int nextStep = step;
+        if (duration < segmentDuration) {
+            nextStep = (int) Math.min(2L * step, maxStep);
+        } else if (duration >= 2 * segmentDuration) {
+            nextStep = step / 2;
+        }
+        nextStep = Math.max(nextStep, minStep);
+
+        log.info("[tag: {}] duration: {} ms, step: {}, next step: {}", buffer.getTag(), duration, step, nextStep);
+        return nextStep;
+    }
+
     private boolean checkIfCurrentIdValid(long currentId, long maxId) {
         return currentId < maxId;
     }
 
     /**
-     * This method checks whether another thread
-     * is currently running to execute the segment modification operation.
-     * If another thread is running, it enters a spin loop,
-     * continuously checking if other threads are still running.
+     * This method waits until the next segment is ready.
+     * <p>
+     * If no thread is updating the next segment (for example, the preload task was rejected or failed),
+     * the current thread will update the next segment by itself.
+     * Otherwise, it spins and yields for a while, and then parks for a short time until
+     * the other thread finishes or the wait exceeds {@link #MAX_WAIT_NANOS}.
+     * </p>
      * <p>
-     * If the spin loop exceeds a certain threshold (in this case, 1000 times),
-     * it pauses briefly and break the loop to avoid excessive CPU usage
+     * This only happens when the current segment runs out of IDs before the next segment is ready,
+     * so the threads never sleep when the IDs are preloaded in time.
      * </p>
      *
-     * @param buffer current segment buffer
+     * @param buffer               current segment buffer
+     * @param tableName            table name
+     * @param primaryKeyColumnName primary key column name
      */
-    private void waitAndSleep(SegmentBuffer buffer) {
+    private void waitForNextSegment(SegmentBuffer buffer, String tableName, String primaryKeyColumnName) {
         AtomicBoolean isThreadRunning = buffer.getThreadRunningAtomicBoolean();
 
+        if (!buffer.isNextSegmentReady() && isThreadRunning.compareAndSet(false, true)) {
+            updateNextSegment(buffer, tableName, primaryKeyColumnName);
+            return;
+        }
+
         int roll = 0;
-        // spin lock:
-        // when the thread is running,
-        while (isThreadRunning.get()) {
-            // roll 1000 times
+        long deadline = System.nanoTime() + MAX_WAIT_NANOS;
+        // when the thread is running and the next segment is not ready
+        while (isThreadRunning.get() && !buffer.isNextSegmentReady()) {
             roll++;
-            if (roll > 1000) {
-                try {
-                    // and sleep
-                    TimeUnit.MILLISECONDS.sleep(10);
-                    break;
-                } catch (InterruptedException e) {
-                    log.error("Thread {} Interrupted", Thread.currentThread().getName(), e);
-                    break;
-                }
+            if (roll <= MAX_SPIN_TIMES) {
+                Thread.yield();
+                continue;
+            }
+            if (System.nanoTime() - deadline > 0) {
+                break;
             }
+            LockSupport.parkNanos(PARK_NANOS);
         }
     }
 }
@@ -8,12 +8,23 @@ import com.github.learndifferent.mtm.constant.enums.SearchMode;
 import com.github.learndifferent.mtm.dto.PageInfoDTO;
 import com.github.learndifferent.mtm.dto.search.SearchResultsDTO;
 import com.github.learndifferent.mtm.exception.ServiceException;
+import com.github.learndifferent.mtm.manager.SearchManager;
+import com.github.learndifferent.mtm.manager.SearchResultCacheManager;
+import com.github.learndifferent.mtm.manager.SuggestionManager;
 import com.github.learndifferent.mtm.manager.TrendingManager;
 import com.github.learndifferent.mtm.service.SearchService;
 import com.github.learndifferent.mtm.strategy.search.main.DataSearchStrategyContext;
 import com.github.learndifferent.mtm.strategy.search.related.DataSearchRelatedStrategyContext;
-import java.io.IOException;
+import com.github.learndifferent.mtm.utils.CompletableFutureUtils;
+import com.github.learndifferent.mtm.vo.ReindexProgressVO;
+import com.github.learndifferent.mtm.vo.SearchCacheMetricsVO;
+import com.github.learndifferent.mtm.vo.SuggestionVO;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -32,6 +43,9 @@ public class SearchServiceImpl implements SearchService {
     private final TrendingManager trendingManager;
     private final DataSearchRelatedStrategyContext dataSearchRelatedStrategyContext;
     private final DataSearchStrategyContext dataSearchStrategyContext;
+    private final SearchResultCacheManager searchResultCacheManager;
+    private final SearchManager searchManager;
+    private final SuggestionManager suggestionManager;
 
     @Override
     public boolean verifyDataExistenceInElasticsearch(SearchMode mode) {
@@ -58,6 +72,11 @@ public class SearchServiceImpl implements SearchService {
         return dataSearchRelatedStrategyContext.generateDataForElasticsearchBasedOnDatabase(mode);
     }
 
+    @Override
+    public ReindexProgressVO getGenerationProgress(SearchMode mode) {
+        return dataSearchRelatedStrategyContext.getGenerationProgress(mode);
+    }
+
     @Override
     @EmptyStringCheck
     public SearchResultsDTO search(SearchMode mode,
@@ -65,17 +84,114 @@ public class SearchServiceImpl implements SearchService {
                                    PageInfoDTO pageInfo,
                                    Integer rangeFrom,
                                    Integer rangeTo) {
+        return join(searchAsync(mode, keyword, pageInfo, rangeFrom, rangeTo));
+    }
+
+    @Override
+    @EmptyStringCheck
+    public CompletableFuture<SearchResultsDTO> searchAsync(SearchMode mode,
+                                                           @ExceptionIfEmpty(resultCode = ResultCode.NO_RESULTS_FOUND)
+                                                                   String keyword,
+                                                           PageInfoDTO pageInfo,
+                                                           Integer rangeFrom,
+                                                           Integer rangeTo) {
         int from = pageInfo.getFrom();
         int size = pageInfo.getSize();
+        String trimmedKeyword = keyword.trim();
+        // get the key before searching, so the results are not cached if the data changes while searching
+        Optional<String> key = searchResultCacheManager.getKey(mode, trimmedKeyword, from, size, rangeFrom, rangeTo);
+        Optional<SearchResultsDTO> cachedResults = key.flatMap(searchResultCacheManager::get);
+        if (cachedResults.isPresent()) {
+            addToTrendingListIfSearchingBookmarks(mode, trimmedKeyword);
+            return CompletableFuture.completedFuture(cachedResults.get());
+        }
+        String strategyName = SearchConstant.SEARCH_STRATEGY_BEAN_NAME_PREFIX + mode.mode();
+        CompletableFuture<SearchResultsDTO> searchFuture = this.dataSearchStrategyContext
+                .searchAsync(strategyName, trimmedKeyword, from, size, rangeFrom, rangeTo);
+        CompletableFuture<SearchResultsDTO> future = searchFuture
+                .thenApply(results -> {
+                    // the results of MySQL are not cached as the results of Elasticsearch,
+                    // which would be returned for a long time after Elasticsearch recovers
+                    if (results != null && !results.isFallback()) {
+                        key.ifPresent(k -> searchResultCacheManager.put(k, results));
+                    }
+                    return results;
+                })
+                .exceptionally(e -> {
+                    throw toServiceException(e, keyword, mode);
+                });
+        // cancel the search if the results are no longer needed
+        return CompletableFutureUtils.cancelSourceOnCancel(future, searchFuture);
+    }
+
+    @Override
+    @EmptyStringCheck
+    public SearchResultsDTO searchByCursor(SearchMode mode,
+                                           @ExceptionIfEmpty(resultCode = ResultCode.NO_RESULTS_FOUND) String keyword,
+                                           String cursor,
+                                           int size) {
+        return join(searchByCursorAsync(mode, keyword, cursor, size));
+    }
+
+    @Override
+    @EmptyStringCheck
+    public CompletableFuture<SearchResultsDTO> searchByCursorAsync(SearchMode mode,
+                                                                   @ExceptionIfEmpty(resultCode =
+                                                                           ResultCode.NO_RESULTS_FOUND)
+                                                                           String keyword,
+                                                                   String cursor,
+                                                                   int size) {
+        String strategyName = SearchConstant.SEARCH_STRATEGY_BEAN_NAME_PREFIX + mode.mode();
+        CompletableFuture<SearchResultsDTO> searchFuture = this.dataSearchStrategyContext
+                .searchByCursorAsync(strategyName, keyword.trim(), cursor, size);
+        CompletableFuture<SearchResultsDTO> future = searchFuture.exceptionally(e -> {
+            throw toServiceException(e, keyword, mode);
+        });
+        // cancel the search if the results are no longer needed
+        return CompletableFutureUtils.cancelSourceOnCancel(future, searchFuture);
+    }
+
+    /**
+     * The search strategies of bookmarks add the keyword to the trending list,
+     * which should also be done when the results are cached
+     *
+     * @param mode    search mode
+     * @param keyword keyword
+     */
+    private void addToTrendingListIfSearchingBookmarks(SearchMode mode, String keyword) {
+        if (SearchMode.WEB.equals(mode) || SearchMode.BOOKMARK_MYSQL.equals(mode)) {
+            searchManager.addToTrendingList(keyword);
+        }
+    }
+
+    /**
+     * Wait for the results of the search, whose future is only completed exceptionally with {@link ServiceException}
+     *
+     * @param future future of the search
+     * @return search results
+     */
+    private static SearchResultsDTO join(CompletableFuture<SearchResultsDTO> future) {
         try {
-            String strategyName = SearchConstant.SEARCH_STRATEGY_BEAN_NAME_PREFIX + mode.mode();
-            return this.dataSearchStrategyContext.search(strategyName, keyword.trim(), from, size, rangeFrom, rangeTo);
-        } catch (IOException e) {
-            log.error("IO Exception when searching the keyword {} in mode {}", keyword, mode, e);
-            throw new ServiceException(ResultCode.CONNECTION_ERROR);
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ServiceException) {
+                throw (ServiceException) e.getCause();
+            }
+            throw e;
         }
     }
 
+    private ServiceException toServiceException(Throwable e, String keyword, SearchMode mode) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof ServiceException) {
+            return (ServiceException) cause;
+        }
+        if (!(cause instanceof CancellationException)) {
+            log.error("Exception when searching the keyword {} in mode {}", keyword, mode, cause);
+        }
+        return new ServiceException(ResultCode.CONNECTION_ERROR);
+    }
+
     @Override
     public Set<String> getTop20Trending() {
         return trendingManager.getTop20Trending();
@@ -90,4 +206,14 @@ public class SearchServiceImpl implements SearchService {
     public boolean deleteTrending() {
         return trendingManager.deleteTrending();
     }
+
+    @Override
+    public SearchCacheMetricsVO getCacheMetrics() {
+        return searchResultCacheManager.getMetrics();
+    }
+
+    @Override
+    public List<SuggestionVO> suggest(SearchMode mode, String prefix, int size) {
+        return suggestionManager.suggest(mode.index(), prefix.trim(), size);
+    }
 }
@@ -12,6 +12,7 @@ import com.github.learndifferent.mtm.entity.TagAndCountDO;
 import com.github.learndifferent.mtm.entity.TagDO;
 import com.github.learndifferent.mtm.exception.ServiceException;
 import com.github.learndifferent.mtm.manager.DeleteTagManager;
+import com.github.learndifferent.mtm.manager.SearchOutboxManager;
 import com.github.learndifferent.mtm.mapper.BookmarkMapper;
 import com.github.learndifferent.mtm.mapper.TagMapper;
 import com.github.learndifferent.mtm.service.IdGeneratorService;
@@ -34,6 +35,8 @@ import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Tag Service Implementation
@@ -50,10 +53,12 @@ public class TagServiceImpl implements TagService {
     private final DeleteTagManager deleteTagManager;
     private final BookmarkMapper bookmarkMapper;
     private final IdGeneratorService idGeneratorService;
+    private final SearchOutboxManager searchOutboxManager;
 
     @Override
     @AccessPermissionCheck(dataAccessType = DataAccessType.TAG_CREATE)
     @CachePut(value = "tag:a", key = "#bookmarkId", unless = "''.equals(#result)")
+    @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
     public String applyTag(@UserId long userId, @BookmarkId long bookmarkId, @Tag String tagName) {
         String tag = tagName.trim();
         long id = idGeneratorService.generateId();
@@ -65,6 +70,7 @@ public class TagServiceImpl implements TagService {
             log.info("Applying tag. ID {}, tag: {}, bookmark ID: {}, user ID: {}", id, tag, bookmarkId, userId);
             tagMapper.addTag(tagDO);
             log.info("Applied tag. ID {}, tag: {}, bookmark ID: {}, user ID: {}", id, tag, bookmarkId, userId);
+            searchOutboxManager.recordTagChange(tag);
         } catch (DuplicateKeyException e) {
             log.warn("The tag has already been applied. ID {}, tag: {}, bookmark ID: {}, user ID: {}",
                     id, tag, bookmarkId, userId);
@@ -155,11 +161,16 @@ public class TagServiceImpl implements TagService {
 
     @Override
     @AccessPermissionCheck(dataAccessType = DataAccessType.TAG_DELETE)
+    @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
     public boolean deleteTag(@UserId long userId, @BookmarkId long bookmarkId, String tagName) {
         log.info("Delete tag: {}, User ID: {}, Bookmark ID: {}", tagName, userId, bookmarkId);
         // This will delete the tag (prefix of the key is "tag:a") of the bookmark
         // stored in the cache if no exception is thrown.
-        return deleteTagManager.deleteTag(tagName, bookmarkId);
+        boolean success = deleteTagManager.deleteTag(tagName, bookmarkId);
+        if (success) {
+            searchOutboxManager.recordTagChange(tagName);
+        }
+        return success;
     }
 
     @Override
@@ -11,6 +11,7 @@ import com.github.learndifferent.mtm.dto.UserDTO;
 import com.github.learndifferent.mtm.entity.UserDO;
 import com.github.learndifferent.mtm.exception.ServiceException;
 import com.github.learndifferent.mtm.manager.NotificationManager;
+import com.github.learndifferent.mtm.manager.SearchOutboxManager;
 import com.github.learndifferent.mtm.manager.UserManager;
 import com.github.learndifferent.mtm.mapper.UserMapper;
 import com.github.learndifferent.mtm.query.ChangePasswordRequest;
@@ -32,6 +33,8 @@ import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * User Service implementation
@@ -47,6 +50,7 @@ public class UserServiceImpl implements UserService {
     private final UserMapper userMapper;
     private final UserManager userManager;
     private final NotificationManager notificationManager;
+    private final SearchOutboxManager searchOutboxManager;
 
     @Override
     public List<UserBookmarkRankingByRoleDTO> getRankingBookmarkNumByRole() {
@@ -112,6 +116,7 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
+    @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
     public boolean changeUserRoleAndRecordChanges(Long id, String newRole) {
         return Optional.ofNullable(id)
                 // get the current role by ID
@@ -160,7 +165,12 @@ public class UserServiceImpl implements UserService {
 
     private boolean updateUserRole(Long id, UserRole role) {
         UserDTO user = UserDTO.ofRoleUpdate(id, role);
-        return userMapper.updateUser(user);
+        boolean success = userMapper.updateUser(user);
+        if (success) {
+            // the role is searchable
+            searchOutboxManager.recordUserChange(id);
+        }
+        return success;
     }
 
     @Override
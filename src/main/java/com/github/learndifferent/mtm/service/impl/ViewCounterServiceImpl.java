@@ -1,23 +1,28 @@
 package com.github.learndifferent.mtm.service.impl;
 
-import com.github.learndifferent.mtm.constant.consist.RedisConstant;
+import com.github.learndifferent.mtm.config.ViewCounterConfigProperties;
 import com.github.learndifferent.mtm.entity.ViewDataDO;
+import com.github.learndifferent.mtm.manager.ViewAggregationManager;
+import com.github.learndifferent.mtm.manager.ViewStorageManager;
 import com.github.learndifferent.mtm.mapper.BookmarkViewMapper;
 import com.github.learndifferent.mtm.service.ViewCounterService;
 import com.github.learndifferent.mtm.utils.ApplicationContextUtils;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.collections.MapUtils;
 import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
@@ -34,23 +39,35 @@ import org.springframework.util.CollectionUtils;
 @Slf4j
 public class ViewCounterServiceImpl implements ViewCounterService {
 
-    private final StringRedisTemplate redisTemplate;
     private final BookmarkViewMapper bookmarkViewMapper;
+    private final ViewAggregationManager viewAggregationManager;
+    private final ViewStorageManager viewStorageManager;
+    private final ViewCounterConfigProperties configProperties;
 
     /**
-     * the length of {@link RedisConstant#WEB_VIEW_COUNT_PREFIX}
+     * Timeout of the lock of syncing the changed views to database
      */
-    private final static int LENGTH_OF_KEY_WEB_VIEW_COUNT_PREFIX = RedisConstant.WEB_VIEW_COUNT_PREFIX.length();
+    private static final Duration SYNC_LOCK_TIMEOUT = Duration.ofMinutes(5L);
 
     @Override
     public void increaseViewsAndAddToSet(Long bookmarkId) {
         if (Objects.isNull(bookmarkId)) {
             return;
         }
-        String key = RedisConstant.WEB_VIEW_COUNT_PREFIX + bookmarkId;
-        this.redisTemplate.opsForValue().increment(key);
-        // add the key to set
-        this.redisTemplate.opsForSet().add(RedisConstant.VIEW_KEY_SET, key);
+        // the views will be flushed to Redis by the aggregation manager
+        this.viewAggregationManager.increaseViews(bookmarkId);
+    }
+
+    @Override
+    public void increaseViewsAndAddToSet(Long bookmarkId, String visitor) {
+        if (Objects.isNull(bookmarkId)) {
+            return;
+        }
+        if (Objects.isNull(visitor) || !this.viewStorageManager.isUniqueVisitorsEnabled()) {
+            this.viewAggregationManager.increaseViews(bookmarkId);
+            return;
+        }
+        this.viewAggregationManager.increaseViews(bookmarkId, visitor);
     }
 
     @Override
@@ -60,17 +77,19 @@ public class ViewCounterServiceImpl implements ViewCounterService {
             return 0;
         }
 
-        String views = this.redisTemplate.opsForValue().get(RedisConstant.WEB_VIEW_COUNT_PREFIX + bookmarkId);
-        if (Objects.isNull(views)) {
-            return 0;
-        }
+        // views in Redis and views that have not been flushed to Redis
+        long views = this.viewStorageManager.getViews(bookmarkId)
+                + this.viewAggregationManager.getPendingViews(bookmarkId);
+        return (int) Math.min(views, Integer.MAX_VALUE);
+    }
 
-        try {
-            return Integer.parseInt(views);
-        } catch (NumberFormatException e) {
-            log.error("Cannot convert {} to integer", views, e);
+    @Override
+    public int countUniqueVisitors(Long bookmarkId) {
+        if (Objects.isNull(bookmarkId)) {
             return 0;
         }
+        long uniqueVisitors = this.viewStorageManager.countUniqueVisitors(bookmarkId);
+        return (int) Math.min(uniqueVisitors, Integer.MAX_VALUE);
     }
 
     private ViewCounterServiceImpl getCurrentBean() {
@@ -79,89 +98,163 @@ public class ViewCounterServiceImpl implements ViewCounterService {
 
     @Override
     public List<String> updateViewsAndReturnFailKeys() {
-        // get all keys containing view data in Redis
-        Set<String> keys = this.redisTemplate.opsForSet().members(RedisConstant.VIEW_KEY_SET);
+        // flush the views in memory to Redis first
+        this.viewAggregationManager.flush();
 
-        // save the view data from database to Redis if no keys are found
+        // save the view data from database to Redis if no view data is found in Redis
         // save them from Redis to database if found
-        boolean isEmpty = CollectionUtils.isEmpty(keys);
-        return isEmpty ? this.saveViewsToRedisAndReturnEmptyList()
-                : this.getCurrentBean().saveViewsToDbAndReturnFailKeys(keys);
+        return this.viewStorageManager.hasNoViews() ? this.saveViewsToRedisAndReturnEmptyList()
+                : this.getCurrentBean().saveViewsToDbAndReturnFailKeys();
     }
 
     private List<String> saveViewsToRedisAndReturnEmptyList() {
         // get data from database
         List<ViewDataDO> data = this.bookmarkViewMapper.getAllViewData();
-
-        // save to Redis
-        Map<String, String> map = data.stream().collect(Collectors.toMap(
-                d -> RedisConstant.WEB_VIEW_COUNT_PREFIX + d.getBookmarkId(),
-                d -> String.valueOf(d.getViews())));
-        if (MapUtils.isEmpty(map)) {
+        if (CollectionUtils.isEmpty(data)) {
             log.info("No views data");
             return Collections.emptyList();
         }
 
-        log.info("Saving views data to Redis: {}", map);
-
-        this.redisTemplate.opsForValue().multiSet(map);
-
-        // add the keys to set in Redis
-        Set<String> keySet = map.keySet();
-        int size = keySet.size();
-        String[] keys = keySet.toArray(new String[size]);
-        this.redisTemplate.opsForSet().add(RedisConstant.VIEW_KEY_SET, keys);
-
+        log.info("Saving views data of {} bookmarks to Redis", data.size());
+        this.viewStorageManager.setViews(data);
         return Collections.emptyList();
     }
 
     @Transactional(propagation = Propagation.REQUIRED, rollbackFor = Exception.class)
     @CacheEvict(value = "bookmarks:visited", allEntries = true)
-    public List<String> saveViewsToDbAndReturnFailKeys(Set<String> keys) {
-
-        // clear all data before adding new data
-        this.bookmarkViewMapper.clearAll();
+    public List<String> saveViewsToDbAndReturnFailKeys() {
 
-        // keys that failed to save
+        // bookmark IDs that failed to save
         List<String> failKeys = new ArrayList<>();
 
-        // get all values by keys and create a new set to store every bookmark id and its views
-        Set<ViewDataDO> set = new HashSet<>();
-        keys.forEach(key -> updateViewsCollections(set, failKeys, key));
-
-        // save all data to database
-        this.bookmarkViewMapper.addAll(set);
+        // scan all shards and upsert the views chunk by chunk
+        int chunkSize = this.configProperties.getSyncChunkSize();
+        List<ViewDataDO> chunk = new ArrayList<>(chunkSize);
+        for (int shard = 0; shard < this.viewStorageManager.getShards(); shard++) {
+            try (Cursor<Map.Entry<Object, Object>> cursor = this.viewStorageManager.scan(shard)) {
+                while (cursor.hasNext()) {
+                    updateViewsCollections(chunk, failKeys, cursor.next());
+                    if (chunk.size() >= chunkSize) {
+                        this.viewStorageManager.setUniqueVisitors(chunk);
+                        this.bookmarkViewMapper.upsertAll(chunk);
+                        chunk.clear();
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Failed to close the cursor of shard {}", shard, e);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            this.viewStorageManager.setUniqueVisitors(chunk);
+            this.bookmarkViewMapper.upsertAll(chunk);
+        }
 
-        // return the list of the keys that failed to save
+        // return the list of the bookmark IDs that failed to save
         return failKeys;
     }
 
-    private void updateViewsCollections(Set<ViewDataDO> set, List<String> failKeys, String key) {
-        String val = this.redisTemplate.opsForValue().get(key);
-        if (Objects.isNull(val)) {
-            // add the key to fail list if no value available
-            failKeys.add(key);
-            return;
+    private void updateViewsCollections(List<ViewDataDO> chunk, List<String> failKeys, Map.Entry<Object, Object> entry) {
+        String bookmarkId = String.valueOf(entry.getKey());
+        try {
+            // create data
+            ViewDataDO data = ViewDataDO.builder()
+                    .bookmarkId(Long.parseLong(bookmarkId))
+                    .views(Integer.parseInt(String.valueOf(entry.getValue())))
+                    .build();
+            // add data to chunk
+            chunk.add(data);
+        } catch (Exception e) {
+            log.error("Cannot update views for bookmark: {}", bookmarkId, e);
+            // add the bookmark ID to list if failure
+            failKeys.add(bookmarkId);
         }
+    }
 
+    @Override
+    public int syncChangedViewsToDb() {
+        if (!this.viewStorageManager.isLegacyViewsMigrated()) {
+            // the views in the hashes are not complete before the migration is done
+            return 0;
+        }
+        // flush the views in memory to Redis first
+        this.viewAggregationManager.flush();
+
+        String owner = UUID.randomUUID().toString();
+        if (!this.viewStorageManager.tryLockSync(owner, SYNC_LOCK_TIMEOUT)) {
+            // another node is syncing
+            return 0;
+        }
+
+        int synced = 0;
         try {
-            this.updateViewsCollections(set, key, val);
+            if (!this.viewStorageManager.prepareDirtyBookmarksForSync()) {
+                return 0;
+            }
+            int chunkSize = this.configProperties.getSyncChunkSize();
+            List<Long> bookmarkIds;
+            while (!(bookmarkIds = this.viewStorageManager.getBookmarkIdsToSync(chunkSize)).isEmpty()) {
+                // the bookmarks that have been deleted have no views in Redis
+                List<ViewDataDO> data = this.viewStorageManager.getViews(bookmarkIds)
+                        .entrySet()
+                        .stream()
+                        .map(entry -> ViewDataDO.builder()
+                                .bookmarkId(entry.getKey())
+                                .views((int) Math.min(entry.getValue(), Integer.MAX_VALUE))
+                                .build())
+                        .collect(Collectors.toList());
+                if (!data.isEmpty()) {
+                    this.viewStorageManager.setUniqueVisitors(data);
+                    this.bookmarkViewMapper.upsertAll(data);
+                }
+                // the bookmarks stay in the syncing set if failed, and they will be synced next time
+                this.viewStorageManager.markSynced(bookmarkIds);
+                synced += data.size();
+            }
+        } finally {
+            this.viewStorageManager.unlockSync(owner);
+        }
+
+        if (synced > 0) {
+            this.getCurrentBean().evictVisitedBookmarksCache();
+        }
+        return synced;
+    }
+
+    @CacheEvict(value = "bookmarks:visited", allEntries = true)
+    public void evictVisitedBookmarksCache() {
+        log.debug("Evicted the cache of visited bookmarks");
+    }
+
+    /**
+     * A scheduled task to run {@link #syncChangedViewsToDb()}
+     * every {@link ViewCounterConfigProperties#getDeltaSyncIntervalMillis()} milliseconds
+     */
+    @Scheduled(fixedDelayString = "${custom-view-counter.delta-sync-interval-millis:30000}")
+    public void syncChangedViewsToDbScheduled() {
+        try {
+            int synced = this.syncChangedViewsToDb();
+            if (synced > 0) {
+                log.info("[ViewCounter] Synced views of {} bookmarks to database", synced);
+            }
         } catch (Exception e) {
-            log.error("Cannot update views for key: {}", key, e);
-            // add the key to list if failure
-            failKeys.add(key);
+            log.error("[ViewCounter] Failed to sync the changed views to database", e);
         }
     }
 
-    private void updateViewsCollections(Set<ViewDataDO> set, String key, String val) {
-        // get views
-        int views = Integer.parseInt(val);
-        // get bookmark id
-        String bookmarkIdStr = key.substring(LENGTH_OF_KEY_WEB_VIEW_COUNT_PREFIX);
-        long bookmarkId = Long.parseLong(bookmarkIdStr);
-        // create data
-        ViewDataDO data = ViewDataDO.builder().views(views).bookmarkId(bookmarkId).build();
-        // add data to set
-        set.add(data);
+    /**
+     * A scheduled task to roll up the unique visitors of yesterday (UTC) every day
+     */
+    @Scheduled(cron = "0 10 0 * * ?", zone = "UTC")
+    public void rollUpUniqueVisitorsScheduled() {
+        if (!this.viewStorageManager.isUniqueVisitorsEnabled()) {
+            return;
+        }
+        LocalDate yesterday = LocalDate.now(ZoneOffset.UTC).minusDays(1L);
+        try {
+            long count = this.viewStorageManager.rollUpUniqueVisitors(yesterday);
+            log.info("[ViewCounter] Rolled up unique visitors of {} bookmarks on {}", count, yesterday);
+        } catch (Exception e) {
+            log.error("[ViewCounter] Failed to roll up unique visitors on {}", yesterday, e);
+        }
     }
-}
\ No newline at end of file
+}
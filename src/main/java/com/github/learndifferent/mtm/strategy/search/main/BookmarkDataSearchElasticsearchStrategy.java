@@ -1,27 +1,37 @@
 package com.github.learndifferent.mtm.strategy.search.main;
 
 import com.github.learndifferent.mtm.constant.consist.SearchConstant;
+import com.github.learndifferent.mtm.constant.enums.ResultCode;
+import com.github.learndifferent.mtm.dto.search.SearchCursorDTO;
 import com.github.learndifferent.mtm.dto.search.SearchResultsDTO;
 import com.github.learndifferent.mtm.dto.search.WebForSearchDTO;
+import com.github.learndifferent.mtm.exception.ServiceException;
+import com.github.learndifferent.mtm.manager.ElasticsearchReindexManager;
 import com.github.learndifferent.mtm.manager.SearchManager;
+import com.github.learndifferent.mtm.utils.CompletableFutureUtils;
 import com.github.learndifferent.mtm.utils.PaginationUtils;
+import com.github.learndifferent.mtm.utils.ThrowExceptionUtils;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
+import org.elasticsearch.ElasticsearchStatusException;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.common.text.Text;
-import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.query.MultiMatchQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
 import org.elasticsearch.search.fetch.subphase.highlight.HighlightField;
+import org.elasticsearch.search.sort.SortBuilders;
 import org.springframework.stereotype.Component;
 
 /**
@@ -42,6 +52,62 @@ public class BookmarkDataSearchElasticsearchStrategy implements DataSearchStrate
         return searchBookmarksElasticsearch(keyword, from, size);
     }
 
+    @Override
+    public CompletableFuture<SearchResultsDTO> searchAsync(String keyword,
+                                                           int from,
+                                                           int size,
+                                                           Integer rangeFrom,
+                                                           Integer rangeTo,
+                                                           Executor executor) {
+        this.searchManager.addToTrendingList(keyword);
+
+        SearchRequest searchRequest = getBookmarkSearchRequest(keyword, from, size);
+        CompletableFuture<SearchHits> hitsFuture = this.searchManager.searchAndGetHitsAsync(searchRequest);
+        // cancel the search in Elasticsearch if the results are no longer needed
+        return CompletableFutureUtils.cancelSourceOnCancel(
+                hitsFuture.thenApply(hits -> getSearchResults(hits, size)), hitsFuture);
+    }
+
+    @Override
+    public SearchResultsDTO searchByCursor(String keyword, String cursor, int size) throws IOException {
+        this.searchManager.addToTrendingList(keyword);
+
+        SearchCursorDTO after = cursor == null ? null : SearchCursorDTO.decode(cursor);
+        SearchRequest searchRequest = getBookmarkSearchRequestAfter(keyword, after, size);
+        try {
+            SearchHits hits = this.searchManager.searchAndGetHits(searchRequest);
+            return getSearchResultsAfter(hits, size, after == null);
+        } catch (ElasticsearchStatusException e) {
+            ThrowExceptionUtils.throwIfTrue(isIndexNotFound(e), ResultCode.SEARCH_CURSOR_INVALID);
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<SearchResultsDTO> searchByCursorAsync(String keyword,
+                                                                   String cursor,
+                                                                   int size,
+                                                                   Executor executor) {
+        this.searchManager.addToTrendingList(keyword);
+
+        SearchCursorDTO after = cursor == null ? null : SearchCursorDTO.decode(cursor);
+        SearchRequest searchRequest = getBookmarkSearchRequestAfter(keyword, after, size);
+        CompletableFuture<SearchHits> hitsFuture = this.searchManager.searchAndGetHitsAsync(searchRequest);
+        CompletableFuture<SearchResultsDTO> future = new CompletableFuture<>();
+        hitsFuture.thenApply(hits -> getSearchResultsAfter(hits, size, after == null))
+                .whenComplete((results, e) -> {
+                    if (e == null) {
+                        future.complete(results);
+                        return;
+                    }
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    future.completeExceptionally(isIndexNotFound(cause)
+                            ? new ServiceException(ResultCode.SEARCH_CURSOR_INVALID) : cause);
+                });
+        // cancel the search in Elasticsearch if the results are no longer needed
+        return CompletableFutureUtils.cancelSourceOnCancel(future, hitsFuture);
+    }
+
     private SearchResultsDTO searchBookmarksElasticsearch(String keyword, int from, int size)
             throws IOException {
 
@@ -50,6 +116,10 @@ public class BookmarkDataSearchElasticsearchStrategy implements DataSearchStrate
         SearchRequest searchRequest = getBookmarkSearchRequest(keyword, from, size);
 
         SearchHits hits = this.searchManager.searchAndGetHits(searchRequest);
+        return getSearchResults(hits, size);
+    }
+
+    private SearchResultsDTO getSearchResults(SearchHits hits, int size) {
         long totalCount = getTotalCount(hits);
         int totalPage = PaginationUtils.getTotalPages((int) totalCount, size);
 
@@ -63,23 +133,94 @@ public class BookmarkDataSearchElasticsearchStrategy implements DataSearchStrate
     }
 
     private SearchRequest getBookmarkSearchRequest(String keyword, int from, int size) {
+        SearchSourceBuilder sourceBuilder = getBookmarkSearchSource(keyword).from(from).size(size);
+        return new SearchRequest(SearchConstant.INDEX_WEB).source(sourceBuilder);
+    }
+
+    private SearchSourceBuilder getBookmarkSearchSource(String keyword) {
         // Multi-field matching with higher weight for title
         MultiMatchQueryBuilder multiMatchQuery = QueryBuilders
                 .multiMatchQuery(keyword, SearchConstant.DESC, SearchConstant.TITLE)
                 .field(SearchConstant.TITLE, 2.0F);
 
-        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder()
+        return new SearchSourceBuilder()
                 .query(multiMatchQuery)
-                .timeout(new TimeValue(1, TimeUnit.MINUTES))
+                .timeout(this.searchManager.getSearchTimeout())
                 .highlighter(new HighlightBuilder()
                         .field(SearchConstant.DESC)
                         .field(SearchConstant.TITLE)
                         .preTags(SearchConstant.PRE_TAGS)
                         .postTags(SearchConstant.POST_TAGS)
-                        .numOfFragments(0))
-                .from(from).size(size);
+                        .numOfFragments(0));
+    }
 
-        return new SearchRequest(SearchConstant.INDEX_WEB).source(sourceBuilder);
+    /**
+     * Get the search request of the page after the cursor.
+     * <p>
+     * The hits are sorted by score and then by the keyword of the URL, so the sort values of the last hit tell
+     * where the next page starts and Elasticsearch doesn't have to collect and skip the previous pages.
+     * The next pages are searched in the concrete index of the first page, and the total hits are not tracked.
+     * </p>
+     *
+     * @param keyword keyword
+     * @param cursor  cursor of the previous page, or null to get the first page
+     * @param size    size
+     * @return search request
+     */
+    private SearchRequest getBookmarkSearchRequestAfter(String keyword, SearchCursorDTO cursor, int size) {
+        SearchSourceBuilder sourceBuilder = getBookmarkSearchSource(keyword)
+                .size(size)
+                .sort(SortBuilders.scoreSort())
+                .sort(SortBuilders.fieldSort(SearchConstant.URL_KEYWORD).unmappedType("keyword"));
+
+        if (cursor == null) {
+            return new SearchRequest(SearchConstant.INDEX_WEB).source(sourceBuilder);
+        }
+
+        // the index comes from the client, so make sure it's a version of the bookmark index
+        boolean isNotBookmarkIndex = !ElasticsearchReindexManager
+                .isIndexOfAlias(cursor.getIndex(), SearchConstant.INDEX_WEB);
+        ThrowExceptionUtils.throwIfTrue(isNotBookmarkIndex, ResultCode.SEARCH_CURSOR_INVALID);
+
+        sourceBuilder.searchAfter(cursor.getSortValues().toArray()).trackTotalHits(false);
+        return new SearchRequest(cursor.getIndex()).source(sourceBuilder);
+    }
+
+    private SearchResultsDTO getSearchResultsAfter(SearchHits hits, int size, boolean isFirstPage) {
+        SearchHit[] hitsArray = hits.getHits();
+        SearchResultsDTO results = SearchResultsDTO.builder()
+                .paginatedResults(getBookmarkResults(hits))
+                .build();
+
+        if (isFirstPage) {
+            long totalCount = getTotalCount(hits);
+            results.setTotalCount(totalCount)
+                    .setTotalPage(PaginationUtils.getTotalPages((int) totalCount, size));
+        }
+
+        boolean hasNextPage = hitsArray.length >= size && hitsArray.length > 0;
+        if (hasNextPage) {
+            SearchHit last = hitsArray[hitsArray.length - 1];
+            String cursor = SearchCursorDTO.builder()
+                    .index(last.getIndex())
+                    .sortValues(Arrays.asList(last.getSortValues()))
+                    .build()
+                    .encode();
+            results.setCursor(cursor);
+        }
+        return results;
+    }
+
+    /**
+     * The concrete index of the cursor is deleted after the index is rebuilt and the alias is moved,
+     * so the client has to search again from the first page
+     *
+     * @param e exception
+     * @return true if the index is not found
+     */
+    private boolean isIndexNotFound(Throwable e) {
+        return e instanceof ElasticsearchStatusException
+                && RestStatus.NOT_FOUND.equals(((ElasticsearchStatusException) e).status());
     }
 
     private List<WebForSearchDTO> getBookmarkResults(SearchHits hits) {
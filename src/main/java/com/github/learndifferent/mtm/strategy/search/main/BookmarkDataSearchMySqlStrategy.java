@@ -1,12 +1,16 @@
 package com.github.learndifferent.mtm.strategy.search.main;
 
 import com.github.learndifferent.mtm.constant.consist.SearchConstant;
+import com.github.learndifferent.mtm.constant.enums.ResultCode;
+import com.github.learndifferent.mtm.dto.search.SearchCursorDTO;
 import com.github.learndifferent.mtm.dto.search.SearchResultsDTO;
 import com.github.learndifferent.mtm.dto.search.WebForSearchDTO;
 import com.github.learndifferent.mtm.manager.SearchManager;
 import com.github.learndifferent.mtm.mapper.BookmarkMapper;
 import com.github.learndifferent.mtm.utils.PaginationUtils;
+import com.github.learndifferent.mtm.utils.ThrowExceptionUtils;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
@@ -30,6 +34,46 @@ public class BookmarkDataSearchMySqlStrategy implements DataSearchStrategy {
         return searchBookmarksMySql(keyword, from, size);
     }
 
+    @Override
+    public SearchResultsDTO searchByCursor(String keyword, String cursor, int size) throws IOException {
+
+        this.searchManager.addToTrendingList(keyword);
+
+        // keyset pagination: the cursor is the last URL of the previous page
+        String lastUrl = cursor == null ? null : getLastUrl(SearchCursorDTO.decode(cursor));
+        List<WebForSearchDTO> paginatedResults = this.bookmarkMapper
+                .searchWebDataByKeywordAfter(keyword, lastUrl, size);
+
+        SearchResultsDTO results = SearchResultsDTO.builder()
+                .paginatedResults(paginatedResults)
+                .build();
+
+        boolean isFirstPage = lastUrl == null;
+        if (isFirstPage) {
+            long totalCount = this.bookmarkMapper.countUrlsOfWebDataByKeyword(keyword);
+            results.setTotalCount(totalCount)
+                    .setTotalPage(PaginationUtils.getTotalPages((int) totalCount, size));
+        }
+
+        boolean hasNextPage = paginatedResults.size() >= size && !paginatedResults.isEmpty();
+        if (hasNextPage) {
+            String url = paginatedResults.get(paginatedResults.size() - 1).getUrl();
+            String nextCursor = SearchCursorDTO.builder()
+                    .sortValues(Collections.singletonList(url))
+                    .build()
+                    .encode();
+            results.setCursor(nextCursor);
+        }
+        return results;
+    }
+
+    private String getLastUrl(SearchCursorDTO cursor) {
+        List<Object> sortValues = cursor.getSortValues();
+        boolean isNotUrl = sortValues.size() != 1 || !(sortValues.get(0) instanceof String);
+        ThrowExceptionUtils.throwIfTrue(isNotUrl, ResultCode.SEARCH_CURSOR_INVALID);
+        return (String) sortValues.get(0);
+    }
+
     private SearchResultsDTO searchBookmarksMySql(String keyword, int from, int size) {
 
         this.searchManager.addToTrendingList(keyword);
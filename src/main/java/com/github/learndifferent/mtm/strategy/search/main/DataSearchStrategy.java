@@ -3,8 +3,12 @@ package com.github.learndifferent.mtm.strategy.search.main;
 import com.github.learndifferent.mtm.constant.enums.ResultCode;
 import com.github.learndifferent.mtm.constant.enums.SearchMode;
 import com.github.learndifferent.mtm.dto.search.SearchResultsDTO;
+import com.github.learndifferent.mtm.exception.ServiceException;
+import com.github.learndifferent.mtm.utils.CompletableFutureUtils;
 import com.github.learndifferent.mtm.utils.ThrowExceptionUtils;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import org.elasticsearch.search.SearchHits;
 
 /**
@@ -30,6 +34,68 @@ public interface DataSearchStrategy {
      */
     SearchResultsDTO search(String keyword, int from, int size, Integer rangeFrom, Integer rangeTo) throws IOException;
 
+    /**
+     * Search without blocking the current thread
+     * <p>
+     * The strategies that search in Elasticsearch override this and wait for Elasticsearch without blocking
+     * any thread. Others search in the executor by default.
+     * </p>
+     *
+     * @param keyword   keyword
+     * @param from      from
+     * @param size      size
+     * @param rangeFrom lower range value for range query if the search mode is {@link SearchMode#TAG}. Null indicates
+     *                  unbounded.
+     * @param rangeTo   upper range value for range query if the search mode is {@link SearchMode#TAG}. Null indicates
+     *                  unbounded.
+     * @param executor  executor of the searches that block
+     * @return {@link CompletableFuture}<{@link SearchResultsDTO}> Search results
+     */
+    default CompletableFuture<SearchResultsDTO> searchAsync(String keyword,
+                                                            int from,
+                                                            int size,
+                                                            Integer rangeFrom,
+                                                            Integer rangeTo,
+                                                            Executor executor) {
+        return CompletableFutureUtils.supplyAsync(() -> search(keyword, from, size, rangeFrom, rangeTo), executor);
+    }
+
+    /**
+     * Search by cursor, which costs the same no matter how deep the page is
+     * <p>
+     * Only the strategies of bookmarks support it. Others throw an exception with the result code of
+     * {@link ResultCode#SEARCH_CURSOR_NOT_SUPPORTED} by default.
+     * </p>
+     *
+     * @param keyword keyword
+     * @param cursor  token of the cursor returned with the previous page, or null to get the first page
+     * @param size    size
+     * @return {@link SearchResultsDTO} Search results with the token of the next page. The total count and
+     * total pages are only counted for the first page.
+     * @throws IOException IO Exception
+     */
+    default SearchResultsDTO searchByCursor(String keyword, String cursor, int size) throws IOException {
+        throw new ServiceException(ResultCode.SEARCH_CURSOR_NOT_SUPPORTED);
+    }
+
+    /**
+     * Search by cursor without blocking the current thread
+     *
+     * @param keyword  keyword
+     * @param cursor   token of the cursor returned with the previous page, or null to get the first page
+     * @param size     size
+     * @param executor executor of the searches that block
+     * @return {@link CompletableFuture}<{@link SearchResultsDTO}> Search results with the token of the next page
+     * @see #searchByCursor(String, String, int)
+     * @see #searchAsync(String, int, int, Integer, Integer, Executor)
+     */
+    default CompletableFuture<SearchResultsDTO> searchByCursorAsync(String keyword,
+                                                                    String cursor,
+                                                                    int size,
+                                                                    Executor executor) {
+        return CompletableFutureUtils.supplyAsync(() -> searchByCursor(keyword, cursor, size), executor);
+    }
+
     /**
      * Get total number of hits
      *
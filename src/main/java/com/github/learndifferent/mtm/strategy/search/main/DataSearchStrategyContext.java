@@ -1,33 +1,193 @@
 package com.github.learndifferent.mtm.strategy.search.main;
 
+import com.github.learndifferent.mtm.constant.consist.SearchConstant;
 import com.github.learndifferent.mtm.constant.enums.ResultCode;
+import com.github.learndifferent.mtm.constant.enums.SearchMode;
 import com.github.learndifferent.mtm.dto.search.SearchResultsDTO;
+import com.github.learndifferent.mtm.manager.SearchFailoverManager;
+import com.github.learndifferent.mtm.utils.CompletableFutureUtils;
 import com.github.learndifferent.mtm.utils.ThrowExceptionUtils;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Map;
-import lombok.RequiredArgsConstructor;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
 /**
+ * Search with the strategy of the search mode.
+ * <p>
+ * The searches in Elasticsearch fall back to the strategies that search the same data in MySQL
+ * when Elasticsearch fails, doesn't respond in time, or is shed by {@link SearchFailoverManager}.
+ * The searches by cursor never fall back, since the cursors of Elasticsearch and MySQL are different.
+ * The results of the searches that fall back are marked with {@link SearchResultsDTO#isFallback()}.
+ * </p>
+ *
  * @author zhou
  * @date 2023/8/10
  */
 @Component
-@RequiredArgsConstructor
+@Slf4j
 public class DataSearchStrategyContext {
 
+    /**
+     * Key is the name of the strategy that searches in Elasticsearch,
+     * value is the name of the strategy that searches the same data in MySQL
+     */
+    private static final Map<String, String> FALLBACK_STRATEGY_NAMES = Arrays.stream(SearchMode.values())
+            .filter(mode -> !mode.equals(mode.mySqlMode()))
+            .collect(Collectors.toMap(DataSearchStrategyContext::getStrategyName,
+                    mode -> getStrategyName(mode.mySqlMode())));
+
     private final Map<String, DataSearchStrategy> strategies;
 
-    public SearchResultsDTO search(String strategyName,
-                                   String keyword,
-                                   int from,
-                                   int size,
-                                   Integer rangeFrom,
-                                   Integer rangeTo) throws IOException {
+    private final SearchFailoverManager searchFailoverManager;
+
+    /**
+     * The searches in MySQL block on the database, so they don't run in the threads of the requests,
+     * the thread of the deadline or the I/O threads of the Elasticsearch client
+     */
+    private final Executor searchTaskExecutor;
+
+    public DataSearchStrategyContext(Map<String, DataSearchStrategy> strategies,
+                                     SearchFailoverManager searchFailoverManager,
+                                     @Qualifier("searchTaskExecutor") Executor searchTaskExecutor) {
+        this.strategies = strategies;
+        this.searchFailoverManager = searchFailoverManager;
+        this.searchTaskExecutor = searchTaskExecutor;
+    }
+
+    private static String getStrategyName(SearchMode mode) {
+        return SearchConstant.SEARCH_STRATEGY_BEAN_NAME_PREFIX + mode.mode();
+    }
 
+    private DataSearchStrategy getStrategy(String strategyName) {
         boolean hasNotContains = !strategies.containsKey(strategyName);
         ThrowExceptionUtils.throwIfTrue(hasNotContains, ResultCode.NO_RESULTS_FOUND);
+        return this.strategies.get(strategyName);
+    }
+
+    private Optional<DataSearchStrategy> getFallbackStrategy(String strategyName) {
+        if (!searchFailoverManager.isEnabled()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(FALLBACK_STRATEGY_NAMES.get(strategyName)).map(strategies::get);
+    }
+
+    private SearchResultsDTO searchInMySql(DataSearchStrategy fallback,
+                                           String keyword,
+                                           int from,
+                                           int size,
+                                           Integer rangeFrom,
+                                           Integer rangeTo) throws IOException {
+        long start = searchFailoverManager.nanoTime();
+        try {
+            SearchResultsDTO results = fallback.search(keyword, from, size, rangeFrom, rangeTo);
+            return results == null ? null : results.setFallback(true);
+        } finally {
+            searchFailoverManager.recordMySql(searchFailoverManager.nanoTime() - start);
+        }
+    }
+
+    public CompletableFuture<SearchResultsDTO> searchAsync(String strategyName,
+                                                           String keyword,
+                                                           int from,
+                                                           int size,
+                                                           Integer rangeFrom,
+                                                           Integer rangeTo) {
+
+        DataSearchStrategy strategy = getStrategy(strategyName);
+        Optional<DataSearchStrategy> fallback = getFallbackStrategy(strategyName);
+        if (!fallback.isPresent()) {
+            return strategy.searchAsync(keyword, from, size, rangeFrom, rangeTo, searchTaskExecutor);
+        }
+        Supplier<CompletableFuture<SearchResultsDTO>> searchInMySql =
+                () -> searchInMySqlAsync(fallback.get(), keyword, from, size, rangeFrom, rangeTo);
+        if (!searchFailoverManager.tryAcquireElasticsearch()) {
+            return searchInMySql.get();
+        }
+
+        long start = searchFailoverManager.nanoTime();
+        CompletableFuture<SearchResultsDTO> future = new CompletableFuture<>();
+        CompletableFuture<SearchResultsDTO> elasticsearchFuture =
+                strategy.searchAsync(keyword, from, size, rangeFrom, rangeTo, searchTaskExecutor);
+        // either the response of Elasticsearch or the deadline settles the search, whichever comes first
+        AtomicBoolean settled = new AtomicBoolean();
+
+        // stop waiting for Elasticsearch and search in MySQL if it doesn't respond in time
+        ScheduledFuture<?> deadline = searchFailoverManager.scheduleDeadline(() -> {
+            if (!settled.compareAndSet(false, true)) {
+                return;
+            }
+            searchFailoverManager.recordElasticsearch(searchFailoverManager.nanoTime() - start, true);
+            log.warn("Elasticsearch didn't respond to the keyword {} in time, searching in MySQL", keyword);
+            elasticsearchFuture.cancel(true);
+            completeWith(future, searchInMySql.get());
+        });
+
+        elasticsearchFuture.whenComplete((results, e) -> {
+            if (!settled.compareAndSet(false, true)) {
+                // the deadline has passed and the search is already in MySQL, or the results are no longer needed
+                return;
+            }
+            deadline.cancel(false);
+            boolean unavailable = e != null && SearchFailoverManager.isUnavailable(e);
+            searchFailoverManager.recordElasticsearch(searchFailoverManager.nanoTime() - start, unavailable);
+            if (e == null) {
+                future.complete(results);
+            } else if (unavailable) {
+                log.warn("Unable to search the keyword {} with {}, searching in MySQL", keyword, strategyName, e);
+                completeWith(future, searchInMySql.get());
+            } else {
+                future.completeExceptionally(e);
+            }
+        });
+
+        // cancel the search in Elasticsearch if the results are no longer needed
+        future.whenComplete((results, e) -> {
+            if (future.isCancelled()) {
+                settled.set(true);
+                deadline.cancel(false);
+                elasticsearchFuture.cancel(true);
+            }
+        });
+        return future;
+    }
+
+    private CompletableFuture<SearchResultsDTO> searchInMySqlAsync(DataSearchStrategy fallback,
+                                                                   String keyword,
+                                                                   int from,
+                                                                   int size,
+                                                                   Integer rangeFrom,
+                                                                   Integer rangeTo) {
+        return CompletableFutureUtils.supplyAsync(
+                () -> searchInMySql(fallback, keyword, from, size, rangeFrom, rangeTo), searchTaskExecutor);
+    }
+
+    private static void completeWith(CompletableFuture<SearchResultsDTO> future,
+                                     CompletableFuture<SearchResultsDTO> source) {
+        source.whenComplete((results, e) -> {
+            if (e == null) {
+                future.complete(results);
+            } else {
+                future.completeExceptionally(e);
+            }
+        });
+        // skip the search in MySQL if the results are no longer needed
+        CompletableFutureUtils.cancelSourceOnCancel(future, source);
+    }
 
-        return this.strategies.get(strategyName).search(keyword, from, size, rangeFrom, rangeTo);
+    public CompletableFuture<SearchResultsDTO> searchByCursorAsync(String strategyName,
+                                                                   String keyword,
+                                                                   String cursor,
+                                                                   int size) {
+        return getStrategy(strategyName).searchByCursorAsync(keyword, cursor, size, searchTaskExecutor);
     }
 }
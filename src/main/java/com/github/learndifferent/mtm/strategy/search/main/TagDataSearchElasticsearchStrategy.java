@@ -4,16 +4,17 @@ import com.github.learndifferent.mtm.constant.consist.SearchConstant;
 import com.github.learndifferent.mtm.dto.search.SearchResultsDTO;
 import com.github.learndifferent.mtm.dto.search.TagForSearchDTO;
 import com.github.learndifferent.mtm.manager.SearchManager;
+import com.github.learndifferent.mtm.utils.CompletableFutureUtils;
 import com.github.learndifferent.mtm.utils.PaginationUtils;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import org.elasticsearch.action.search.SearchRequest;
-import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.index.query.RangeQueryBuilder;
@@ -42,6 +43,20 @@ public class TagDataSearchElasticsearchStrategy implements DataSearchStrategy {
         return searchTagsElasticsearch(keyword, from, size, rangeFrom, rangeTo);
     }
 
+    @Override
+    public CompletableFuture<SearchResultsDTO> searchAsync(String keyword,
+                                                           int from,
+                                                           int size,
+                                                           Integer rangeFrom,
+                                                           Integer rangeTo,
+                                                           Executor executor) {
+        SearchRequest searchRequest = getTagSearchRequest(keyword, from, size, rangeFrom, rangeTo);
+        CompletableFuture<SearchHits> hitsFuture = this.searchManager.searchAndGetHitsAsync(searchRequest);
+        // cancel the search in Elasticsearch if the results are no longer needed
+        return CompletableFutureUtils.cancelSourceOnCancel(
+                hitsFuture.thenApply(hits -> getSearchResults(hits, size)), hitsFuture);
+    }
+
     private SearchResultsDTO searchTagsElasticsearch(String keyword,
                                                      int from,
                                                      int size,
@@ -50,6 +65,10 @@ public class TagDataSearchElasticsearchStrategy implements DataSearchStrategy {
 
         SearchRequest searchRequest = getTagSearchRequest(keyword, from, size, rangeFrom, rangeTo);
         SearchHits hits = this.searchManager.searchAndGetHits(searchRequest);
+        return getSearchResults(hits, size);
+    }
+
+    private SearchResultsDTO getSearchResults(SearchHits hits, int size) {
         // get total number of hits
         long totalCount = getTotalCount(hits);
         // get total pages
@@ -85,7 +104,7 @@ public class TagDataSearchElasticsearchStrategy implements DataSearchStrategy {
 
         SearchSourceBuilder source = new SearchSourceBuilder();
         source.query(boolQuery)
-                .timeout(new TimeValue(1, TimeUnit.MINUTES))
+                .timeout(this.searchManager.getSearchTimeout())
                 .from(from)
                 .size(size)
                 .sort(SearchConstant.TAG_NUMBER, SortOrder.DESC);
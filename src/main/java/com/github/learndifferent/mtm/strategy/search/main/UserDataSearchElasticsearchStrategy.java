@@ -4,9 +4,11 @@ import com.github.learndifferent.mtm.constant.consist.SearchConstant;
 import com.github.learndifferent.mtm.constant.enums.ResultCode;
 import com.github.learndifferent.mtm.dto.search.SearchResultsDTO;
 import com.github.learndifferent.mtm.dto.search.UserForSearchWithMoreInfo;
+import com.github.learndifferent.mtm.entity.UserIdAndCountDO;
 import com.github.learndifferent.mtm.exception.ServiceException;
 import com.github.learndifferent.mtm.manager.SearchManager;
 import com.github.learndifferent.mtm.mapper.BookmarkMapper;
+import com.github.learndifferent.mtm.utils.CompletableFutureUtils;
 import com.github.learndifferent.mtm.utils.PaginationUtils;
 import com.github.learndifferent.mtm.utils.ThrowExceptionUtils;
 import java.io.IOException;
@@ -17,12 +19,12 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.elasticsearch.action.search.SearchRequest;
-import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.index.query.WildcardQueryBuilder;
@@ -53,10 +55,29 @@ public class UserDataSearchElasticsearchStrategy implements DataSearchStrategy {
         return searchUsersElasticsearch(keyword, from, size);
     }
 
+    @Override
+    public CompletableFuture<SearchResultsDTO> searchAsync(String keyword,
+                                                           int from,
+                                                           int size,
+                                                           Integer rangeFrom,
+                                                           Integer rangeTo,
+                                                           Executor executor) {
+        SearchRequest searchRequest = getUserSearchRequest(keyword, from, size);
+        // the hits are converted in the search task executor because it counts the bookmarks in database
+        CompletableFuture<SearchHits> hitsFuture = searchManager.searchAndGetHitsAsync(searchRequest);
+        // cancel the search in Elasticsearch if the results are no longer needed
+        return CompletableFutureUtils.cancelSourceOnCancel(
+                hitsFuture.thenApply(hits -> getSearchResults(hits, size)), hitsFuture);
+    }
+
     private SearchResultsDTO searchUsersElasticsearch(String keyword, int from, int size) throws IOException {
         SearchRequest searchRequest = getUserSearchRequest(keyword, from, size);
 
         SearchHits hits = searchManager.searchAndGetHits(searchRequest);
+        return getSearchResults(hits, size);
+    }
+
+    private SearchResultsDTO getSearchResults(SearchHits hits, int size) {
         long totalCount = getTotalCount(hits);
         int totalPages = PaginationUtils.getTotalPages((int) totalCount, size);
         List<UserForSearchWithMoreInfo> paginatedResults = getUserResults(hits);
@@ -89,7 +110,7 @@ public class UserDataSearchElasticsearchStrategy implements DataSearchStrategy {
                         .field(SearchConstant.USER_NAME)
                         .field(SearchConstant.USER_ID)
                         .numOfFragments(0))
-                .timeout(new TimeValue(1, TimeUnit.MINUTES))
+                .timeout(searchManager.getSearchTimeout())
                 .from(from)
                 .size(size);
 
@@ -101,7 +122,7 @@ public class UserDataSearchElasticsearchStrategy implements DataSearchStrategy {
 
     private List<UserForSearchWithMoreInfo> getUserResults(SearchHits hits) {
         SearchHit[] hitsArray = hits.getHits();
-        return Arrays.stream(hitsArray).map(h -> {
+        List<UserForSearchWithMoreInfo> users = Arrays.stream(hitsArray).map(h -> {
             // Get user data
             Map<String, Object> sourceAsMap = h.getSourceAsMap();
             UserForSearchWithMoreInfo user = convertToUser(sourceAsMap);
@@ -113,6 +134,30 @@ public class UserDataSearchElasticsearchStrategy implements DataSearchStrategy {
 
             return user;
         }).collect(Collectors.toList());
+
+        setBookmarkNumbers(users);
+        return users;
+    }
+
+    /**
+     * Set the number of websites bookmarked by the users with one query for the whole page
+     *
+     * @param users users
+     */
+    private void setBookmarkNumbers(List<UserForSearchWithMoreInfo> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+
+        Set<Long> userIds = users.stream()
+                .map(UserForSearchWithMoreInfo::getId)
+                .collect(Collectors.toSet());
+        Map<Long, Integer> numbers = bookmarkMapper.countPublicBookmarksOfUsers(userIds)
+                .stream()
+                .collect(Collectors.toMap(UserIdAndCountDO::getUserId, UserIdAndCountDO::getNumber));
+
+        // the users who have no public bookmarks are not in the results of counting
+        users.forEach(user -> user.setBookmarkNumber(numbers.getOrDefault(user.getId(), 0)));
     }
 
     private UserForSearchWithMoreInfo convertToUser(Map<String, Object> source) {
@@ -132,15 +177,11 @@ public class UserDataSearchElasticsearchStrategy implements DataSearchStrategy {
 
         ThrowExceptionUtils.throwIfNull(creationTime, ResultCode.NO_RESULTS_FOUND);
 
-        // Number of websites bookmarked by the user
-        int number = bookmarkMapper.countUserBookmarks(id, false);
-
         return UserForSearchWithMoreInfo.builder()
                 .id(id)
                 .userName(username)
                 .role(role)
                 .createTime(creationTime)
-                .bookmarkNumber(number)
                 .build();
     }
 }
\ No newline at end of file
@@ -1,14 +1,15 @@
 package com.github.learndifferent.mtm.strategy.search.related;
 
 import com.github.learndifferent.mtm.constant.consist.SearchConstant;
-import com.github.learndifferent.mtm.dto.search.WebForSearchDTO;
+import com.github.learndifferent.mtm.dto.search.ReindexDocumentDTO;
+import com.github.learndifferent.mtm.manager.ElasticsearchReindexManager;
 import com.github.learndifferent.mtm.manager.SearchManager;
 import com.github.learndifferent.mtm.mapper.BookmarkMapper;
 import com.github.learndifferent.mtm.utils.JsonUtils;
-import java.util.List;
+import com.github.learndifferent.mtm.vo.ReindexProgressVO;
 import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
-import org.elasticsearch.action.bulk.BulkRequest;
 import org.springframework.stereotype.Component;
 
 /**
@@ -23,6 +24,7 @@ public class BookmarkDataSearchRelatedRelatedStrategy implements DataSearchRelat
 
     private final SearchManager searchManager;
     private final BookmarkMapper bookmarkMapper;
+    private final ElasticsearchReindexManager elasticsearchReindexManager;
 
     @Override
     public boolean verifyDataExistenceInElasticsearch() {
@@ -36,15 +38,21 @@ public class BookmarkDataSearchRelatedRelatedStrategy implements DataSearchRelat
 
     @Override
     public boolean generateDataForElasticsearchBasedOnDatabase() {
-        searchManager.throwExceptionIfFailToDeleteIndex(SearchConstant.INDEX_WEB);
-
-        List<WebForSearchDTO> data = bookmarkMapper.getAllPublicBasicWebDataForSearch();
+        long totalCount = bookmarkMapper.countDistinctPublicUrl();
+        return elasticsearchReindexManager.reindex(SearchConstant.INDEX_WEB, totalCount,
+                (lastUrl, size) -> bookmarkMapper.getPublicBasicWebDataForSearchAfter(lastUrl, size)
+                        .stream()
+                        .map(b -> ReindexDocumentDTO.builder()
+                                .key(b.getUrl())
+                                .id(b.getUrl())
+                                .json(JsonUtils.toJson(b))
+                                .build())
+                        .collect(Collectors.toList()));
+    }
 
-        BulkRequest bulkRequest = new BulkRequest();
-        data.forEach(b ->
-                searchManager.updateBulkRequest(bulkRequest, SearchConstant.INDEX_WEB, b.getUrl(),
-                        JsonUtils.toJson(b)));
-        return searchManager.sendBulkRequest(bulkRequest);
+    @Override
+    public ReindexProgressVO getGenerationProgress() {
+        return elasticsearchReindexManager.getProgress(SearchConstant.INDEX_WEB);
     }
 
     @Override
@@ -1,5 +1,7 @@
 package com.github.learndifferent.mtm.strategy.search.related;
 
+import com.github.learndifferent.mtm.vo.ReindexProgressVO;
+
 /**
  * Data search-related strategy
  *
@@ -25,12 +27,22 @@ public interface DataSearchRelatedStrategy {
     boolean checkAndDeleteIndexInElasticsearch();
 
     /**
-     * Data generation for Elasticsearch based on database
+     * Data generation for Elasticsearch based on database.
+     * <p>
+     * The data is written to a new index in the background, and the searches use the old index until it's done.
+     * </p>
      *
-     * @return true if success
+     * @return true if started, false if the data is being generated
      */
     boolean generateDataForElasticsearchBasedOnDatabase();
 
+    /**
+     * Get the progress of data generation for Elasticsearch
+     *
+     * @return progress
+     */
+    ReindexProgressVO getGenerationProgress();
+
     /**
      * Check if data in database is different from data in Elasticsearch
      *
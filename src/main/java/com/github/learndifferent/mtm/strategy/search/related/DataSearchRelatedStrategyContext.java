@@ -2,6 +2,7 @@ package com.github.learndifferent.mtm.strategy.search.related;
 
 import com.github.learndifferent.mtm.constant.consist.SearchConstant;
 import com.github.learndifferent.mtm.constant.enums.SearchMode;
+import com.github.learndifferent.mtm.vo.ReindexProgressVO;
 import java.util.HashMap;
 import java.util.Map;
 import org.springframework.stereotype.Component;
@@ -53,6 +54,10 @@ public class DataSearchRelatedStrategyContext {
         return getStrategy(mode).generateDataForElasticsearchBasedOnDatabase();
     }
 
+    public ReindexProgressVO getGenerationProgress(SearchMode mode) {
+        return getStrategy(mode).getGenerationProgress();
+    }
+
     public boolean checkDatabaseElasticsearchDataDifference(SearchMode mode) {
         DataSearchRelatedStrategy strategy = getStrategy(mode);
         return strategy.checkDatabaseElasticsearchDataDifference();
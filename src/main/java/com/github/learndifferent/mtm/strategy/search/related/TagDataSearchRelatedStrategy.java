@@ -1,16 +1,17 @@
 package com.github.learndifferent.mtm.strategy.search.related;
 
 import com.github.learndifferent.mtm.constant.consist.SearchConstant;
+import com.github.learndifferent.mtm.dto.search.ReindexDocumentDTO;
 import com.github.learndifferent.mtm.dto.search.TagForSearchDTO;
-import com.github.learndifferent.mtm.entity.TagAndCountDO;
+import com.github.learndifferent.mtm.manager.ElasticsearchReindexManager;
 import com.github.learndifferent.mtm.manager.SearchManager;
 import com.github.learndifferent.mtm.mapper.TagMapper;
 import com.github.learndifferent.mtm.utils.BeanUtils;
 import com.github.learndifferent.mtm.utils.JsonUtils;
-import java.util.List;
+import com.github.learndifferent.mtm.vo.ReindexProgressVO;
 import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
-import org.elasticsearch.action.bulk.BulkRequest;
 import org.springframework.stereotype.Component;
 
 /**
@@ -25,6 +26,7 @@ public class TagDataSearchRelatedStrategy implements DataSearchRelatedStrategy {
 
     private final SearchManager searchManager;
     private final TagMapper tagMapper;
+    private final ElasticsearchReindexManager elasticsearchReindexManager;
 
     @Override
     public boolean verifyDataExistenceInElasticsearch() {
@@ -38,23 +40,28 @@ public class TagDataSearchRelatedStrategy implements DataSearchRelatedStrategy {
 
     /**
      * Tag Data generation for Elasticsearch based on database.
-     * Remember to clear all tag data before generation.
+     * The tags that are not in database any more are removed when the new index replaces the old one.
      *
-     * @return true if success
+     * @return true if started, false if the data is being generated
      */
     @Override
     public boolean generateDataForElasticsearchBasedOnDatabase() {
-        searchManager.throwExceptionIfFailToDeleteIndex(SearchConstant.INDEX_TAG);
-
-        List<TagAndCountDO> data = tagMapper.getAllTagsAndCountOfPublicBookmarks();
-        List<TagForSearchDTO> tcs = BeanUtils.convertList(data, TagForSearchDTO.class);
-
-        BulkRequest bulkRequest = new BulkRequest();
-        tcs.forEach(tc ->
-                searchManager.updateBulkRequest(bulkRequest, SearchConstant.INDEX_TAG, tc.getTag(),
-                        JsonUtils.toJson(tc)));
+        long totalCount = tagMapper.countDistinctTags();
+        return elasticsearchReindexManager.reindex(SearchConstant.INDEX_TAG, totalCount,
+                (lastTag, size) -> tagMapper.getTagsAndCountOfPublicBookmarksAfter(lastTag, size)
+                        .stream()
+                        .map(tc -> BeanUtils.convert(tc, TagForSearchDTO.class))
+                        .map(tc -> ReindexDocumentDTO.builder()
+                                .key(tc.getTag())
+                                .id(tc.getTag())
+                                .json(JsonUtils.toJson(tc))
+                                .build())
+                        .collect(Collectors.toList()));
+    }
 
-        return searchManager.sendBulkRequest(bulkRequest);
+    @Override
+    public ReindexProgressVO getGenerationProgress() {
+        return elasticsearchReindexManager.getProgress(SearchConstant.INDEX_TAG);
     }
 
     @Override
@@ -1,16 +1,17 @@
 package com.github.learndifferent.mtm.strategy.search.related;
 
 import com.github.learndifferent.mtm.constant.consist.SearchConstant;
+import com.github.learndifferent.mtm.dto.search.ReindexDocumentDTO;
 import com.github.learndifferent.mtm.dto.search.UserForSearchDTO;
-import com.github.learndifferent.mtm.entity.UserDO;
+import com.github.learndifferent.mtm.manager.ElasticsearchReindexManager;
 import com.github.learndifferent.mtm.manager.SearchManager;
 import com.github.learndifferent.mtm.mapper.UserMapper;
 import com.github.learndifferent.mtm.utils.BeanUtils;
 import com.github.learndifferent.mtm.utils.JsonUtils;
-import java.util.List;
+import com.github.learndifferent.mtm.vo.ReindexProgressVO;
 import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
-import org.elasticsearch.action.bulk.BulkRequest;
 import org.springframework.stereotype.Component;
 
 /**
@@ -25,6 +26,7 @@ public class UserDataSearchRelatedStrategy implements DataSearchRelatedStrategy
 
     private final SearchManager searchManager;
     private final UserMapper userMapper;
+    private final ElasticsearchReindexManager elasticsearchReindexManager;
 
     @Override
     public boolean verifyDataExistenceInElasticsearch() {
@@ -39,20 +41,26 @@ public class UserDataSearchRelatedStrategy implements DataSearchRelatedStrategy
     /**
      * User Data generation for Elasticsearch based on database
      *
-     * @return true if success
+     * @return true if started, false if the data is being generated
      */
     @Override
     public boolean generateDataForElasticsearchBasedOnDatabase() {
-        searchManager.throwExceptionIfFailToDeleteIndex(SearchConstant.INDEX_USER);
-
-        List<UserDO> us = userMapper.getUsers(null, null);
-        List<UserForSearchDTO> users = BeanUtils.convertList(us, UserForSearchDTO.class);
-
-        BulkRequest bulkRequest = new BulkRequest();
-        users.forEach(u -> searchManager.updateBulkRequest(bulkRequest,
-                SearchConstant.INDEX_USER, String.valueOf(u.getId()), JsonUtils.toJson(u)));
+        long totalCount = userMapper.countUsers();
+        return elasticsearchReindexManager.reindex(SearchConstant.INDEX_USER, totalCount,
+                (lastId, size) -> userMapper.getUsersAfter(lastId == null ? null : Long.valueOf(lastId), size)
+                        .stream()
+                        .map(u -> BeanUtils.convert(u, UserForSearchDTO.class))
+                        .map(u -> ReindexDocumentDTO.builder()
+                                .key(String.valueOf(u.getId()))
+                                .id(String.valueOf(u.getId()))
+                                .json(JsonUtils.toJson(u))
+                                .build())
+                        .collect(Collectors.toList()));
+    }
 
-        return searchManager.sendBulkRequest(bulkRequest);
+    @Override
+    public ReindexProgressVO getGenerationProgress() {
+        return elasticsearchReindexManager.getProgress(SearchConstant.INDEX_USER);
     }
 
     @Override
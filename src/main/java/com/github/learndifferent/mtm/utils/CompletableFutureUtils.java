@@ -0,0 +1,74 @@
+package com.github.learndifferent.mtm.utils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Utility class for {@link CompletableFuture}
+ *
+ * @author zhou
+ * @date 2023/12/9
+ */
+public class CompletableFutureUtils {
+
+    private CompletableFutureUtils() {
+    }
+
+    /**
+     * Cancel the source future if the dependent future is cancelled.
+     * <p>
+     * Cancelling a future doesn't cancel the futures that it depends on, such as the one before
+     * {@link CompletableFuture#thenApply} or {@link CompletableFuture#exceptionally}, so the work behind them
+     * would keep running even if the results are no longer needed.
+     * </p>
+     *
+     * @param dependent the future that depends on the source future
+     * @param source    the source future
+     * @param <T>       type of the result of the dependent future
+     * @return the dependent future
+     */
+    public static <T> CompletableFuture<T> cancelSourceOnCancel(CompletableFuture<T> dependent, Future<?> source) {
+        dependent.whenComplete((result, e) -> {
+            if (dependent.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+        return dependent;
+    }
+
+    /**
+     * Run the task that blocks in the executor.
+     * <p>
+     * Unlike {@link CompletableFuture#supplyAsync}, the task can throw checked exceptions, which complete the future
+     * exceptionally, and the task is skipped if the future is cancelled before it starts. The future completes
+     * exceptionally with the {@link RejectedExecutionException} as well if the executor rejects the task.
+     * </p>
+     *
+     * @param task     the task that blocks
+     * @param executor the executor to run the task
+     * @param <T>      type of the result of the task
+     * @return the future of the result
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Callable<T> task, Executor executor) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                if (future.isDone()) {
+                    // the result is no longer needed
+                    return;
+                }
+                try {
+                    future.complete(task.call());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+}
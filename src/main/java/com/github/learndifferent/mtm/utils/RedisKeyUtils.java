@@ -2,6 +2,8 @@ package com.github.learndifferent.mtm.utils;
 
 import com.github.learndifferent.mtm.config.RedisConfigProperties;
 import com.github.learndifferent.mtm.constant.consist.RedisConstant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -108,4 +110,68 @@ public class RedisKeyUtils {
     public static int getSysNotificationReadStatusTrackNotificationsOfUserOffset(Long notificationId) {
         return Math.abs(notificationId.hashCode());
     }
+
+    public static String getWorkerIdLeaseKey(long workerId) {
+        return RedisConstant.WORKER_ID_LEASE_PREFIX + workerId;
+    }
+
+    public static String getViewHashKey(int shard) {
+        return RedisConstant.VIEW_HASH_PREFIX + shard;
+    }
+
+    public static int getViewHashShard(long bookmarkId, int shards) {
+        return Math.floorMod(Long.hashCode(bookmarkId), shards);
+    }
+
+    public static String getUniqueVisitorKey(long bookmarkId) {
+        return RedisConstant.UNIQUE_VISITOR_PREFIX + bookmarkId;
+    }
+
+    public static String getDailyUniqueVisitorKey(long bookmarkId, LocalDate date) {
+        return RedisConstant.DAILY_UNIQUE_VISITOR_PREFIX + bookmarkId + ":" + date.format(DateTimeFormatter.BASIC_ISO_DATE);
+    }
+
+    public static String getUniqueVisitorBookmarksKey(LocalDate date) {
+        return RedisConstant.UNIQUE_VISITOR_BOOKMARKS_PREFIX + date.format(DateTimeFormatter.BASIC_ISO_DATE);
+    }
+
+    public static String getHourlyViewRankingKey(String hour) {
+        return RedisConstant.HOURLY_VIEW_RANKING_PREFIX + hour;
+    }
+
+    public static String getDailyViewRankingKey(String date) {
+        return RedisConstant.DAILY_VIEW_RANKING_PREFIX + date;
+    }
+
+    public static String getWindowViewRankingKey(String window) {
+        return RedisConstant.WINDOW_VIEW_RANKING_PREFIX + window;
+    }
+
+    public static String getEmptyWindowViewRankingKey(String window) {
+        return RedisConstant.EMPTY_WINDOW_VIEW_RANKING_PREFIX + window;
+    }
+
+    public static String getTrendingBucketKey(String bucket) {
+        return RedisConstant.TRENDING_BUCKET_PREFIX + bucket;
+    }
+
+    public static String getTrendingMergedKey(String nodeId) {
+        return RedisConstant.TRENDING_MERGED_PREFIX + nodeId;
+    }
+
+    public static String getReindexProgressKey(String alias) {
+        return RedisConstant.REINDEX_PROGRESS_PREFIX + alias;
+    }
+
+    public static String getReindexLockKey(String alias) {
+        return RedisConstant.REINDEX_LOCK_PREFIX + alias;
+    }
+
+    public static String getSearchCacheGenerationKey(String alias) {
+        return RedisConstant.SEARCH_CACHE_GENERATION_PREFIX + alias;
+    }
+
+    public static String getSearchCacheResultsKey(String key) {
+        return RedisConstant.SEARCH_CACHE_RESULTS_PREFIX + key;
+    }
 }
@@ -24,6 +24,11 @@ public class BatchJobVO {
      */
     private Long jobId;
 
+    /**
+     * Job Execution ID, which is used to restart the failed job
+     */
+    private Long jobExecutionId;
+
     /**
      * Instance ID
      */
@@ -26,8 +26,8 @@ public class BookmarkingResultVO implements Serializable {
     private Boolean hasSavedToDatabase;
 
     /**
-     * True if Elasticsearch saved the data successfully.
-     * False if Elasticsearch can't save the data.
+     * True if the change is recorded in the search outbox, which saves it to Elasticsearch within seconds.
+     * False if the data is not saved.
      * Null if the data does not need to be saved to Elasticsearch.
      */
     private Boolean hasSavedToElasticsearch;
@@ -0,0 +1,63 @@
+package com.github.learndifferent.mtm.vo;
+
+import java.io.Serializable;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Metrics of the ID generator
+ *
+ * @author zhou
+ * @date 2023/9/17
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class IdGeneratorMetricsVO implements Serializable {
+
+    /**
+     * Metrics of each business tag
+     */
+    private List<IdGeneratorTagMetricsVO> tags;
+
+    /**
+     * Number of threads that are updating segments
+     */
+    private Integer executorActiveCount;
+
+    /**
+     * Current number of threads in the executor
+     */
+    private Integer executorPoolSize;
+
+    /**
+     * Max number of threads in the executor
+     */
+    private Integer executorMaxPoolSize;
+
+    /**
+     * Largest number of threads that have ever been in the executor
+     */
+    private Integer executorLargestPoolSize;
+
+    /**
+     * Number of completed segment update tasks
+     */
+    private Long executorCompletedTaskCount;
+
+    /**
+     * Number of segment update tasks rejected by the executor
+     */
+    private Long executorRejectedTaskCount;
+
+    /**
+     * Active threads / max threads of the executor
+     */
+    private Double executorSaturation;
+
+    private static final long serialVersionUID = 1L;
+}
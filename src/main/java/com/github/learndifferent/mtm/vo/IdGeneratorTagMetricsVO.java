@@ -0,0 +1,92 @@
+package com.github.learndifferent.mtm.vo;
+
+import java.io.Serializable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Metrics of the segment ID allocator for a business tag
+ *
+ * @author zhou
+ * @date 2023/9/17
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class IdGeneratorTagMetricsVO implements Serializable {
+
+    /**
+     * Business tag
+     */
+    private String tag;
+
+    /**
+     * Current step
+     */
+    private Integer step;
+
+    /**
+     * Total number of IDs issued
+     */
+    private Long issuedCount;
+
+    /**
+     * IDs issued per second in the last sampling period
+     */
+    private Double issuedPerSecond;
+
+    /**
+     * Percentage of the remaining IDs in the current segment
+     */
+    private Double remainingPercentage;
+
+    /**
+     * Number of successful segment refills
+     */
+    private Long refillCount;
+
+    /**
+     * Number of failed segment refills
+     */
+    private Long refillFailureCount;
+
+    /**
+     * Mean duration of the segment refills in milliseconds
+     */
+    private Double refillMeanMillis;
+
+    /**
+     * Max duration of the segment refills in milliseconds (in the recent time window)
+     */
+    private Double refillMaxMillis;
+
+    /**
+     * Number of times the next segment was not ready when the current segment ran out
+     */
+    private Long nextSegmentNotReadyCount;
+
+    /**
+     * Number of times both segments were not ready after waiting
+     */
+    private Long exhaustedCount;
+
+    /**
+     * Number of times the threads waited for the next segment
+     */
+    private Long waitCount;
+
+    /**
+     * Total time in milliseconds the threads spent waiting for the next segment
+     */
+    private Double waitTotalMillis;
+
+    /**
+     * Max time in milliseconds a thread spent waiting for the next segment (in the recent time window)
+     */
+    private Double waitMaxMillis;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,68 @@
+package com.github.learndifferent.mtm.vo;
+
+import java.io.Serializable;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress of rebuilding an Elasticsearch index
+ *
+ * @author zhou
+ * @date 2023/10/22
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ReindexProgressVO implements Serializable {
+
+    /**
+     * Alias of the index, which is used by the searches
+     */
+    private String alias;
+
+    /**
+     * Name of the index that is being built
+     */
+    private String targetIndex;
+
+    /**
+     * Status: RUNNING, FAILED (can be resumed by rebuilding again), DONE, or NONE if never rebuilt
+     */
+    private String status;
+
+    /**
+     * Number of documents written to the new index
+     */
+    private Long indexedCount;
+
+    /**
+     * Number of rows in database when the rebuild started
+     */
+    private Long totalCount;
+
+    /**
+     * Key of the last row whose document and all documents before it are written to the new index
+     */
+    private String lastKey;
+
+    /**
+     * Time when the rebuild started
+     */
+    private Instant startTime;
+
+    /**
+     * Time when the progress was last updated
+     */
+    private Instant updateTime;
+
+    /**
+     * The reason of the failure
+     */
+    private String message;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,63 @@
+package com.github.learndifferent.mtm.vo;
+
+import java.io.Serializable;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Metrics of the search result cache
+ *
+ * @author zhou
+ * @date 2023/11/4
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SearchCacheMetricsVO implements Serializable {
+
+    /**
+     * True if the cache is enabled and the generations of the indices are up-to-date
+     */
+    private Boolean enabled;
+
+    /**
+     * Number of results found in memory
+     */
+    private Long localHits;
+
+    /**
+     * Number of results not found in memory
+     */
+    private Long localMisses;
+
+    /**
+     * Number of results found in Redis after not found in memory
+     */
+    private Long redisHits;
+
+    /**
+     * Number of results not found in Redis
+     */
+    private Long redisMisses;
+
+    /**
+     * Results found in memory or Redis / all requests
+     */
+    private Double hitRate;
+
+    /**
+     * Number of results cached in memory
+     */
+    private Integer localSize;
+
+    /**
+     * Key is the alias of the index, value is the current generation of the results
+     */
+    private Map<String, Long> generations;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,37 @@
+package com.github.learndifferent.mtm.vo;
+
+import java.io.Serializable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Autocomplete suggestion
+ *
+ * @author zhou
+ * @date 2023/11/5
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SuggestionVO implements Serializable {
+
+    /**
+     * The tag itself for tags, and the user ID for users
+     */
+    private String id;
+
+    /**
+     * Tag or username
+     */
+    private String text;
+
+    /**
+     * Number of public bookmarks of the tag, and 0 for users
+     */
+    private Long count;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,40 @@
+package com.github.learndifferent.mtm.config.batch;
+
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+
+class BookmarkViewPartitionerTest {
+
+    @Test
+    @DisplayName("Should split all shards into continuous ranges without overlapping")
+    void shouldSplitAllShardsIntoContinuousRangesWithoutOverlapping() {
+        Map<String, ExecutionContext> partitions = new BookmarkViewPartitioner(64).partition(6);
+        Assertions.assertEquals(6, partitions.size());
+
+        boolean[] covered = new boolean[64];
+        partitions.values().forEach(context -> {
+            int from = context.getInt(BookmarkViewPartitioner.FROM_SHARD);
+            int to = context.getInt(BookmarkViewPartitioner.TO_SHARD);
+            Assertions.assertTrue(to - from == 10 || to - from == 11);
+            for (int shard = from; shard < to; shard++) {
+                Assertions.assertFalse(covered[shard]);
+                covered[shard] = true;
+            }
+        });
+        for (boolean c : covered) {
+            Assertions.assertTrue(c);
+        }
+    }
+
+    @Test
+    @DisplayName("Should not create more partitions than shards")
+    void shouldNotCreateMorePartitionsThanShards() {
+        Map<String, ExecutionContext> partitions = new BookmarkViewPartitioner(4).partition(16);
+        Assertions.assertEquals(4, partitions.size());
+        partitions.values().forEach(context -> Assertions.assertEquals(1,
+                context.getInt(BookmarkViewPartitioner.TO_SHARD) - context.getInt(BookmarkViewPartitioner.FROM_SHARD)));
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.learndifferent.mtm.controller;
+
+import com.github.learndifferent.mtm.config.ElasticsearchConfigProperties;
+import com.github.learndifferent.mtm.constant.enums.ResultCode;
+import com.github.learndifferent.mtm.constant.enums.SearchMode;
+import com.github.learndifferent.mtm.dto.search.SearchResultsDTO;
+import com.github.learndifferent.mtm.exception.GlobalExceptionHandler;
+import com.github.learndifferent.mtm.service.SearchService;
+import java.util.concurrent.CompletableFuture;
+import javax.servlet.AsyncListener;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+@ExtendWith(MockitoExtension.class)
+class SearchControllerTest {
+
+    private static final String KEYWORD = "java";
+
+    private static final int SIZE = 10;
+
+    @Mock
+    private SearchService searchService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        ElasticsearchConfigProperties properties = new ElasticsearchConfigProperties();
+        properties.setSearchDeadlineMillis(1000L);
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new SearchController(searchService, properties))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    private MvcResult startSearch() throws Exception {
+        return mockMvc.perform(MockMvcRequestBuilders.get("/search/cursor")
+                        .param("mode", SearchMode.WEB.name())
+                        .param("keyword", KEYWORD))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+    }
+
+    @Test
+    @DisplayName("Should return the results before the deadline")
+    void shouldReturnTheResultsBeforeTheDeadline() throws Exception {
+        CompletableFuture<SearchResultsDTO> future = new CompletableFuture<>();
+        Mockito.when(searchService.searchByCursorAsync(SearchMode.WEB, KEYWORD, null, SIZE)).thenReturn(future);
+
+        MvcResult mvcResult = startSearch();
+        future.complete(SearchResultsDTO.builder().totalCount(1L).build());
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(mvcResult))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.code").value(ResultCode.SUCCESS.value()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.data.totalCount").value(1));
+    }
+
+    @Test
+    @DisplayName("Should return SEARCH_TIMEOUT and cancel the search after the deadline")
+    void shouldReturnSearchTimeoutAndCancelTheSearchAfterTheDeadline() throws Exception {
+        CompletableFuture<SearchResultsDTO> future = new CompletableFuture<>();
+        Mockito.when(searchService.searchByCursorAsync(SearchMode.WEB, KEYWORD, null, SIZE)).thenReturn(future);
+
+        MvcResult mvcResult = startSearch();
+        // the container times out the request
+        MockAsyncContext asyncContext = (MockAsyncContext) mvcResult.getRequest().getAsyncContext();
+        Assertions.assertNotNull(asyncContext);
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(null);
+        }
+
+        Assertions.assertTrue(future.isCancelled());
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(mvcResult))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.code").value(ResultCode.SEARCH_TIMEOUT.value()));
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.learndifferent.mtm.dto.id;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class SegmentBufferTest {
+
+    private static Segment segment(SegmentBuffer buffer, long maxId) {
+        Segment segment = new Segment(buffer);
+        segment.setMaxId(maxId);
+        return segment;
+    }
+
+    @Test
+    @DisplayName("Should not switch the segment if the next segment is not ready")
+    void shouldNotSwitchTheSegmentIfTheNextSegmentIsNotReady() {
+        SegmentBuffer buffer = new SegmentBuffer();
+        Segment exhausted = buffer.getCurrentSegment();
+
+        Assertions.assertFalse(buffer.switchToNextSegment(exhausted));
+        Assertions.assertSame(exhausted, buffer.getCurrentSegment());
+    }
+
+    @Test
+    @DisplayName("Should switch to the next segment and clear it")
+    void shouldSwitchToTheNextSegmentAndClearIt() {
+        SegmentBuffer buffer = new SegmentBuffer();
+        Segment exhausted = buffer.getCurrentSegment();
+        Segment next = segment(buffer, 2001L);
+
+        Assertions.assertTrue(buffer.publishNextSegment(next));
+        Assertions.assertTrue(buffer.isNextSegmentReady());
+        Assertions.assertTrue(buffer.switchToNextSegment(exhausted));
+
+        Assertions.assertSame(next, buffer.getCurrentSegment());
+        Assertions.assertFalse(buffer.isNextSegmentReady());
+    }
+
+    @Test
+    @DisplayName("Should not replace the next segment that is ready")
+    void shouldNotReplaceTheNextSegmentThatIsReady() {
+        SegmentBuffer buffer = new SegmentBuffer();
+        Segment next = segment(buffer, 2001L);
+
+        Assertions.assertTrue(buffer.publishNextSegment(next));
+        Assertions.assertFalse(buffer.publishNextSegment(segment(buffer, 3001L)));
+        Assertions.assertSame(next, buffer.getNextSegment());
+    }
+
+    @Test
+    @DisplayName("Should not switch again with the segment that has already been switched")
+    void shouldNotSwitchAgainWithTheSegmentThatHasAlreadyBeenSwitched() {
+        SegmentBuffer buffer = new SegmentBuffer();
+        Segment exhausted = buffer.getCurrentSegment();
+        Segment next = segment(buffer, 2001L);
+        buffer.publishNextSegment(next);
+        buffer.switchToNextSegment(exhausted);
+        Segment afterNext = segment(buffer, 3001L);
+        buffer.publishNextSegment(afterNext);
+
+        // a thread that is still holding the exhausted segment retries with the current segment
+        Assertions.assertTrue(buffer.switchToNextSegment(exhausted));
+        Assertions.assertSame(next, buffer.getCurrentSegment());
+        Assertions.assertSame(afterNext, buffer.getNextSegment());
+    }
+
+    @Test
+    @DisplayName("Should switch the segment only once when threads find it exhausted concurrently")
+    void shouldSwitchTheSegmentOnlyOnceWhenThreadsFindItExhaustedConcurrently() throws InterruptedException {
+        int threads = 8;
+        for (int round = 0; round < 100; round++) {
+            SegmentBuffer buffer = new SegmentBuffer();
+            Segment exhausted = buffer.getCurrentSegment();
+            Segment next = segment(buffer, 2001L);
+            buffer.publishNextSegment(next);
+
+            AtomicInteger switched = new AtomicInteger();
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(threads);
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            for (int i = 0; i < threads; i++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                        if (buffer.switchToNextSegment(exhausted)) {
+                            switched.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            start.countDown();
+            Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+            executor.shutdown();
+
+            // every thread can retry with the new current segment, and the next segment is not skipped
+            Assertions.assertEquals(threads, switched.get());
+            Assertions.assertSame(next, buffer.getCurrentSegment());
+            Assertions.assertFalse(buffer.isNextSegmentReady());
+        }
+    }
+}
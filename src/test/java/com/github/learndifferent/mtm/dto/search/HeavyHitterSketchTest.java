@@ -0,0 +1,64 @@
+package com.github.learndifferent.mtm.dto.search;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class HeavyHitterSketchTest {
+
+    @Test
+    @DisplayName("Should count the items exactly when there are enough counters")
+    void shouldCountTheItemsExactlyWhenThereAreEnoughCounters() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(10);
+        sketch.add("java", 3L);
+        sketch.add("go");
+        sketch.add("java");
+
+        List<Map.Entry<String, Long>> top = sketch.top(10);
+
+        Assertions.assertEquals(2, top.size());
+        Assertions.assertEquals("java", top.get(0).getKey());
+        Assertions.assertEquals(4L, top.get(0).getValue());
+        Assertions.assertEquals(1L, top.get(1).getValue());
+        Assertions.assertEquals(5L, sketch.getTotal());
+    }
+
+    @Test
+    @DisplayName("Should keep the heavy hitters with bounded counters")
+    void shouldKeepTheHeavyHittersWithBoundedCounters() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(20);
+        for (int i = 0; i < 10_000; i++) {
+            sketch.add("rare" + i);
+            if (i % 4 == 0) {
+                sketch.add("hot");
+            }
+        }
+
+        List<Map.Entry<String, Long>> top = sketch.top(1);
+
+        Assertions.assertEquals(20, sketch.size());
+        Assertions.assertEquals("hot", top.get(0).getKey());
+        // the guaranteed count is never more than the real count
+        Assertions.assertTrue(top.get(0).getValue() <= 2_500L);
+        Assertions.assertTrue(top.get(0).getValue() > 2_000L);
+    }
+
+    @Test
+    @DisplayName("Should not count the items that don't occur")
+    void shouldNotCountTheItemsThatDoNotOccur() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(2);
+        sketch.add("java", 2L);
+        sketch.add("go", 0L);
+        sketch.add("rust", -1L);
+
+        List<Map.Entry<String, Long>> top = sketch.top(10);
+
+        // no scores of 0 or less are flushed to the trending list
+        Assertions.assertEquals(1, top.size());
+        Assertions.assertEquals("java", top.get(0).getKey());
+        Assertions.assertEquals(1, sketch.size());
+        Assertions.assertEquals(2L, sketch.getTotal());
+    }
+}
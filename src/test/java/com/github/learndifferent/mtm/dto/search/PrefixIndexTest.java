@@ -0,0 +1,67 @@
+package com.github.learndifferent.mtm.dto.search;
+
+import com.github.learndifferent.mtm.dto.search.PrefixIndex.Completion;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class PrefixIndexTest {
+
+    private PrefixIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PrefixIndex(3);
+        index.put("java", "java", 5);
+        index.put("javascript", "JavaScript", 9);
+        index.put("jvm", "jvm", 1);
+        index.put("jakarta", "jakarta", 2);
+        index.put("go", "go", 7);
+    }
+
+    private List<String> texts(String prefix, int size) {
+        return index.complete(prefix, size).stream().map(Completion::getText).collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Should return the top completions of the prefix ignoring case")
+    void shouldReturnTheTopCompletionsOfThePrefixIgnoringCase() {
+        Assertions.assertEquals(Arrays.asList("JavaScript", "java", "jakarta"), texts("j", 10));
+        Assertions.assertEquals(Arrays.asList("JavaScript", "java"), texts("JA", 2));
+        Assertions.assertEquals(Arrays.asList("JavaScript", "go", "java"), texts("", 3));
+        Assertions.assertTrue(texts("python", 3).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should reorder the completions when the weight changes")
+    void shouldReorderTheCompletionsWhenTheWeightChanges() {
+        index.put("javascript", "JavaScript", 0);
+
+        Assertions.assertEquals(Arrays.asList("java", "jakarta", "jvm"), texts("j", 3));
+        Assertions.assertEquals(5, index.size());
+    }
+
+    @Test
+    @DisplayName("Should remove the completion and the empty prefixes")
+    void shouldRemoveTheCompletionAndTheEmptyPrefixes() {
+        index.remove("java");
+        index.remove("javascript");
+
+        Assertions.assertTrue(texts("jav", 3).isEmpty());
+        Assertions.assertEquals(Arrays.asList("jakarta", "jvm"), texts("j", 3));
+        Assertions.assertEquals(3, index.size());
+    }
+
+    @Test
+    @DisplayName("Should replace the text of the same ID")
+    void shouldReplaceTheTextOfTheSameId() {
+        index.put("go", "golang", 7);
+
+        Assertions.assertEquals(Arrays.asList("golang"), texts("go", 3));
+        Assertions.assertEquals("go", index.complete("gol", 1).get(0).getId());
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.learndifferent.mtm.dto.search;
+
+import com.github.learndifferent.mtm.constant.enums.ResultCode;
+import com.github.learndifferent.mtm.exception.ServiceException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class SearchCursorDTOTest {
+
+    private static String encodeJson(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Should decode the encoded cursor")
+    void shouldDecodeTheEncodedCursor() {
+        SearchCursorDTO cursor = SearchCursorDTO.builder()
+                .index("web_v20231125000000")
+                .sortValues(Arrays.asList(1.5D, "https://github.com"))
+                .build();
+
+        SearchCursorDTO decoded = SearchCursorDTO.decode(cursor.encode());
+
+        Assertions.assertEquals(cursor.getIndex(), decoded.getIndex());
+        Assertions.assertEquals(cursor.getSortValues(), decoded.getSortValues());
+    }
+
+    private static void assertInvalid(String token) {
+        ServiceException e = Assertions.assertThrows(ServiceException.class, () -> SearchCursorDTO.decode(token));
+        Assertions.assertEquals(ResultCode.SEARCH_CURSOR_INVALID, e.getResultCode());
+    }
+
+    @Test
+    @DisplayName("Should throw SEARCH_CURSOR_INVALID if the JSON is null")
+    void shouldThrowSearchCursorInvalidIfTheJsonIsNull() {
+        Assertions.assertEquals("bnVsbA", encodeJson("null"));
+        assertInvalid("bnVsbA");
+    }
+
+    @Test
+    @DisplayName("Should throw SEARCH_CURSOR_INVALID if the JSON is not a cursor")
+    void shouldThrowSearchCursorInvalidIfTheJsonIsNotACursor() {
+        assertInvalid(encodeJson("{}"));
+        assertInvalid(encodeJson("{\"sortValues\":[]}"));
+        assertInvalid(encodeJson("[1]"));
+        assertInvalid(encodeJson("not json"));
+    }
+
+    @Test
+    @DisplayName("Should throw SEARCH_CURSOR_INVALID if the token is not Base64")
+    void shouldThrowSearchCursorInvalidIfTheTokenIsNotBase64() {
+        assertInvalid("#$%");
+    }
+}
@@ -0,0 +1,279 @@
+package com.github.learndifferent.mtm.manager;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.github.learndifferent.mtm.config.ElasticsearchBulkConfigProperties;
+import com.github.learndifferent.mtm.constant.consist.SearchConstant;
+import com.github.learndifferent.mtm.dto.search.ReindexDocumentDTO;
+import com.github.learndifferent.mtm.utils.RedisKeyUtils;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.GetAliasesResponse;
+import org.elasticsearch.client.IndicesClient;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+@ExtendWith(MockitoExtension.class)
+class ElasticsearchReindexManagerTest {
+
+    private static final String ALIAS = SearchConstant.INDEX_TAG;
+
+    private static final String PROGRESS_KEY = RedisKeyUtils.getReindexProgressKey(ALIAS);
+
+    @Mock
+    private RestHighLevelClient client;
+
+    @Mock
+    private IndicesClient indicesClient;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private SearchResultCacheManager searchResultCacheManager;
+
+    /**
+     * The progress in Redis, which is shared by the nodes
+     */
+    private final Map<Object, Object> progress = new ConcurrentHashMap<>();
+
+    private final Set<String> existingIndices = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The index and the ID of the documents that are written in bulk requests
+     */
+    private final List<String> writtenDocuments = new CopyOnWriteArrayList<>();
+
+    /**
+     * The node that rebuilds the index
+     */
+    private ElasticsearchReindexManager node;
+
+    /**
+     * The node that writes the changed documents while the index is being rebuilt
+     */
+    private ElasticsearchReindexManager otherNode;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        lenient().when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        lenient().when(hashOperations.entries(PROGRESS_KEY)).thenAnswer(invocation -> new HashMap<>(progress));
+        lenient().when(hashOperations.multiGet(eq(PROGRESS_KEY), anyCollection()))
+                .thenAnswer(invocation -> ((Collection<Object>) invocation.getArgument(1)).stream()
+                        .map(progress::get)
+                        .collect(Collectors.toList()));
+        lenient().doAnswer(invocation -> progress.put(invocation.getArgument(1), invocation.getArgument(2)))
+                .when(hashOperations).put(eq(PROGRESS_KEY), any(), any());
+        lenient().doAnswer(invocation -> {
+            progress.putAll(invocation.getArgument(1));
+            return null;
+        }).when(hashOperations).putAll(eq(PROGRESS_KEY), anyMap());
+        lenient().when(hashOperations.delete(eq(PROGRESS_KEY), any()))
+                .thenAnswer(invocation -> progress.remove(invocation.getArgument(1)) == null ? 0L : 1L);
+        lenient().when(redisTemplate.delete(PROGRESS_KEY)).thenAnswer(invocation -> {
+            progress.clear();
+            return true;
+        });
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        lenient().when(valueOperations.setIfAbsent(eq(RedisKeyUtils.getReindexLockKey(ALIAS)), anyString(),
+                any(Duration.class))).thenReturn(true);
+
+        lenient().when(client.indices()).thenReturn(indicesClient);
+        lenient().when(indicesClient.exists(any(GetIndexRequest.class), any(RequestOptions.class)))
+                .thenAnswer(invocation -> existingIndices.contains(
+                        invocation.<GetIndexRequest>getArgument(0).indices()[0]));
+        lenient().when(indicesClient.create(any(CreateIndexRequest.class), any(RequestOptions.class)))
+                .thenAnswer(invocation -> {
+                    existingIndices.add(invocation.<CreateIndexRequest>getArgument(0).index());
+                    return null;
+                });
+        GetAliasesResponse aliasesResponse = mock(GetAliasesResponse.class);
+        lenient().when(aliasesResponse.status()).thenReturn(RestStatus.NOT_FOUND);
+        lenient().when(indicesClient.getAlias(any(GetAliasesRequest.class), any(RequestOptions.class)))
+                .thenReturn(aliasesResponse);
+        lenient().doAnswer(invocation -> {
+            BulkRequest request = invocation.getArgument(0);
+            for (DocWriteRequest<?> document : request.requests()) {
+                writtenDocuments.add(document.index() + "/" + document.id());
+            }
+            invocation.<ActionListener<BulkResponse>>getArgument(2)
+                    .onResponse(new BulkResponse(new BulkItemResponse[0], 1L));
+            return null;
+        }).when(client).bulkAsync(any(BulkRequest.class), any(RequestOptions.class), any(ActionListener.class));
+
+        ElasticsearchBulkConfigProperties configProperties = new ElasticsearchBulkConfigProperties();
+        configProperties.setReindexBatchSize(2);
+        configProperties.setReindexConcurrentRequests(1);
+        node = new ElasticsearchReindexManager(client, redisTemplate, configProperties, searchResultCacheManager);
+        otherNode = new ElasticsearchReindexManager(client, redisTemplate, configProperties,
+                searchResultCacheManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        node.stop();
+        otherNode.stop();
+    }
+
+    private static ReindexDocumentDTO document(String key) {
+        return ReindexDocumentDTO.builder().key(key).id(key).json("{\"name\":\"tag " + key + "\"}").build();
+    }
+
+    private void awaitStatus(String status) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5L);
+        while (!status.equals(progress.get("status"))) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "The status is " + progress.get("status"));
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+    }
+
+    @Test
+    @DisplayName("Should publish the new index to the other nodes while the index is being rebuilt")
+    void shouldPublishTheNewIndexToTheOtherNodesWhileTheIndexIsBeingRebuilt() throws Exception {
+        AtomicReference<Optional<String>> buildingIndex = new AtomicReference<>();
+
+        Assertions.assertTrue(node.reindex(ALIAS, 3L, (lastKey, size) -> {
+            if (lastKey == null) {
+                return Arrays.asList(document("1"), document("2"));
+            }
+            buildingIndex.set(otherNode.getBuildingIndex(ALIAS));
+            return Collections.singletonList(document("3"));
+        }));
+        awaitStatus(ElasticsearchReindexManager.STATUS_DONE);
+
+        String targetIndex = (String) progress.get("targetIndex");
+        Assertions.assertTrue(ElasticsearchReindexManager.isIndexOfAlias(targetIndex, ALIAS));
+        Assertions.assertNotEquals(ALIAS, targetIndex);
+        Assertions.assertEquals(Optional.of(targetIndex), buildingIndex.get());
+        Assertions.assertEquals(Arrays.asList(targetIndex + "/1", targetIndex + "/2", targetIndex + "/3"),
+                writtenDocuments);
+        Assertions.assertEquals("3", progress.get("indexedCount"));
+
+        ArgumentCaptor<IndicesAliasesRequest> aliasesRequest = ArgumentCaptor.forClass(IndicesAliasesRequest.class);
+        verify(indicesClient).updateAliases(aliasesRequest.capture(), any(RequestOptions.class));
+        Assertions.assertArrayEquals(new String[]{targetIndex},
+                aliasesRequest.getValue().getAliasActions().get(0).indices());
+        verify(searchResultCacheManager).invalidate(ALIAS);
+        // the alias points to the new index, so the documents are only written to the alias
+        Assertions.assertEquals(Optional.empty(), otherNode.getBuildingIndex(ALIAS));
+    }
+
+    @Test
+    @DisplayName("Should keep writing to the new index after the rebuild fails, and resume into the same index")
+    void shouldKeepWritingToTheNewIndexAfterTheRebuildFailsAndResumeIntoTheSameIndex() throws Exception {
+        Assertions.assertTrue(node.reindex(ALIAS, 3L, (lastKey, size) -> {
+            if (lastKey == null) {
+                return Arrays.asList(document("1"), document("2"));
+            }
+            throw new IllegalStateException("Database is down");
+        }));
+        awaitStatus(ElasticsearchReindexManager.STATUS_FAILED);
+
+        String targetIndex = (String) progress.get("targetIndex");
+        // the changes of the rows 1 and 2 are written to the new index until the rebuild is resumed
+        Assertions.assertEquals(Optional.of(targetIndex), otherNode.getBuildingIndex(ALIAS));
+        Assertions.assertEquals("2", progress.get("lastKey"));
+
+        List<String> lastKeys = new ArrayList<>();
+        Assertions.assertTrue(otherNode.reindex(ALIAS, 3L, (lastKey, size) -> {
+            lastKeys.add(lastKey);
+            return Collections.singletonList(document("3"));
+        }));
+        awaitStatus(ElasticsearchReindexManager.STATUS_DONE);
+
+        Assertions.assertEquals(Collections.singletonList("2"), lastKeys);
+        Assertions.assertEquals(targetIndex, progress.get("targetIndex"));
+        Assertions.assertEquals(Arrays.asList(targetIndex + "/1", targetIndex + "/2", targetIndex + "/3"),
+                writtenDocuments);
+        Assertions.assertEquals("3", progress.get("indexedCount"));
+        verify(indicesClient, times(1)).create(any(CreateIndexRequest.class), any(RequestOptions.class));
+        Assertions.assertEquals(Optional.empty(), node.getBuildingIndex(ALIAS));
+    }
+
+    @Test
+    @DisplayName("Should not write to a new index if the index has not been rebuilt or the rebuild is done")
+    void shouldNotWriteToANewIndexIfTheIndexHasNotBeenRebuiltOrTheRebuildIsDone() {
+        Assertions.assertEquals(Optional.empty(), node.getBuildingIndex(ALIAS));
+
+        progress.put("targetIndex", ALIAS + "_v20231022093000");
+        progress.put("status", ElasticsearchReindexManager.STATUS_DONE);
+        Assertions.assertEquals(Optional.empty(), node.getBuildingIndex(ALIAS));
+
+        progress.put("status", ElasticsearchReindexManager.STATUS_RUNNING);
+        Assertions.assertEquals(Optional.of(ALIAS + "_v20231022093000"), node.getBuildingIndex(ALIAS));
+    }
+
+    @Test
+    @DisplayName("Should not rebuild the index if it is being rebuilt on another node")
+    void shouldNotRebuildTheIndexIfItIsBeingRebuiltOnAnotherNode() throws Exception {
+        when(valueOperations.setIfAbsent(eq(RedisKeyUtils.getReindexLockKey(ALIAS)), anyString(),
+                any(Duration.class))).thenReturn(false);
+
+        Assertions.assertFalse(node.reindex(ALIAS, 1L, (lastKey, size) -> {
+            throw new AssertionError("The rows should not be loaded");
+        }));
+        verify(indicesClient, never()).create(any(CreateIndexRequest.class), any(RequestOptions.class));
+        Assertions.assertTrue(progress.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should check if the index belongs to the alias")
+    void shouldCheckIfTheIndexBelongsToTheAlias() {
+        Assertions.assertTrue(ElasticsearchReindexManager.isIndexOfAlias("tag", "tag"));
+        Assertions.assertTrue(ElasticsearchReindexManager.isIndexOfAlias("tag_v20231022093000", "tag"));
+        Assertions.assertFalse(ElasticsearchReindexManager.isIndexOfAlias("tags", "tag"));
+        Assertions.assertFalse(ElasticsearchReindexManager.isIndexOfAlias(null, "tag"));
+    }
+}
@@ -0,0 +1,175 @@
+package com.github.learndifferent.mtm.manager;
+
+import com.github.learndifferent.mtm.dto.id.Segment;
+import com.github.learndifferent.mtm.dto.id.SegmentBuffer;
+import com.github.learndifferent.mtm.vo.IdGeneratorMetricsVO;
+import com.github.learndifferent.mtm.vo.IdGeneratorTagMetricsVO;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class IdGeneratorMetricsManagerTest {
+
+    private static final String TAG = "test";
+
+    private SimpleMeterRegistry registry;
+
+    private IdGeneratorMetricsManager manager;
+
+    private SegmentBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        manager = new IdGeneratorMetricsManager(registry);
+
+        // the segment (1, 1001) has issued 250 IDs
+        buffer = new SegmentBuffer();
+        buffer.setTag(TAG);
+        buffer.setStep(1000);
+        Segment segment = buffer.getCurrentSegment();
+        segment.setStep(1000);
+        segment.setMaxId(1001L);
+        segment.getCurrentId().set(251L);
+        manager.registerBuffer(buffer);
+    }
+
+    private IdGeneratorTagMetricsVO getTagMetrics() {
+        return manager.getMetrics().getTags()
+                .stream()
+                .filter(metrics -> TAG.equals(metrics.getTag()))
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+    }
+
+    private double gauge(String name) {
+        return registry.get(name).tag("biz_tag", TAG).gauge().value();
+    }
+
+    @Test
+    @DisplayName("Should count the IDs issued per second in the sampling period")
+    void shouldCountTheIdsIssuedPerSecondInTheSamplingPeriod() {
+        manager.recordIssued(TAG, 150L);
+        manager.recordIssued(TAG, 50L);
+        manager.sampleIssuedPerSecond();
+
+        // 200 IDs in 10 seconds
+        Assertions.assertEquals(200L, getTagMetrics().getIssuedCount());
+        Assertions.assertEquals(20D, getTagMetrics().getIssuedPerSecond(), 1e-9);
+        Assertions.assertEquals(20D, gauge("id.generator.issued.rate"), 1e-9);
+        Assertions.assertEquals(200D, registry.get("id.generator.issued").functionCounter().count(), 1e-9);
+
+        // only the IDs issued after the last sampling are counted
+        manager.recordIssued(TAG, 10L);
+        manager.sampleIssuedPerSecond();
+        Assertions.assertEquals(1D, getTagMetrics().getIssuedPerSecond(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should record the duration of the refills by the result")
+    void shouldRecordTheDurationOfTheRefillsByTheResult() {
+        manager.recordRefill(TAG, TimeUnit.MILLISECONDS.toNanos(10L), true);
+        manager.recordRefill(TAG, TimeUnit.MILLISECONDS.toNanos(30L), true);
+        manager.recordRefill(TAG, TimeUnit.MILLISECONDS.toNanos(500L), false);
+
+        Timer success = registry.get("id.generator.segment.refill").tags("biz_tag", TAG, "result", "success").timer();
+        Timer failure = registry.get("id.generator.segment.refill").tags("biz_tag", TAG, "result", "failure").timer();
+        Assertions.assertEquals(2L, success.count());
+        Assertions.assertEquals(1L, failure.count());
+
+        IdGeneratorTagMetricsVO metrics = getTagMetrics();
+        Assertions.assertEquals(2L, metrics.getRefillCount());
+        Assertions.assertEquals(1L, metrics.getRefillFailureCount());
+        Assertions.assertEquals(20D, metrics.getRefillMeanMillis(), 1e-6);
+        Assertions.assertEquals(30D, metrics.getRefillMaxMillis(), 1e-6);
+    }
+
+    @Test
+    @DisplayName("Should record the time spent waiting for the next segment and the times it was not ready")
+    void shouldRecordTheTimeSpentWaitingForTheNextSegmentAndTheTimesItWasNotReady() {
+        manager.recordNextSegmentNotReady(TAG);
+        manager.recordWait(TAG, TimeUnit.MILLISECONDS.toNanos(2L));
+        manager.recordNextSegmentNotReady(TAG);
+        manager.recordWait(TAG, TimeUnit.MILLISECONDS.toNanos(6L));
+        manager.recordExhausted(TAG);
+
+        Assertions.assertEquals(2D,
+                registry.get("id.generator.segment.not.ready").tag("biz_tag", TAG).counter().count(), 1e-9);
+        Assertions.assertEquals(2L, registry.get("id.generator.segment.wait").tag("biz_tag", TAG).timer().count());
+
+        IdGeneratorTagMetricsVO metrics = getTagMetrics();
+        Assertions.assertEquals(2L, metrics.getNextSegmentNotReadyCount());
+        Assertions.assertEquals(1L, metrics.getExhaustedCount());
+        Assertions.assertEquals(2L, metrics.getWaitCount());
+        Assertions.assertEquals(8D, metrics.getWaitTotalMillis(), 1e-6);
+        Assertions.assertEquals(6D, metrics.getWaitMaxMillis(), 1e-6);
+    }
+
+    @Test
+    @DisplayName("Should calculate the percentage of the remaining IDs in the current segment")
+    void shouldCalculateThePercentageOfTheRemainingIdsInTheCurrentSegment() {
+        Assertions.assertEquals(75D, getTagMetrics().getRemainingPercentage(), 1e-9);
+        Assertions.assertEquals(75D, gauge("id.generator.segment.remaining"), 1e-9);
+
+        // the threads that find the segment exhausted increase the current ID beyond the max ID
+        buffer.getCurrentSegment().getCurrentId().set(1010L);
+        Assertions.assertEquals(0D, gauge("id.generator.segment.remaining"), 1e-9);
+
+        // the segment of the tag that is not initialized has no step
+        buffer.getCurrentSegment().setStep(0);
+        Assertions.assertEquals(0D, gauge("id.generator.segment.remaining"), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should calculate the saturation of the executor")
+    void shouldCalculateTheSaturationOfTheExecutor() throws InterruptedException {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 4, 60L, TimeUnit.SECONDS, new SynchronousQueue<>());
+        manager.registerExecutor(executor);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < 2; i++) {
+                executor.execute(() -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            // 2 of 4 threads are updating segments
+            Assertions.assertEquals(0.5D, registry.get("id.generator.executor.saturation").gauge().value(), 1e-9);
+            IdGeneratorMetricsVO metrics = manager.getMetrics();
+            Assertions.assertEquals(0.5D, metrics.getExecutorSaturation(), 1e-9);
+            Assertions.assertEquals(4, metrics.getExecutorMaxPoolSize());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+
+        manager.recordRejected();
+        Assertions.assertEquals(1L, manager.getMetrics().getExecutorRejectedTaskCount());
+    }
+
+    @Test
+    @DisplayName("Should remove the meters of the tag")
+    void shouldRemoveTheMetersOfTheTag() {
+        manager.removeBuffer(TAG);
+
+        Assertions.assertTrue(manager.getMetrics().getTags().isEmpty());
+        Assertions.assertNull(registry.find("id.generator.segment.remaining").tag("biz_tag", TAG).gauge());
+        // the records of the removed tag are ignored
+        manager.recordIssued(TAG, 1L);
+        manager.recordNextSegmentNotReady(TAG);
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.learndifferent.mtm.manager;
+
+import com.github.learndifferent.mtm.config.TrendingConfigProperties;
+import com.github.pemistahl.lingua.api.Language;
+import com.github.pemistahl.lingua.api.LanguageDetector;
+import com.github.pemistahl.lingua.api.LanguageDetectorBuilder;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.support.GenericApplicationContext;
+
+/**
+ * Latency benchmark for detecting the languages of the search keywords.
+ * <p>
+ * Compares {@link LanguageDetectionManager#detectLanguageOf(String)}, which settles most keywords by the
+ * Unicode scripts and caches the results of the language models, with the previous way that ran
+ * {@link LanguageDetector} on every keyword.
+ * Both detect the same mix of English, Japanese and Chinese keywords.
+ * </p>
+ * Run {@link #main(String[])} to benchmark.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LanguageDetectionManagerBenchmark {
+
+    private static final String[] KEYWORDS = {
+            "spring boot", "elasticsearch", "java concurrency", "redis pipeline",
+            "東京のカフェ", "すし", "プログラミング", "東京",
+            "搜索引擎", "数据库", "分布式系统", "mysql 索引"
+    };
+
+    private LanguageDetector languageDetector;
+
+    private LanguageDetectionManager languageDetectionManager;
+
+    private GenericApplicationContext context;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        languageDetector = LanguageDetectorBuilder
+                .fromLanguages(Language.JAPANESE, Language.CHINESE)
+                .build();
+        context = new GenericApplicationContext();
+        context.registerBean(LanguageDetector.class, () -> languageDetector);
+        context.refresh();
+        languageDetectionManager = new LanguageDetectionManager(context.getBeanProvider(LanguageDetector.class),
+                new TrendingConfigProperties());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    private String nextKeyword() {
+        String keyword = KEYWORDS[next];
+        next = (next + 1) % KEYWORDS.length;
+        return keyword;
+    }
+
+    @Benchmark
+    public Language languageModels() {
+        return languageDetector.detectLanguageOf(nextKeyword());
+    }
+
+    @Benchmark
+    public Language scriptsAndCache() {
+        return languageDetectionManager.detectLanguageOf(nextKeyword());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(LanguageDetectionManagerBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,59 @@
+package com.github.learndifferent.mtm.manager;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.github.learndifferent.mtm.config.TrendingConfigProperties;
+import com.github.pemistahl.lingua.api.Language;
+import com.github.pemistahl.lingua.api.LanguageDetector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+@ExtendWith(MockitoExtension.class)
+class LanguageDetectionManagerTest {
+
+    @Mock
+    private ObjectProvider<LanguageDetector> languageDetectorProvider;
+
+    private LanguageDetectionManager languageDetectionManager;
+
+    @BeforeEach
+    void setUp() {
+        languageDetectionManager = new LanguageDetectionManager(languageDetectorProvider,
+                new TrendingConfigProperties());
+    }
+
+    @Test
+    @DisplayName("Should settle the keywords with kana or without Chinese characters by the scripts")
+    void shouldSettleTheKeywordsWithKanaOrWithoutChineseCharactersByTheScripts() {
+        Assertions.assertEquals(Language.JAPANESE, languageDetectionManager.detectLanguageOf("東京のカフェ"));
+        Assertions.assertEquals(Language.JAPANESE, languageDetectionManager.detectLanguageOf("すし"));
+        Assertions.assertEquals(Language.UNKNOWN, languageDetectionManager.detectLanguageOf("spring boot"));
+        Assertions.assertEquals(Language.UNKNOWN, languageDetectionManager.detectLanguageOf("café"));
+
+        // the language models are never loaded
+        verify(languageDetectorProvider, never()).getObject();
+    }
+
+    @Test
+    @DisplayName("Should detect the Chinese characters by the language models and cache the result")
+    void shouldDetectTheChineseCharactersByTheLanguageModelsAndCacheTheResult() {
+        LanguageDetector languageDetector = mock(LanguageDetector.class);
+        when(languageDetectorProvider.getObject()).thenReturn(languageDetector);
+        when(languageDetector.detectLanguageOf("搜索引擎")).thenReturn(Language.CHINESE);
+
+        Assertions.assertEquals(Language.CHINESE, languageDetectionManager.detectLanguageOf("搜索引擎"));
+        Assertions.assertEquals(Language.CHINESE, languageDetectionManager.detectLanguageOf("搜索引擎"));
+
+        verify(languageDetector, times(1)).detectLanguageOf("搜索引擎");
+    }
+}
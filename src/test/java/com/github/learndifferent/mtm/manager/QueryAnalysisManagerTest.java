@@ -0,0 +1,65 @@
+package com.github.learndifferent.mtm.manager;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.github.learndifferent.mtm.config.TrendingConfigProperties;
+import com.github.pemistahl.lingua.api.Language;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class QueryAnalysisManagerTest {
+
+    @Mock
+    private LanguageDetectionManager languageDetectionManager;
+
+    private QueryAnalysisManager queryAnalysisManager;
+
+    @BeforeEach
+    void setUp() {
+        TrendingConfigProperties properties = new TrendingConfigProperties();
+        properties.setAnalysisCacheSize(1);
+        queryAnalysisManager = new QueryAnalysisManager(languageDetectionManager, properties);
+    }
+
+    @Test
+    @DisplayName("Should tokenize the English keyword like the english analyzer")
+    void shouldTokenizeTheEnglishKeywordLikeTheEnglishAnalyzer() {
+        when(languageDetectionManager.detectLanguageOf(anyString())).thenReturn(Language.UNKNOWN);
+
+        List<String> tokens = queryAnalysisManager.analyze("Running the Java programs");
+
+        Assertions.assertEquals(Arrays.asList("run", "java", "program"), tokens);
+    }
+
+    @Test
+    @DisplayName("Should return the cached tokens of the recent keywords")
+    void shouldReturnTheCachedTokensOfTheRecentKeywords() {
+        when(languageDetectionManager.detectLanguageOf(anyString())).thenReturn(Language.UNKNOWN);
+
+        List<String> tokens = queryAnalysisManager.analyze("java");
+        Assertions.assertSame(tokens, queryAnalysisManager.analyze("java"));
+        verify(languageDetectionManager, times(1)).detectLanguageOf("java");
+
+        // the cache keeps only 1 keyword
+        queryAnalysisManager.analyze("spring");
+        queryAnalysisManager.analyze("java");
+        verify(languageDetectionManager, times(2)).detectLanguageOf("java");
+    }
+
+    @Test
+    @DisplayName("Should return an empty list if the keyword is empty")
+    void shouldReturnAnEmptyListIfTheKeywordIsEmpty() {
+        Assertions.assertTrue(queryAnalysisManager.analyze("").isEmpty());
+    }
+}
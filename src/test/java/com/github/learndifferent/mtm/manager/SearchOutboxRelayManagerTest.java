@@ -0,0 +1,255 @@
+package com.github.learndifferent.mtm.manager;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.github.learndifferent.mtm.config.SearchOutboxConfigProperties;
+import com.github.learndifferent.mtm.constant.consist.SearchConstant;
+import com.github.learndifferent.mtm.dto.search.WebForSearchDTO;
+import com.github.learndifferent.mtm.entity.SearchOutboxDO;
+import com.github.learndifferent.mtm.manager.ElasticsearchIndexingManager.IndexingFailureListener;
+import com.github.learndifferent.mtm.manager.ElasticsearchIndexingManager.IndexingSuccessListener;
+import com.github.learndifferent.mtm.mapper.BookmarkMapper;
+import com.github.learndifferent.mtm.mapper.SearchOutboxMapper;
+import com.github.learndifferent.mtm.mapper.TagMapper;
+import com.github.learndifferent.mtm.mapper.UserMapper;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SearchOutboxRelayManagerTest {
+
+    @Mock
+    private SearchOutboxMapper searchOutboxMapper;
+
+    @Mock
+    private BookmarkMapper bookmarkMapper;
+
+    @Mock
+    private TagMapper tagMapper;
+
+    @Mock
+    private UserMapper userMapper;
+
+    @Mock
+    private SearchManager searchManager;
+
+    @Mock
+    private ElasticsearchIndexingManager elasticsearchIndexingManager;
+
+    @Mock
+    private SearchResultCacheManager searchResultCacheManager;
+
+    @Mock
+    private SuggestionManager suggestionManager;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private SearchOutboxConfigProperties properties;
+
+    private SearchOutboxRelayManager manager;
+
+    private IndexingSuccessListener successListener;
+
+    private IndexingFailureListener failureListener;
+
+    @BeforeEach
+    void setUp() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+        when(searchManager.getIndicesToWrite(anyString()))
+                .thenAnswer(invocation -> Collections.singletonList(invocation.getArgument(0)));
+        when(elasticsearchIndexingManager.index(anyString(), anyString(), anyString())).thenReturn(true);
+        when(elasticsearchIndexingManager.delete(anyString(), anyString())).thenReturn(true);
+        when(searchOutboxMapper.getChanges(anyInt(), anyLong())).thenReturn(Collections.emptyList());
+
+        properties = new SearchOutboxConfigProperties();
+        manager = new SearchOutboxRelayManager(searchOutboxMapper, bookmarkMapper, tagMapper, userMapper,
+                searchManager, elasticsearchIndexingManager, searchResultCacheManager, suggestionManager,
+                redisTemplate, properties);
+        manager.registerListeners();
+
+        ArgumentCaptor<IndexingSuccessListener> successCaptor = ArgumentCaptor.forClass(IndexingSuccessListener.class);
+        verify(elasticsearchIndexingManager).addSuccessListener(successCaptor.capture());
+        successListener = successCaptor.getValue();
+        ArgumentCaptor<IndexingFailureListener> failureCaptor = ArgumentCaptor.forClass(IndexingFailureListener.class);
+        verify(elasticsearchIndexingManager).addFailureListener(failureCaptor.capture());
+        failureListener = failureCaptor.getValue();
+    }
+
+    private SearchOutboxDO change(long id, String index, String docId) {
+        return SearchOutboxDO.builder().id(id).indexName(index).docId(docId).build();
+    }
+
+    private void givenChanges(SearchOutboxDO... changes) {
+        when(searchOutboxMapper.getChanges(anyInt(), anyLong()))
+                .thenReturn(Arrays.asList(changes))
+                .thenReturn(Collections.emptyList());
+    }
+
+    @Test
+    @DisplayName("Should index the existing documents and delete the missing ones once for each document")
+    void shouldIndexTheExistingDocumentsAndDeleteTheMissingOnes() {
+        givenChanges(
+                change(1L, SearchConstant.INDEX_WEB, "https://a.com"),
+                change(2L, SearchConstant.INDEX_WEB, "https://a.com"),
+                change(3L, SearchConstant.INDEX_WEB, "https://b.com"),
+                change(4L, SearchConstant.INDEX_USER, "5"));
+        when(bookmarkMapper.getPublicBasicWebDataForSearchByUrls(any())).thenReturn(Collections.singletonList(
+                WebForSearchDTO.builder().url("https://a.com").title("A").build()));
+        when(userMapper.getUsersByIds(any())).thenReturn(Collections.emptyList());
+
+        int relayed = manager.relay();
+
+        Assertions.assertEquals(4, relayed);
+        verify(elasticsearchIndexingManager, times(1))
+                .index(eq(SearchConstant.INDEX_WEB), eq("https://a.com"), anyString());
+        verify(elasticsearchIndexingManager).delete(SearchConstant.INDEX_WEB, "https://b.com");
+        verify(elasticsearchIndexingManager).delete(SearchConstant.INDEX_USER, "5");
+        verify(searchOutboxMapper).markRelayed(Arrays.asList(1L, 2L, 3L, 4L));
+        verify(searchResultCacheManager).invalidate(SearchConstant.INDEX_WEB);
+        verify(searchResultCacheManager).invalidate(SearchConstant.INDEX_USER);
+    }
+
+    @Test
+    @DisplayName("Should delete the changes only after Elasticsearch acknowledges the writes")
+    void shouldDeleteTheChangesOnlyAfterElasticsearchAcknowledgesTheWrites() {
+        givenChanges(
+                change(1L, SearchConstant.INDEX_WEB, "https://a.com"),
+                change(2L, SearchConstant.INDEX_TAG, "java"));
+        when(bookmarkMapper.getPublicBasicWebDataForSearchByUrls(any())).thenReturn(Collections.emptyList());
+        when(tagMapper.getTagsAndCountOfPublicBookmarksByTags(any())).thenReturn(Collections.emptyList());
+
+        manager.relay();
+        // the writes are still in the bulk indexer
+        manager.relay();
+        verify(searchOutboxMapper, never()).deleteChanges(anyList());
+
+        // the response has the concrete index that the alias points to
+        successListener.onSuccess(SearchConstant.INDEX_WEB + "_v20231029000000", "https://a.com");
+        manager.relay();
+        verify(searchOutboxMapper).deleteChanges(Collections.singletonList(1L));
+
+        successListener.onSuccess(SearchConstant.INDEX_TAG, "java");
+        manager.relay();
+        verify(searchOutboxMapper).deleteChanges(Collections.singletonList(2L));
+    }
+
+    @Test
+    @DisplayName("Should send the changes again if Elasticsearch fails to write the documents")
+    void shouldSendTheChangesAgainIfElasticsearchFailsToWriteTheDocuments() {
+        givenChanges(change(1L, SearchConstant.INDEX_TAG, "java"), change(2L, SearchConstant.INDEX_TAG, "java"));
+        when(tagMapper.getTagsAndCountOfPublicBookmarksByTags(any())).thenReturn(Collections.emptyList());
+
+        manager.relay();
+        failureListener.onFailure(SearchConstant.INDEX_TAG, "java", new IllegalStateException("failed"));
+        // a late acknowledgement of the failed writes doesn't delete the changes
+        successListener.onSuccess(SearchConstant.INDEX_TAG, "java");
+        manager.relay();
+
+        verify(searchOutboxMapper).resetRelayTime(Arrays.asList(1L, 2L));
+        verify(searchOutboxMapper, never()).deleteChanges(anyList());
+    }
+
+    @Test
+    @DisplayName("Should delete the changes after all writes to the index being rebuilt are acknowledged")
+    void shouldDeleteTheChangesAfterAllWritesToTheIndexBeingRebuiltAreAcknowledged() {
+        String newIndex = SearchConstant.INDEX_WEB + "_v20231029000000";
+        when(searchManager.getIndicesToWrite(SearchConstant.INDEX_WEB))
+                .thenReturn(Arrays.asList(SearchConstant.INDEX_WEB, newIndex));
+        givenChanges(change(1L, SearchConstant.INDEX_WEB, "https://a.com"));
+        when(bookmarkMapper.getPublicBasicWebDataForSearchByUrls(any())).thenReturn(Collections.emptyList());
+
+        manager.relay();
+        verify(elasticsearchIndexingManager).delete(SearchConstant.INDEX_WEB, "https://a.com");
+        verify(elasticsearchIndexingManager).delete(newIndex, "https://a.com");
+
+        successListener.onSuccess(SearchConstant.INDEX_WEB + "_v20231001000000", "https://a.com");
+        manager.relay();
+        verify(searchOutboxMapper, never()).deleteChanges(anyList());
+
+        successListener.onSuccess(newIndex, "https://a.com");
+        manager.relay();
+        verify(searchOutboxMapper).deleteChanges(Collections.singletonList(1L));
+    }
+
+    @Test
+    @DisplayName("Should not send the document again while its writes are waiting for the acknowledgement")
+    void shouldNotSendTheDocumentAgainWhileItsWritesAreWaitingForTheAcknowledgement() {
+        when(tagMapper.getTagsAndCountOfPublicBookmarksByTags(any())).thenReturn(Collections.emptyList());
+        givenChanges(change(1L, SearchConstant.INDEX_TAG, "java"));
+        manager.relay();
+
+        // the tag changes again before the previous writes are acknowledged
+        givenChanges(change(2L, SearchConstant.INDEX_TAG, "java"));
+        Assertions.assertEquals(0, manager.relay());
+        verify(elasticsearchIndexingManager, times(1)).delete(SearchConstant.INDEX_TAG, "java");
+        verify(searchOutboxMapper, never()).markRelayed(Collections.singletonList(2L));
+
+        // the acknowledgement deletes only the change that was sent
+        successListener.onSuccess(SearchConstant.INDEX_TAG, "java");
+        givenChanges(change(2L, SearchConstant.INDEX_TAG, "java"));
+        manager.relay();
+        verify(searchOutboxMapper).deleteChanges(Collections.singletonList(1L));
+        verify(elasticsearchIndexingManager, times(2)).delete(SearchConstant.INDEX_TAG, "java");
+        verify(searchOutboxMapper).markRelayed(Collections.singletonList(2L));
+    }
+
+    @Test
+    @DisplayName("Should stop relaying when the bulk indexer rejects the documents")
+    void shouldStopRelayingWhenTheBulkIndexerRejectsTheDocuments() {
+        properties.setBatchSize(2);
+        when(searchOutboxMapper.getChanges(eq(2), anyLong())).thenReturn(Arrays.asList(
+                change(1L, SearchConstant.INDEX_TAG, "java"),
+                change(2L, SearchConstant.INDEX_TAG, "go")));
+        when(tagMapper.getTagsAndCountOfPublicBookmarksByTags(any())).thenReturn(Collections.emptyList());
+        // the bulk indexer notifies the failure listener when the buffer is full
+        when(elasticsearchIndexingManager.delete(anyString(), anyString())).thenAnswer(invocation -> {
+            failureListener.onFailure(invocation.getArgument(0), invocation.getArgument(1),
+                    new IllegalStateException("The indexing buffer is full or closed"));
+            return false;
+        });
+
+        manager.relay();
+        // the full batch would be followed by another one if all documents were accepted
+        verify(searchOutboxMapper, times(1)).getChanges(eq(2), anyLong());
+
+        manager.relay();
+        verify(searchOutboxMapper).resetRelayTime(Arrays.asList(1L, 2L));
+    }
+
+    @Test
+    @DisplayName("Should not relay when another node is relaying")
+    void shouldNotRelayWhenAnotherNodeIsRelaying() {
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+
+        Assertions.assertEquals(0, manager.relay());
+        verify(searchOutboxMapper, never()).getChanges(anyInt(), anyLong());
+    }
+}
@@ -0,0 +1,160 @@
+package com.github.learndifferent.mtm.manager;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.github.learndifferent.mtm.config.SearchCacheConfigProperties;
+import com.github.learndifferent.mtm.constant.consist.SearchConstant;
+import com.github.learndifferent.mtm.constant.enums.SearchMode;
+import com.github.learndifferent.mtm.dto.search.SearchResultsDTO;
+import com.github.learndifferent.mtm.dto.search.WebForSearchDTO;
+import com.github.learndifferent.mtm.vo.SearchCacheMetricsVO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SearchResultCacheManagerTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private ElasticsearchIndexingManager elasticsearchIndexingManager;
+
+    private SearchCacheConfigProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(anyList())).thenReturn(Arrays.asList("3", null, "7"));
+        properties = new SearchCacheConfigProperties();
+    }
+
+    private SearchResultCacheManager newManager() {
+        SearchResultCacheManager manager = new SearchResultCacheManager(redisTemplate,
+                elasticsearchIndexingManager, properties, new SimpleMeterRegistry());
+        manager.refreshGenerations();
+        return manager;
+    }
+
+    private SearchResultsDTO results(String url) {
+        WebForSearchDTO web = WebForSearchDTO.builder().url(url).title("title").build();
+        return SearchResultsDTO.builder()
+                .totalCount(1L)
+                .totalPage(1)
+                .paginatedResults(Collections.singletonList(web))
+                .build();
+    }
+
+    private String key(SearchResultCacheManager manager, SearchMode mode, String keyword) {
+        return manager.getKey(mode, keyword, 0, 10, null, null)
+                .orElseThrow(() -> new AssertionError("The results should be cached"));
+    }
+
+    @Test
+    @DisplayName("Should return the cached results for the same normalized keyword")
+    void shouldReturnTheCachedResultsForTheSameNormalizedKeyword() {
+        SearchResultCacheManager manager = newManager();
+        SearchResultsDTO results = results("https://a.com");
+        manager.put(key(manager, SearchMode.WEB, "Java"), results);
+
+        Optional<SearchResultsDTO> cached = manager.get(key(manager, SearchMode.WEB, "  java "));
+
+        Assertions.assertTrue(cached.isPresent());
+        Assertions.assertSame(results, cached.get());
+        Assertions.assertFalse(manager.get(key(manager, SearchMode.BOOKMARK_MYSQL, "java")).isPresent());
+        Assertions.assertFalse(manager.getKey(SearchMode.WEB, "java", 10, 10, null, null)
+                .flatMap(manager::get)
+                .isPresent());
+    }
+
+    @Test
+    @DisplayName("Should not return the results after the index is invalidated")
+    void shouldNotReturnTheResultsAfterTheIndexIsInvalidated() {
+        SearchResultCacheManager manager = newManager();
+        manager.put(key(manager, SearchMode.WEB, "java"), results("https://a.com"));
+        manager.put(key(manager, SearchMode.USER, "java"), results("https://b.com"));
+        when(valueOperations.increment(anyString())).thenReturn(4L);
+
+        manager.invalidate(SearchConstant.INDEX_WEB);
+
+        Assertions.assertFalse(manager.get(key(manager, SearchMode.WEB, "java")).isPresent());
+        Assertions.assertTrue(manager.get(key(manager, SearchMode.USER, "java")).isPresent());
+        Assertions.assertEquals(4L, manager.getMetrics().getGenerations().get(SearchConstant.INDEX_WEB));
+    }
+
+    @Test
+    @DisplayName("Should bypass the cache if the generations can't be read")
+    void shouldBypassTheCacheIfTheGenerationsCannotBeRead() {
+        when(valueOperations.multiGet(anyList())).thenThrow(new IllegalStateException("Redis is down"));
+
+        SearchResultCacheManager manager = newManager();
+
+        Assertions.assertFalse(manager.getKey(SearchMode.WEB, "java", 0, 10, null, null).isPresent());
+        Assertions.assertFalse(manager.getMetrics().getEnabled());
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used results")
+    void shouldEvictTheLeastRecentlyUsedResults() {
+        properties.setLocalMaxEntries(2);
+        SearchResultCacheManager manager = newManager();
+        manager.put(key(manager, SearchMode.TAG, "a"), results("https://a.com"));
+        manager.put(key(manager, SearchMode.TAG, "b"), results("https://b.com"));
+        // "a" is used more recently than "b"
+        manager.get(key(manager, SearchMode.TAG, "a"));
+        manager.put(key(manager, SearchMode.TAG, "c"), results("https://c.com"));
+
+        Assertions.assertTrue(manager.get(key(manager, SearchMode.TAG, "a")).isPresent());
+        Assertions.assertFalse(manager.get(key(manager, SearchMode.TAG, "b")).isPresent());
+        Assertions.assertTrue(manager.get(key(manager, SearchMode.TAG, "c")).isPresent());
+        Assertions.assertEquals(2, manager.getMetrics().getLocalSize());
+    }
+
+    @Test
+    @DisplayName("Should share the results between nodes through Redis")
+    void shouldShareTheResultsBetweenNodesThroughRedis() {
+        properties.setRedisEnabled(true);
+        SearchResultCacheManager node = newManager();
+        String key = key(node, SearchMode.WEB, "java");
+        node.put(key, results("https://a.com"));
+
+        ArgumentCaptor<String> redisKey = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> value = ArgumentCaptor.forClass(String.class);
+        verify(valueOperations).set(redisKey.capture(), value.capture(), any(Duration.class));
+        when(valueOperations.get(eq(redisKey.getValue()))).thenReturn(value.getValue());
+
+        SearchResultCacheManager anotherNode = newManager();
+        Optional<SearchResultsDTO> cached = anotherNode.get(key(anotherNode, SearchMode.WEB, "java"));
+
+        Assertions.assertTrue(cached.isPresent());
+        Assertions.assertEquals("https://a.com",
+                ((WebForSearchDTO) cached.get().getPaginatedResults().get(0)).getUrl());
+        SearchCacheMetricsVO metrics = anotherNode.getMetrics();
+        Assertions.assertEquals(1L, metrics.getRedisHits());
+        Assertions.assertEquals(1D, metrics.getHitRate());
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.learndifferent.mtm.manager;
+
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.github.learndifferent.mtm.config.TrendingConfigProperties;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class TrendingAggregationManagerTest {
+
+    @Mock
+    private TrendingManager trendingManager;
+
+    private TrendingAggregationManager manager;
+
+    @BeforeEach
+    void setUp() {
+        TrendingConfigProperties properties = new TrendingConfigProperties();
+        properties.setFlushSize(2);
+        manager = new TrendingAggregationManager(trendingManager, properties);
+    }
+
+    @Test
+    @DisplayName("Should flush the scores of the keywords that occur most in one batch")
+    void shouldFlushTheScoresOfTheKeywordsThatOccurMostInOneBatch() {
+        manager.addToTrendingList("java");
+        manager.addToTrendingList("java");
+        manager.addToTrendingList("java");
+        manager.addToTrendingList("spring");
+        manager.addToTrendingList("spring");
+        manager.addToTrendingList("go");
+
+        Assertions.assertEquals(2, manager.flush());
+
+        Map<String, Long> expected = new LinkedHashMap<>();
+        expected.put("java", 3L);
+        expected.put("spring", 2L);
+        verify(trendingManager).addToTrendingList(expected);
+    }
+
+    @Test
+    @DisplayName("Should not flush the keywords twice")
+    void shouldNotFlushTheKeywordsTwice() {
+        manager.addToTrendingList("java");
+        manager.flush();
+
+        Assertions.assertEquals(0, manager.flush());
+    }
+
+    @Test
+    @DisplayName("Should not write to Redis if there are no keywords")
+    void shouldNotWriteToRedisIfThereAreNoKeywords() {
+        Assertions.assertEquals(0, manager.flush());
+        verify(trendingManager, never()).addToTrendingList(anyMap());
+    }
+}
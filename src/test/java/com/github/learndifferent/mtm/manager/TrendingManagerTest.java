@@ -0,0 +1,95 @@
+package com.github.learndifferent.mtm.manager;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.github.learndifferent.mtm.config.TrendingConfigProperties;
+import com.github.learndifferent.mtm.constant.consist.RedisConstant;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class TrendingManagerTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    private TrendingManager trendingManager;
+
+    @BeforeEach
+    void setUp() {
+        TrendingConfigProperties properties = new TrendingConfigProperties();
+        properties.setBucketMinutes(10);
+        properties.setBucketCount(6);
+        properties.setHalfLifeMinutes(10);
+        trendingManager = new TrendingManager(redisTemplate, properties);
+    }
+
+    @Test
+    @DisplayName("Should get the keys of the buckets in the window from the newest one")
+    void shouldGetTheKeysOfTheBucketsInTheWindowFromTheNewestOne() {
+        List<String> keys = trendingManager.getBucketKeys(Instant.parse("2023-12-09T08:25:30Z"));
+
+        Assertions.assertEquals(6, keys.size());
+        Assertions.assertEquals(RedisConstant.TRENDING_BUCKET_PREFIX + "202312090820", keys.get(0));
+        Assertions.assertEquals(RedisConstant.TRENDING_BUCKET_PREFIX + "202312090810", keys.get(1));
+        Assertions.assertEquals(RedisConstant.TRENDING_BUCKET_PREFIX + "202312090730", keys.get(5));
+    }
+
+    @Test
+    @DisplayName("Should halve the weights of the buckets for every half-life since their end")
+    void shouldHalveTheWeightsOfTheBucketsForEveryHalfLifeSinceTheirEnd() {
+        double[] weights = trendingManager.getWeights(Instant.parse("2023-12-09T08:20:00Z"));
+
+        // the current bucket
+        Assertions.assertEquals(1D, weights[0], 1e-9);
+        // the previous bucket has just ended
+        Assertions.assertEquals(1D, weights[1], 1e-9);
+        Assertions.assertEquals(0.5D, weights[2], 1e-9);
+        Assertions.assertEquals(0.25D, weights[3], 1e-9);
+        Assertions.assertEquals(0.0625D, weights[5], 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should serve the merged top keywords from memory")
+    @SuppressWarnings("unchecked")
+    void shouldServeTheMergedTopKeywordsFromMemory() {
+        Set<String> merged = new LinkedHashSet<>(Arrays.asList("java", "spring", "redis"));
+        when(redisTemplate.execute(any(RedisCallback.class))).thenReturn(merged);
+
+        Assertions.assertTrue(trendingManager.getTop20Trending().isEmpty());
+        trendingManager.refreshTop();
+
+        Assertions.assertEquals(merged, trendingManager.getTop20Trending());
+        Assertions.assertEquals(merged, trendingManager.getTop20Trending());
+        verify(redisTemplate, times(1)).execute(any(RedisCallback.class));
+    }
+
+    @Test
+    @DisplayName("Should remove the deleted keyword from the top keywords at once")
+    @SuppressWarnings("unchecked")
+    void shouldRemoveTheDeletedKeywordFromTheTopKeywordsAtOnce() {
+        Set<String> merged = new LinkedHashSet<>(Arrays.asList("java", "spring", "redis"));
+        when(redisTemplate.execute(any(RedisCallback.class))).thenReturn(merged);
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(Arrays.asList(1L, 0L));
+        trendingManager.refreshTop();
+
+        Assertions.assertTrue(trendingManager.deleteTrendingWord("spring"));
+        Assertions.assertEquals(new LinkedHashSet<>(Arrays.asList("java", "redis")),
+                trendingManager.getTop20Trending());
+    }
+}
@@ -0,0 +1,162 @@
+package com.github.learndifferent.mtm.manager;
+
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+
+import com.github.learndifferent.mtm.config.ViewCounterConfigProperties;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ViewAggregationManagerTest {
+
+    @Mock
+    private ViewStorageManager viewStorageManager;
+
+    /**
+     * Views in Redis
+     */
+    private final Map<Long, Long> redisViews = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean isRedisDown = new AtomicBoolean(false);
+
+    private ViewCounterConfigProperties properties;
+
+    private ViewAggregationManager manager;
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            if (isRedisDown.get()) {
+                throw new RedisConnectionFailureException("Redis is down");
+            }
+            Map<Long, Long> bookmarkIdsAndViews = invocation.getArgument(0);
+            bookmarkIdsAndViews.forEach((bookmarkId, views) -> redisViews.merge(bookmarkId, views, Long::sum));
+            return null;
+        }).when(viewStorageManager).increaseViews(anyMap());
+
+        properties = new ViewCounterConfigProperties();
+        manager = new ViewAggregationManager(viewStorageManager, properties);
+    }
+
+    private long getRedisViews(long bookmarkId) {
+        return redisViews.getOrDefault(bookmarkId, 0L);
+    }
+
+    @Test
+    @DisplayName("Should flush all views that are increased concurrently")
+    void shouldFlushAllViewsThatAreIncreasedConcurrently() throws InterruptedException {
+        int threads = 8;
+        int viewsPerThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < viewsPerThread; j++) {
+                    manager.increaseViews(j % 2);
+                    if (j % 1000 == 0) {
+                        manager.flush();
+                    }
+                }
+                latch.countDown();
+            });
+        }
+        Assertions.assertTrue(latch.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        long expected = (long) threads * viewsPerThread / 2;
+        Assertions.assertEquals(expected, getRedisViews(0L) + manager.getPendingViews(0L));
+
+        manager.flush();
+        Assertions.assertEquals(expected, getRedisViews(0L));
+        Assertions.assertEquals(expected, getRedisViews(1L));
+        Assertions.assertEquals(0L, manager.getPendingViews(0L));
+    }
+
+    @Test
+    @DisplayName("Should keep the views and flush them again when Redis is down")
+    void shouldKeepTheViewsAndFlushThemAgainWhenRedisIsDown() {
+        manager.increaseViews(1L);
+        manager.increaseViews(1L);
+
+        isRedisDown.set(true);
+        Assertions.assertThrows(RedisConnectionFailureException.class, manager::flush);
+        Assertions.assertEquals(2L, manager.getPendingViews(1L));
+
+        isRedisDown.set(false);
+        manager.increaseViews(1L);
+        manager.flush();
+        Assertions.assertEquals(3L, getRedisViews(1L));
+        Assertions.assertEquals(0L, manager.getPendingViews(1L));
+    }
+
+    @Test
+    @DisplayName("Should not lose views when the idle counters are evicted")
+    void shouldNotLoseViewsWhenTheIdleCountersAreEvicted() throws InterruptedException {
+        properties.setIdleFlushesBeforeEviction(1);
+        AtomicBoolean isRunning = new AtomicBoolean(true);
+        Thread flushThread = new Thread(() -> {
+            while (isRunning.get()) {
+                manager.flush();
+            }
+        });
+        flushThread.start();
+
+        int views = 100_000;
+        for (int i = 0; i < views; i++) {
+            manager.increaseViews(1L);
+        }
+        isRunning.set(false);
+        flushThread.join();
+
+        manager.flush();
+        Assertions.assertEquals(views, getRedisViews(1L));
+    }
+
+    @Test
+    @DisplayName("Should drop the pending views of the deleted bookmark")
+    void shouldDropThePendingViewsOfTheDeletedBookmark() {
+        manager.increaseViews(1L);
+        manager.discardPendingViews(1L);
+        manager.flush();
+
+        Assertions.assertEquals(0L, manager.getPendingViews(1L));
+        Assertions.assertEquals(0L, getRedisViews(1L));
+    }
+
+    @Test
+    @DisplayName("Should deduplicate the visitors before adding them to Redis")
+    void shouldDeduplicateTheVisitorsBeforeAddingThemToRedis() {
+        for (int i = 0; i < 100; i++) {
+            manager.increaseViews(1L, "ip:127.0.0.1");
+        }
+        manager.increaseViews(1L, "user:2");
+        manager.flush();
+
+        ArgumentCaptor<Map<Long, Set<String>>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(viewStorageManager).addUniqueVisitors(captor.capture());
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("ip:127.0.0.1", "user:2")), captor.getValue().get(1L));
+        Assertions.assertEquals(101L, getRedisViews(1L));
+    }
+}
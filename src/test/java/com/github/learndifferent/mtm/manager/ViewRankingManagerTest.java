@@ -0,0 +1,234 @@
+package com.github.learndifferent.mtm.manager;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.github.learndifferent.mtm.constant.consist.RedisConstant;
+import com.github.learndifferent.mtm.constant.enums.VisitedWindow;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.RedisScript;
+
+@ExtendWith(MockitoExtension.class)
+class ViewRankingManagerTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+
+    @InjectMocks
+    private ViewRankingManager viewRankingManager;
+
+    /**
+     * The union of the buckets that the script stores if the ranking of the window is not cached
+     */
+    private static class Union {
+
+        private final String destination;
+        private final String emptyMarker;
+        private final List<String> sources;
+        private final long ttlSeconds;
+        private final double[] weights;
+
+        private Union(List<String> keys, Object[] args) {
+            this.destination = keys.get(0);
+            this.emptyMarker = keys.get(1);
+            this.sources = keys.subList(2, keys.size());
+            this.ttlSeconds = Long.parseLong(String.valueOf(args[0]));
+            this.weights = Arrays.stream(args, 1, args.length)
+                    .mapToDouble(weight -> Double.parseDouble(String.valueOf(weight)))
+                    .toArray();
+        }
+    }
+
+    /**
+     * Get the ranking while the script returns the number of bookmarks in the union
+     */
+    @SuppressWarnings("unchecked")
+    private Union getRankingAndUnion(VisitedWindow window, Instant now, long count) {
+        List<Union> unions = new ArrayList<>();
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any())).thenAnswer(invocation -> {
+            Object[] arguments = invocation.getArguments();
+            unions.add(new Union(invocation.getArgument(1), Arrays.copyOfRange(arguments, 2, arguments.length)));
+            return count;
+        });
+        lenient().when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+
+        viewRankingManager.getRanking(window, 0, 10, now);
+
+        Assertions.assertEquals(1, unions.size());
+        return unions.get(0);
+    }
+
+    private Union getRankingAndUnion(VisitedWindow window, Instant now) {
+        return getRankingAndUnion(window, now, 3L);
+    }
+
+    private static String hour(String hour) {
+        return RedisConstant.HOURLY_VIEW_RANKING_PREFIX + hour;
+    }
+
+    private static String day(String day) {
+        return RedisConstant.DAILY_VIEW_RANKING_PREFIX + day;
+    }
+
+    @Test
+    @DisplayName("Should add the views to the buckets of the current hour and day with their TTLs")
+    void shouldAddTheViewsToTheBucketsOfTheCurrentHourAndDayWithTheirTtls() {
+        StringRedisConnection stringConnection = mock(StringRedisConnection.class);
+        Map<Long, Long> bookmarkIdsAndViews = new LinkedHashMap<>();
+        bookmarkIdsAndViews.put(1L, 3L);
+        bookmarkIdsAndViews.put(2L, 5L);
+
+        // the last second of the day
+        viewRankingManager.increaseViews(stringConnection, bookmarkIdsAndViews,
+                Instant.parse("2023-12-09T23:59:59Z"));
+
+        verify(stringConnection).zIncrBy(hour("2023120923"), 3D, "1");
+        verify(stringConnection).zIncrBy(day("20231209"), 3D, "1");
+        verify(stringConnection).zIncrBy(hour("2023120923"), 5D, "2");
+        verify(stringConnection).zIncrBy(day("20231209"), 5D, "2");
+        verify(stringConnection).expire(hour("2023120923"), Duration.ofHours(26L).getSeconds());
+        verify(stringConnection).expire(day("20231209"), Duration.ofDays(8L).getSeconds());
+    }
+
+    @Test
+    @DisplayName("Should add the views to the buckets of the next day at midnight")
+    void shouldAddTheViewsToTheBucketsOfTheNextDayAtMidnight() {
+        StringRedisConnection stringConnection = mock(StringRedisConnection.class);
+
+        viewRankingManager.increaseViews(stringConnection, Collections.singletonMap(1L, 1L),
+                Instant.parse("2023-12-10T00:00:00Z"));
+
+        verify(stringConnection).zIncrBy(hour("2023121000"), 1D, "1");
+        verify(stringConnection).zIncrBy(day("20231210"), 1D, "1");
+    }
+
+    @Test
+    @DisplayName("Should weight the previous hour by the part of it in the last hour")
+    void shouldWeightThePreviousHourByThePartOfItInTheLastHour() {
+        Union union = getRankingAndUnion(VisitedWindow.LAST_HOUR, Instant.parse("2023-12-09T08:15:00Z"));
+
+        Assertions.assertEquals(RedisConstant.WINDOW_VIEW_RANKING_PREFIX + "1h", union.destination);
+        Assertions.assertEquals(RedisConstant.EMPTY_WINDOW_VIEW_RANKING_PREFIX + "1h", union.emptyMarker);
+        Assertions.assertEquals(Arrays.asList(hour("2023120908"), hour("2023120907")), union.sources);
+        Assertions.assertArrayEquals(new double[]{1D, 0.75D}, union.weights, 1e-9);
+        Assertions.assertEquals(30L, union.ttlSeconds);
+    }
+
+    @Test
+    @DisplayName("Should weight the previous hour by one at the start of the hour")
+    void shouldWeightThePreviousHourByOneAtTheStartOfTheHour() {
+        Union union = getRankingAndUnion(VisitedWindow.LAST_HOUR, Instant.parse("2023-12-09T08:00:00Z"));
+
+        // the current bucket is empty, and the whole previous hour is in the window
+        Assertions.assertArrayEquals(new double[]{1D, 1D}, union.weights, 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should weight the previous hour by almost zero at the end of the hour")
+    void shouldWeightThePreviousHourByAlmostZeroAtTheEndOfTheHour() {
+        Union union = getRankingAndUnion(VisitedWindow.LAST_HOUR, Instant.parse("2023-12-09T08:59:59Z"));
+
+        Assertions.assertArrayEquals(new double[]{1D, 1D / 3600}, union.weights, 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should merge the current hour and the previous 24 hours in the last 24 hours")
+    void shouldMergeTheCurrentHourAndThePrevious24HoursInTheLast24Hours() {
+        Union union = getRankingAndUnion(VisitedWindow.LAST_DAY, Instant.parse("2023-12-09T08:45:00Z"));
+
+        Assertions.assertEquals(RedisConstant.WINDOW_VIEW_RANKING_PREFIX + "24h", union.destination);
+        Assertions.assertEquals(25, union.sources.size());
+        Assertions.assertEquals(hour("2023120908"), union.sources.get(0));
+        Assertions.assertEquals(hour("2023120823"), union.sources.get(9));
+        Assertions.assertEquals(hour("2023120808"), union.sources.get(24));
+        for (int i = 0; i < 24; i++) {
+            Assertions.assertEquals(1D, union.weights[i], 1e-9);
+        }
+        Assertions.assertEquals(0.25D, union.weights[24], 1e-9);
+        Assertions.assertEquals(120L, union.ttlSeconds);
+    }
+
+    @Test
+    @DisplayName("Should merge today and the previous 7 days in the last 7 days")
+    void shouldMergeTodayAndThePrevious7DaysInTheLast7Days() {
+        Union union = getRankingAndUnion(VisitedWindow.LAST_WEEK, Instant.parse("2023-12-09T06:00:00Z"));
+
+        Assertions.assertEquals(RedisConstant.WINDOW_VIEW_RANKING_PREFIX + "7d", union.destination);
+        Assertions.assertEquals(Arrays.asList(day("20231209"), day("20231208"), day("20231207"), day("20231206"),
+                day("20231205"), day("20231204"), day("20231203"), day("20231202")), union.sources);
+        Assertions.assertArrayEquals(new double[]{1D, 1D, 1D, 1D, 1D, 1D, 1D, 0.75D}, union.weights, 1e-9);
+        Assertions.assertEquals(600L, union.ttlSeconds);
+    }
+
+    @Test
+    @DisplayName("Should weight the oldest day by one at midnight")
+    void shouldWeightTheOldestDayByOneAtMidnight() {
+        Union union = getRankingAndUnion(VisitedWindow.LAST_WEEK, Instant.parse("2023-12-09T00:00:00Z"));
+
+        Assertions.assertEquals(day("20231202"), union.sources.get(7));
+        Assertions.assertEquals(1D, union.weights[7], 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should read the page of the ranking in the union")
+    @SuppressWarnings("unchecked")
+    void shouldReadThePageOfTheRankingInTheUnion() {
+        String key = RedisConstant.WINDOW_VIEW_RANKING_PREFIX + "24h";
+        Set<TypedTuple<String>> cached = new LinkedHashSet<>(Arrays.asList(
+                new DefaultTypedTuple<>("2", 9D), new DefaultTypedTuple<>("1", 4D)));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any())).thenReturn(12L);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(zSetOperations.reverseRangeWithScores(key, 10L, 19L)).thenReturn(cached);
+
+        List<TypedTuple<String>> ranking = viewRankingManager.getRanking(VisitedWindow.LAST_DAY, 10, 10);
+
+        Assertions.assertEquals(Arrays.asList(cached.toArray()), ranking);
+    }
+
+    @Test
+    @DisplayName("Should not read the ranking if no bookmarks are visited in the window")
+    void shouldNotReadTheRankingIfNoBookmarksAreVisitedInTheWindow() {
+        Union union = getRankingAndUnion(VisitedWindow.LAST_HOUR, Instant.parse("2023-12-09T08:15:00Z"), 0L);
+
+        Assertions.assertEquals(RedisConstant.EMPTY_WINDOW_VIEW_RANKING_PREFIX + "1h", union.emptyMarker);
+        Assertions.assertTrue(viewRankingManager.getRanking(VisitedWindow.LAST_HOUR, 0, 10,
+                Instant.parse("2023-12-09T08:15:00Z")).isEmpty());
+        verify(redisTemplate, never()).opsForZSet();
+    }
+
+    @Test
+    @DisplayName("Should not rank all time in Redis")
+    void shouldNotRankAllTimeInRedis() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> viewRankingManager.getRanking(VisitedWindow.ALL, 0, 10));
+    }
+}
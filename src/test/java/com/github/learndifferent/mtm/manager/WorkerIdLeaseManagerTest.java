@@ -0,0 +1,120 @@
+package com.github.learndifferent.mtm.manager;
+
+import com.github.learndifferent.mtm.config.IdGeneratorConfigProperties;
+import com.github.learndifferent.mtm.exception.ServiceException;
+import com.github.learndifferent.mtm.manager.id.InMemoryWorkerIdLeaseStore;
+import com.github.learndifferent.mtm.manager.id.SnowflakeIdGenerator;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class WorkerIdLeaseManagerTest {
+
+    private final AtomicLong clock = new AtomicLong(SnowflakeIdGenerator.EPOCH + 1_000_000L);
+
+    private InMemoryWorkerIdLeaseStore store;
+
+    private WorkerIdLeaseManager first;
+
+    private WorkerIdLeaseManager second;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryWorkerIdLeaseStore(clock::get);
+        IdGeneratorConfigProperties properties = new IdGeneratorConfigProperties();
+        first = new WorkerIdLeaseManager(store, properties, clock::get);
+        second = new WorkerIdLeaseManager(store, properties, clock::get);
+        first.start();
+        second.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.setUnavailable(false);
+        first.stop();
+        second.stop();
+    }
+
+    @Test
+    @DisplayName("Should lease different worker IDs for different nodes")
+    void shouldLeaseDifferentWorkerIdsForDifferentNodes() {
+        Assertions.assertNotEquals(first.getWorkerId(), second.getWorkerId());
+        Assertions.assertNotEquals(first.nextId(), second.nextId());
+        Assertions.assertEquals(2, store.countActiveLeases());
+    }
+
+    @Test
+    @DisplayName("Should keep the worker ID after renewing the lease")
+    void shouldKeepTheWorkerIdAfterRenewingTheLease() {
+        long workerId = first.getWorkerId();
+        clock.addAndGet(30_000L);
+        first.renewLease();
+        clock.addAndGet(45_000L);
+
+        Assertions.assertEquals(workerId, first.getWorkerId());
+        Assertions.assertFalse(store.tryAcquire(workerId, "another node", 60_000L));
+    }
+
+    @Test
+    @DisplayName("Should lease a new worker ID and keep IDs increasing when the lease is lost")
+    void shouldLeaseANewWorkerIdAndKeepIdsIncreasingWhenTheLeaseIsLost() {
+        long lostWorkerId = first.getWorkerId();
+        long before = first.nextId();
+
+        store.expireAll();
+        Assertions.assertTrue(store.tryAcquire(lostWorkerId, "another node", 60_000L));
+        first.renewLease();
+
+        Assertions.assertNotEquals(lostWorkerId, first.getWorkerId());
+        Assertions.assertTrue(first.nextId() > before);
+    }
+
+    @Test
+    @DisplayName("Should generate IDs with the same clock before and after leasing a new worker ID")
+    void shouldGenerateIdsWithTheSameClockBeforeAndAfterLeasingANewWorkerId() {
+        clock.addAndGet(5_000L);
+        Assertions.assertEquals(clock.get() - SnowflakeIdGenerator.EPOCH, first.nextId() >>> 22);
+
+        store.expireAll();
+        first.renewLease();
+        clock.addAndGet(5_000L);
+        Assertions.assertEquals(clock.get() - SnowflakeIdGenerator.EPOCH, first.nextId() >>> 22);
+    }
+
+    @Test
+    @DisplayName("Should stop generating IDs before the lease expires if it can't be renewed")
+    void shouldStopGeneratingIdsBeforeTheLeaseExpiresIfItCanNotBeRenewed() {
+        long workerId = first.getWorkerId();
+        store.setUnavailable(true);
+        clock.addAndGet(20_000L);
+        first.renewLease();
+        // the lease is still fresh
+        first.nextId();
+
+        // 60 seconds of the lease minus 10 seconds of the margin
+        clock.addAndGet(30_000L);
+        Assertions.assertThrows(ServiceException.class, () -> first.nextId());
+        Assertions.assertThrows(ServiceException.class, () -> first.nextIds(10));
+
+        // the lease expires in the store and the worker ID is leased by another node
+        store.setUnavailable(false);
+        clock.addAndGet(10_000L);
+        Assertions.assertTrue(store.tryAcquire(workerId, "another node", 60_000L));
+
+        // a new worker ID is leased when generating the ID
+        first.nextId();
+        Assertions.assertNotEquals(workerId, first.getWorkerId());
+    }
+
+    @Test
+    @DisplayName("Should release the worker ID on shutdown")
+    void shouldReleaseTheWorkerIdOnShutdown() {
+        long workerId = first.getWorkerId();
+        first.stop();
+
+        Assertions.assertTrue(store.tryAcquire(workerId, "another node", 60_000L));
+    }
+}
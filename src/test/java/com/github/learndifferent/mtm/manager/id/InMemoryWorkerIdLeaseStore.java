@@ -0,0 +1,94 @@
+package com.github.learndifferent.mtm.manager.id;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory worker ID lease store for tests
+ */
+public class InMemoryWorkerIdLeaseStore implements WorkerIdLeaseStore {
+
+    private final Map<Long, Lease> leases = new ConcurrentHashMap<>();
+
+    private final LongSupplier clock;
+
+    /**
+     * True if the store can't be reached, and all operations throw an exception
+     */
+    private volatile boolean unavailable;
+
+    public InMemoryWorkerIdLeaseStore(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    public InMemoryWorkerIdLeaseStore() {
+        this(System::currentTimeMillis);
+    }
+
+    @Override
+    public synchronized boolean tryAcquire(long workerId, String owner, long leaseMillis) {
+        checkAvailable();
+        Lease lease = leases.get(workerId);
+        if (lease != null && !lease.isExpired()) {
+            return false;
+        }
+        leases.put(workerId, new Lease(owner, clock.getAsLong() + leaseMillis));
+        return true;
+    }
+
+    @Override
+    public synchronized boolean renew(long workerId, String owner, long leaseMillis) {
+        checkAvailable();
+        Lease lease = leases.get(workerId);
+        if (lease == null || lease.isExpired() || !Objects.equals(lease.owner, owner)) {
+            return false;
+        }
+        leases.put(workerId, new Lease(owner, clock.getAsLong() + leaseMillis));
+        return true;
+    }
+
+    @Override
+    public synchronized void release(long workerId, String owner) {
+        checkAvailable();
+        Lease lease = leases.get(workerId);
+        if (lease != null && Objects.equals(lease.owner, owner)) {
+            leases.remove(workerId);
+        }
+    }
+
+    private void checkAvailable() {
+        if (unavailable) {
+            throw new IllegalStateException("The lease store is unavailable");
+        }
+    }
+
+    public void setUnavailable(boolean unavailable) {
+        this.unavailable = unavailable;
+    }
+
+    public synchronized void expireAll() {
+        leases.clear();
+    }
+
+    public synchronized int countActiveLeases() {
+        return (int) leases.values().stream().filter(lease -> !lease.isExpired()).count();
+    }
+
+    private class Lease {
+
+        private final String owner;
+
+        private final long expireAt;
+
+        private Lease(String owner, long expireAt) {
+            this.owner = owner;
+            this.expireAt = expireAt;
+        }
+
+        private boolean isExpired() {
+            return clock.getAsLong() >= expireAt;
+        }
+    }
+}
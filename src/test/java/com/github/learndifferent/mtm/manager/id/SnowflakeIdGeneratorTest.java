@@ -0,0 +1,48 @@
+package com.github.learndifferent.mtm.manager.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class SnowflakeIdGeneratorTest {
+
+    private static final long NOW = 1694304000000L;
+
+    @Test
+    @DisplayName("Should keep generating increasing IDs when the clock moves backwards")
+    void shouldKeepGeneratingIncreasingIdsWhenTheClockMovesBackwards() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1L, -1L, clock::get);
+
+        long before = generator.nextId();
+        clock.set(NOW - 5000L);
+        long after = generator.nextId();
+
+        Assertions.assertTrue(after > before);
+        Assertions.assertEquals(NOW, generator.getLastTimestamp());
+    }
+
+    @Test
+    @DisplayName("Should borrow the next millisecond when the sequence runs out")
+    void shouldBorrowTheNextMillisecondWhenTheSequenceRunsOut() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1L, -1L, clock::get);
+
+        long[] ids = generator.nextIds(4097);
+
+        for (int i = 1; i < ids.length; i++) {
+            Assertions.assertTrue(ids[i] > ids[i - 1]);
+        }
+        Assertions.assertEquals(NOW + 1, generator.getLastTimestamp());
+    }
+
+    @Test
+    @DisplayName("Should generate different IDs with different worker IDs at the same time")
+    void shouldGenerateDifferentIdsWithDifferentWorkerIdsAtTheSameTime() {
+        SnowflakeIdGenerator first = new SnowflakeIdGenerator(1L, -1L, () -> NOW);
+        SnowflakeIdGenerator second = new SnowflakeIdGenerator(2L, -1L, () -> NOW);
+
+        Assertions.assertNotEquals(first.nextId(), second.nextId());
+    }
+}
@@ -0,0 +1,105 @@
+package com.github.learndifferent.mtm.mapper;
+
+import com.github.learndifferent.mtm.dto.search.WebForSearchDTO;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+/**
+ * The full-text search needs the database created by init.sql, for example the {@code db} service
+ * in docker-compose.yml, so the tests run only if {@code MTM_TEST_MYSQL_URL} is set, such as
+ * {@code jdbc:mysql://localhost:3306/mtm}, with {@code MTM_TEST_MYSQL_USERNAME} and {@code MTM_TEST_MYSQL_PASSWORD}.
+ */
+@EnabledIfEnvironmentVariable(named = "MTM_TEST_MYSQL_URL", matches = ".+")
+class BookmarkMapperTest {
+
+    /**
+     * IDs that don't collide with the IDs generated by the application
+     */
+    private static final long BOOKMARK_ID = 9_000_000_000_000_000_001L;
+
+    private static final long USER_ID = 9_000_000_000_000_000_001L;
+
+    private final String urlPrefix = "https://mtm.test/" + UUID.randomUUID() + "/";
+
+    private final String url = urlPrefix + "java-api";
+
+    private SqlSessionFactory sqlSessionFactory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        UnpooledDataSource dataSource = new UnpooledDataSource("com.mysql.cj.jdbc.Driver",
+                System.getenv("MTM_TEST_MYSQL_URL"),
+                System.getenv("MTM_TEST_MYSQL_USERNAME"),
+                System.getenv("MTM_TEST_MYSQL_PASSWORD"));
+        Configuration configuration = new Configuration(
+                new Environment("test", new JdbcTransactionFactory(), dataSource));
+        configuration.setMapUnderscoreToCamelCase(true);
+        String resource = "mapper/BookmarkMapper.xml";
+        try (InputStream inputStream = Resources.getResourceAsStream(resource)) {
+            new XMLMapperBuilder(inputStream, configuration, resource, configuration.getSqlFragments()).parse();
+        }
+        sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+
+        // the full-text index only contains the committed rows
+        execute("insert into bookmark (id, user_id, title, url, `desc`, creation_time, is_public, is_deleted) "
+                + "values (?, ?, 'Learn Java API design', ?, 'How to design an API', now(), true, false)");
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        if (sqlSessionFactory != null) {
+            execute("delete from bookmark where id = ? and user_id = ? and url = ?");
+        }
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (SqlSession session = sqlSessionFactory.openSession(true);
+                Connection connection = session.getConnection();
+                PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, BOOKMARK_ID);
+            statement.setLong(2, USER_ID);
+            statement.setString(3, url);
+            statement.executeUpdate();
+        }
+    }
+
+    private List<String> searchUrls(String keyword) {
+        try (SqlSession session = sqlSessionFactory.openSession()) {
+            BookmarkMapper mapper = session.getMapper(BookmarkMapper.class);
+            return mapper.searchWebDataByKeywordAfter(keyword, urlPrefix, 10)
+                    .stream()
+                    .map(WebForSearchDTO::getUrl)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Should find the keywords that contain the stopwords of InnoDB")
+    void shouldFindTheKeywordsThatContainTheStopwordsOfInnodb() {
+        // the bigrams "ja", "va", "ap" and "pi" contain the stopwords "a" and "i"
+        Assertions.assertTrue(searchUrls("java").contains(url));
+        Assertions.assertTrue(searchUrls("API").contains(url));
+        Assertions.assertTrue(searchUrls("java api").contains(url));
+        Assertions.assertFalse(searchUrls("javascript").contains(url));
+    }
+}
@@ -0,0 +1,80 @@
+package com.github.learndifferent.mtm.service.impl;
+
+import com.github.learndifferent.mtm.constant.enums.VisitedWindow;
+import com.github.learndifferent.mtm.dto.PageInfoDTO;
+import com.github.learndifferent.mtm.manager.ViewRankingManager;
+import com.github.learndifferent.mtm.mapper.BookmarkMapper;
+import com.github.learndifferent.mtm.vo.VisitedBookmarkVO;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+
+@ExtendWith(MockitoExtension.class)
+class BookmarkServiceImplTest {
+
+    @InjectMocks
+    private BookmarkServiceImpl bookmarkService;
+
+    @Mock
+    private BookmarkMapper bookmarkMapper;
+
+    @Mock
+    private ViewRankingManager viewRankingManager;
+
+    private static VisitedBookmarkVO bookmark(long bookmarkId) {
+        return VisitedBookmarkVO.builder()
+                .bookmarkId(bookmarkId)
+                .title("bookmark " + bookmarkId)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Should read the page of the ranking in the order of the views for each window")
+    void shouldReadThePageOfTheRankingInTheOrderOfTheViewsForEachWindow() {
+        PageInfoDTO pageInfo = PageInfoDTO.builder().from(10).size(3).build();
+        List<TypedTuple<String>> ranking = Arrays.asList(
+                new DefaultTypedTuple<>("3", 7.6D),
+                new DefaultTypedTuple<>("1", 2D),
+                new DefaultTypedTuple<>("2", 1D));
+
+        for (VisitedWindow window : Arrays.asList(
+                VisitedWindow.LAST_HOUR, VisitedWindow.LAST_DAY, VisitedWindow.LAST_WEEK)) {
+            Mockito.when(viewRankingManager.getRanking(window, 10, 3)).thenReturn(ranking);
+            // the bookmark 2 has been deleted, and the rows are not in the order of the ranking
+            Mockito.when(bookmarkMapper.getVisitedBookmarksByIds(Arrays.asList(3L, 1L, 2L)))
+                    .thenReturn(Arrays.asList(bookmark(1L), bookmark(3L)));
+
+            List<VisitedBookmarkVO> bookmarks = bookmarkService.getVisitedBookmarks(pageInfo, window);
+
+            Assertions.assertEquals(Arrays.asList(3L, 1L), bookmarks.stream()
+                    .map(VisitedBookmarkVO::getBookmarkId)
+                    .collect(Collectors.toList()), window.window());
+            // the weighted views are rounded
+            Assertions.assertEquals(Arrays.asList(8, 2), bookmarks.stream()
+                    .map(VisitedBookmarkVO::getViews)
+                    .collect(Collectors.toList()), window.window());
+        }
+    }
+
+    @Test
+    @DisplayName("Should return an empty list without reading database if no bookmarks are visited in the window")
+    void shouldReturnAnEmptyListWithoutReadingDatabaseIfNoBookmarksAreVisitedInTheWindow() {
+        PageInfoDTO pageInfo = PageInfoDTO.builder().from(0).size(10).build();
+        Mockito.when(viewRankingManager.getRanking(VisitedWindow.LAST_HOUR, 0, 10))
+                .thenReturn(Collections.emptyList());
+
+        Assertions.assertTrue(bookmarkService.getVisitedBookmarks(pageInfo, VisitedWindow.LAST_HOUR).isEmpty());
+        Mockito.verify(bookmarkMapper, Mockito.never()).getVisitedBookmarksByIds(Mockito.anyList());
+    }
+}
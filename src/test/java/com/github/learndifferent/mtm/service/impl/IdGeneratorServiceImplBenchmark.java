@@ -0,0 +1,253 @@
+package com.github.learndifferent.mtm.service.impl;
+
+import com.github.learndifferent.mtm.config.IdGeneratorConfigProperties;
+import com.github.learndifferent.mtm.constant.consist.IdGeneratorConstant;
+import com.github.learndifferent.mtm.manager.IdGeneratorMetricsManager;
+import com.github.learndifferent.mtm.manager.WorkerIdLeaseManager;
+import com.github.learndifferent.mtm.manager.id.InMemoryWorkerIdLeaseStore;
+import com.github.learndifferent.mtm.mapper.IdGeneratorMapper;
+import com.github.learndifferent.mtm.utils.ApplicationContextUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.support.GenericApplicationContext;
+
+/**
+ * Contention benchmark for the segment ID allocator.
+ * <p>
+ * Compares the lock-free {@link IdGeneratorServiceImpl#generateId(String, String, String)}
+ * with the previous double-buffer allocator that used a {@link ReentrantReadWriteLock}
+ * and slept in a spin loop while switching segments.
+ * Both allocators use an in-memory mapper that simulates the database round trip.
+ * </p>
+ * Run {@link #main(String[])} to benchmark from 1 to 64 threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdGeneratorServiceImplBenchmark {
+
+    private static final String TAG = "benchmark";
+
+    private static final String TABLE = "benchmark";
+
+    /**
+     * Simulated latency of updating the max ID in database
+     */
+    private static final long DB_LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(1L);
+
+    private IdGeneratorServiceImpl idGeneratorService;
+
+    private ReadWriteLockSegmentAllocator readWriteLockAllocator;
+
+    private GenericApplicationContext context;
+
+    @Setup
+    public void setup() {
+        IdGeneratorConfigProperties properties = new IdGeneratorConfigProperties();
+        idGeneratorService = new IdGeneratorServiceImpl(new InMemoryIdGeneratorMapper(), properties,
+                new WorkerIdLeaseManager(new InMemoryWorkerIdLeaseStore(), properties),
+                new IdGeneratorMetricsManager(new SimpleMeterRegistry()));
+        // the service gets itself from the application context to update the max ID in a transaction
+        context = new GenericApplicationContext();
+        context.registerBean(IdGeneratorServiceImpl.class, () -> idGeneratorService);
+        context.refresh();
+        new ApplicationContextUtils().setApplicationContext(context);
+        idGeneratorService.generateId(TAG, TABLE, IdGeneratorConstant.ID_COLUMN);
+
+        readWriteLockAllocator = new ReadWriteLockSegmentAllocator(new InMemoryIdGeneratorMapper());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long lockFree() {
+        return idGeneratorService.generateId(TAG, TABLE, IdGeneratorConstant.ID_COLUMN);
+    }
+
+    @Benchmark
+    public long readWriteLock() {
+        return readWriteLockAllocator.nextId();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads = 1; threads <= 64; threads *= 2) {
+            Options options = new OptionsBuilder()
+                    .include(IdGeneratorServiceImplBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+
+    /**
+     * In-memory {@link IdGeneratorMapper} that simulates the latency of updating the max ID
+     */
+    static class InMemoryIdGeneratorMapper implements IdGeneratorMapper {
+
+        private final Map<String, AtomicLong> maxIds = new ConcurrentHashMap<>();
+
+        @Override
+        public boolean insertIfNotPresent(String bizTag, long maxId, int step, String description) {
+            return maxIds.putIfAbsent(bizTag, new AtomicLong(maxId)) == null;
+        }
+
+        @Override
+        public void updateMaxIdOrInsertIfNotPresent(String bizTag, int step, String description) {
+            LockSupport.parkNanos(DB_LATENCY_NANOS);
+            maxIds.computeIfAbsent(bizTag, tag -> new AtomicLong(1L)).addAndGet(step);
+        }
+
+        @Override
+        public Long getMaxId(String bizTag) {
+            AtomicLong maxId = maxIds.get(bizTag);
+            return maxId == null ? null : maxId.get();
+        }
+
+        @Override
+        public List<String> getAllBizTags() {
+            return new ArrayList<>(maxIds.keySet());
+        }
+
+        @Override
+        public Long getLastId(String primaryKeyColumnName, String tableName) {
+            return null;
+        }
+    }
+
+    /**
+     * The previous double-buffer allocator, which takes the read lock for every ID
+     * and the write lock with a spin loop and sleep to switch segments
+     */
+    static class ReadWriteLockSegmentAllocator {
+
+        private final IdGeneratorMapper mapper;
+
+        private final AtomicLong[] currentIds = {new AtomicLong(), new AtomicLong()};
+
+        private final long[] maxIds = new long[2];
+
+        private volatile int currentIndex;
+
+        private volatile boolean isNextReady;
+
+        private final AtomicBoolean isThreadRunning = new AtomicBoolean(false);
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private final ExecutorService executorService = new ThreadPoolExecutor(3, 8, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>());
+
+        ReadWriteLockSegmentAllocator(IdGeneratorMapper mapper) {
+            this.mapper = mapper;
+            mapper.insertIfNotPresent(TAG, 1L, IdGeneratorConstant.STEP, null);
+            update(0);
+        }
+
+        private void update(int index) {
+            mapper.updateMaxIdOrInsertIfNotPresent(TAG, IdGeneratorConstant.STEP, null);
+            long maxId = mapper.getMaxId(TAG);
+            currentIds[index].set(maxId - IdGeneratorConstant.STEP);
+            maxIds[index] = maxId;
+        }
+
+        long nextId() {
+            while (true) {
+                Lock readLock = lock.readLock();
+                readLock.lock();
+                try {
+                    int index = currentIndex;
+                    if (!isNextReady
+                            && (maxIds[index] - currentIds[index].get() < 0.9 * IdGeneratorConstant.STEP)
+                            && isThreadRunning.compareAndSet(false, true)) {
+                        executorService.execute(() -> {
+                            update((currentIndex + 1) % 2);
+                            Lock writeLock = lock.writeLock();
+                            writeLock.lock();
+                            try {
+                                isNextReady = true;
+                                isThreadRunning.set(false);
+                            } finally {
+                                writeLock.unlock();
+                            }
+                        });
+                    }
+                    long id = currentIds[index].incrementAndGet();
+                    if (id < maxIds[index]) {
+                        return id;
+                    }
+                } finally {
+                    readLock.unlock();
+                }
+
+                waitAndSleep();
+
+                Lock writeLock = lock.writeLock();
+                writeLock.lock();
+                try {
+                    int index = currentIndex;
+                    long id = currentIds[index].getAndIncrement();
+                    if (id < maxIds[index]) {
+                        return id;
+                    }
+                    if (isNextReady) {
+                        currentIndex = (index + 1) % 2;
+                        isNextReady = false;
+                    } else {
+                        throw new IllegalStateException("Both two segments are not ready!");
+                    }
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+        }
+
+        private void waitAndSleep() {
+            int roll = 0;
+            while (isThreadRunning.get()) {
+                roll++;
+                if (roll > 1000) {
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(10);
+                        break;
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+            }
+        }
+    }
+}
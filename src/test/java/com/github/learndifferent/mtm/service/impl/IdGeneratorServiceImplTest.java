@@ -0,0 +1,219 @@
+package com.github.learndifferent.mtm.service.impl;
+
+import com.github.learndifferent.mtm.config.IdGeneratorConfigProperties;
+import com.github.learndifferent.mtm.constant.consist.IdGeneratorConstant;
+import com.github.learndifferent.mtm.manager.IdGeneratorMetricsManager;
+import com.github.learndifferent.mtm.manager.WorkerIdLeaseManager;
+import com.github.learndifferent.mtm.manager.id.InMemoryWorkerIdLeaseStore;
+import com.github.learndifferent.mtm.service.impl.IdGeneratorServiceImplBenchmark.InMemoryIdGeneratorMapper;
+import com.github.learndifferent.mtm.utils.ApplicationContextUtils;
+import com.github.learndifferent.mtm.vo.IdGeneratorTagMetricsVO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+
+class IdGeneratorServiceImplTest {
+
+    private static final String TAG = "test";
+
+    private static final String TABLE = "test";
+
+    private static final int MIN_STEP = 1000;
+
+    private static final int MAX_STEP = 4000;
+
+    private IdGeneratorConfigProperties properties;
+
+    private InMemoryIdGeneratorMapper mapper;
+
+    private IdGeneratorServiceImpl idGeneratorService;
+
+    private GenericApplicationContext context;
+
+    @BeforeEach
+    void setUp() {
+        properties = new IdGeneratorConfigProperties();
+        properties.setMinStep(MIN_STEP);
+        mapper = new InMemoryIdGeneratorMapper();
+        idGeneratorService = new IdGeneratorServiceImpl(mapper, properties,
+                new WorkerIdLeaseManager(new InMemoryWorkerIdLeaseStore(), properties),
+                new IdGeneratorMetricsManager(new SimpleMeterRegistry()));
+        // the service gets itself from the application context to update the max ID in a transaction
+        context = new GenericApplicationContext();
+        context.registerBean(IdGeneratorServiceImpl.class, () -> idGeneratorService);
+        context.refresh();
+        new ApplicationContextUtils().setApplicationContext(context);
+
+        // the tag exists in database, and the max ID is 1
+        mapper.insertIfNotPresent(TAG, 1L, MIN_STEP, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    private long[] reserveIds(int count) {
+        return idGeneratorService.reserveIds(TAG, TABLE, IdGeneratorConstant.ID_COLUMN, count);
+    }
+
+    private long generateId() {
+        return idGeneratorService.generateId(TAG, TABLE, IdGeneratorConstant.ID_COLUMN);
+    }
+
+    private IdGeneratorTagMetricsVO getTagMetrics() {
+        return idGeneratorService.getMetrics().getTags()
+                .stream()
+                .filter(metrics -> TAG.equals(metrics.getTag()))
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+    }
+
+    /**
+     * Reserve the IDs of the current step each round until the step of the tag is the expected one
+     *
+     * @return steps after each round
+     */
+    private List<Integer> reserveIdsUntilStep(int expectedStep) {
+        List<Integer> steps = new ArrayList<>();
+        for (int round = 0; round < 30; round++) {
+            int step = getTagMetrics().getStep();
+            steps.add(step);
+            if (step == expectedStep) {
+                return steps;
+            }
+            reserveIds(step);
+        }
+        return Assertions.fail("The step never reaches " + expectedStep + ": " + steps);
+    }
+
+    @Test
+    @DisplayName("Should reserve contiguous IDs in each segment across the segment boundary")
+    void shouldReserveContiguousIdsInEachSegmentAcrossTheSegmentBoundary() {
+        long[] ids = reserveIds(1500);
+
+        // the first segment is (1, 1001) and the next one starts from 1001, so 1001 is the only gap
+        long[] expected = LongStream.concat(LongStream.rangeClosed(2L, 1000L), LongStream.rangeClosed(1002L, 1502L))
+                .toArray();
+        Assertions.assertArrayEquals(expected, ids);
+        // the IDs after the reserved ones are still in the next segment
+        Assertions.assertEquals(1503L, generateId());
+    }
+
+    @Test
+    @DisplayName("Should not reserve any IDs if the count is not positive")
+    void shouldNotReserveAnyIdsIfTheCountIsNotPositive() {
+        Assertions.assertEquals(0, reserveIds(0).length);
+        Assertions.assertEquals(2L, generateId());
+    }
+
+    @Test
+    @DisplayName("Should not generate duplicate IDs when reserving and generating IDs concurrently")
+    void shouldNotGenerateDuplicateIdsWhenReservingAndGeneratingIdsConcurrently() throws InterruptedException {
+        int threads = 8;
+        int rounds = 500;
+        Queue<Long> allIds = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            boolean reserving = i % 2 == 0;
+            executor.execute(() -> {
+                try {
+                    List<Long> ids = new ArrayList<>();
+                    for (int j = 0; j < rounds; j++) {
+                        if (reserving) {
+                            // reserve more IDs than a segment has from time to time
+                            int count = ThreadLocalRandom.current().nextInt(1, MIN_STEP * 2);
+                            for (long id : reserveIds(count)) {
+                                ids.add(id);
+                            }
+                        } else {
+                            ids.add(generateId());
+                        }
+                    }
+                    allIds.addAll(ids);
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        Assertions.assertTrue(latch.await(60, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        Set<Long> uniqueIds = new HashSet<>(allIds);
+        Assertions.assertEquals(allIds.size(), uniqueIds.size());
+        // each round gets at least one ID
+        Assertions.assertTrue(allIds.size() >= threads * rounds);
+    }
+
+    @Test
+    @DisplayName("Should double the step up to the max step when the IDs are consumed fast")
+    void shouldDoubleTheStepUpToTheMaxStepWhenTheIdsAreConsumedFast() {
+        properties.setMaxStep(MAX_STEP);
+        generateId();
+        Assertions.assertEquals(MIN_STEP, getTagMetrics().getStep());
+
+        List<Integer> steps = reserveIdsUntilStep(MAX_STEP);
+        // keep consuming at the max step
+        for (int round = 0; round < 3; round++) {
+            reserveIds(MAX_STEP);
+            steps.add(getTagMetrics().getStep());
+        }
+
+        Assertions.assertTrue(steps.contains(MIN_STEP * 2), steps.toString());
+        Assertions.assertTrue(steps.stream().allMatch(step -> step >= MIN_STEP && step <= MAX_STEP),
+                steps.toString());
+    }
+
+    @Test
+    @DisplayName("Should halve the step down to the min step when the IDs are consumed slowly")
+    void shouldHalveTheStepDownToTheMinStepWhenTheIdsAreConsumedSlowly() {
+        properties.setMaxStep(MAX_STEP);
+        generateId();
+        reserveIdsUntilStep(MAX_STEP);
+
+        // each segment lasts longer than twice the segment duration from now on
+        properties.setSegmentDurationMinutes(0L);
+        List<Integer> steps = reserveIdsUntilStep(MIN_STEP);
+        // keep consuming at the min step
+        for (int round = 0; round < 3; round++) {
+            reserveIds(MIN_STEP);
+            steps.add(getTagMetrics().getStep());
+        }
+
+        Assertions.assertTrue(steps.contains(MIN_STEP * 2), steps.toString());
+        Assertions.assertTrue(steps.stream().allMatch(step -> step >= MIN_STEP && step <= MAX_STEP),
+                steps.toString());
+        Assertions.assertEquals(MIN_STEP, getTagMetrics().getStep());
+    }
+
+    @Test
+    @DisplayName("Should record the IDs issued and the refills of the tag")
+    void shouldRecordTheIdsIssuedAndTheRefillsOfTheTag() {
+        generateId();
+        reserveIds(1500);
+
+        IdGeneratorTagMetricsVO metrics = getTagMetrics();
+        Assertions.assertEquals(1501L, metrics.getIssuedCount());
+        // the initial segment and the next segment
+        Assertions.assertTrue(metrics.getRefillCount() >= 2L, metrics.toString());
+        Assertions.assertEquals(0L, metrics.getRefillFailureCount());
+        Assertions.assertTrue(metrics.getRemainingPercentage() >= 0D && metrics.getRemainingPercentage() <= 100D);
+    }
+}
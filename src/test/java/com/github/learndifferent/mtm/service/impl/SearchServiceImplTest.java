@@ -3,6 +3,7 @@ package com.github.learndifferent.mtm.service.impl;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.github.learndifferent.mtm.constant.consist.SearchConstant;
 import com.github.learndifferent.mtm.constant.enums.ResultCode;
@@ -11,8 +12,13 @@ import com.github.learndifferent.mtm.dto.PageInfoDTO;
 import com.github.learndifferent.mtm.dto.search.SearchResultsDTO;
 import com.github.learndifferent.mtm.exception.ServiceException;
 import com.github.learndifferent.mtm.manager.SearchManager;
+import com.github.learndifferent.mtm.manager.SearchResultCacheManager;
+import com.github.learndifferent.mtm.manager.SuggestionManager;
 import com.github.learndifferent.mtm.strategy.search.main.DataSearchStrategyContext;
 import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -34,6 +40,12 @@ class SearchServiceImplTest {
     @Mock
     private DataSearchStrategyContext dataSearchStrategyContext;
 
+    @Mock
+    private SearchResultCacheManager searchResultCacheManager;
+
+    @Mock
+    private SuggestionManager suggestionManager;
+
     @Nested
     class search {
 
@@ -46,10 +58,10 @@ class SearchServiceImplTest {
 
         @Test
         @DisplayName("Should get the search result")
-        void shouldGetTheSearchResult() throws IOException {
+        void shouldGetTheSearchResult() {
             String strategyName = SearchConstant.SEARCH_STRATEGY_BEAN_NAME_PREFIX + MODE.mode();
-            Mockito.when(dataSearchStrategyContext.search(strategyName, KEYWORD, FROM, SIZE, null, null))
-                    .thenReturn(RESULT);
+            Mockito.when(dataSearchStrategyContext.searchAsync(strategyName, KEYWORD, FROM, SIZE, null, null))
+                    .thenReturn(CompletableFuture.completedFuture(RESULT));
 
             SearchResultsDTO searchResult = searchService.search(MODE, KEYWORD, PAGE_INFO, null, null);
             assertEquals(RESULT, searchResult);
@@ -57,14 +69,103 @@ class SearchServiceImplTest {
 
         @Test
         @DisplayName("Should throw an exception")
-        void shouldThrowAnException() throws IOException {
+        void shouldThrowAnException() {
             String strategyName = SearchConstant.SEARCH_STRATEGY_BEAN_NAME_PREFIX + MODE.mode();
+            CompletableFuture<SearchResultsDTO> future = new CompletableFuture<>();
+            future.completeExceptionally(new IOException("Connection refused"));
             Mockito.when(dataSearchStrategyContext
-                            .search(strategyName, KEYWORD, FROM, SIZE, null, null))
-                    .thenThrow(new ServiceException(ResultCode.CONNECTION_ERROR));
+                            .searchAsync(strategyName, KEYWORD, FROM, SIZE, null, null))
+                    .thenReturn(future);
 
-            assertThrows(ServiceException.class,
+            ServiceException e = assertThrows(ServiceException.class,
                     () -> searchService.search(MODE, KEYWORD, PAGE_INFO, null, null));
+            assertEquals(ResultCode.CONNECTION_ERROR, e.getResultCode());
+        }
+    }
+
+    @Nested
+    class searchAsync {
+
+        private final String KEYWORD = "keyword";
+        private final SearchMode MODE = SearchMode.WEB;
+        private final int FROM = 0;
+        private final int SIZE = 1;
+        private final PageInfoDTO PAGE_INFO = new PageInfoDTO(FROM, SIZE);
+        private final SearchResultsDTO RESULT = new SearchResultsDTO();
+        private final String STRATEGY_NAME = SearchConstant.SEARCH_STRATEGY_BEAN_NAME_PREFIX + MODE.mode();
+        private final String CACHE_KEY = "web:keyword";
+
+        @Test
+        @DisplayName("Should get the search result")
+        void shouldGetTheSearchResult() {
+            Mockito.when(dataSearchStrategyContext.searchAsync(STRATEGY_NAME, KEYWORD, FROM, SIZE, null, null))
+                    .thenReturn(CompletableFuture.completedFuture(RESULT));
+
+            SearchResultsDTO searchResult = searchService.searchAsync(MODE, KEYWORD, PAGE_INFO, null, null).join();
+            assertEquals(RESULT, searchResult);
+        }
+
+        @Test
+        @DisplayName("Should cache the results of the search")
+        void shouldCacheTheResultsOfTheSearch() {
+            Mockito.when(searchResultCacheManager.getKey(MODE, KEYWORD, FROM, SIZE, null, null))
+                    .thenReturn(Optional.of(CACHE_KEY));
+            Mockito.when(dataSearchStrategyContext.searchAsync(STRATEGY_NAME, KEYWORD, FROM, SIZE, null, null))
+                    .thenReturn(CompletableFuture.completedFuture(RESULT));
+
+            assertEquals(RESULT, searchService.searchAsync(MODE, KEYWORD, PAGE_INFO, null, null).join());
+            Mockito.verify(searchResultCacheManager).put(CACHE_KEY, RESULT);
+        }
+
+        @Test
+        @DisplayName("Should not cache the results of MySQL if the search falls back")
+        void shouldNotCacheTheResultsOfMySqlIfTheSearchFallsBack() {
+            SearchResultsDTO fallbackResult = SearchResultsDTO.builder().totalCount(1L).fallback(true).build();
+            Mockito.when(searchResultCacheManager.getKey(MODE, KEYWORD, FROM, SIZE, null, null))
+                    .thenReturn(Optional.of(CACHE_KEY));
+            Mockito.when(dataSearchStrategyContext.searchAsync(STRATEGY_NAME, KEYWORD, FROM, SIZE, null, null))
+                    .thenReturn(CompletableFuture.completedFuture(fallbackResult));
+
+            assertEquals(fallbackResult, searchService.searchAsync(MODE, KEYWORD, PAGE_INFO, null, null).join());
+            Mockito.verify(searchResultCacheManager, Mockito.never())
+                    .put(Mockito.anyString(), Mockito.any(SearchResultsDTO.class));
+        }
+
+        @Test
+        @DisplayName("Should keep the result code of the service exception")
+        void shouldKeepTheResultCodeOfTheServiceException() {
+            CompletableFuture<SearchResultsDTO> future = new CompletableFuture<>();
+            future.completeExceptionally(new ServiceException(ResultCode.NO_RESULTS_FOUND));
+            Mockito.when(dataSearchStrategyContext.searchAsync(STRATEGY_NAME, KEYWORD, FROM, SIZE, null, null))
+                    .thenReturn(future);
+
+            CompletionException e = assertThrows(CompletionException.class,
+                    () -> searchService.searchAsync(MODE, KEYWORD, PAGE_INFO, null, null).join());
+            assertEquals(ResultCode.NO_RESULTS_FOUND, ((ServiceException) e.getCause()).getResultCode());
+        }
+
+        @Test
+        @DisplayName("Should convert the IO exception to the connection error")
+        void shouldConvertTheIoExceptionToTheConnectionError() {
+            CompletableFuture<SearchResultsDTO> future = new CompletableFuture<>();
+            future.completeExceptionally(new IOException("Connection refused"));
+            Mockito.when(dataSearchStrategyContext.searchAsync(STRATEGY_NAME, KEYWORD, FROM, SIZE, null, null))
+                    .thenReturn(future);
+
+            CompletionException e = assertThrows(CompletionException.class,
+                    () -> searchService.searchAsync(MODE, KEYWORD, PAGE_INFO, null, null).join());
+            assertEquals(ResultCode.CONNECTION_ERROR, ((ServiceException) e.getCause()).getResultCode());
+        }
+
+        @Test
+        @DisplayName("Should cancel the search if the results are no longer needed")
+        void shouldCancelTheSearchIfTheResultsAreNoLongerNeeded() {
+            CompletableFuture<SearchResultsDTO> future = new CompletableFuture<>();
+            Mockito.when(dataSearchStrategyContext.searchAsync(STRATEGY_NAME, KEYWORD, FROM, SIZE, null, null))
+                    .thenReturn(future);
+
+            searchService.searchAsync(MODE, KEYWORD, PAGE_INFO, null, null).cancel(true);
+            assertTrue(future.isCancelled());
         }
     }
-}
\ No newline at end of file
+}
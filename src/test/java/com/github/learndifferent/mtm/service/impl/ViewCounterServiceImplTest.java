@@ -0,0 +1,287 @@
+package com.github.learndifferent.mtm.service.impl;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.github.learndifferent.mtm.config.ViewCounterConfigProperties;
+import com.github.learndifferent.mtm.constant.consist.RedisConstant;
+import com.github.learndifferent.mtm.entity.ViewDataDO;
+import com.github.learndifferent.mtm.manager.ViewAggregationManager;
+import com.github.learndifferent.mtm.manager.ViewRankingManager;
+import com.github.learndifferent.mtm.manager.ViewStorageManager;
+import com.github.learndifferent.mtm.mapper.BookmarkViewMapper;
+import com.github.learndifferent.mtm.utils.ApplicationContextUtils;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ViewCounterServiceImplTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private SetOperations<String, String> setOperations;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private BookmarkViewMapper bookmarkViewMapper;
+
+    @Mock
+    private ViewAggregationManager viewAggregationManager;
+
+    @Mock
+    private ViewRankingManager viewRankingManager;
+
+    /**
+     * Sets in Redis
+     */
+    private final Map<String, Set<String>> sets = new HashMap<>();
+
+    /**
+     * Strings in Redis
+     */
+    private final Map<String, String> values = new HashMap<>();
+
+    /**
+     * Views in the hashes of Redis
+     */
+    private final Map<Long, Long> views = new HashMap<>();
+
+    /**
+     * Views upserted to database, in the order of the upserts
+     */
+    private final Map<Long, Integer> upsertedViews = new LinkedHashMap<>();
+
+    private ViewCounterServiceImpl viewCounterService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(redisTemplate.hasKey(anyString())).thenAnswer(invocation -> {
+            String key = invocation.getArgument(0);
+            return values.containsKey(key) || sets.containsKey(key);
+        });
+        when(redisTemplate.renameIfAbsent(anyString(), anyString())).thenAnswer(invocation -> {
+            String oldKey = invocation.getArgument(0);
+            String newKey = invocation.getArgument(1);
+            if (!sets.containsKey(oldKey) || sets.containsKey(newKey)) {
+                return false;
+            }
+            sets.put(newKey, sets.remove(oldKey));
+            return true;
+        });
+        when(redisTemplate.delete(anyString())).thenAnswer(invocation ->
+                values.remove(invocation.<String>getArgument(0)) != null
+                        || sets.remove(invocation.<String>getArgument(0)) != null);
+
+        when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        when(setOperations.distinctRandomMembers(anyString(), anyLong())).thenAnswer(invocation ->
+                sets.getOrDefault(invocation.<String>getArgument(0), Collections.emptySet())
+                        .stream()
+                        .limit(invocation.<Long>getArgument(1))
+                        .collect(Collectors.toCollection(LinkedHashSet::new)));
+        when(setOperations.remove(anyString(), any())).thenAnswer(invocation -> {
+            String key = invocation.getArgument(0);
+            Set<String> members = sets.getOrDefault(key, new HashSet<>());
+            long removed = Arrays.stream(invocation.getArguments()).skip(1)
+                    .filter(members::remove)
+                    .count();
+            if (members.isEmpty()) {
+                sets.remove(key);
+            }
+            return removed;
+        });
+
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenAnswer(invocation ->
+                values.putIfAbsent(invocation.getArgument(0), invocation.getArgument(1)) == null);
+        when(valueOperations.get(anyString())).thenAnswer(invocation -> values.get(invocation.<String>getArgument(0)));
+
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(invocation -> {
+            List<Object> results = new ArrayList<>();
+            StringRedisConnection connection = mock(StringRedisConnection.class);
+            when(connection.hGet(anyString(), anyString())).thenAnswer(hGet -> {
+                Long bookmarkViews = views.get(Long.valueOf(hGet.<String>getArgument(1)));
+                results.add(bookmarkViews == null ? null : String.valueOf(bookmarkViews));
+                return null;
+            });
+            invocation.<RedisCallback<Object>>getArgument(0).doInRedis(connection);
+            return results;
+        });
+
+        upsertSucceeds();
+
+        values.put(RedisConstant.VIEW_MIGRATION_DONE, "1");
+        ViewCounterConfigProperties configProperties = new ViewCounterConfigProperties();
+        configProperties.setSyncChunkSize(2);
+        ViewStorageManager viewStorageManager =
+                new ViewStorageManager(redisTemplate, configProperties, viewRankingManager);
+        viewCounterService = new ViewCounterServiceImpl(bookmarkViewMapper, viewAggregationManager,
+                viewStorageManager, configProperties);
+
+        ApplicationContext applicationContext = mock(ApplicationContext.class);
+        when(applicationContext.getBean(ViewCounterServiceImpl.class)).thenReturn(viewCounterService);
+        new ApplicationContextUtils().setApplicationContext(applicationContext);
+    }
+
+    @AfterEach
+    void tearDown() {
+        new ApplicationContextUtils().setApplicationContext(null);
+    }
+
+    private void upsertSucceeds() {
+        doAnswer(invocation -> {
+            List<ViewDataDO> data = invocation.getArgument(0);
+            data.forEach(viewData -> upsertedViews.put(viewData.getBookmarkId(), viewData.getViews()));
+            return data.size();
+        }).when(bookmarkViewMapper).upsertAll(anyList());
+    }
+
+    /**
+     * Increase the views as another node does while syncing
+     */
+    private void view(long bookmarkId, long increment) {
+        views.merge(bookmarkId, increment, Long::sum);
+        sets.computeIfAbsent(RedisConstant.VIEW_DIRTY_SET, key -> new HashSet<>()).add(String.valueOf(bookmarkId));
+    }
+
+    private static Map<Long, Integer> viewsOf(long... bookmarkIdsAndViews) {
+        Map<Long, Integer> result = new HashMap<>();
+        for (int i = 0; i < bookmarkIdsAndViews.length; i += 2) {
+            result.put(bookmarkIdsAndViews[i], (int) bookmarkIdsAndViews[i + 1]);
+        }
+        return result;
+    }
+
+    @Test
+    @DisplayName("Should sync the changed views and keep the bookmarks that are viewed during the sync")
+    void shouldSyncTheChangedViewsAndKeepTheBookmarksThatAreViewedDuringTheSync() {
+        view(1L, 10L);
+        view(2L, 20L);
+        view(3L, 30L);
+        // bookmarks 1 and 4 are viewed on another node after the first chunk is upserted
+        doAnswer(invocation -> {
+            List<ViewDataDO> data = invocation.getArgument(0);
+            data.forEach(viewData -> upsertedViews.put(viewData.getBookmarkId(), viewData.getViews()));
+            view(1L, 1L);
+            view(4L, 40L);
+            upsertSucceeds();
+            return data.size();
+        }).when(bookmarkViewMapper).upsertAll(anyList());
+
+        Assertions.assertEquals(3, viewCounterService.syncChangedViewsToDb());
+        Assertions.assertEquals(3, upsertedViews.size());
+        Assertions.assertFalse(sets.containsKey(RedisConstant.VIEW_SYNCING_SET));
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("1", "4")), sets.get(RedisConstant.VIEW_DIRTY_SET));
+        Assertions.assertFalse(values.containsKey(RedisConstant.VIEW_SYNC_LOCK));
+
+        upsertedViews.clear();
+        Assertions.assertEquals(2, viewCounterService.syncChangedViewsToDb());
+        Assertions.assertEquals(viewsOf(1L, 11L, 4L, 40L), upsertedViews);
+        Assertions.assertTrue(sets.isEmpty());
+        verify(viewAggregationManager, times(2)).flush();
+    }
+
+    @Test
+    @DisplayName("Should keep the bookmarks in the syncing set if failed to upsert, and sync them first next time")
+    void shouldKeepTheBookmarksInTheSyncingSetIfFailedToUpsertAndSyncThemFirstNextTime() {
+        view(1L, 10L);
+        view(2L, 20L);
+        doThrow(new IllegalStateException("Database is down")).when(bookmarkViewMapper).upsertAll(anyList());
+
+        Assertions.assertThrows(IllegalStateException.class, () -> viewCounterService.syncChangedViewsToDb());
+        Assertions.assertEquals(new HashSet<>(Arrays.asList("1", "2")), sets.get(RedisConstant.VIEW_SYNCING_SET));
+        // the lock is released, so the next sync doesn't wait for the lock to expire
+        Assertions.assertFalse(values.containsKey(RedisConstant.VIEW_SYNC_LOCK));
+
+        view(3L, 30L);
+        upsertSucceeds();
+
+        // the unfinished sync is finished before the new changes are synced
+        Assertions.assertEquals(2, viewCounterService.syncChangedViewsToDb());
+        Assertions.assertEquals(viewsOf(1L, 10L, 2L, 20L), upsertedViews);
+        Assertions.assertEquals(Collections.singleton("3"), sets.get(RedisConstant.VIEW_DIRTY_SET));
+
+        Assertions.assertEquals(1, viewCounterService.syncChangedViewsToDb());
+        Assertions.assertEquals(viewsOf(1L, 10L, 2L, 20L, 3L, 30L), upsertedViews);
+        Assertions.assertTrue(sets.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should not sync if another node is syncing")
+    void shouldNotSyncIfAnotherNodeIsSyncing() {
+        view(1L, 10L);
+        values.put(RedisConstant.VIEW_SYNC_LOCK, "another node");
+
+        Assertions.assertEquals(0, viewCounterService.syncChangedViewsToDb());
+        verify(bookmarkViewMapper, never()).upsertAll(anyList());
+        Assertions.assertEquals(Collections.singleton("1"), sets.get(RedisConstant.VIEW_DIRTY_SET));
+        Assertions.assertFalse(sets.containsKey(RedisConstant.VIEW_SYNCING_SET));
+        // the lock of another node is not released
+        Assertions.assertEquals("another node", values.get(RedisConstant.VIEW_SYNC_LOCK));
+    }
+
+    @Test
+    @DisplayName("Should skip the bookmarks that have been deleted")
+    void shouldSkipTheBookmarksThatHaveBeenDeleted() {
+        view(1L, 10L);
+        view(2L, 20L);
+        // the views of a deleted bookmark are deleted, but the bookmark is still in the dirty set
+        views.remove(2L);
+
+        Assertions.assertEquals(1, viewCounterService.syncChangedViewsToDb());
+        Assertions.assertEquals(viewsOf(1L, 10L), upsertedViews);
+        // the deleted bookmark is not synced again
+        Assertions.assertTrue(sets.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should not sync before the views in the legacy layout are migrated")
+    void shouldNotSyncBeforeTheViewsInTheLegacyLayoutAreMigrated() {
+        values.remove(RedisConstant.VIEW_MIGRATION_DONE);
+        view(1L, 10L);
+
+        Assertions.assertEquals(0, viewCounterService.syncChangedViewsToDb());
+        verify(bookmarkViewMapper, never()).upsertAll(anyList());
+        verify(setOperations, never()).distinctRandomMembers(anyString(), anyLong());
+    }
+}
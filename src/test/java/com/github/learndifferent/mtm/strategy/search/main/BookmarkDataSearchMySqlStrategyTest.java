@@ -0,0 +1,78 @@
+package com.github.learndifferent.mtm.strategy.search.main;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.github.learndifferent.mtm.constant.enums.ResultCode;
+import com.github.learndifferent.mtm.dto.search.SearchResultsDTO;
+import com.github.learndifferent.mtm.dto.search.WebForSearchDTO;
+import com.github.learndifferent.mtm.exception.ServiceException;
+import com.github.learndifferent.mtm.manager.SearchManager;
+import com.github.learndifferent.mtm.mapper.BookmarkMapper;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class BookmarkDataSearchMySqlStrategyTest {
+
+    private static final String KEYWORD = "java";
+
+    @InjectMocks
+    private BookmarkDataSearchMySqlStrategy strategy;
+
+    @Mock
+    private SearchManager searchManager;
+
+    @Mock
+    private BookmarkMapper bookmarkMapper;
+
+    private WebForSearchDTO web(String url) {
+        return WebForSearchDTO.builder().url(url).title(KEYWORD).build();
+    }
+
+    @Test
+    @DisplayName("Should continue from the last URL of the previous page")
+    void shouldContinueFromTheLastUrlOfThePreviousPage() throws IOException {
+        when(bookmarkMapper.searchWebDataByKeywordAfter(KEYWORD, null, 2))
+                .thenReturn(Arrays.asList(web("https://a.com"), web("https://b.com")));
+        when(bookmarkMapper.countUrlsOfWebDataByKeyword(KEYWORD)).thenReturn(3L);
+
+        SearchResultsDTO firstPage = strategy.searchByCursor(KEYWORD, null, 2);
+
+        Assertions.assertEquals(3L, firstPage.getTotalCount());
+        Assertions.assertEquals(2, firstPage.getTotalPage());
+        Assertions.assertNotNull(firstPage.getCursor());
+
+        when(bookmarkMapper.searchWebDataByKeywordAfter(KEYWORD, "https://b.com", 2))
+                .thenReturn(Collections.singletonList(web("https://c.com")));
+
+        SearchResultsDTO lastPage = strategy.searchByCursor(KEYWORD, firstPage.getCursor(), 2);
+
+        Assertions.assertEquals(1, lastPage.getPaginatedResults().size());
+        Assertions.assertNull(lastPage.getTotalCount());
+        Assertions.assertNull(lastPage.getCursor());
+        // the URLs are only counted for the first page
+        verify(bookmarkMapper).countUrlsOfWebDataByKeyword(KEYWORD);
+    }
+
+    @Test
+    @DisplayName("Should throw an exception if the cursor is invalid")
+    void shouldThrowAnExceptionIfTheCursorIsInvalid() {
+        ServiceException e = Assertions.assertThrows(ServiceException.class,
+                () -> strategy.searchByCursor(KEYWORD, "not a cursor", 2));
+
+        Assertions.assertEquals(ResultCode.SEARCH_CURSOR_INVALID, e.getResultCode());
+        verify(bookmarkMapper, never()).searchWebDataByKeywordAfter(anyString(), anyString(), anyInt());
+    }
+}
@@ -0,0 +1,309 @@
+package com.github.learndifferent.mtm.strategy.search.main;
+
+import com.github.learndifferent.mtm.config.SearchFailoverConfigProperties;
+import com.github.learndifferent.mtm.constant.consist.SearchConstant;
+import com.github.learndifferent.mtm.dto.search.SearchResultsDTO;
+import com.github.learndifferent.mtm.manager.SearchFailoverManager;
+import com.github.learndifferent.mtm.manager.SearchFailoverManager.State;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class DataSearchStrategyContextTest {
+
+    private static final String ELASTICSEARCH_STRATEGY =
+            SearchConstant.SEARCH_STRATEGY_BEAN_NAME_PREFIX + SearchConstant.INDEX_WEB;
+
+    private static final String MYSQL_STRATEGY =
+            SearchConstant.SEARCH_STRATEGY_BEAN_NAME_PREFIX + SearchConstant.SEARCH_BOOKMARK_IN_MYSQL;
+
+    private static final String KEYWORD = "java";
+
+    private static final long BUDGET_MILLIS = 100L;
+
+    private static final long OPEN_MILLIS = 1000L;
+
+    private static final SearchResultsDTO ELASTICSEARCH_RESULTS = SearchResultsDTO.builder().totalCount(1L).build();
+
+    private static final String SEARCH_THREAD = "search-test";
+
+    /**
+     * Time of the manager, which is advanced by the fake Elasticsearch to inject latency
+     */
+    private final AtomicLong clock = new AtomicLong();
+
+    private FakeElasticsearchStrategy elasticsearch;
+
+    private FakeMySqlStrategy mySql;
+
+    private SearchFailoverManager searchFailoverManager;
+
+    private DataSearchStrategyContext context;
+
+    private final ExecutorService searchTaskExecutor =
+            Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, SEARCH_THREAD));
+
+    @BeforeEach
+    void setUp() {
+        elasticsearch = new FakeElasticsearchStrategy();
+        mySql = new FakeMySqlStrategy();
+        createContext(2);
+    }
+
+    private void createContext(int probeSteps) {
+        if (searchFailoverManager != null) {
+            searchFailoverManager.stop();
+        }
+        SearchFailoverConfigProperties properties = new SearchFailoverConfigProperties();
+        properties.setLatencyBudgetMillis(BUDGET_MILLIS);
+        properties.setDeadlineMillis(50L);
+        properties.setWindowSize(10);
+        properties.setMinSamples(5);
+        properties.setOpenMillis(OPEN_MILLIS);
+        properties.setProbeSteps(probeSteps);
+        searchFailoverManager = new SearchFailoverManager(properties, new SimpleMeterRegistry(), clock::get);
+
+        Map<String, DataSearchStrategy> strategies = new HashMap<>();
+        strategies.put(ELASTICSEARCH_STRATEGY, elasticsearch);
+        strategies.put(MYSQL_STRATEGY, mySql);
+        context = new DataSearchStrategyContext(strategies, searchFailoverManager, searchTaskExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        searchFailoverManager.stop();
+        searchTaskExecutor.shutdownNow();
+    }
+
+    private SearchResultsDTO search() {
+        return context.searchAsync(ELASTICSEARCH_STRATEGY, KEYWORD, 0, 10, null, null).join();
+    }
+
+    private void searchSlowly(int times) {
+        elasticsearch.latencyMillis = BUDGET_MILLIS * 2;
+        for (int i = 0; i < times; i++) {
+            search();
+        }
+    }
+
+    @Test
+    @DisplayName("Should search in Elasticsearch while it is fast")
+    void shouldSearchInElasticsearchWhileItIsFast() {
+        elasticsearch.latencyMillis = BUDGET_MILLIS / 2;
+        for (int i = 0; i < 20; i++) {
+            Assertions.assertSame(ELASTICSEARCH_RESULTS, search());
+        }
+        Assertions.assertEquals(State.CLOSED, searchFailoverManager.getState());
+        Assertions.assertEquals(0, mySql.calls.get());
+    }
+
+    @Test
+    @DisplayName("Should shed the searches to MySQL when p99 of Elasticsearch is over the budget")
+    void shouldShedTheSearchesToMySqlWhenP99OfElasticsearchIsOverTheBudget() {
+        searchSlowly(5);
+        Assertions.assertEquals(State.OPEN, searchFailoverManager.getState());
+
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertSame(mySql.results, search());
+        }
+        // Elasticsearch is not searched after the breaker opens
+        Assertions.assertEquals(5, elasticsearch.calls.get());
+    }
+
+    @Test
+    @DisplayName("Should probe Elasticsearch back in gradually")
+    void shouldProbeElasticsearchBackInGradually() {
+        searchSlowly(5);
+        elasticsearch.latencyMillis = BUDGET_MILLIS / 2;
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(OPEN_MILLIS));
+
+        // the first probe
+        Assertions.assertSame(ELASTICSEARCH_RESULTS, search());
+        Assertions.assertEquals(State.HALF_OPEN, searchFailoverManager.getState());
+        // all searches are sent to Elasticsearch after the first successful probe of 2 steps
+        Assertions.assertSame(ELASTICSEARCH_RESULTS, search());
+        Assertions.assertEquals(State.CLOSED, searchFailoverManager.getState());
+
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertSame(ELASTICSEARCH_RESULTS, search());
+        }
+    }
+
+    @Test
+    @DisplayName("Should shed only part of the searches while probing")
+    void shouldShedOnlyPartOfTheSearchesWhileProbing() {
+        createContext(4);
+        searchSlowly(5);
+        elasticsearch.latencyMillis = BUDGET_MILLIS / 2;
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(OPEN_MILLIS));
+
+        // the first probe
+        Assertions.assertSame(ELASTICSEARCH_RESULTS, search());
+        int elasticsearchCalls = elasticsearch.calls.get();
+        for (int i = 0; i < 4; i++) {
+            search();
+        }
+        // 2 of 4 searches are sent to Elasticsearch after the first successful probe, then 3 of 4
+        Assertions.assertEquals(elasticsearchCalls + 2, elasticsearch.calls.get());
+        Assertions.assertEquals(2, mySql.calls.get());
+        Assertions.assertEquals(State.HALF_OPEN, searchFailoverManager.getState());
+    }
+
+    @Test
+    @DisplayName("Should open again if the probe is slow")
+    void shouldOpenAgainIfTheProbeIsSlow() {
+        searchSlowly(5);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(OPEN_MILLIS));
+
+        // the slow probe still returns the results of Elasticsearch
+        Assertions.assertSame(ELASTICSEARCH_RESULTS, search());
+        Assertions.assertEquals(State.OPEN, searchFailoverManager.getState());
+        Assertions.assertSame(mySql.results, search());
+    }
+
+    @Test
+    @DisplayName("Should search in MySQL if Elasticsearch is down")
+    void shouldSearchInMySqlIfElasticsearchIsDown() {
+        elasticsearch.down = true;
+        for (int i = 0; i < 5; i++) {
+            SearchResultsDTO results = search();
+            Assertions.assertSame(mySql.results, results);
+            // the results of the fallback are not cached
+            Assertions.assertTrue(results.isFallback());
+        }
+        Assertions.assertEquals(State.OPEN, searchFailoverManager.getState());
+        Assertions.assertEquals(5, elasticsearch.calls.get());
+    }
+
+    @Test
+    @DisplayName("Should search in MySQL if Elasticsearch doesn't respond before the deadline")
+    void shouldSearchInMySqlIfElasticsearchDoesNotRespondBeforeTheDeadline() throws Exception {
+        elasticsearch.hanging = true;
+
+        CompletableFuture<SearchResultsDTO> future =
+                context.searchAsync(ELASTICSEARCH_STRATEGY, KEYWORD, 0, 10, null, null);
+
+        Assertions.assertSame(mySql.results, future.get(5L, TimeUnit.SECONDS));
+        // the search in Elasticsearch is cancelled
+        Assertions.assertTrue(elasticsearch.pending.isCancelled());
+        // the search in MySQL doesn't block the thread of the deadline
+        Assertions.assertEquals(SEARCH_THREAD, mySql.thread);
+    }
+
+    @Test
+    @DisplayName("Should search in MySQL in the search task executor if Elasticsearch fails")
+    void shouldSearchInMySqlInTheSearchTaskExecutorIfElasticsearchFails() throws Exception {
+        elasticsearch.hanging = true;
+
+        CompletableFuture<SearchResultsDTO> future =
+                context.searchAsync(ELASTICSEARCH_STRATEGY, KEYWORD, 0, 10, null, null);
+        // the I/O thread of Elasticsearch fails the search
+        elasticsearch.pending.completeExceptionally(new ConnectException("Connection refused"));
+
+        Assertions.assertSame(mySql.results, future.get(5L, TimeUnit.SECONDS));
+        Assertions.assertEquals(SEARCH_THREAD, mySql.thread);
+    }
+
+    @Test
+    @DisplayName("Should not fall back if the mode already searches in MySQL")
+    void shouldNotFallBackIfTheModeAlreadySearchesInMySql() {
+        SearchResultsDTO results = context.searchAsync(MYSQL_STRATEGY, KEYWORD, 0, 10, null, null).join();
+        Assertions.assertSame(mySql.results, results);
+        Assertions.assertFalse(results.isFallback());
+        Assertions.assertEquals(0, elasticsearch.calls.get());
+        Assertions.assertEquals(State.CLOSED, searchFailoverManager.getState());
+        // the search in MySQL doesn't block the thread of the request
+        Assertions.assertEquals(SEARCH_THREAD, mySql.thread);
+    }
+
+    @Test
+    @DisplayName("Should search by cursor in MySQL in the search task executor")
+    void shouldSearchByCursorInMySqlInTheSearchTaskExecutor() {
+        Assertions.assertSame(mySql.results, context.searchByCursorAsync(MYSQL_STRATEGY, KEYWORD, null, 10).join());
+        Assertions.assertEquals(SEARCH_THREAD, mySql.thread);
+    }
+
+    /**
+     * Fake Elasticsearch that injects latency by advancing the clock of the manager
+     */
+    private class FakeElasticsearchStrategy implements DataSearchStrategy {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private volatile long latencyMillis;
+
+        private volatile boolean down;
+
+        /**
+         * True if Elasticsearch never responds to the searches that don't block the current thread
+         */
+        private volatile boolean hanging;
+
+        private volatile CompletableFuture<SearchResultsDTO> pending;
+
+        @Override
+        public SearchResultsDTO search(String keyword, int from, int size, Integer rangeFrom, Integer rangeTo)
+                throws IOException {
+            calls.incrementAndGet();
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+            if (down) {
+                throw new ConnectException("Connection refused");
+            }
+            return ELASTICSEARCH_RESULTS;
+        }
+
+        @Override
+        public CompletableFuture<SearchResultsDTO> searchAsync(String keyword,
+                                                               int from,
+                                                               int size,
+                                                               Integer rangeFrom,
+                                                               Integer rangeTo,
+                                                               Executor executor) {
+            if (!hanging) {
+                return DataSearchStrategy.super.searchAsync(keyword, from, size, rangeFrom, rangeTo, executor);
+            }
+            calls.incrementAndGet();
+            pending = new CompletableFuture<>();
+            return pending;
+        }
+    }
+
+    private static class FakeMySqlStrategy implements DataSearchStrategy {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private final SearchResultsDTO results = SearchResultsDTO.builder().totalCount(2L).build();
+
+        /**
+         * Name of the thread that searched in MySQL most recently
+         */
+        private volatile String thread;
+
+        @Override
+        public SearchResultsDTO search(String keyword, int from, int size, Integer rangeFrom, Integer rangeTo) {
+            calls.incrementAndGet();
+            thread = Thread.currentThread().getName();
+            return results;
+        }
+
+        @Override
+        public SearchResultsDTO searchByCursor(String keyword, String cursor, int size) {
+            thread = Thread.currentThread().getName();
+            return results;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.github.learndifferent.mtm.strategy.search.main;
+
+import com.github.learndifferent.mtm.config.ElasticsearchConfigProperties;
+import com.github.learndifferent.mtm.constant.consist.SearchConstant;
+import com.github.learndifferent.mtm.dto.search.SearchResultsDTO;
+import com.github.learndifferent.mtm.dto.search.UserForSearchWithMoreInfo;
+import com.github.learndifferent.mtm.entity.UserIdAndCountDO;
+import com.github.learndifferent.mtm.manager.SearchManager;
+import com.github.learndifferent.mtm.mapper.BookmarkMapper;
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.search.TotalHits.Relation;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Latency benchmark for converting a page of user search hits.
+ * <p>
+ * Compares {@link UserDataSearchElasticsearchStrategy}, which counts the public bookmarks of all users
+ * on the page with one grouped query, with the previous conversion that ran a count query for each hit.
+ * Both use an in-memory {@link BookmarkMapper} that simulates the database round trip,
+ * and Elasticsearch returns the same page of hits immediately.
+ * </p>
+ * Run {@link #main(String[])} to benchmark page sizes from 10 to 100.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserDataSearchElasticsearchStrategyBenchmark {
+
+    private static final String KEYWORD = "user";
+
+    /**
+     * Simulated latency of a count query in database
+     */
+    private static final long DB_LATENCY_NANOS = TimeUnit.MICROSECONDS.toNanos(200L);
+
+    @Param({"10", "20", "50", "100"})
+    private int pageSize;
+
+    private UserDataSearchElasticsearchStrategy strategy;
+
+    private BookmarkMapper bookmarkMapper;
+
+    private SearchHits hits;
+
+    @Setup
+    public void setup() {
+        hits = createHits(pageSize);
+        bookmarkMapper = createBookmarkMapper();
+        strategy = new UserDataSearchElasticsearchStrategy(new FixedHitsSearchManager(hits), bookmarkMapper);
+    }
+
+    @Benchmark
+    public SearchResultsDTO groupedCount() throws Exception {
+        return strategy.search(KEYWORD, 0, pageSize, null, null);
+    }
+
+    @Benchmark
+    public List<UserForSearchWithMoreInfo> perHitCount() {
+        return Arrays.stream(hits.getHits())
+                .map(hit -> {
+                    Map<String, Object> source = hit.getSourceAsMap();
+                    Long id = (Long) source.get(SearchConstant.USER_ID);
+                    return UserForSearchWithMoreInfo.builder()
+                            .id(id)
+                            .userName(String.valueOf(source.get(SearchConstant.USER_NAME)))
+                            .role(String.valueOf(source.get(SearchConstant.ROLE)))
+                            .createTime(Instant.parse(String.valueOf(source.get(SearchConstant.CREATION_TIME))))
+                            .bookmarkNumber(bookmarkMapper.countUserBookmarks(id, false))
+                            .build();
+                })
+                .collect(Collectors.toList());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(UserDataSearchElasticsearchStrategyBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    private static SearchHits createHits(int size) {
+        SearchHit[] hitsArray = new SearchHit[size];
+        for (int i = 0; i < size; i++) {
+            // the user IDs are generated by Snowflake, which are always Long
+            long userId = 1_000_000_000_000L + i;
+            String json = "{\"" + SearchConstant.USER_ID + "\":" + userId
+                    + ",\"" + SearchConstant.USER_NAME + "\":\"user" + i + "\""
+                    + ",\"" + SearchConstant.ROLE + "\":\"user\""
+                    + ",\"" + SearchConstant.CREATION_TIME + "\":\"2023-11-26T00:00:00Z\"}";
+            SearchHit hit = new SearchHit(i, String.valueOf(userId), null, Collections.emptyMap(),
+                    Collections.emptyMap());
+            hit.sourceRef(new BytesArray(json));
+            hit.highlightFields(Collections.emptyMap());
+            hitsArray[i] = hit;
+        }
+        return new SearchHits(hitsArray, new TotalHits(size, Relation.EQUAL_TO), 1.0F);
+    }
+
+    /**
+     * In-memory {@link BookmarkMapper} that simulates the latency of the count queries
+     *
+     * @return the mapper
+     */
+    @SuppressWarnings("unchecked")
+    private static BookmarkMapper createBookmarkMapper() {
+        return (BookmarkMapper) Proxy.newProxyInstance(BookmarkMapper.class.getClassLoader(),
+                new Class<?>[]{BookmarkMapper.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "countUserBookmarks":
+                            LockSupport.parkNanos(DB_LATENCY_NANOS);
+                            return 3;
+                        case "countPublicBookmarksOfUsers":
+                            LockSupport.parkNanos(DB_LATENCY_NANOS);
+                            return ((Collection<Long>) args[0]).stream()
+                                    .map(userId -> new UserIdAndCountDO(userId, 3))
+                                    .collect(Collectors.toList());
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    /**
+     * {@link SearchManager} that returns the same hits without connecting to Elasticsearch
+     */
+    static class FixedHitsSearchManager extends SearchManager {
+
+        private final SearchHits hits;
+
+        FixedHitsSearchManager(SearchHits hits) {
+            super(null, null, null, null, new ElasticsearchConfigProperties(), null, null);
+            this.hits = hits;
+        }
+
+        @Override
+        public SearchHits searchAndGetHits(SearchRequest searchRequest) {
+            return hits;
+        }
+    }
+}